@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * reader for the records of a SQL query from any database with a JDBC driver - the records are returned
+ * as RowFieldCollection objects.
+ *
+ * the query is executed with a forward only, read only result set and the given fetch size, so that the
+ * driver streams the records instead of loading the complete result into memory. note that some drivers need
+ * additional settings for streaming: MySql needs the connection property useCursorFetch=true and PostgreSQL
+ * needs a connection with auto commit turned off.
+ *
+ * the names of the fields are the labels of the columns of the query. all rows share the same immutable header row.
+ *
+ * if rows are recycled, the same RowFieldCollection object is returned for all records - unless it has
+ * been marked as retained. the reader is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class JdbcReader implements Closeable
+{
+	public static final int DEFAULT_FETCH_SIZE	= 1000;
+
+	private final Connection connection;
+	private final boolean connectionOwned;
+	private final Statement statement;
+	private final ResultSet resultSet;
+	private final HeaderRow header;
+	private final Object[] values;
+	private boolean recycleRows = false;
+
+	private RowFieldCollection recycledRow;
+	private long numberOfRecords = 0;
+
+	/**
+	 * constructor for a reader, which connects to the database with the given JDBC url and executes the query
+	 * using the default fetch size. the connection is closed when the reader is closed.
+	 *
+	 * @param url				the JDBC url of the database
+	 * @param userid			the id of the user
+	 * @param password			the password of the user
+	 * @param sql				the SQL query
+	 * @throws SQLException		exception when the connection can not be established or the query can not be executed
+	 */
+	public JdbcReader(String url, String userid, String password, String sql) throws SQLException
+	{
+		this(DriverManager.getConnection(url, userid, password), true, sql, DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * constructor for a reader, which executes the query using the given connection and the default fetch size.
+	 * the connection is not closed when the reader is closed.
+	 *
+	 * @param connection		the connection to the database
+	 * @param sql				the SQL query
+	 * @throws SQLException		exception when the query can not be executed
+	 */
+	public JdbcReader(Connection connection, String sql) throws SQLException
+	{
+		this(connection, false, sql, DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * constructor for a reader, which executes the query using the given connection and fetch size.
+	 * the connection is not closed when the reader is closed.
+	 *
+	 * @param connection		the connection to the database
+	 * @param sql				the SQL query
+	 * @param fetchSize			the number of records the driver fetches at once
+	 * @throws SQLException		exception when the query can not be executed
+	 */
+	public JdbcReader(Connection connection, String sql, int fetchSize) throws SQLException
+	{
+		this(connection, false, sql, fetchSize);
+	}
+
+	private JdbcReader(Connection connection, boolean connectionOwned, String sql, int fetchSize) throws SQLException
+	{
+		this.connection = connection;
+		this.connectionOwned = connectionOwned;
+		Statement createdStatement = null;
+		try
+		{
+			createdStatement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			createdStatement.setFetchSize(fetchSize);
+			this.statement = createdStatement;
+			this.resultSet = createdStatement.executeQuery(sql);
+
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			String[] fieldNames = new String[metaData.getColumnCount()];
+			for(int i=0;i<fieldNames.length;i++)
+			{
+				fieldNames[i] = metaData.getColumnLabel(i + 1);
+			}
+			this.header = HeaderRow.intern(fieldNames);
+			this.values = new Object[fieldNames.length];
+		}
+		catch(SQLException | RuntimeException ex)
+		{
+			// the caller gets no reader to close, so the statement and the connection of the reader are closed here
+			closeAfterFailure(createdStatement, connectionOwned ? connection : null, ex);
+			throw ex;
+		}
+	}
+
+	/**
+	 * closes the statement and the connection, if they are not null. exceptions are added to the exception
+	 * which caused the failure.
+	 */
+	private static void closeAfterFailure(Statement statement, Connection connection, Exception failure)
+	{
+		try
+		{
+			if(statement!=null)
+			{
+				// the result set is closed together with the statement
+				statement.close();
+			}
+		}
+		catch(SQLException ex)
+		{
+			failure.addSuppressed(ex);
+		}
+		try
+		{
+			if(connection!=null)
+			{
+				connection.close();
+			}
+		}
+		catch(SQLException ex)
+		{
+			failure.addSuppressed(ex);
+		}
+	}
+
+	/**
+	 * returns the next record as a RowFieldCollection
+	 *
+	 * @return					the next record or null if the end of the result is reached
+	 * @throws SQLException		when the record can not be read
+	 */
+	public RowFieldCollection getRowFieldCollection() throws SQLException
+	{
+		if(!resultSet.next())
+		{
+			return null;
+		}
+		numberOfRecords++;
+		for(int i=0;i<values.length;i++)
+		{
+			values[i] = resultSet.getObject(i + 1);
+		}
+		if(recycleRows)
+		{
+			if(recycledRow==null || recycledRow.isRetained())
+			{
+				recycledRow = new RowFieldCollection(header, values);
+			}
+			else
+			{
+				recycledRow.reset(header, values);
+			}
+			return recycledRow;
+		}
+		return new RowFieldCollection(header, values.clone());
+	}
+
+	/**
+	 * closes the result set and the statement - and the connection, if it was opened by the reader
+	 *
+	 * @throws IOException	when the result set, statement or connection can not be closed
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			resultSet.close();
+			statement.close();
+			if(connectionOwned)
+			{
+				connection.close();
+			}
+		}
+		catch(SQLException ex)
+		{
+			throw new IOException(ex);
+		}
+	}
+
+	/**
+	 * returns the header row with the labels of the columns of the query
+	 *
+	 * @return		the header row
+	 */
+	public HeaderRow getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * returns the number of records read
+	 *
+	 * @return		the number of records
+	 */
+	public long getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * indicates if the same RowFieldCollection object is used for all records
+	 *
+	 * @return		indicator if rows are recycled
+	 */
+	public boolean getRecycleRows()
+	{
+		return recycleRows;
+	}
+
+	/**
+	 * sets if the same RowFieldCollection object is used for all records. the row returned by the
+	 * getRowFieldCollection() method is then only valid until the next record is read. call the setRetained()
+	 * method of the row to keep it.
+	 *
+	 * @param recycleRows		indicator if rows are recycled
+	 */
+	public void setRecycleRows(boolean recycleRows)
+	{
+		this.recycleRows = recycleRows;
+		this.recycledRow = null;
+	}
+}
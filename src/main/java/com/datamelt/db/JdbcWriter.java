@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import com.datamelt.util.FieldNotFoundException;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * writes the fields of rows, which have been updated by the actions of the rule engine, back to a database table.
+ *
+ * the rows are identified by the key fields. the update fields are written using a PreparedStatement. the updates are
+ * collected in batches and committed every given number of rows - the commit interval. rows which have not been updated
+ * are not written.
+ *
+ * the names of the fields of the rows must be the names of the columns of the table. the positions of the fields in the
+ * rows are determined once per header row.
+ *
+ * auto commit is turned off for the connection while the writer is open. use a different connection than the one of the
+ * JdbcReader, if the driver closes the result set when a transaction is committed. the writer is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class JdbcWriter implements Closeable
+{
+	public static final int DEFAULT_COMMIT_INTERVAL	= 1000;
+
+	private final Connection connection;
+	private final boolean autoCommit;
+	private final PreparedStatement statement;
+	// the update fields, followed by the key fields, in the order of the parameters of the statement
+	private final String[] fieldNames;
+	private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+	private HeaderRow resolvedHeader;
+	private int[] slots;
+	private int pendingRows = 0;
+	private long numberOfRowsWritten = 0;
+
+	/**
+	 * constructor for a writer that updates the given fields of the table. the rows are identified by the key fields.
+	 *
+	 * @param connection		the connection to the database
+	 * @param tableName			the name of the table
+	 * @param keyFields			the names of the fields that identify a row
+	 * @param updateFields		the names of the fields to update
+	 * @throws SQLException		exception when the statement can not be prepared
+	 */
+	public JdbcWriter(Connection connection, String tableName, String[] keyFields, String[] updateFields) throws SQLException
+	{
+		if(keyFields.length==0 || updateFields.length==0)
+		{
+			throw new IllegalArgumentException("at least one key field and one update field must be defined");
+		}
+		StringBuilder sql = new StringBuilder("update ").append(tableName).append(" set ");
+		for(int i=0;i<updateFields.length;i++)
+		{
+			sql.append(i>0 ? ", " : "").append(updateFields[i]).append("=?");
+		}
+		sql.append(" where ");
+		for(int i=0;i<keyFields.length;i++)
+		{
+			sql.append(i>0 ? " and " : "").append(keyFields[i]).append("=?");
+		}
+
+		this.fieldNames = new String[updateFields.length + keyFields.length];
+		System.arraycopy(updateFields, 0, fieldNames, 0, updateFields.length);
+		System.arraycopy(keyFields, 0, fieldNames, updateFields.length, keyFields.length);
+
+		this.connection = connection;
+		this.autoCommit = connection.getAutoCommit();
+		this.statement = connection.prepareStatement(sql.toString());
+		connection.setAutoCommit(false);
+	}
+
+	/**
+	 * adds the update of the given row to the batch, if the row has been updated. the batch is executed and
+	 * committed when the number of rows reaches the commit interval.
+	 *
+	 * @param row				the row
+	 * @return					indicator if the row was updated and added to the batch
+	 * @throws Exception		exception when the row does not contain a field or the batch can not be executed
+	 */
+	public boolean write(RowFieldCollection row) throws Exception
+	{
+		if(!row.isCollectionUpdated())
+		{
+			return false;
+		}
+		if(row.getHeader()!=resolvedHeader)
+		{
+			resolveSlots(row);
+		}
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			statement.setObject(i + 1, getJdbcValue(row.getFieldValue(slots[i])));
+		}
+		statement.addBatch();
+		pendingRows++;
+		if(pendingRows>=commitInterval)
+		{
+			flush();
+		}
+		return true;
+	}
+
+	/**
+	 * executes the collected updates and commits them
+	 *
+	 * @throws SQLException		exception when the updates can not be executed or committed
+	 */
+	public void flush() throws SQLException
+	{
+		if(pendingRows>0)
+		{
+			statement.executeBatch();
+			connection.commit();
+			numberOfRowsWritten += pendingRows;
+			pendingRows = 0;
+		}
+	}
+
+	private void resolveSlots(RowFieldCollection row) throws FieldNotFoundException
+	{
+		int[] resolvedSlots = new int[fieldNames.length];
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			resolvedSlots[i] = row.getFieldIndex(fieldNames[i]);
+			if(resolvedSlots[i]<0)
+			{
+				throw new FieldNotFoundException("field: [" + fieldNames[i] + "] not found");
+			}
+		}
+		slots = resolvedSlots;
+		resolvedHeader = row.getHeader();
+	}
+
+	private static Object getJdbcValue(Object value)
+	{
+		// dates created by the rule engine are not sql dates
+		if(value instanceof Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time || value instanceof Timestamp))
+		{
+			return new Timestamp(((Date)value).getTime());
+		}
+		return value;
+	}
+
+	/**
+	 * executes and commits the remaining updates and closes the statement. the connection is not closed, but
+	 * its auto commit setting is restored.
+	 *
+	 * @throws IOException	when the updates can not be executed or the statement can not be closed
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+			statement.close();
+			connection.setAutoCommit(autoCommit);
+		}
+		catch(SQLException ex)
+		{
+			throw new IOException(ex);
+		}
+	}
+
+	/**
+	 * returns the number of rows after which the updates are executed and committed
+	 *
+	 * @return		the commit interval
+	 */
+	public int getCommitInterval()
+	{
+		return commitInterval;
+	}
+
+	/**
+	 * sets the number of rows after which the updates are executed and committed
+	 *
+	 * @param commitInterval	the commit interval
+	 */
+	public void setCommitInterval(int commitInterval)
+	{
+		this.commitInterval = Math.max(1, commitInterval);
+	}
+
+	/**
+	 * returns the number of rows that have been written and committed
+	 *
+	 * @return		the number of rows
+	 */
+	public long getNumberOfRowsWritten()
+	{
+		return numberOfRowsWritten;
+	}
+}
@@ -21,6 +21,8 @@ package com.datamelt.rules.core;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+import com.datamelt.util.FieldSlotResolver;
+
 /**
  * 	a RuleObject identifies an object that will be instantiated and one of its methods
  *  will be run. The result will later in the process be compared to another value
@@ -41,6 +43,9 @@ public class ActionObject implements Serializable
     private int isGetter;
     private ArrayList <Parameter>parameters = new ArrayList<Parameter>();
     
+    // resolves the slot of the field in case the object is a RowFieldCollection
+    private transient volatile FieldSlotResolver fieldSlotResolver;
+    
     public static final long serialVersionUID = 1964070322;
     
     /**
@@ -176,4 +181,23 @@ public class ActionObject implements Serializable
 	{
 		this.returnType = returnType;
 	}
+	
+	/**
+	 * returns the resolver for the slot of the field with the given name.
+	 * 
+	 * the resolver is created once and then reused - as long as the name of the field does not change.
+	 * 
+	 * @param	fieldName	the name of the field
+	 * @return				the resolver for the slot of the field
+	 */
+	public FieldSlotResolver getFieldSlotResolver(String fieldName)
+	{
+		FieldSlotResolver resolver = fieldSlotResolver;
+		if(resolver==null || !resolver.getFieldName().equals(fieldName))
+		{
+			resolver = new FieldSlotResolver(fieldName);
+			fieldSlotResolver = resolver;
+		}
+		return resolver;
+	}
 }
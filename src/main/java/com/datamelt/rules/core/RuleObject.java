@@ -20,6 +20,8 @@ package com.datamelt.rules.core;
 
 import java.io.Serializable;
 
+import com.datamelt.util.FieldSlotResolver;
+
 
 /**
  * 	a RuleObject identifies an object that will be instantiated and one of its methods
@@ -38,6 +40,9 @@ public class RuleObject implements Serializable
     private String parameter;
     private String parameterType;
     
+    // resolves the slot of the field in case the object is a RowFieldCollection
+    private transient volatile FieldSlotResolver fieldSlotResolver;
+    
     public static final long serialVersionUID = 1964070334;
     
     /**
@@ -173,4 +178,23 @@ public class RuleObject implements Serializable
     {
         this.parameterType = parameterType;
     }
+    
+    /**
+     * returns the resolver for the slot of the field with the given name.
+     * 
+     * the resolver is created once and then reused - as long as the name of the field does not change.
+     * 
+     * @param	fieldName	the name of the field
+     * @return				the resolver for the slot of the field
+     */
+    public FieldSlotResolver getFieldSlotResolver(String fieldName)
+    {
+    	FieldSlotResolver resolver = fieldSlotResolver;
+    	if(resolver==null || !resolver.getFieldName().equals(fieldName))
+    	{
+    		resolver = new FieldSlotResolver(fieldName);
+    		fieldSlotResolver = resolver;
+    	}
+    	return resolver;
+    }
 }
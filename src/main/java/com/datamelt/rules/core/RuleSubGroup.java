@@ -29,6 +29,7 @@ import com.datamelt.rules.core.util.Converter;
 import com.datamelt.rules.implementation.GenericCheck;
 import com.datamelt.util.ClassUtility;
 import com.datamelt.util.FieldNotFoundException;
+import com.datamelt.util.RowFieldCollection;
 
 /**
  * @author uwe geercken
@@ -294,6 +295,18 @@ public class RuleSubGroup implements Serializable
     
     private Object createObjectFromXmlObject(RuleObject ruleObject,Object object)throws Exception
     {
+    	// the value of a field of a RowFieldCollection is retrieved using the slot of the field,
+    	// which is resolved once per header row. this avoids the lookup of the method and the field name for every row
+    	if(object instanceof RowFieldCollection && RowFieldCollection.METHOD_GET_FIELD_VALUE.equals(ruleObject.getMethodName()) && ClassUtility.TYPE_STRING.equalsIgnoreCase(ruleObject.getParameterType()))
+    	{
+    		// a rule on a string gets the text of a converted value unchanged
+    		if(ClassUtility.TYPE_STRING.equalsIgnoreCase(ruleObject.getMethodReturnType()))
+    		{
+    			return ruleObject.getFieldSlotResolver(ruleObject.getParameter()).getFieldText((RowFieldCollection)object);
+    		}
+    		return ruleObject.getFieldSlotResolver(ruleObject.getParameter()).getFieldValue((RowFieldCollection)object);
+    	}
+    	
         //  create the classes array corresponding to the parameters/arguments of the method
         Class<?> parameters[]=null;
 		if(ruleObject.getParameterType()!=null)
@@ -429,7 +442,7 @@ public class RuleSubGroup implements Serializable
         // then convert/cast the object
         if(resultType!=null && !resultType.equals(rule.getRuleObjects().get(0).getMethodReturnType()))
         {
-        	objects[0] = ClassUtility.getObject(rule.getRuleObjects().get(0).getMethodReturnType(),(String)result);	
+        	objects[0] = ClassUtility.convertObject(rule.getRuleObjects().get(0).getMethodReturnType(),result);	
         }
         else
         {
@@ -453,7 +466,7 @@ public class RuleSubGroup implements Serializable
                 // then convert/cast the object
                 if(!resultType2.equals(rule.getRuleObjects().get(1).getMethodReturnType()))
                 {
-                	objects[1] = ClassUtility.getObject(rule.getRuleObjects().get(1).getMethodReturnType(),(String)result2);
+                	objects[1] = ClassUtility.convertObject(rule.getRuleObjects().get(1).getMethodReturnType(),result2);
                 }
                 else
                 {
@@ -25,10 +25,13 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 import com.datamelt.rules.core.ActionObject;
+import com.datamelt.rules.core.Parameter;
 import com.datamelt.rules.core.XmlAction;
 import com.datamelt.rules.core.util.MappingCollection;
 import com.datamelt.util.ClassUtility;
 import com.datamelt.util.FieldNotFoundException;
+import com.datamelt.util.FieldSlotResolver;
+import com.datamelt.util.RowFieldCollection;
 /**
  * class to execute one or a list of actions. An action is executed against a given object.
  * 
@@ -100,6 +103,8 @@ public class Action implements Serializable
 		
         ArrayList<ActionObject> actionGetterObjects = action.getActionGetterObjects();
         ActionObject actionSetterObject = action.getActionSetterObject();
+        // if the setter sets the value of a field of a RowFieldCollection, the field is accessed using its slot
+        String setterFieldName = getSetterFieldName(actionSetterObject);
 		// if we have a getter method, we invoke the method to get the actual object
 		// then we will pass the object to the action method
         Object[] getterObjects = null;
@@ -107,15 +112,27 @@ public class Action implements Serializable
         {
         	getterObjects = new Object[action.getActionGetterObjects().size()];
         	// construct the setter method to execute on the object from the xml action
-    		methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
+        	if(setterFieldName==null)
+        	{
+        		methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
+        	}
     		
     		// create the actual object
         	try
         	{
         		for(int i=0;i<actionGetterObjects.size();i++)
         		{
-        			Method methodGetterObject = ClassUtility.getObjectMethod(action,actionGetterObjects.get(i));
-        			getterObjects[i] = ClassUtility.invokeObjectMethod(object, methodGetterObject, actionGetterObjects.get(i).getParameters());
+        			ActionObject actionGetterObject = actionGetterObjects.get(i);
+        			String getterFieldName = getGetterFieldName(actionGetterObject);
+        			if(getterFieldName!=null)
+        			{
+        				getterObjects[i] = getGetterFieldValue(actionGetterObject, getterFieldName);
+        			}
+        			else
+        			{
+        				Method methodGetterObject = ClassUtility.getObjectMethod(action,actionGetterObject);
+        				getterObjects[i] = ClassUtility.invokeObjectMethod(object, methodGetterObject, actionGetterObject.getParameters());
+        			}
         		}
         	}
         	catch(ActionInvocationException aie)
@@ -137,7 +154,10 @@ public class Action implements Serializable
         	// construct the setter method to execute on the object from the xml action
     		try
     		{
-    			methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
+    			if(setterFieldName==null)
+    			{
+    				methodSetterObject = ClassUtility.getObjectMethod(action,action.getActionSetterObject());
+    			}
     		}
     		catch(NoSuchMethodException nsm)
     		{
@@ -181,7 +201,21 @@ public class Action implements Serializable
         {
         	try
         	{
-        		ClassUtility.invokeObjectSetterMethod(object, actionClassResult, methodSetterObject,action.getActionSetterObject().getParameters());
+        		// a value of null is passed using reflection, because the setter method might expect a primitive type
+        		if(setterFieldName!=null && actionClassResult!=null)
+        		{
+        			// the value is converted to the type of the setter parameter, as when the setter method is invoked
+        			Object value = convertValue(actionSetterObject.getParameters().get(1).getType(), actionClassResult);
+        			actionSetterObject.getFieldSlotResolver(setterFieldName).setFieldValue((RowFieldCollection)object, value);
+        		}
+        		else
+        		{
+        			if(methodSetterObject==null)
+        			{
+        				methodSetterObject = ClassUtility.getObjectMethod(action,actionSetterObject);
+        			}
+        			ClassUtility.invokeObjectSetterMethod(object, actionClassResult, methodSetterObject,action.getActionSetterObject().getParameters());
+        		}
         	}
         	catch(ActionInvocationException aie)
         	{
@@ -202,6 +236,88 @@ public class Action implements Serializable
         }
 	}
 	
+	/**
+	 * returns the name of the field, if the getter object gets the value of a field of a RowFieldCollection
+	 * by specifying the name of the field.
+	 * 
+	 * @param actionObject	the getter object of the action
+	 * @return				the name of the field or null if the getter does not get the value of a field by its name
+	 */
+	private String getGetterFieldName(ActionObject actionObject)
+	{
+		if(object instanceof RowFieldCollection && RowFieldCollection.METHOD_GET_FIELD_VALUE.equals(actionObject.getMethodName()))
+		{
+			ArrayList<Parameter> parameters = actionObject.getParameters();
+			if(parameters.size()==1 && isFieldNameParameter(parameters.get(0)))
+			{
+				return parameters.get(0).getValue();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * returns the name of the field, if the setter object sets the value of a field of a RowFieldCollection
+	 * by specifying the name of the field.
+	 * 
+	 * @param actionObject	the setter object of the action
+	 * @return				the name of the field or null if the setter does not set the value of a field by its name
+	 */
+	private String getSetterFieldName(ActionObject actionObject)
+	{
+		if(actionObject!=null && object instanceof RowFieldCollection && RowFieldCollection.METHOD_SET_FIELD_VALUE.equals(actionObject.getMethodName()))
+		{
+			ArrayList<Parameter> parameters = actionObject.getParameters();
+			if(parameters.size()==2 && isFieldNameParameter(parameters.get(0)) && parameters.get(1).isSetterValue())
+			{
+				return parameters.get(0).getValue();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * returns the value of the field for the getter object, converted to the return type of the getter which is
+	 * the type of the parameter that the action method expects. for a string the text of the field is used, as it
+	 * was read before the value was converted to the type of a reference field.
+	 * 
+	 * @param actionObject	the getter object of the action
+	 * @param fieldName		the name of the field
+	 * @return				the value of the field
+	 * @throws Exception	when the row does not contain the field
+	 */
+	private Object getGetterFieldValue(ActionObject actionObject, String fieldName) throws Exception
+	{
+		FieldSlotResolver resolver = actionObject.getFieldSlotResolver(fieldName);
+		if(ClassUtility.TYPE_STRING.equalsIgnoreCase(actionObject.getReturnType()))
+		{
+			return convertValue(actionObject.getReturnType(), resolver.getFieldText((RowFieldCollection)object));
+		}
+		return convertValue(actionObject.getReturnType(), resolver.getFieldValue((RowFieldCollection)object));
+	}
+	
+	/**
+	 * converts the value to the given type, if it is not already of this type
+	 * 
+	 * @param type		the name of the type according to constants defined in the ClassUtility class
+	 * @param value		the value to convert
+	 * @return			the converted value
+	 */
+	private static Object convertValue(String type, Object value)
+	{
+		Class<?> typeClass = type!=null ? ClassUtility.getClass(type) : null;
+		if(value==null || typeClass==null || typeClass.isInstance(value))
+		{
+			return value;
+		}
+		return ClassUtility.convertObject(type, value);
+	}
+	
+	private static boolean isFieldNameParameter(Parameter parameter)
+	{
+		return !parameter.isSetterValue() && ClassUtility.TYPE_STRING.equalsIgnoreCase(parameter.getType()) && parameter.getValue()!=null;
+	}
+	
 	/**
 	 * gets the object that is used for this action 
 	 * 
@@ -18,17 +18,26 @@
  */
 package com.datamelt.rules.core.action;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.WeekFields;
 import java.util.Date;
+import java.util.Locale;
 
 import com.datamelt.rules.core.XmlAction;
 import com.datamelt.util.ActionAnnotation;
 import com.datamelt.util.ActionMethodAnnotation;
+import com.datamelt.util.DateUtility;
 /**
  * Class containing possible actions that are related to dates.
  * 
  * Actions belong to a rulegroup and are execute depending on the status of rulegroup - if it passed or failed (or both).
+ * 
+ * The formatters for the date formats are taken from the cache of the DateUtility class, so they are only created once per date format.
  *
  * @author uwe geercken
  * 
@@ -65,10 +74,9 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "last parameter: the date format")
 	public String setValue(XmlAction action, Date value, String dateFormat) throws Exception
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
 		try
 		{
-			return sdf.format(value);
+			return DateUtility.format(value, dateFormat);
 		}
 		catch(Exception ex)
 		{
@@ -88,12 +96,9 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "the string will be interpreted as a date using format: " + DEFAULT_DATE_FORMAT)
 	public Date setValue(XmlAction action, String value)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
-		Calendar cal = Calendar.getInstance();
 		try
 		{
-			cal.setTime(sdf.parse(value));
-			return cal.getTime();
+			return DateUtility.parse(value, DEFAULT_DATE_FORMAT);
 		}
 		catch(Exception ex)
 		{
@@ -113,12 +118,9 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "the last parameter specifies the date format of the string")
 	public Date setValue(XmlAction action, String value, String dateFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		Calendar cal = Calendar.getInstance();
 		try
 		{
-			cal.setTime(sdf.parse(value));
-			return cal.getTime();
+			return DateUtility.parse(value, dateFormat);
 		}
 		catch(Exception ex)
 		{
@@ -140,13 +142,9 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "the second parameter specifies the date format of the string, the third parameter specifies the return format")
 	public String setValue(XmlAction action, String value, String dateFormat, String returnFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		SimpleDateFormat sdfReturn = new SimpleDateFormat(returnFormat);
-		Calendar cal = Calendar.getInstance();
 		try
 		{
-			cal.setTime(sdf.parse(value));
-			return sdfReturn.format(cal.getTime());
+			return DateUtility.format(DateUtility.parseZonedDateTime(value, dateFormat), returnFormat);
 		}
 		catch(Exception ex)
 		{
@@ -234,7 +232,7 @@ public class DateAction extends GenericAction
 	/**
 	 * method will set the value of the relevant object to the current date.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param dateFormat	the format to use for the date
@@ -244,8 +242,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "last parameter is the format of the returned date")
 	public String setTodayDate(XmlAction action,String dateFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		return sdf.format(new Date());
+		return DateUtility.format(ZonedDateTime.now(), dateFormat);
 	}
 	
 	/**
@@ -264,7 +261,7 @@ public class DateAction extends GenericAction
 	 * method will set the value of the relevant object to the current date plus/minus
 	 * the specified number of days offset.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
  	 * @param action		the action to use
 	 * @param dateFormat	the format to use for the date
@@ -276,10 +273,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the format of the returned date, 3rd parameter is number of days offset")
 	public String setTodayDate(XmlAction action,String dateFormat, int daysOffset)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		Calendar cal = Calendar.getInstance();
-		cal.add(Calendar.DAY_OF_MONTH, daysOffset);
-		return sdf.format(cal.getTime());
+		return DateUtility.format(ZonedDateTime.now().plusDays(daysOffset), dateFormat);
 	}
 	
 	/**
@@ -296,15 +290,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month, using the default date format: " + DEFAULT_DATE_FORMAT)
 	public String setLastDayOfMonth(XmlAction action,int year, int month)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-	    cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-	    cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-		
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month).with(TemporalAdjusters.lastDayOfMonth()), DEFAULT_DATE_FORMAT);
 	}
 	
 	/**
@@ -317,18 +303,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the last day of the month",methodDisplayname="set last day of month")
 	public Date setLastDayOfMonth(XmlAction action)
 	{
-		Calendar cal = Calendar.getInstance();
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-	    cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-		
-		return cal.getTime();
+		return DateUtility.toDate(ZonedDateTime.now().with(TemporalAdjusters.lastDayOfMonth()));
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * last day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param date			the date involved
@@ -337,12 +319,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the last day of the month",methodDisplayname="set last day of month")
 	public Date setLastDayOfMonth(XmlAction action,Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-	    cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-		
-		return cal.getTime();
+		return DateUtility.toDate(DateUtility.toZonedDateTime(date).with(TemporalAdjusters.lastDayOfMonth()));
 	}
 	
 	/**
@@ -355,10 +332,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the year of a given date",methodDisplayname="set year")
 	public int setYear(XmlAction action, Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-		
-		return cal.get(Calendar.YEAR);
+		return DateUtility.toZonedDateTime(date).getYear();
 	}
 	
 	/**
@@ -371,10 +345,8 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the month of a given date",methodDisplayname="set month")
 	public int setMonth(XmlAction action, Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-		
-		return cal.get(Calendar.MONTH);
+		// zero based - same as the MONTH field of the Calendar class
+		return DateUtility.toZonedDateTime(date).getMonthValue() - 1;
 	}
 	
 	/**
@@ -387,10 +359,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the wwek number of a given date",methodDisplayname="set week")
 	public int setWeek(XmlAction action, Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-		
-		return cal.get(Calendar.WEEK_OF_YEAR);
+		return DateUtility.toZonedDateTime(date).get(WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear());
 	}
 	
 	/**
@@ -403,10 +372,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the day of week of a given date",methodDisplayname="set day of week")
 	public int setDayOfWeek(XmlAction action, Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-	
-		return cal.get(Calendar.DAY_OF_WEEK);
+		return getDayOfWeek(date);
 	}
 	
 	/**
@@ -421,11 +387,8 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "last parameter is the indicator which day starts the week")
 	public int setDayOfWeek(XmlAction action, Date date, int firstDayOfWeek)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-		cal.setFirstDayOfWeek(firstDayOfWeek);
-		
-		return cal.get(Calendar.DAY_OF_WEEK);
+		// the first day of the week does not change the numbering of the days. sunday is always 1
+		return getDayOfWeek(date);
 	}
 	
 	/**
@@ -452,33 +415,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the quarter of a given date",methodDisplayname="set quarter")
 	public int setQuarter(XmlAction action, Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-		
-		int month =  cal.get(Calendar.MONTH);
-		if(month<=3)
-		{
-			return 1;
-		}
-		else if(month <=6)
-		{
-			return 2;
-		}
-		else if(month <=9)
-		{
-			return 3;
-		}
-		else
-		{
-			return 4;
-		}
+		return DateUtility.toZonedDateTime(date).get(IsoFields.QUARTER_OF_YEAR);
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * last day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param year			the year to use	 
@@ -490,15 +434,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month, 4th parameter is the date format to use")
 	public String setLastDayOfMonth(XmlAction action,int year, int month,String dateFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-		cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-	    cal.set(Calendar.DAY_OF_MONTH, cal.getActualMaximum(Calendar.DAY_OF_MONTH));
-		
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month).with(TemporalAdjusters.lastDayOfMonth()), dateFormat);
 	}
 	
 	/**
@@ -515,14 +451,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month")
 	public String setFirstDayOfMonth(XmlAction action,int year, int month)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-	    cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-		
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month), DEFAULT_DATE_FORMAT);
 	}
 	
 	/**
@@ -535,17 +464,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the first day of the current month",methodDisplayname="set first day of month")
 	public Date setFirstDayOfMonth(XmlAction action)
 	{
-		Calendar cal = Calendar.getInstance();
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-		
-		return cal.getTime();
+		return DateUtility.toDate(ZonedDateTime.now().withDayOfMonth(1));
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * first day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param date			the date involved	 
@@ -554,18 +480,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the first day of the month",methodDisplayname="set first day of month")
 	public Date setFirstDayOfMonth(XmlAction action,Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-		
-		return cal.getTime();
+		return DateUtility.toDate(DateUtility.toZonedDateTime(date).withDayOfMonth(1));
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * first day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param year			the year to use	 
@@ -577,14 +499,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month, 4th parameter is the date format to use")
 	public String setFirstDayOfMonth(XmlAction action,int year, int month,String dateFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-		cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 1);
-		
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month), dateFormat);
 	}
 
 	/**
@@ -601,14 +516,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month")
 	public String setMidDayOfMonth(XmlAction action,int year, int month)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-	    cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 15);
-		
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month).withDayOfMonth(15), DEFAULT_DATE_FORMAT);
 	}
 	
 	/**
@@ -621,17 +529,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the mid day (15th) of the month",methodDisplayname="set mid day of month")
 	public Date setMidDayOfMonth(XmlAction action)
 	{
-		Calendar cal = Calendar.getInstance();
-	    cal.set(Calendar.DAY_OF_MONTH, 15);
-		
-		return cal.getTime();
+		return DateUtility.toDate(ZonedDateTime.now().withDayOfMonth(15));
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * mid day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param date			the date involved	 
@@ -640,18 +545,14 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Set a value to the mid day of the month",methodDisplayname="set mid day of month")
 	public Date setMidDayOfMonth(XmlAction action,Date date)
 	{
-		Calendar cal = Calendar.getInstance();
-		cal.setTime(date);
-	    cal.set(Calendar.DAY_OF_MONTH, 15);
-		
-		return cal.getTime();
+		return DateUtility.toDate(DateUtility.toZonedDateTime(date).withDayOfMonth(15));
 	}
 	
 	/**
 	 * method will set the value of the relevant object to the date of the
 	 * mid day of the month.
 	 * the dateFormat parameter is used to specify the date format according
-	 * to the specification defined in the SimpleDateFormat class.
+	 * to the specification defined in the DateTimeFormatter class.
 	 * 
 	 * @param action		the action to use
 	 * @param year			the year to use	 
@@ -663,14 +564,7 @@ public class DateAction extends GenericAction
 	@ActionMethodAnnotation(note= "2nd parameter is the year, 3rd parameter is the month, 4th parameter is the date format to use")
 	public String setMidDayOfMonth(XmlAction action,int year, int month,String dateFormat)
 	{
-		SimpleDateFormat sdf = new SimpleDateFormat(dateFormat);
-		Calendar cal = Calendar.getInstance();
-		
-	    cal.set(Calendar.YEAR, year);
-		cal.set(Calendar.MONTH, month -1);
-	    cal.set(Calendar.DAY_OF_MONTH, 15);
-
-		return sdf.format(cal.getTime());
+		return DateUtility.format(getFirstDayOfMonth(year, month).withDayOfMonth(15), dateFormat);
 	}
 
 	/**
@@ -684,10 +578,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Add seconds to a date",methodDisplayname="add seconds")
 	public Date addSeconds(XmlAction action, Date date, long seconds)
 	{
-		final long ONE_SECOND_IN_MILLISECONDS = 1000;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds + (seconds * ONE_SECOND_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).plus(seconds, ChronoUnit.SECONDS));
 	}
 	
 	/**
@@ -701,10 +592,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Add minutes to a date",methodDisplayname="add minutes")
 	public Date addMinutes(XmlAction action, Date date, long minutes)
 	{
-		final long ONE_MINUTE_IN_MILLISECONDS = 60000;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds + (minutes * ONE_MINUTE_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).plus(minutes, ChronoUnit.MINUTES));
 	}
 
 	/**
@@ -718,10 +606,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Add hours to a date",methodDisplayname="add hours")
 	public Date addHours(XmlAction action, Date date, long hours)
 	{
-		final long ONE_HOUR_IN_MILLISECONDS = 60000 * 60 ;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds + (hours * ONE_HOUR_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).plus(hours, ChronoUnit.HOURS));
 	}
 	
 	/**
@@ -735,10 +620,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Add days to a date",methodDisplayname="add days")
 	public Date addDays(XmlAction action, Date date, long days)
 	{
-		final long ONE_DAY_IN_MILLISECONDS = 60000 * 60 * 24;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds + (days * ONE_DAY_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).plus(days, ChronoUnit.DAYS));
 	}
 
 	/**
@@ -752,10 +634,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Subtract seconds from a date",methodDisplayname="subtract seconds")
 	public Date subtractSeconds(XmlAction action, Date date, long seconds)
 	{
-		final long ONE_SECOND_IN_MILLISECONDS = 1000;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds - (seconds * ONE_SECOND_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).minus(seconds, ChronoUnit.SECONDS));
 	}
 	
 	/**
@@ -769,10 +648,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Subtract minutes from a date",methodDisplayname="subtract minutes")
 	public Date subtractMinutes(XmlAction action, Date date, long minutes)
 	{
-		final long ONE_MINUTE_IN_MILLISECONDS = 60000;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds - (minutes * ONE_MINUTE_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).minus(minutes, ChronoUnit.MINUTES));
 	}
 
 	/**
@@ -786,10 +662,7 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Subtract hours from a date",methodDisplayname="subtract hours")
 	public Date subtractHours(XmlAction action, Date date, long hours)
 	{
-		final long ONE_HOUR_IN_MILLISECONDS = 60000 * 60 ;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds - (hours * ONE_HOUR_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).minus(hours, ChronoUnit.HOURS));
 	}
 	
 	/**
@@ -803,10 +676,33 @@ public class DateAction extends GenericAction
 	@ActionAnnotation(description= "Subtract days from a date",methodDisplayname="subtract days")
 	public Date subtractDays(XmlAction action, Date date, long days)
 	{
-		final long ONE_DAY_IN_MILLISECONDS = 60000 * 60 * 24;
-		
-		long dateInMilliseconds = date.getTime();
-	    return new Date(dateInMilliseconds - (days * ONE_DAY_IN_MILLISECONDS));
+		return Date.from(Instant.ofEpochMilli(date.getTime()).minus(days, ChronoUnit.DAYS));
+	}
+	
+	/**
+	 * returns the first day of the given year and month with the current time of the day.
+	 * 
+	 * months outside of the range from 1 to 12 roll over into the previous or next year.
+	 * 
+	 * @param year			the year to use
+	 * @param month			the month to use
+	 * @return				the first day of the month
+	 */
+	private static ZonedDateTime getFirstDayOfMonth(int year, int month)
+	{
+		return ZonedDateTime.now().with(LocalDate.of(year, 1, 1).plusMonths(month - 1));
+	}
+	
+	/**
+	 * returns the day of the week of the given date. the numbering is the same as used
+	 * by the Calendar class: sunday is 1 and saturday is 7.
+	 * 
+	 * @param date			the date involved
+	 * @return				the day of the week
+	 */
+	private static int getDayOfWeek(Date date)
+	{
+		return DateUtility.toZonedDateTime(date).getDayOfWeek().getValue() % 7 + 1;
 	}
 
 }
@@ -18,9 +18,14 @@
  */
 package com.datamelt.rules.core.action;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
 
 import com.datamelt.rules.core.XmlAction;
 import com.datamelt.util.ActionAnnotation;
@@ -39,6 +44,32 @@ import com.datamelt.util.CheckAnnotation;
 public
 class StringAction extends GenericAction
 {
+	private static final String ENCRYPTION_ALGORITHM = "Blowfish";
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+	
+	// maximum number of keys for which the ciphers are kept per thread. the ciphers of the least recently used key are removed
+	private static final int MAXIMUM_CIPHER_KEYS = 16;
+	
+	// initialized ciphers per thread and key. index 0 of the array is used for encryption and index 1 for decryption.
+	// a cipher can not be used by multiple threads at the same time.
+	private static final ThreadLocal<HashMap<String,Cipher[]>> ciphers = new ThreadLocal<HashMap<String,Cipher[]>>()
+	{
+		@Override
+		protected HashMap<String,Cipher[]> initialValue()
+		{
+			return new LinkedHashMap<String,Cipher[]>(MAXIMUM_CIPHER_KEYS * 2, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String,Cipher[]> eldest)
+				{
+					return size() > MAXIMUM_CIPHER_KEYS;
+				}
+			};
+		}
+	};
+	
 	@ActionAnnotation(description= "Set a value to another value",methodDisplayname="set value (string)")
 	public String setValue(XmlAction action, String value) throws Exception
 	{
@@ -774,7 +805,7 @@ class StringAction extends GenericAction
 	 * @param action	the action to use
 	 * @param value		the value to use
 	 * @param key		the key to use
-	 * @return			the encrypted string
+	 * @return			the encrypted string in hexadecimal notation
 	 */
 	@ActionAnnotation(description= "Encrypt value (Blowfish) using a key",methodDisplayname="encrypt value")
 	@ActionMethodAnnotation(note= "last parameter: encryption key to use")
@@ -790,12 +821,7 @@ class StringAction extends GenericAction
 		}
 		try
 		{
-			SecretKeySpec skeyspec = new SecretKeySpec(key.getBytes(),"Blowfish");
-			Cipher cipher = Cipher.getInstance("Blowfish");
-			cipher.init(Cipher.ENCRYPT_MODE, skeyspec);
-			byte[] encrypted = cipher.doFinal(value.getBytes("UTF-8"));
-			String encryptedString = DatatypeConverter.printHexBinary(encrypted);
-			return encryptedString;
+			return toHex(encrypt(value, key));
 		} 
 		catch (Exception e) 
 		{
@@ -809,7 +835,7 @@ class StringAction extends GenericAction
 	 * returns the original value if the decryption failed.
 	 * 
 	 * @param action	the action to use
-	 * @param value		the value to use
+	 * @param value		the encrypted value in hexadecimal notation
 	 * @param key		the key to use
 	 * @return			the decrypted string
 	 */
@@ -827,16 +853,162 @@ class StringAction extends GenericAction
 		}
 		try 
 		{
-			SecretKeySpec skeyspec=new SecretKeySpec(key.getBytes(),"Blowfish");
-			Cipher cipher=Cipher.getInstance("Blowfish");
-			cipher.init(Cipher.DECRYPT_MODE, skeyspec);
-			byte[] valueBytes = DatatypeConverter.parseHexBinary(value);
-			byte[] decrypted = cipher.doFinal(valueBytes);
-			return new String(decrypted, "UTF-8");
+			return decrypt(fromHex(value), key);
+		} 
+		catch (Exception e) 
+		{
+			return value;
+		}
+	}
+	
+	/**
+	 * encrypts a given value with the specified key and returns the result Base64 encoded.
+	 * 
+	 * returns the original value if the encryption failed.
+	 * 
+	 * @param action	the action to use
+	 * @param value		the value to use
+	 * @param key		the key to use
+	 * @return			the encrypted string in Base64 encoding
+	 */
+	@ActionAnnotation(description= "Encrypt value (Blowfish) using a key. The result is Base64 encoded",methodDisplayname="encrypt value (base64)")
+	@ActionMethodAnnotation(note= "last parameter: encryption key to use")
+	public String encryptValueBase64(XmlAction action,String value,String key) 
+	{
+		if(value==null)
+		{
+			value="";
+		}
+		if(key==null)
+		{
+			key="";
+		}
+		try
+		{
+			return Base64.getEncoder().encodeToString(encrypt(value, key));
+		} 
+		catch (Exception e) 
+		{
+			return value;
+		}
+	}
+	
+	/**
+	 * decrypts a given Base64 encoded value with the specified key.
+	 * 
+	 * returns the original value if the decryption failed.
+	 * 
+	 * @param action	the action to use
+	 * @param value		the encrypted value in Base64 encoding
+	 * @param key		the key to use
+	 * @return			the decrypted string
+	 */
+	@ActionAnnotation(description= "Decrypt a Base64 encoded value (Blowfish) using a key",methodDisplayname="decrypt value (base64)")
+	@ActionMethodAnnotation(note= "last parameter: encryption key to use")
+	public String decryptValueBase64(XmlAction action,String value,String key)
+	{
+		if(value==null)
+		{
+			value="";
+		}
+		if(key==null)
+		{
+			key="";
+		}
+		try 
+		{
+			return decrypt(Base64.getDecoder().decode(value), key);
 		} 
 		catch (Exception e) 
 		{
 			return value;
 		}
 	}
+	
+	private static byte[] encrypt(String value, String key) throws Exception
+	{
+		try
+		{
+			return getCiphers(key)[0].doFinal(value.getBytes(StandardCharsets.UTF_8));
+		}
+		catch(Exception ex)
+		{
+			// the state of the cipher is undefined after a failure, so it is not used again
+			ciphers.get().remove(key);
+			throw ex;
+		}
+	}
+	
+	private static String decrypt(byte[] value, String key) throws Exception
+	{
+		try
+		{
+			return new String(getCiphers(key)[1].doFinal(value), StandardCharsets.UTF_8);
+		}
+		catch(Exception ex)
+		{
+			// the state of the cipher is undefined after a failure, so it is not used again
+			ciphers.get().remove(key);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * returns the ciphers for encryption and decryption for the given key. the ciphers are
+	 * created and initialized once per thread and key.
+	 * 
+	 * the ciphers are reset after each call of the doFinal method, so they can be used again.
+	 * 
+	 * @param key			the key to use
+	 * @return				array containing the cipher for encryption and the cipher for decryption
+	 * @throws Exception	when the ciphers can not be initialized - e.g. if the key is invalid
+	 */
+	private static Cipher[] getCiphers(String key) throws Exception
+	{
+		HashMap<String,Cipher[]> threadCiphers = ciphers.get();
+		Cipher[] keyCiphers = threadCiphers.get(key);
+		if(keyCiphers==null)
+		{
+			SecretKeySpec skeyspec = new SecretKeySpec(key.getBytes(),ENCRYPTION_ALGORITHM);
+			Cipher encryptCipher = Cipher.getInstance(ENCRYPTION_ALGORITHM);
+			encryptCipher.init(Cipher.ENCRYPT_MODE, skeyspec);
+			Cipher decryptCipher = Cipher.getInstance(ENCRYPTION_ALGORITHM);
+			decryptCipher.init(Cipher.DECRYPT_MODE, skeyspec);
+			
+			keyCiphers = new Cipher[] {encryptCipher, decryptCipher};
+			threadCiphers.put(key, keyCiphers);
+		}
+		return keyCiphers;
+	}
+	
+	private static String toHex(byte[] bytes)
+	{
+		char[] hex = new char[bytes.length * 2];
+		for(int i=0;i<bytes.length;i++)
+		{
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+	
+	private static byte[] fromHex(String hex)
+	{
+		if(hex.length() % 2 != 0)
+		{
+			throw new IllegalArgumentException("hexadecimal value must have an even number of characters: " + hex);
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for(int i=0;i<bytes.length;i++)
+		{
+			int high = Character.digit(hex.charAt(i * 2), 16);
+			int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+			if(high<0 || low<0)
+			{
+				throw new IllegalArgumentException("invalid hexadecimal value: " + hex);
+			}
+			bytes[i] = (byte)((high << 4) | low);
+		}
+		return bytes;
+	}
 }
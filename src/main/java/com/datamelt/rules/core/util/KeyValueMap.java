@@ -19,26 +19,59 @@
 
 package com.datamelt.rules.core.util;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.Properties;
 
 /**
 * holds the key/value mappings for a given file
 * 
-* the key/value pairs are read from the file and stored in a properties object.
+* the key/value pairs are read from the file - which uses the format of a properties file - and stored in
+* a compact string table. the map is not modified after it has been loaded, so it can be used
+* by multiple threads.
+* 
+* the last modified date and the length of the file are remembered, so that a change of the file
+* can be detected.
 * 
 * @author uwe geercken
 */
 public class KeyValueMap
 {
-	private Properties properties = new Properties();
-    private String filename;
+	private final StringTable table = new StringTable();
+    private final String filename;
+    private final long lastModified;
+    private final long length;
+    
+    // the next time the file shall be checked for changes
+    private volatile long nextCheckTime;
 	
 	public KeyValueMap(String filename) throws Exception
 	{
 		this.filename = filename;
-		properties = new Properties();
-        properties.load(new FileInputStream(filename));
+		File file = new File(filename);
+		// read the attributes of the file before it is loaded, so that a change during the load is detected later
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+		
+		// the properties object is only used to parse the file. the entries are directly
+		// added to the table and not stored in the properties
+		Properties parser = new Properties()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public synchronized Object put(Object key, Object value)
+			{
+				table.put((String)key, (String)value);
+				return null;
+			}
+		};
+		try(InputStream stream = new FileInputStream(file))
+		{
+			parser.load(stream);
+		}
+		table.trim();
 	}
 	
 	/*
@@ -49,7 +82,7 @@ public class KeyValueMap
 	 */
 	public String getValue(String key)
 	{
-		return properties.getProperty(key);
+		return table.get(key);
 	}
 
 	/*
@@ -61,4 +94,47 @@ public class KeyValueMap
 	{
 		return filename;
 	}
+	
+	/*
+	 * get the number of key/value pairs
+	 * 
+	 * @returns			the number of key/value pairs
+	 */
+	public int size()
+	{
+		return table.size();
+	}
+	
+	/*
+	 * indicates if the file has been changed since it was loaded. a file that has been
+	 * deleted is not regarded as changed.
+	 * 
+	 * @returns			indicator if the file was changed
+	 */
+	public boolean isFileChanged()
+	{
+		File file = new File(filename);
+		return file.exists() && (file.lastModified()!=lastModified || file.length()!=length);
+	}
+	
+	/*
+	 * indicates if the file is due to be checked for changes
+	 * 
+	 * @param	currentTime		the current time in milliseconds
+	 * @returns					indicator if the file shall be checked
+	 */
+	boolean isCheckDue(long currentTime)
+	{
+		return currentTime >= nextCheckTime;
+	}
+	
+	/*
+	 * sets the next time the file shall be checked for changes
+	 * 
+	 * @param	nextCheckTime	the time in milliseconds
+	 */
+	void setNextCheckTime(long nextCheckTime)
+	{
+		this.nextCheckTime = nextCheckTime;
+	}
 }
@@ -20,8 +20,7 @@
 package com.datamelt.rules.core.util;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
 * collection containing maps of key/value pairs.
@@ -29,14 +28,25 @@ import java.util.Map;
 * these maps can be used to replace - using an action - the original value with a value defined in a mapping file. The mapping file
 * is identified by it's filename.
 * 
+* a mapping file is loaded once, when it is first used. the maps can be used by multiple threads at the same time.
+* 
+* the mapping files are checked for changes in regular intervals. if a file has changed, it is loaded again and then replaces the
+* old map. until the new map is available, the old map is used. if the file can not be loaded, the old map is kept.
+* 
 * @author uwe geercken
 */
 public class MappingCollection implements Serializable
 {
 	public static final long serialVersionUID = 1964070879;
 	
-	// a hashmap of KeyValueMaps
-	private Map <String,KeyValueMap> maps = new HashMap<String,KeyValueMap>();
+	// default interval in milliseconds to check if a mapping file has changed
+	public static final long DEFAULT_RELOAD_CHECK_INTERVAL = 60000;
+	
+	// a map of KeyValueMaps
+	private ConcurrentHashMap <String,KeyValueMap> maps = new ConcurrentHashMap<String,KeyValueMap>();
+	
+	// interval in milliseconds to check if a mapping file has changed. a negative value disables the check
+	private volatile long reloadCheckInterval = DEFAULT_RELOAD_CHECK_INTERVAL;
 	
 	/*
 	 * gets a KeyValueMap from a hashmap
@@ -49,14 +59,68 @@ public class MappingCollection implements Serializable
 		KeyValueMap map = maps.get(filename);
 		// in case the map is null we load it
 		if(map==null)
+		{
+			map = loadMap(filename);
+		}
+		else if(reloadCheckInterval>=0 && map.isCheckDue(System.currentTimeMillis()))
+		{
+			map = reloadMap(filename, map);
+		}
+		return map;
+	}
+	
+	/*
+	 * loads the mapping file, if it has not been loaded by another thread in the meantime.
+	 * 
+	 * @param filename 	the path and filename of the mapping file
+     * @return			KeyValueMap containing all key/value mappings
+	 */
+	private synchronized KeyValueMap loadMap(String filename) throws Exception
+	{
+		KeyValueMap map = maps.get(filename);
+		if(map==null)
 		{
 			map = new KeyValueMap(filename);
+			map.setNextCheckTime(System.currentTimeMillis() + reloadCheckInterval);
 			// add it to the maps
 			maps.put(filename, map);
 		}
 		return map;
 	}
 	
+	/*
+	 * loads the mapping file again if it has changed and replaces the given map with the new one.
+	 * 
+	 * @param filename 	the path and filename of the mapping file
+	 * @param map		the map that is currently used
+     * @return			KeyValueMap containing all key/value mappings
+	 */
+	private synchronized KeyValueMap reloadMap(String filename, KeyValueMap map)
+	{
+		KeyValueMap currentMap = maps.get(filename);
+		// another thread already checked or replaced the map
+		if(currentMap!=map || !map.isCheckDue(System.currentTimeMillis()))
+		{
+			return currentMap;
+		}
+		map.setNextCheckTime(System.currentTimeMillis() + reloadCheckInterval);
+		if(map.isFileChanged())
+		{
+			try
+			{
+				KeyValueMap newMap = new KeyValueMap(filename);
+				newMap.setNextCheckTime(System.currentTimeMillis() + reloadCheckInterval);
+				maps.put(filename, newMap);
+				return newMap;
+			}
+			catch(Exception ex)
+			{
+				// keep the old map. the file will be checked again after the next interval
+			}
+		}
+		return map;
+	}
+	
 	/*
 	 * get a value from a mapping file by providing the filename and the key to lookup
 	 * 
@@ -68,4 +132,25 @@ public class MappingCollection implements Serializable
 		KeyValueMap map = getMap(filename);
 		return map.getValue(key);
 	}
+	
+	/*
+	 * returns the interval in milliseconds in which the mapping files are checked for changes
+	 * 
+	 * @return				the interval in milliseconds
+	 */
+	public long getReloadCheckInterval()
+	{
+		return reloadCheckInterval;
+	}
+	
+	/*
+	 * sets the interval in milliseconds in which the mapping files are checked for changes.
+	 * a value of zero checks the file with every lookup, a negative value disables the check.
+	 * 
+	 * @param	reloadCheckInterval	the interval in milliseconds
+	 */
+	public void setReloadCheckInterval(long reloadCheckInterval)
+	{
+		this.reloadCheckInterval = reloadCheckInterval;
+	}
 }
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.rules.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Determines if a given number is a prime number.
+ * <p>
+ * Values below the sieve limit are looked up in a bitset which is filled by a segmented sieve
+ * of Eratosthenes. The bitset only holds the odd numbers and grows lazily - only up to the
+ * largest value that has been requested so far. The bitset is shared by all threads.
+ * <p>
+ * Values above the sieve limit are checked using a deterministic variant of the Miller-Rabin test,
+ * which gives exact results for all values in the range of a long.
+ *
+ * @author uwe geercken
+ */
+public class PrimeSieve
+{
+	// default upper limit (exclusive) of the values that are looked up in the bitset. uses 2MB of memory when fully grown
+	public static final int DEFAULT_SIEVE_LIMIT		= 1 << 25;
+
+	// number of values sieved in one segment
+	private static final int SEGMENT_SIZE			= 1 << 18;
+
+	// bases for the Miller-Rabin test. deterministic for values below 4,759,123,141
+	private static final long[] BASES_INT			= {2, 7, 61};
+	// bases for the Miller-Rabin test. deterministic for all values of type long
+	private static final long[] BASES_LONG			= {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+	private static final long BASES_INT_LIMIT		= 4759123141L;
+
+	// largest value for which the product of two values smaller than it does not overflow a long
+	private static final long MULTIPLY_LIMIT		= 3037000499L;
+
+	private static volatile int sieveLimit			= DEFAULT_SIEVE_LIMIT;
+
+	// bit [i] is set if the odd number 2*i+1 is NOT a prime number
+	// attention: always assign this array before the sievedUpTo variable, readers rely on this order
+	private static volatile long[] composites		= new long[0];
+	// all values below this value have been sieved
+	private static volatile int sievedUpTo			= 0;
+
+	/**
+	 * returns the upper limit (exclusive) up to which values are looked up in the bitset
+	 *
+	 * @return		the sieve limit
+	 */
+	public static int getSieveLimit()
+	{
+		return sieveLimit;
+	}
+
+	/**
+	 * sets the upper limit (exclusive) up to which values are looked up in the bitset.
+	 * values equal or above this limit are checked using the Miller-Rabin test.
+	 *
+	 * the bitset uses one bit per odd number, so a limit of 100 million values requires about 6MB of memory.
+	 *
+	 * @param limit		the sieve limit
+	 */
+	public static void setSieveLimit(int limit)
+	{
+		if(limit<0)
+		{
+			throw new IllegalArgumentException("the sieve limit must not be negative: " + limit);
+		}
+		sieveLimit = limit;
+	}
+
+	/**
+	 * Evaluates if a number is a prime number
+	 *
+	 * @param value		the value to check
+	 * @return			indication if the value is a prime number
+	 */
+	public static boolean isPrime(int value)
+	{
+		return isPrime((long)value);
+	}
+
+	/**
+	 * Evaluates if a number is a prime number
+	 *
+	 * @param value		the value to check
+	 * @return			indication if the value is a prime number
+	 */
+	public static boolean isPrime(long value)
+	{
+		if(value<2)
+		{
+			return false;
+		}
+		else if(value<4)
+		{
+			return true;
+		}
+		else if((value & 1)==0)
+		{
+			return false;
+		}
+		else if(value < sieveLimit)
+		{
+			return isPrimeFromSieve((int)value);
+		}
+		else
+		{
+			return isPrimeMillerRabin(value);
+		}
+	}
+
+	/**
+	 * lookup of an odd value in the bitset. the bitset is extended if the value
+	 * has not been sieved yet.
+	 *
+	 * @param value		an odd value larger than 3
+	 * @return			indication if the value is a prime number
+	 */
+	private static boolean isPrimeFromSieve(int value)
+	{
+		if(value >= sievedUpTo)
+		{
+			extendSieve(value);
+		}
+		long[] bits = composites;
+		int index = value >>> 1;
+		return (bits[index >>> 6] & (1L << index)) == 0;
+	}
+
+	/**
+	 * extends the bitset so that it contains the given value. the bitset at least
+	 * doubles in size each time, so that the number of extensions stays small.
+	 *
+	 * @param value		the value that needs to be contained in the bitset
+	 */
+	private static synchronized void extendSieve(int value)
+	{
+		int from = sievedUpTo;
+		if(value < from)
+		{
+			// another thread already extended the bitset
+			return;
+		}
+		long target = Math.max((long)value + 1, 2L * from);
+		// round up to the segment size and do not exceed the limit
+		target = ((target + SEGMENT_SIZE - 1) / SEGMENT_SIZE) * SEGMENT_SIZE;
+		target = Math.min(target, Math.max((long)sieveLimit, (long)value + 1));
+		int to = (int)Math.min(target, Integer.MAX_VALUE);
+
+		long[] bits = Arrays.copyOf(composites, (int)(((long)to / 2 + 64) >>> 6));
+		if(from==0)
+		{
+			// 1 is not a prime number
+			bits[0] |= 1L;
+		}
+		for(long low=from;low<to;low+=SEGMENT_SIZE)
+		{
+			sieveSegment(bits, (int)low, (int)Math.min(low + SEGMENT_SIZE, to));
+		}
+		composites = bits;
+		sievedUpTo = to;
+	}
+
+	/**
+	 * marks all odd multiples of the odd primes in the range from low (inclusive) to high (exclusive)
+	 * in the bitset.
+	 *
+	 * the primes used for sieving are taken from the bitset itself. this works because the first
+	 * segment is larger than the square root of the largest possible value.
+	 *
+	 * @param bits		the bitset
+	 * @param low		lower limit of the segment
+	 * @param high		upper limit of the segment
+	 */
+	private static void sieveSegment(long[] bits, int low, int high)
+	{
+		for(long p=3;p*p<high;p+=2)
+		{
+			int index = (int)(p >>> 1);
+			if((bits[index >>> 6] & (1L << index)) != 0)
+			{
+				continue;
+			}
+			// first odd multiple of p inside the segment, but not below p*p
+			long start = Math.max(p * p, ((low + p - 1) / p) * p);
+			if((start & 1)==0)
+			{
+				start += p;
+			}
+			for(long multiple=start;multiple<high;multiple+=2*p)
+			{
+				int multipleIndex = (int)(multiple >>> 1);
+				bits[multipleIndex >>> 6] |= 1L << multipleIndex;
+			}
+		}
+	}
+
+	/**
+	 * deterministic Miller-Rabin test for an odd value larger than 3
+	 *
+	 * @param value		the value to check
+	 * @return			indication if the value is a prime number
+	 */
+	private static boolean isPrimeMillerRabin(long value)
+	{
+		long[] bases = value < BASES_INT_LIMIT ? BASES_INT : BASES_LONG;
+
+		// write value-1 as d * 2^s with d being odd
+		long d = value - 1;
+		int s = Long.numberOfTrailingZeros(d);
+		d = d >>> s;
+
+		for(int i=0;i<bases.length;i++)
+		{
+			long base = bases[i] % value;
+			if(base==0)
+			{
+				continue;
+			}
+			long x = powMod(base, d, value);
+			if(x==1 || x==value-1)
+			{
+				continue;
+			}
+			boolean composite = true;
+			for(int r=1;r<s;r++)
+			{
+				x = mulMod(x, x, value);
+				if(x==value-1)
+				{
+					composite = false;
+					break;
+				}
+			}
+			if(composite)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long powMod(long base, long exponent, long modulus)
+	{
+		long result = 1;
+		base = base % modulus;
+		while(exponent>0)
+		{
+			if((exponent & 1)==1)
+			{
+				result = mulMod(result, base, modulus);
+			}
+			base = mulMod(base, base, modulus);
+			exponent = exponent >>> 1;
+		}
+		return result;
+	}
+
+	private static long mulMod(long a, long b, long modulus)
+	{
+		if(modulus <= MULTIPLY_LIMIT)
+		{
+			return (a * b) % modulus;
+		}
+		// the product could overflow: multiply using additions and doublings
+		long result = 0;
+		while(b>0)
+		{
+			if((b & 1)==1)
+			{
+				result = addMod(result, a, modulus);
+			}
+			a = addMod(a, a, modulus);
+			b = b >>> 1;
+		}
+		return result;
+	}
+
+	private static long addMod(long a, long b, long modulus)
+	{
+		// avoids the overflow of a + b
+		if(a >= modulus - b)
+		{
+			return a - (modulus - b);
+		}
+		else
+		{
+			return a + b;
+		}
+	}
+}
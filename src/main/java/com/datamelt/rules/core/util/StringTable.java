@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.datamelt.rules.core.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+* compact hash table mapping string keys to string values.
+*
+* the characters of all keys are stored in a single array and the entries are located using
+* open addressing with linear probing. compared to a HashMap this avoids one String object and one
+* entry object per key. identical values share a single String object.
+*
+* the table is filled using the put method and then must be finished by calling the trim method. it must not be
+* modified after it has been made available to other threads - the reading methods do not
+* use any synchronization.
+*
+* @author uwe geercken
+*/
+public class StringTable
+{
+	private static final int INITIAL_CAPACITY	= 16;
+
+	// all keys, one after the other
+	private char[] keyChars;
+	private int keyCharsLength;
+	// the key of entry [i] starts at keyOffsets[i] and ends at keyOffsets[i+1]
+	private int[] keyOffsets;
+	private int[] hashes;
+	private String[] values;
+	private int size;
+
+	// index of the entry plus one. zero indicates an empty slot
+	private int[] slots;
+
+	// used to share identical values while the table is filled
+	private HashMap<String,String> distinctValues = new HashMap<>();
+
+	public StringTable()
+	{
+		keyChars = new char[INITIAL_CAPACITY * 8];
+		keyOffsets = new int[INITIAL_CAPACITY + 1];
+		hashes = new int[INITIAL_CAPACITY];
+		values = new String[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * adds a key and its value to the table. if the key already exists, the value is replaced.
+	 *
+	 * @param key		the key
+	 * @param value		the value
+	 */
+	public void put(String key, String value)
+	{
+		String sharedValue = distinctValues.get(value);
+		if(sharedValue==null)
+		{
+			distinctValues.put(value, value);
+			sharedValue = value;
+		}
+
+		int hash = hash(key);
+		int slot = findSlot(key, hash);
+		if(slots[slot]!=0)
+		{
+			values[slots[slot] - 1] = sharedValue;
+			return;
+		}
+
+		if(size==values.length)
+		{
+			growEntries();
+		}
+		if(keyCharsLength + key.length() > keyChars.length)
+		{
+			keyChars = Arrays.copyOf(keyChars, Math.max(keyChars.length * 2, keyCharsLength + key.length()));
+		}
+		key.getChars(0, key.length(), keyChars, keyCharsLength);
+		keyCharsLength += key.length();
+		keyOffsets[size + 1] = keyCharsLength;
+		hashes[size] = hash;
+		values[size] = sharedValue;
+		size++;
+		slots[slot] = size;
+
+		// keep the load factor of the slots at or below 50 percent
+		if(size * 2 > slots.length)
+		{
+			rehash();
+		}
+	}
+
+	/**
+	 * gets the value corresponding to the given key
+	 *
+	 * @param key		the key to lookup
+	 * @return			the value or null if the key does not exist
+	 */
+	public String get(String key)
+	{
+		if(key==null)
+		{
+			return null;
+		}
+		int entry = slots[findSlot(key, hash(key))];
+		if(entry==0)
+		{
+			return null;
+		}
+		return values[entry - 1];
+	}
+
+	/**
+	 * returns the number of keys in the table
+	 *
+	 * @return		the number of keys
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * releases the unused memory, after the table has been filled completely.
+	 */
+	public void trim()
+	{
+		keyChars = Arrays.copyOf(keyChars, keyCharsLength);
+		keyOffsets = Arrays.copyOf(keyOffsets, size + 1);
+		hashes = Arrays.copyOf(hashes, size);
+		values = Arrays.copyOf(values, size);
+		distinctValues = new HashMap<>();
+	}
+
+	private int findSlot(String key, int hash)
+	{
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while(true)
+		{
+			int entry = slots[slot];
+			if(entry==0 || (hashes[entry - 1]==hash && keyEquals(entry - 1, key)))
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private boolean keyEquals(int index, String key)
+	{
+		int start = keyOffsets[index];
+		int length = keyOffsets[index + 1] - start;
+		if(length!=key.length())
+		{
+			return false;
+		}
+		for(int i=0;i<length;i++)
+		{
+			if(keyChars[start + i]!=key.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void growEntries()
+	{
+		int capacity = values.length * 2;
+		keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+		hashes = Arrays.copyOf(hashes, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	private void rehash()
+	{
+		int[] newSlots = new int[slots.length * 2];
+		int mask = newSlots.length - 1;
+		for(int i=0;i<size;i++)
+		{
+			int slot = hashes[i] & mask;
+			while(newSlots[slot]!=0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			newSlots[slot] = i + 1;
+		}
+		slots = newSlots;
+	}
+
+	private static int hash(String key)
+	{
+		// spread the bits of the hashcode, as only the lower bits are used to select the slot
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -34,12 +34,17 @@ import java.util.Properties;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import com.datamelt.db.JdbcReader;
+import com.datamelt.db.JdbcWriter;
 import com.datamelt.rules.parser.xml.Parser;
 import com.datamelt.rules.core.ReferenceField;
 import com.datamelt.rules.core.RuleExecutionCollection;
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.core.util.MappingCollection;
 import com.datamelt.rules.core.util.VariableReplacer;
+import com.datamelt.util.AvroFileReader;
+import com.datamelt.util.AvroFileWriter;
+import com.datamelt.util.CsvTokenizer;
 import com.datamelt.util.FileUtility;
 import com.datamelt.util.RowFieldCollection;
 import com.datamelt.util.RuleGroupPrioritizer;
@@ -250,6 +255,23 @@ public class BusinessRulesEngine
     	reloadRuleFile(rulesFiles);
     }
     
+    /**
+     * engine can be instantiated by passing an array of input streams
+     * of xml rule files - e.g. files that have been loaded into memory.
+     * the streams will be parsed and all rules from all streams
+     * will be collected. the streams are not closed.
+     * 
+     * Rulegroups are prioritized to execute those groups first, that
+     * other groups depend on.
+     * 
+     * @param		inputStreams	an array of input streams of xml rule files
+     * @exception	Exception		exception when the streams could not be parsed
+     */
+    public BusinessRulesEngine(InputStream[] inputStreams) throws Exception
+    {
+    	reloadInputStreams(inputStreams);
+    }
+    
     /**
      * engine can be instantiated by passing a zip file containing xml
      * rule files.
@@ -564,6 +586,26 @@ public class BusinessRulesEngine
         prioritizeRuleGroups();
     }
     
+    /**
+     * reloads the rules from the given input streams of xml rule files
+     * for a running BusinessRulesEngine instance
+     * 
+     * @param inputStreams		array of input streams of xml rule files
+     * @throws Exception		exception when the streams could not be parsed
+     */
+    public void reloadInputStreams(InputStream[] inputStreams) throws Exception
+    {
+    	clear();
+    	groups.clear();
+        referenceFields.clear();
+        
+        for(int i=0;i<inputStreams.length;i++)
+        {
+        	parseXmlInputStream(inputStreams[i]);
+        }
+        prioritizeRuleGroups();
+    }
+    
     /**
      * reloads the rule xml file for a running BusinessRulesEngine instance
      * 
@@ -629,6 +671,10 @@ public class BusinessRulesEngine
      * the csv file is parsed, split into rows and fields
      * using the defined field separator.
      * 
+     * if the separator is a single character, the file is read according to RFC 4180: fields may be
+     * enclosed in quotes and may then contain the separator, quotes ("") and line breaks.
+     * empty lines and lines starting with a hash sign (comment) are skipped.
+     * 
      * @param		csvfileName		the CSV file to use
      * @param		fieldSeperator	the separator between the fields/columns in the csv file
      * @throws		Exception		exception running the rule against the object
@@ -638,7 +684,6 @@ public class BusinessRulesEngine
     	status = STATUS_ENGINE_EXECUTED;
     	// reader for the data file
 	    BufferedReader reader = new BufferedReader(new FileReader(csvfileName));
-    	String line;
     	
     	// counts number of lines in data file
 	    long counter=0;
@@ -646,25 +691,113 @@ public class BusinessRulesEngine
 	    // splitter object will split the row from the datafile into
         // its fields using the default semicolon (;) separator
         Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED, fieldSeperator);
+        // the rows are only used to run the rules, so the same row object is used for all lines
+        splitter.setRecycleRows(true);
+        // the values are converted once to the types of the reference fields of the project
+        if(!referenceFields.isEmpty())
+        {
+        	splitter.setReferenceFields(referenceFields);
+        }
 
-    	while ((line=reader.readLine())!=null)
-	    {
-        	// only if the line is not empty 
-        	// and does not start with a hash sign (comment).
-        	// otherwise the line will be NOT be processed nor counted!
-	        if(!line.trim().equals("") && !line.startsWith("#"))
-	        {
-	        	line = line.replace("\"","");
-		        // get a row object containing the fields and data
-	        	RowFieldCollection row = splitter.getRowFieldCollection(line); 
-		        // run rules on this data
+        if(fieldSeperator.length()==1)
+        {
+        	CsvTokenizer tokenizer = new CsvTokenizer(reader, fieldSeperator.charAt(0));
+        	tokenizer.setCommentCharacter(CsvTokenizer.DEFAULT_COMMENT_CHARACTER);
+        	String[] fields;
+        	while((fields=tokenizer.nextRecord())!=null)
+        	{
+        		// get a row object containing the fields and data
+        		RowFieldCollection row = splitter.getRowFieldCollection(fields);
+        		// run rules on this data
 		        run("row: " + counter, row);
 		        counter++;
-	        }
-	    }	
+        	}
+        }
+        else
+        {
+        	String line;
+	    	while ((line=reader.readLine())!=null)
+		    {
+	        	// only if the line is not empty 
+	        	// and does not start with a hash sign (comment).
+	        	// otherwise the line will be NOT be processed nor counted!
+		        if(!line.trim().equals("") && !line.startsWith("#"))
+		        {
+		        	line = line.replace("\"","");
+			        // get a row object containing the fields and data
+		        	RowFieldCollection row = splitter.getRowFieldCollection(line); 
+			        // run rules on this data
+			        run("row: " + counter, row);
+			        counter++;
+		        }
+		    }
+        }
     	reader.close();
     }
     
+    /**
+     * runs the rules against all records of an Avro file. the same row object is used for all records.
+     * 
+     * if a writer is given, each row is written together with the results of the rule engine for the row. the results
+     * are then cleared after each row, so that they do not accumulate.
+     * 
+     * the reader and the writer are not closed by this method.
+     * 
+     * @param reader		the reader for the Avro file
+     * @param writer		the writer for the output or null
+     * @throws Exception	exception when the file can not be read or written or the rules can not be run
+     */
+    public void run(AvroFileReader reader, AvroFileWriter writer) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	reader.setRecycleRows(true);
+    	long counter=0;
+    	RowFieldCollection row;
+    	while((row=reader.getRowFieldCollection())!=null)
+    	{
+    		run("row: " + counter, row);
+    		counter++;
+    		if(writer!=null)
+    		{
+    			writer.write(row, this);
+    			executionCollection.clear();
+    		}
+    	}
+    }
+    
+    /**
+     * runs the rules against all records of a database query. the same row object is used for all records.
+     * 
+     * if a writer is given, the rows that have been updated by the actions are written back to the database.
+     * the remaining updates are executed and committed at the end.
+     * 
+     * the reader and the writer are not closed by this method.
+     * 
+     * @param reader		the reader for the records of the query
+     * @param writer		the writer for the updated rows or null
+     * @throws Exception	exception when the records can not be read or written or the rules can not be run
+     */
+    public void run(JdbcReader reader, JdbcWriter writer) throws Exception
+    {
+    	status = STATUS_ENGINE_EXECUTED;
+    	reader.setRecycleRows(true);
+    	long counter=0;
+    	RowFieldCollection row;
+    	while((row=reader.getRowFieldCollection())!=null)
+    	{
+    		run("row: " + counter, row);
+    		counter++;
+    		if(writer!=null)
+    		{
+    			writer.write(row);
+    		}
+    	}
+    	if(writer!=null)
+    	{
+    		writer.flush();
+    	}
+    }
+    
     /**
      *  the prioritizer will make sure that all rulegroups that other rulegroups
      *  depend on will be executed first.
@@ -18,17 +18,25 @@
  */
 package com.datamelt.rules.implementation;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.datamelt.util.CheckAnnotation;
 
-import java.util.Calendar;
-
 /**
  * Checks if the time part of a date is between two given times.
  * 
  * The times (lower limit/upper limit)  specified must be in the format: HH:mm:ss (hours, minutes, seconds). Example: 10:22:35
  * <p>
+ * The time values are parsed only once per distinct value and then kept in a cache. The time part of a date is calculated
+ * from the milliseconds since the epoch using the offset of the time zone. The offset is cached until the next transition
+ * of the time zone (e.g. daylight saving time).
+ * <p>
  * 
  * The first parameter of a given method is always the value of the field that shall be checked. The second parameter is either another field to check against 
  * or an expected value (fixed value) to check against the first value.
@@ -38,6 +46,14 @@ import java.util.Calendar;
 @CheckAnnotation(name="Check Date Time Is Between", description="Checks if the time part of a date is between two given time value specified in the format HH:mm:ss (hours, minutes, seconds). Separate the time values using a comma",nameDescriptive="time part is between",checkSingleField=1)
 public class CheckDateTimeIsBetween extends GenericCheck
 {
+	private static final int SECONDS_PER_DAY = 86400;
+	
+	// lower and upper limit in seconds of the day for a given string of time values 
+	private static ConcurrentHashMap<String, int[]> timeWindowCache = new ConcurrentHashMap<>();
+	
+	private static volatile ZoneId zoneId = ZoneId.systemDefault();
+	private static volatile ZoneOffsetCache zoneOffsetCache;
+	
 	/**
 	 * Evaluate if the time part of a date is between two given times.
 	 * 
@@ -49,48 +65,153 @@ public class CheckDateTimeIsBetween extends GenericCheck
      */
     public static boolean evaluate(Date date, String timeValues)
     {
-    	Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(date);
-        
-    	int dateHours = cal1.get(Calendar.HOUR_OF_DAY);
-    	int dateMinutes = cal1.get(Calendar.MINUTE);
-    	int dateSeconds = cal1.get(Calendar.SECOND);
-    	
-    	int totalDateSeconds = dateSeconds + dateMinutes * 60 + dateHours * 3600;
+    	return evaluate(date.getTime(), timeValues);
+    }
+    
+    /**
+	 * Evaluate if the time part of a date - specified as milliseconds since the epoch - is between two given times.
+	 * 
+	 * The times (lower limit/upper limit) specified must be in the format: HH:mm:ss (hours, minutes, seconds).
+	 * 
+     * @param epochMillis			the first value for comparison in milliseconds since 1970-01-01T00:00:00Z
+     * @param timeValues			time value for the lower limit and upper limit separated by a comma
+     * @return						indication if the time part of the date is between the upper and lower limit
+     */
+    public static boolean evaluate(long epochMillis, String timeValues)
+    {
+    	long epochSeconds = Math.floorDiv(epochMillis, 1000L);
+    	int totalDateSeconds = (int)Math.floorMod(epochSeconds + getOffsetSeconds(epochMillis), SECONDS_PER_DAY);
     	
-    	int totalTime1Seconds = 0;
-    	int totalTime2Seconds = 0;
-
-        String time1 = "";
-        String time2 = "";
-
-    	if(timeValues!=null)
+    	return isBetween(totalDateSeconds, getTimeWindow(timeValues));
+    }
+    
+    /**
+	 * Evaluate if the time part of a date is between two given times.
+	 * 
+	 * The times (lower limit/upper limit) specified must be in the format: HH:mm:ss (hours, minutes, seconds).
+	 * 
+     * @param dateTime				the first value for comparison
+     * @param timeValues			time value for the lower limit and upper limit separated by a comma
+     * @return						indication if the time part of the date is between the upper and lower limit
+     */
+    public static boolean evaluate(LocalDateTime dateTime, String timeValues)
+    {
+    	return isBetween(dateTime.toLocalTime().toSecondOfDay(), getTimeWindow(timeValues));
+    }
+    
+    /**
+     * sets the time zone that is used to determine the time part of a date.
+     * by default the time zone of the system is used.
+     * 
+     * @param zone		the time zone to use
+     */
+    public static void setZoneId(ZoneId zone)
+    {
+    	zoneId = zone;
+    	zoneOffsetCache = null;
+    }
+    
+    private static boolean isBetween(int totalDateSeconds, int[] timeWindow)
+    {
+    	return totalDateSeconds >= timeWindow[0] && totalDateSeconds <= timeWindow[1];
+    }
+    
+    /**
+     * returns the lower and upper limit in seconds of the day for the given time values.
+     * 
+     * the values are parsed only the first time they are used.
+     * 
+     * @param timeValues	time value for the lower limit and upper limit separated by a comma
+     * @return				array with the lower limit and upper limit in seconds of the day
+     */
+    private static int[] getTimeWindow(String timeValues)
+    {
+    	if(timeValues==null)
     	{
-	    	String[] times = timeValues.split(",");
-	        
-	        time1 = times[0].trim();
-	        time2 = times[1].trim();
+    		return new int[] {0, 0};
     	}
-    	if(time1.length()==8)
+    	int[] timeWindow = timeWindowCache.get(timeValues);
+    	if(timeWindow==null)
     	{
-    	
-	    	int time1Hours = Integer.parseInt(time1.substring(0,2));
-	    	int time1Minutes = Integer.parseInt(time1.substring(3,5));
-	    	int time1Seconds = Integer.parseInt(time1.substring(6,8));
-
-	    	totalTime1Seconds = time1Seconds + time1Minutes * 60 + time1Hours * 3600;
+    		timeWindow = parseTimeWindow(timeValues);
+    		timeWindowCache.put(timeValues, timeWindow);
     	}
+    	return timeWindow;
+    }
+    
+    private static int[] parseTimeWindow(String timeValues)
+    {
+    	String[] times = timeValues.split(",");
     	
-    	if(time2.length()==8)
+    	String time1 = times[0].trim();
+    	String time2 = "";
+    	if(times.length>1)
     	{
-	    	int time2Hours = Integer.parseInt(time2.substring(0,2));
-	    	int time2Minutes = Integer.parseInt(time2.substring(3,4));
-	    	int time2Seconds = Integer.parseInt(time2.substring(6,8));
-    	
-	    	totalTime2Seconds = time2Seconds + time2Minutes * 60 + time2Hours * 3600;
+    		time2 = times[1].trim();
+    	}
+    	return new int[] {parseSecondsOfDay(time1), parseSecondsOfDay(time2)};
+    }
+    
+    /**
+     * parses a time in the format HH:mm:ss to the number of seconds of the day.
+     * 
+     * @param time		the time value
+     * @return			the seconds of the day or 0 if the time value does not have the correct length
+     */
+    private static int parseSecondsOfDay(String time)
+    {
+    	if(time.length()==8)
+    	{
+	    	int hours = Integer.parseInt(time.substring(0,2));
+	    	int minutes = Integer.parseInt(time.substring(3,5));
+	    	int seconds = Integer.parseInt(time.substring(6,8));
+	    	
+	    	return seconds + minutes * 60 + hours * 3600;
+    	}
+    	else
+    	{
+    		return 0;
     	}
-    	
-        return totalDateSeconds >= totalTime1Seconds && totalDateSeconds <= totalTime2Seconds;
     }
     
+    /**
+     * returns the offset of the time zone in seconds for the given point in time.
+     * 
+     * the offset is cached together with the period in which it is valid, so that the
+     * zone rules are only consulted again when the point in time is outside of this period.
+     * 
+     * @param epochMillis	milliseconds since 1970-01-01T00:00:00Z
+     * @return				the offset of the time zone in seconds
+     */
+    private static int getOffsetSeconds(long epochMillis)
+    {
+    	ZoneOffsetCache cache = zoneOffsetCache;
+    	if(cache==null || epochMillis < cache.validFrom || epochMillis >= cache.validUntil)
+    	{
+    		cache = new ZoneOffsetCache(zoneId.getRules(), epochMillis);
+    		zoneOffsetCache = cache;
+    	}
+    	return cache.offsetSeconds;
+    }
+    
+    /**
+     * holds the offset of a time zone and the period of time in which it is valid
+     */
+    private static class ZoneOffsetCache
+    {
+    	private final long validFrom;
+    	private final long validUntil;
+    	private final int offsetSeconds;
+    	
+    	private ZoneOffsetCache(ZoneRules rules, long epochMillis)
+    	{
+    		Instant instant = Instant.ofEpochMilli(epochMillis);
+    		offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+    		
+    		ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+    		ZoneOffsetTransition next = rules.nextTransition(instant);
+    		validFrom = previous!=null ? previous.toEpochSecond() * 1000L : Long.MIN_VALUE;
+    		validUntil = next!=null ? next.toEpochSecond() * 1000L : Long.MAX_VALUE;
+    	}
+    }
 }
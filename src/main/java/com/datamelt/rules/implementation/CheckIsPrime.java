@@ -18,14 +18,17 @@
  */
 package com.datamelt.rules.implementation;
 
+import com.datamelt.rules.core.util.PrimeSieve;
 import com.datamelt.util.CheckAnnotation;
 
 /**
- * checks if a given integer is a prime number
+ * checks if a given integer or long is a prime number
  * <p>
  * The first parameter of a given method is always the value of the field that shall be checked. The second parameter is either another field to check against 
  * or an expected value (fixed value) to check against the first value.
  * 
+ * Values up to the sieve limit of the PrimeSieve class are looked up in a precomputed bitset.
+ * 
  * @author uwe geercken
  */
 @CheckAnnotation(name="Check Is Prime", description="Checks if a number is a prime number",nameDescriptive="is prime",checkSingleField=1)
@@ -39,17 +42,17 @@ public class CheckIsPrime extends GenericCheck
      */
     public static boolean evaluate(int value)
     {
-    	if (value % 2==0)
-    	{
-    		return false;
-    	}
-        for(int i=3;i*i<=value;i+=2) 
-        {
-            if(value % i==0)
-            {
-                return false;
-            }
-        }
-        return true;
+    	return PrimeSieve.isPrime(value);
+    }
+    
+    /**
+     * Evaluates if a number is a prime number
+     * 
+     * @param value		the value for comparison
+     * @return			indication if the value is a prime number
+     */
+    public static boolean evaluate(long value)
+    {
+    	return PrimeSieve.isPrime(value);
     }
 }
@@ -51,6 +51,8 @@ public class RowDefinitionParser extends DefaultHandler implements ContentHandle
     private static final String TAG_FIELD_DESCRIPTION     = "description";
     private static final String TAG_FIELD_START           = "start";
     private static final String TAG_FIELD_LENGTH	      = "length";
+    private static final String TAG_FIELD_TYPE	          = "type";
+    private static final String TAG_FIELD_DECIMALS	      = "decimals";
     
     /*
      * parses a given xml file, which defines the layout of the fields
@@ -91,6 +93,15 @@ public class RowDefinitionParser extends DefaultHandler implements ContentHandle
         	int fieldLength= Integer.parseInt(atts.getValue(TAG_FIELD_LENGTH));
         	
             field = new Field(fieldName,fieldDescription,fieldStart,fieldLength);
+            // the type and the number of decimals are optional
+            if(atts.getValue(TAG_FIELD_TYPE)!=null)
+            {
+            	field.setType(atts.getValue(TAG_FIELD_TYPE).toLowerCase());
+            }
+            if(atts.getValue(TAG_FIELD_DECIMALS)!=null)
+            {
+            	field.setDecimals(Integer.parseInt(atts.getValue(TAG_FIELD_DECIMALS)));
+            }
         	fieldTagActive=true;
         }
         
@@ -23,6 +23,7 @@ import java.io.FileReader;
 import java.util.Calendar;
 import java.util.zip.ZipFile;
 
+import com.datamelt.util.CsvTokenizer;
 import com.datamelt.util.RowFieldCollection;
 import com.datamelt.util.Splitter;
 import com.datamelt.rules.core.RuleGroup;
@@ -63,7 +64,6 @@ public class CsvReader
 
 	    // reader for the data file
 	    BufferedReader reader = new BufferedReader(new FileReader(args[0]));
-	    String line;
 	    // counts number of lines in data file
 	    long counter=0;
 	    
@@ -80,6 +80,13 @@ public class CsvReader
         // splitter object will split the row of the  data/csv file into
         // its fields using - in this case - the default semicolon (;) seperator
         Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+        // the rows are only used to run the rules, so the same row object is used for all lines
+        splitter.setRecycleRows(true);
+        // the values are converted once to the types of the reference fields of the project
+        if(!engine.getReferenceFields().isEmpty())
+        {
+        	splitter.setReferenceFields(engine.getReferenceFields());
+        }
 
         // output the number of groups in total as parsed from the xml files
         System.out.println("number of groups:          " + engine.getGroups().size());
@@ -93,25 +100,23 @@ public class CsvReader
             RuleGroup group = (RuleGroup)engine.getGroups().get(i);
             System.out.println("group logic:               " + group.getId() + ": "+ engine.getRuleLogic(i));
         }
-        // read the input file line by line
-        while ((line=reader.readLine())!=null)
+        // the tokenizer reads the input file record by record. quoted fields may
+        // contain the separator, quotes and line breaks.
+        // lines that are empty or start with a hash sign (comment) are NOT processed nor counted!
+        CsvTokenizer tokenizer = new CsvTokenizer(reader, Splitter.SEPERATOR_SEMICOLON.charAt(0));
+        tokenizer.setCommentCharacter(CsvTokenizer.DEFAULT_COMMENT_CHARACTER);
+        String[] fields;
+        while ((fields=tokenizer.nextRecord())!=null)
 	    {
-        	// only if the line is NOT empty 
-        	// and does NOT start with a hash sign (comment).
-        	// otherwise the line will be NOT be processed nor counted!
-	        if(!line.trim().equals("") && !line.startsWith("#"))
-	        {
-	        	line = line.replace("\"","");
-		        // get a row object containing the fields and data
-		        RowFieldCollection row = splitter.getRowFieldCollection(line); 
-		        
-		        // run rules on this data
-		        engine.run("row: " + counter, row);
-		        counter++;
-	        }
+	        // get a row object containing the fields and data
+	        RowFieldCollection row = splitter.getRowFieldCollection(fields); 
+	        
+	        // run rules on this data
+	        engine.run("row: " + counter, row);
+	        counter++;
 	    }
         // close the reader
-        reader.close();
+        tokenizer.close();
         
         System.out.println("number of lines of data:   " + counter);
         
@@ -0,0 +1,764 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.datamelt.server.protocol.Protocol;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * client for one or more RuleEngineServers, which returns the results of the rule engine as futures.
+ *
+ * the client keeps a pool of connections using the binary protocol. the rows are distributed over the connections and
+ * sent without waiting for the results of previous rows. each connection has a thread that reads the results and
+ * completes the futures, in the order the rows have been sent on that connection. the futures are completed by these
+ * threads, so longer work depending on a result should use the async methods of the future. the evaluate() methods
+ * must not be called by these threads, as they may have to wait for results.
+ *
+ * the number of rows, for which no result has been received, is limited. when the limit is reached, sending a row waits
+ * until a result has been received. if a connection fails, the futures of its rows are completed exceptionally and the
+ * connection is established again for the next row.
+ *
+ * if a server rejects rows because of its load limits, the rows of the connection are sent again after waiting - see the
+ * RuleEngineClient. rows of that connection sent in the meantime are held back and sent together with them. after the
+ * maximum number of retries the connection fails.
+ *
+ * the client may be used by multiple threads.
+ *
+ * @author uwe geercken
+ */
+public class AsyncRuleEngineClient implements Closeable
+{
+	public static final int DEFAULT_MAXIMUM_PENDING_ROWS		= 10000;
+
+	private final PooledConnection[] connections;
+	private final AtomicInteger nextConnection = new AtomicInteger();
+	private final int maximumPendingRows;
+	// the name of the rule project or null for the default project of the servers
+	private final String project;
+	// one permit per row, for which no result has been received
+	private final Semaphore permits;
+	private volatile int outputType = RuleEngineClient.OUTPUT_TYPE_FAILED_GROUPS_ONLY;
+	private volatile int maximumRetries = RuleEngineClient.DEFAULT_MAXIMUM_RETRIES;
+	private volatile boolean closed = false;
+
+	/**
+	 * constructor for a client with the given number of connections to the server
+	 *
+	 * @param server				the server address
+	 * @param port					the port the server runs on
+	 * @param numberOfConnections	the number of connections
+	 * @throws IOException			exception when a connection can not be established
+	 */
+	public AsyncRuleEngineClient(String server, int port, int numberOfConnections) throws IOException
+	{
+		this(new String[] {server + ":" + port}, numberOfConnections, DEFAULT_MAXIMUM_PENDING_ROWS);
+	}
+
+	/**
+	 * constructor for a client with the given number of connections to each of the servers
+	 *
+	 * @param servers					the addresses of the servers in the form host:port
+	 * @param connectionsPerServer		the number of connections to each server
+	 * @param maximumPendingRows		the maximum number of rows, for which no result has been received
+	 * @throws IOException				exception when a connection can not be established
+	 */
+	public AsyncRuleEngineClient(String[] servers, int connectionsPerServer, int maximumPendingRows) throws IOException
+	{
+		this(servers, connectionsPerServer, maximumPendingRows, null);
+	}
+
+	/**
+	 * constructor for a client with the given number of connections to each of the servers, using the rule project
+	 * with the given name
+	 *
+	 * @param servers					the addresses of the servers in the form host:port
+	 * @param connectionsPerServer		the number of connections to each server
+	 * @param maximumPendingRows		the maximum number of rows, for which no result has been received
+	 * @param project					the name of the project - the name of the zip file - or null for the default project
+	 * @throws IOException				exception when a connection can not be established or the project is unknown
+	 */
+	public AsyncRuleEngineClient(String[] servers, int connectionsPerServer, int maximumPendingRows, String project) throws IOException
+	{
+		this.project = project;
+		if(servers.length==0 || connectionsPerServer<1 || maximumPendingRows<1)
+		{
+			throw new IllegalArgumentException("at least one server, one connection and one pending row must be defined");
+		}
+		this.maximumPendingRows = maximumPendingRows;
+		this.permits = new Semaphore(maximumPendingRows);
+		this.connections = new PooledConnection[servers.length * connectionsPerServer];
+		try
+		{
+			for(int i=0;i<servers.length;i++)
+			{
+				int separator = servers[i].lastIndexOf(':');
+				if(separator<0)
+				{
+					throw new IllegalArgumentException("the address of the server must be in the form host:port: [" + servers[i] + "]");
+				}
+				String host = servers[i].substring(0, separator);
+				int port = Integer.parseInt(servers[i].substring(separator + 1));
+				for(int j=0;j<connectionsPerServer;j++)
+				{
+					PooledConnection connection = new PooledConnection(host, port);
+					connections[i * connectionsPerServer + j] = connection;
+					connection.connect();
+				}
+			}
+		}
+		catch(IOException ex)
+		{
+			close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * sends the row to one of the servers. the future is completed with the result, when it has been received. the
+	 * fields updated by actions are then updated in the row.
+	 *
+	 * waits, if the maximum number of pending rows is reached.
+	 *
+	 * @param fields					the row
+	 * @return							the future of the result
+	 * @throws InterruptedException		exception when the thread is interrupted while waiting
+	 */
+	public CompletableFuture<RuleEngineServerObject> evaluate(RowFieldCollection fields) throws InterruptedException
+	{
+		PooledConnection connection = getConnection();
+		permits.acquire();
+		return connection.send(fields);
+	}
+
+	/**
+	 * sends the rows to one of the servers as a batch. the future is completed with the results in the order of the
+	 * rows, when all of them have been received.
+	 *
+	 * waits, if the maximum number of pending rows would be exceeded.
+	 *
+	 * @param rows						the rows
+	 * @return							the future of the results
+	 * @throws InterruptedException		exception when the thread is interrupted while waiting
+	 */
+	public CompletableFuture<List<RuleEngineServerObject>> evaluate(List<RowFieldCollection> rows) throws InterruptedException
+	{
+		if(rows.size()>maximumPendingRows)
+		{
+			throw new IllegalArgumentException("the number of rows exceeds the maximum number of pending rows: [" + maximumPendingRows + "]");
+		}
+		PooledConnection connection = getConnection();
+		permits.acquire(rows.size());
+		final List<CompletableFuture<RuleEngineServerObject>> futures = connection.send(rows);
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(ignored ->
+		{
+			ArrayList<RuleEngineServerObject> results = new ArrayList<RuleEngineServerObject>(futures.size());
+			for(CompletableFuture<RuleEngineServerObject> future : futures)
+			{
+				results.add(future.join());
+			}
+			return results;
+		});
+	}
+
+	/**
+	 * sends the message - e.g. "uptime" - to one of the servers
+	 *
+	 * @param message		the message
+	 * @return				the future of the response of the server
+	 */
+	public CompletableFuture<String> sendMessage(String message)
+	{
+		return getConnection().send(message);
+	}
+
+	/**
+	 * sends the row to one of the servers and waits for the result
+	 *
+	 * @param fields		the row
+	 * @return				the result of the rule engine
+	 * @throws Exception	exception when the row can not be sent or the result can not be received
+	 */
+	public RuleEngineServerObject getServerObject(RowFieldCollection fields) throws Exception
+	{
+		try
+		{
+			return evaluate(fields).get();
+		}
+		catch(ExecutionException ex)
+		{
+			throw ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex;
+		}
+	}
+
+	private PooledConnection getConnection()
+	{
+		if(closed)
+		{
+			throw new IllegalStateException("the client has been closed");
+		}
+		return connections[(nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.length];
+	}
+
+	/**
+	 * closes the connections. the futures of rows, for which no result has been received, are completed exceptionally.
+	 */
+	public void close()
+	{
+		closed = true;
+		for(PooledConnection connection : connections)
+		{
+			if(connection!=null)
+			{
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * returns the number of rows, for which no result has been received
+	 *
+	 * @return		the number of pending rows
+	 */
+	public int getNumberOfPendingRows()
+	{
+		return maximumPendingRows - permits.availablePermits();
+	}
+
+	public int getMaximumPendingRows()
+	{
+		return maximumPendingRows;
+	}
+
+	public int getNumberOfConnections()
+	{
+		return connections.length;
+	}
+
+	public int getOutputType()
+	{
+		return outputType;
+	}
+
+	public void setOutputType(int outputType)
+	{
+		this.outputType = outputType;
+	}
+
+	public int getMaximumRetries()
+	{
+		return maximumRetries;
+	}
+
+	/**
+	 * sets how often rows rejected by a server because of its load limits are sent again. the default is 10.
+	 *
+	 * @param maximumRetries	the maximum number of retries or 0 to not send rejected rows again
+	 */
+	public void setMaximumRetries(int maximumRetries)
+	{
+		this.maximumRetries = Math.max(0, maximumRetries);
+	}
+
+	/**
+	 * a row or a message sent to the server, for which no response has been received
+	 */
+	private static class Request
+	{
+		private final long sequence;
+		private final RowFieldCollection fields;
+		private final int outputType;
+		private final CompletableFuture<RuleEngineServerObject> result;
+		private final CompletableFuture<String> response;
+
+		private Request(long sequence, RowFieldCollection fields, int outputType)
+		{
+			this.sequence = sequence;
+			this.fields = fields;
+			this.outputType = outputType;
+			this.result = new CompletableFuture<RuleEngineServerObject>();
+			this.response = null;
+		}
+
+		private Request()
+		{
+			this.sequence = 0;
+			this.fields = null;
+			this.outputType = 0;
+			this.result = null;
+			this.response = new CompletableFuture<String>();
+		}
+	}
+
+	/**
+	 * one connection of the pool with the thread reading the responses
+	 */
+	private class PooledConnection
+	{
+		private final String host;
+		private final int port;
+		// writers hold the lock. the requests are added in the order they are written
+		private final ReentrantLock lock = new ReentrantLock();
+		// the number of writers waiting for the lock. the reading thread is not counted, as it does not flush the frames of the writers
+		private final AtomicInteger waitingWriters = new AtomicInteger();
+		private final ConcurrentLinkedQueue<Request> requests = new ConcurrentLinkedQueue<Request>();
+		// the rows rejected by the server and the rows held back since then, in the order of their sequence numbers
+		private final ArrayList<Request> rejected = new ArrayList<Request>();
+		private final ArrayList<Request> held = new ArrayList<Request>();
+		private BinaryConnection connection;
+		private long sequence = 0;
+		// the number of retries since the last result - used by the reading thread only
+		private int retries = 0;
+
+		private PooledConnection(String host, int port)
+		{
+			this.host = host;
+			this.port = port;
+		}
+
+		/**
+		 * returns the connection. if there is none, it is established and a thread is started, which reads the
+		 * responses. the lock must be held.
+		 */
+		private BinaryConnection getConnection() throws IOException
+		{
+			if(connection==null)
+			{
+				final BinaryConnection newConnection = new BinaryConnection(new Socket(host, port), project);
+				Thread reader = new Thread(() -> read(newConnection), "ruleengineclient-" + host + ":" + port);
+				reader.setDaemon(true);
+				connection = newConnection;
+				reader.start();
+			}
+			return connection;
+		}
+
+		private void connect() throws IOException
+		{
+			lockForWriting();
+			try
+			{
+				getConnection();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private CompletableFuture<RuleEngineServerObject> send(RowFieldCollection fields)
+		{
+			lockForWriting();
+			try
+			{
+				Request request = new Request(++sequence, fields, outputType);
+				BinaryConnection current = null;
+				try
+				{
+					current = getConnection();
+					if(!rejected.isEmpty())
+					{
+						held.add(request);
+						// the rows written by other threads before may not have been flushed
+						flush(current);
+						return request.result;
+					}
+					requests.add(request);
+					current.writeRow(request.sequence, request.outputType, fields);
+					flush(current);
+				}
+				catch(IOException ex)
+				{
+					if(current==null)
+					{
+						complete(request, null, ex);
+					}
+					else
+					{
+						fail(current, ex);
+					}
+				}
+				return request.result;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private List<CompletableFuture<RuleEngineServerObject>> send(List<RowFieldCollection> rows)
+		{
+			ArrayList<Request> batch = new ArrayList<Request>(rows.size());
+			int type = outputType;
+			lock.lock();
+			try
+			{
+				for(int i=0;i<rows.size();i++)
+				{
+					batch.add(new Request(++sequence, rows.get(i), type));
+				}
+				BinaryConnection current = null;
+				try
+				{
+					current = getConnection();
+					if(!rejected.isEmpty())
+					{
+						held.addAll(batch);
+						flush(current);
+					}
+					else
+					{
+						requests.addAll(batch);
+						write(current, batch);
+						flush(current);
+					}
+				}
+				catch(IOException ex)
+				{
+					if(current==null)
+					{
+						for(Request request : batch)
+						{
+							complete(request, null, ex);
+						}
+					}
+					else
+					{
+						fail(current, ex);
+					}
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			ArrayList<CompletableFuture<RuleEngineServerObject>> futures = new ArrayList<CompletableFuture<RuleEngineServerObject>>(batch.size());
+			for(Request request : batch)
+			{
+				futures.add(request.result);
+			}
+			return futures;
+		}
+
+		private CompletableFuture<String> send(String message)
+		{
+			lockForWriting();
+			try
+			{
+				Request request = new Request();
+				BinaryConnection current = null;
+				try
+				{
+					current = getConnection();
+					requests.add(request);
+					current.writeMessage(message);
+					flush(current);
+				}
+				catch(IOException ex)
+				{
+					if(current==null)
+					{
+						complete(request, null, ex);
+					}
+					else
+					{
+						fail(current, ex);
+					}
+				}
+				return request.response;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * writes the rows as batches. rows with different fields or output types are sent in separate batches. the
+		 * lock must be held.
+		 */
+		private void write(BinaryConnection current, List<Request> batch) throws IOException
+		{
+			ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>(batch.size());
+			for(Request request : batch)
+			{
+				rows.add(request.fields);
+			}
+			int start = 0;
+			while(start<rows.size())
+			{
+				int end = current.getBatchEnd(rows, start);
+				for(int i=start + 1;i<end;i++)
+				{
+					if(batch.get(i).outputType!=batch.get(start).outputType)
+					{
+						end = i;
+						break;
+					}
+				}
+				current.writeBatch(batch.get(start).sequence, batch.get(start).outputType, rows, start, end);
+				start = end;
+			}
+		}
+
+		/**
+		 * acquires the lock to write a request. the writer is counted as waiting until it holds the lock.
+		 */
+		private void lockForWriting()
+		{
+			waitingWriters.incrementAndGet();
+			lock.lock();
+			waitingWriters.decrementAndGet();
+		}
+
+		/**
+		 * the buffered frames are only flushed, if no other writer waits for the lock. the waiting writer flushes
+		 * them together with its own frames. the lock must be held.
+		 */
+		private void flush(BinaryConnection current) throws IOException
+		{
+			if(waitingWriters.get()==0)
+			{
+				current.flush();
+			}
+		}
+
+		private void close()
+		{
+			lock.lock();
+			try
+			{
+				if(connection!=null)
+				{
+					fail(connection, new IOException("the client has been closed"));
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * closes the connection and completes the futures of its requests exceptionally. the connection is
+		 * established again for the next request.
+		 */
+		private void fail(BinaryConnection failedConnection, Exception exception)
+		{
+			lock.lock();
+			try
+			{
+				// the connection may already have been replaced
+				if(failedConnection==connection)
+				{
+					try
+					{
+						connection.close();
+					}
+					catch(IOException ex)
+					{
+						// the connection is not used anymore
+					}
+					connection = null;
+					Request request;
+					while((request = requests.poll())!=null)
+					{
+						complete(request, null, exception);
+					}
+					for(Request rejectedRequest : rejected)
+					{
+						complete(rejectedRequest, null, exception);
+					}
+					for(Request heldRequest : held)
+					{
+						complete(heldRequest, null, exception);
+					}
+					rejected.clear();
+					held.clear();
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * reads the responses of the connection, until it fails or is closed
+		 */
+		private void read(BinaryConnection current)
+		{
+			try
+			{
+				while(true)
+				{
+					int type = current.readFrame();
+					if(type==Protocol.FRAME_RESULT)
+					{
+						readResult(current);
+					}
+					else if(type==Protocol.FRAME_RESULTS)
+					{
+						int numberOfResults = current.readNumberOfResults();
+						for(int i=0;i<numberOfResults;i++)
+						{
+							readResult(current);
+						}
+					}
+					else if(type==Protocol.FRAME_MESSAGE)
+					{
+						Request request = requests.poll();
+						if(request==null || request.response==null)
+						{
+							throw new IOException("received a response without a message");
+						}
+						request.response.complete(current.readMessage());
+					}
+					else if(type==Protocol.FRAME_BUSY)
+					{
+						readBusy(current);
+					}
+					else
+					{
+						throw new IOException("unexpected frame type: [" + type + "]");
+					}
+				}
+			}
+			catch(Exception ex)
+			{
+				fail(current, ex);
+			}
+		}
+
+		/**
+		 * the server rejects the rows of the connection from the first rejected one on, until they are sent again. when
+		 * all rows sent have been rejected, they are sent again after waiting - together with the rows held back.
+		 */
+		private void readBusy(BinaryConnection current) throws Exception
+		{
+			long rejectedSequence = current.readSequence();
+			int numberOfRows = current.readNumberOfResults();
+			long retryAfter = current.readRetryAfter();
+			boolean allRejected;
+			lock.lock();
+			try
+			{
+				for(int i=0;i<numberOfRows;i++)
+				{
+					Request request = requests.poll();
+					if(request==null || request.result==null || request.sequence!=rejectedSequence + i)
+					{
+						throw new IOException("received the rejection of row: [" + (rejectedSequence + i) + "], which was not expected");
+					}
+					rejected.add(request);
+				}
+				allRejected = true;
+				for(Request request : requests)
+				{
+					allRejected = allRejected && request.result==null;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			if(!allRejected)
+			{
+				return;
+			}
+			if(retries>=maximumRetries)
+			{
+				throw new IOException("the server is busy - the rows have been rejected: [" + (retries + 1) + "] times");
+			}
+			// the rows sent by other threads in the meantime are held back
+			Thread.sleep(RuleEngineClient.getBackoff(retries++, retryAfter));
+			lock.lock();
+			try
+			{
+				if(current==connection)
+				{
+					ArrayList<Request> batch = new ArrayList<Request>(rejected);
+					batch.addAll(held);
+					rejected.clear();
+					held.clear();
+					requests.addAll(batch);
+					write(current, batch);
+					current.flush();
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private void readResult(BinaryConnection current) throws IOException
+		{
+			retries = 0;
+			long resultSequence = current.readSequence();
+			Request request = requests.poll();
+			if(request==null || request.result==null || request.sequence!=resultSequence)
+			{
+				throw new IOException("received the result of row: [" + resultSequence + "], which was not expected");
+			}
+			RuleEngineServerObject result;
+			try
+			{
+				result = current.readResult(request.fields, request.outputType);
+			}
+			catch(IOException ex)
+			{
+				complete(request, null, ex);
+				throw ex;
+			}
+			complete(request, result, null);
+		}
+	}
+
+	private void complete(Request request, RuleEngineServerObject result, Exception exception)
+	{
+		if(request.result!=null)
+		{
+			permits.release();
+			if(exception!=null)
+			{
+				request.result.completeExceptionally(exception);
+			}
+			else
+			{
+				request.result.complete(result);
+			}
+		}
+		else if(exception!=null)
+		{
+			request.response.completeExceptionally(exception);
+		}
+	}
+}
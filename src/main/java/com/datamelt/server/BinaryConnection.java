@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.datamelt.server.protocol.FrameInputStream;
+import com.datamelt.server.protocol.FrameOutputStream;
+import com.datamelt.server.protocol.Protocol;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowField;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * the client side of a connection to the server using the binary protocol. writes the frames of the requests and
+ * reads the frames of the responses.
+ *
+ * the names of the fields are sent, when they are different from the ones of the previous row. the ids of the groups
+ * received from the server are kept, so that the failed groups of a result can be determined.
+ *
+ * writing and reading may be done by different threads, but only one thread may write and one thread may read at a time.
+ *
+ * @author uwe geercken
+ */
+class BinaryConnection implements Closeable
+{
+	private final Socket socket;
+	private final FrameOutputStream frameOutput;
+	private final FrameInputStream frameInput;
+	private final String processId;
+
+	// the header and the names of the fields last sent to the server
+	private HeaderRow header;
+	private String[] fieldNames;
+	// the ids of the groups of the project version last received from the server
+	private String[] groupIds;
+
+	/**
+	 * starts the protocol on the given socket using the default project of the server
+	 *
+	 * @param socket			the socket connected to the server
+	 * @throws IOException		exception when the server does not respond with a hello frame
+	 */
+	BinaryConnection(Socket socket) throws IOException
+	{
+		this(socket, null);
+	}
+
+	/**
+	 * starts the protocol on the given socket using the rule project with the given name
+	 *
+	 * @param socket			the socket connected to the server
+	 * @param project			the name of the project or null for the default project of the server
+	 * @throws IOException		exception when the server does not respond with a hello frame - e.g. because the project is unknown
+	 */
+	BinaryConnection(Socket socket, String project) throws IOException
+	{
+		this.socket = socket;
+		this.frameOutput = new FrameOutputStream(socket.getOutputStream());
+		this.frameInput = new FrameInputStream(new BufferedInputStream(socket.getInputStream()));
+		frameOutput.writeMagic();
+		frameOutput.begin(Protocol.FRAME_HELLO);
+		frameOutput.writeVarInt(Protocol.VERSION);
+		if(project!=null)
+		{
+			frameOutput.writeString(project);
+		}
+		frameOutput.end();
+		frameOutput.flush();
+
+		if(readFrame()!=Protocol.FRAME_HELLO)
+		{
+			throw new IOException("the server did not respond with a hello frame");
+		}
+		frameInput.readVarInt();
+		this.processId = frameInput.readString();
+	}
+
+	String getProcessId()
+	{
+		return processId;
+	}
+
+	/**
+	 * indicates if the row has the same fields as the rows sent before
+	 */
+	boolean hasCurrentHeader(RowFieldCollection fields)
+	{
+		if(fields.getHeader()==header && header.isImmutable())
+		{
+			return true;
+		}
+		return Arrays.equals(getFieldNames(fields), fieldNames);
+	}
+
+	private static String[] getFieldNames(RowFieldCollection fields)
+	{
+		ArrayList<RowField> rowFields = fields.getFields();
+		String[] names = new String[rowFields.size()];
+		for(int i=0;i<names.length;i++)
+		{
+			names[i] = rowFields.get(i).getName();
+		}
+		return names;
+	}
+
+	/**
+	 * writes the names of the fields of the row, if they are different from the ones of the previous row
+	 */
+	void writeHeader(RowFieldCollection fields) throws IOException
+	{
+		if(!hasCurrentHeader(fields))
+		{
+			String[] names = getFieldNames(fields);
+			frameOutput.begin(Protocol.FRAME_HEADER);
+			frameOutput.writeVarInt(names.length);
+			for(int i=0;i<names.length;i++)
+			{
+				frameOutput.writeString(names[i]);
+			}
+			frameOutput.end();
+			fieldNames = names;
+		}
+		header = fields.getHeader();
+	}
+
+	/**
+	 * writes the row and - if required - the names of its fields
+	 */
+	void writeRow(long sequence, int outputType, RowFieldCollection fields) throws IOException
+	{
+		writeHeader(fields);
+		frameOutput.begin(Protocol.FRAME_ROW);
+		frameOutput.writeVarLong(sequence);
+		frameOutput.writeVarInt(outputType);
+		writeValues(fields.getFields());
+		frameOutput.end();
+	}
+
+	/**
+	 * returns the index after the last row following the given start index, which has the same fields as the row
+	 * at the start index. these rows can be sent in one batch.
+	 */
+	int getBatchEnd(List<RowFieldCollection> rows, int start) throws IOException
+	{
+		writeHeader(rows.get(start));
+		int end = start + 1;
+		while(end<rows.size() && hasCurrentHeader(rows.get(end)))
+		{
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * writes the rows from the start index up to the end index as one batch. the fields of the rows must correspond
+	 * to the header sent. see the getBatchEnd() method.
+	 */
+	void writeBatch(long sequence, int outputType, List<RowFieldCollection> rows, int start, int end) throws IOException
+	{
+		frameOutput.begin(Protocol.FRAME_BATCH);
+		frameOutput.writeVarLong(sequence);
+		frameOutput.writeVarInt(outputType);
+		frameOutput.writeVarInt(end - start);
+		for(int i=start;i<end;i++)
+		{
+			writeValues(rows.get(i).getFields());
+		}
+		frameOutput.end();
+	}
+
+	private void writeValues(ArrayList<RowField> rowFields) throws IOException
+	{
+		frameOutput.writeVarInt(rowFields.size());
+		for(int i=0;i<rowFields.size();i++)
+		{
+			frameOutput.writeValue(rowFields.get(i).getValue());
+		}
+	}
+
+	void writeMessage(String message) throws IOException
+	{
+		frameOutput.begin(Protocol.FRAME_MESSAGE);
+		frameOutput.writeString(message);
+		frameOutput.end();
+	}
+
+	void flush() throws IOException
+	{
+		frameOutput.flush();
+	}
+
+	/**
+	 * reads the next frame - a HELLO, MESSAGE, RESULT, RESULTS or BUSY frame. the ids of the groups are kept, when they
+	 * are received.
+	 *
+	 * @return				the type of the frame
+	 * @throws IOException	exception when the frame can not be read, the server sent an error or closed the connection
+	 */
+	int readFrame() throws IOException
+	{
+		while(true)
+		{
+			int type = frameInput.readFrame();
+			if(type==Protocol.FRAME_GROUPS)
+			{
+				frameInput.readVarLong();
+				String[] ids = new String[frameInput.readCount()];
+				for(int i=0;i<ids.length;i++)
+				{
+					ids[i] = frameInput.readString();
+				}
+				groupIds = ids;
+			}
+			else if(type==Protocol.FRAME_ERROR)
+			{
+				throw new IOException("error from server: " + frameInput.readString());
+			}
+			else if(type<0)
+			{
+				throw new EOFException("connection closed by the server");
+			}
+			else if(type==Protocol.FRAME_HELLO || type==Protocol.FRAME_MESSAGE || type==Protocol.FRAME_RESULT || type==Protocol.FRAME_RESULTS || type==Protocol.FRAME_BUSY)
+			{
+				return type;
+			}
+			else
+			{
+				throw new IOException("unexpected frame type: [" + type + "]");
+			}
+		}
+	}
+
+	int readNumberOfResults() throws IOException
+	{
+		return frameInput.readVarInt();
+	}
+
+	long readSequence() throws IOException
+	{
+		return frameInput.readVarLong();
+	}
+
+	/**
+	 * reads the time in milliseconds after which the rows of a BUSY frame should be sent again - after the sequence
+	 * number and the number of rows have been read
+	 */
+	long readRetryAfter() throws IOException
+	{
+		return frameInput.readVarLong();
+	}
+
+	String readMessage() throws IOException
+	{
+		return frameInput.readString();
+	}
+
+	/**
+	 * reads the result of the given row - after its sequence number has been read. the fields updated by actions
+	 * are updated in the row.
+	 */
+	RuleEngineServerObject readResult(RowFieldCollection fields, int outputType) throws IOException
+	{
+		RuleEngineServerObject object = new RuleEngineServerObject(fields, outputType);
+		object.setProcessId(processId);
+		object.setProjectVersion(frameInput.readVarLong());
+		object.setTotalGroups(frameInput.readVarLong());
+		object.setGroupsFailed(frameInput.readVarLong());
+		object.setGroupsSkipped(frameInput.readVarLong());
+		object.setTotalRules(frameInput.readVarLong());
+		object.setRulesFailed(frameInput.readVarLong());
+		object.setTotalActions(frameInput.readVarLong());
+
+		boolean[] failed = frameInput.readBits();
+		frameInput.readBits();
+		if(groupIds!=null && groupIds.length==failed.length)
+		{
+			ArrayList<String> failedGroupIds = new ArrayList<String>();
+			for(int i=0;i<failed.length;i++)
+			{
+				if(failed[i])
+				{
+					failedGroupIds.add(groupIds[i]);
+				}
+			}
+			object.setFailedGroupIds(failedGroupIds.toArray(new String[failedGroupIds.size()]));
+		}
+
+		// apply the updates of the actions to the row
+		int numberOfUpdatedFields = frameInput.readVarInt();
+		for(int i=0;i<numberOfUpdatedFields;i++)
+		{
+			int index = frameInput.readVarInt();
+			Object value = frameInput.readValue();
+			try
+			{
+				fields.setFieldValue(index, value);
+			}
+			catch(Exception ex)
+			{
+				throw new IOException("the server updated the unknown field: [" + index + "]", ex);
+			}
+		}
+		return object;
+	}
+
+	public void close() throws IOException
+	{
+		if(!socket.isClosed())
+		{
+			socket.close();
+		}
+	}
+}
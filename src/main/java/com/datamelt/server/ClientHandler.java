@@ -22,36 +22,51 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.zip.ZipFile;
 
 import com.datamelt.rules.core.RuleGroup;
 import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.server.protocol.FrameInputStream;
+import com.datamelt.server.protocol.FrameOutputStream;
+import com.datamelt.server.protocol.Protocol;
 import com.datamelt.server.transform.Transformer;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowField;
+import com.datamelt.util.RowFieldCollection;
 
-public class ClientHandler extends Thread
+public class ClientHandler implements Runnable
 {
 	private String processId;
 	private Socket socket;
-    private BusinessRulesEngine ruleEngine;
-    private String ruleFileFolder;
-    private String ruleFile;
+    private RuleProjectCache projectCache;
+    // the project used by the client and its name or null for the default project
+    private RuleProjectManager projectManager;
+    private String projectName;
     private long clientStart;
     private long serverStart;
     private long rowsProcessed=0;
     private Transformer transformer;
     private ObjectOutputStream outputStream;
     private ObjectInputStream inputStream;
+    private boolean objectSerializationEnabled = false;
+    private LoadLimiter loadLimiter;
+    private HeaderRowCache headerRowCache;
+    private final String clientAddress;
+    // the sequence number of the row rejected by the load limiter and the time after which the client should retry
+    private long rejectedSequence = -1;
+    private long rejectedRetryAfter;
     
     // list of possible messages
     // the "exit" message is explicitly excluded here
-    public static final String[] MESSAGES					= {"uptime","rulefile","rowsprocessed","reload","processid","version","groups","hello"};
+    public static final String[] MESSAGES					= {"uptime","rulefile","rowsprocessed","reload","processid","version","groups","hello","projectversion","project"};
     
     public static final String RESPONSE_UPTIME 				= "uptime";
     public static final String RESPONSE_RULEFILE 			= "rulefile";
@@ -62,33 +77,29 @@ public class ClientHandler extends Thread
     public static final String RESPONSE_RULEENGINE_VERSION	= "version";
     public static final String RESPONSE_NUMBER_OF_GROUPS	= "groups";
     public static final String RESPONSE_HELLO				= "hello";
+    public static final String RESPONSE_PROJECT_VERSION		= "projectversion";
+    // "project" returns the name of the project used, "project name" selects the project for the following rows
+    public static final String RESPONSE_PROJECT				= "project";
+    // sent instead of the result of a row, followed by the time in milliseconds after which the client should retry
+    public static final String RESPONSE_BUSY				= "busy";
     
     private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
-    private static SimpleDateFormat sdf						= new SimpleDateFormat(DEFAULT_DATETIME_FORMAT);
+    // the handler is used by one thread only
+    private final SimpleDateFormat sdf						= new SimpleDateFormat(DEFAULT_DATETIME_FORMAT);
     
-    ClientHandler(String processId, Socket socket, String ruleFileFolder, String ruleFile, Transformer transformer, long serverStart) throws Exception
+    ClientHandler(String processId, Socket socket, RuleProjectCache projectCache, Transformer transformer, long serverStart) throws Exception
     {
     	this.clientStart = System.currentTimeMillis();
     	this.serverStart = serverStart;
     	this.processId= processId;
-    	this.ruleFileFolder = ruleFileFolder;
-    	this.ruleFile = ruleFile;
         this.transformer = transformer;
         this.socket = socket;
+        this.clientAddress = socket.getInetAddress().getHostAddress();
         
-        this.ruleEngine = new BusinessRulesEngine(new ZipFile(ruleFileFolder + ruleFile));
-        
-        // if no transformer is defined then no detailed output is generated. so we don't need
-        // the detailed results of the rule engine. if one is defined, we keep them.
-        if(transformer!=null)
-        {
-        	ruleEngine.setPreserveRuleExcecutionResults(true);
-        }
-        
-        this.outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
-        // flush MUST be called after creating the output stream, otherwise the stream blocks
-        outputStream.flush();
-        this.inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        // the rule projects are loaded once by the server and shared by all clients. the client uses the
+        // default project, unless it selects another one
+        this.projectCache = projectCache;
+        this.projectManager = projectCache.getDefaultProjectManager();
     }
 
     @Override
@@ -96,146 +107,55 @@ public class ClientHandler extends Thread
     {
     	try
         {
-    		boolean ok=true;
-    		while (ok)
+    		// the client starts with the magic number of the binary protocol or with the header of a java object stream.
+    		// the streams are created by the thread of the handler and not by the thread accepting the connections,
+    		// because reading the first bytes waits for the client
+    		BufferedInputStream input = new BufferedInputStream(socket.getInputStream());
+    		input.mark(2);
+    		int first = input.read();
+    		int second = input.read();
+    		input.reset();
+    		if(first==0xAC && second==0xED)
     		{
-            	// waiting for a server object on the input stream
-            	Object object = inputStream.readObject();
-
-            	if(object instanceof RuleEngineServerObject)
-            	{
-	            	RuleEngineServerObject serverObject = (RuleEngineServerObject) object;
-	            		
-	                // set the output type
-	                ruleEngine.setOutputType(serverObject.getOutputType());
-	                
-	                // run the rule engine
-	                ruleEngine.run("row_" + rowsProcessed + "_" + sdf.format(new Date()), serverObject.getFields());
-	                
-	                // count the processed rows
-	                rowsProcessed++;
-	                
-	                // set the fields of the object by using the results from the rule engine
-	                serverObject.setTotalGroups(ruleEngine.getNumberOfGroups());
-	                serverObject.setGroupsFailed(ruleEngine.getNumberOfGroupsFailed());
-	                serverObject.setGroupsSkipped(ruleEngine.getNumberOfGroupsSkipped());
-	                serverObject.setTotalRules(ruleEngine.getNumberOfRules());
-	                serverObject.setRulesFailed(ruleEngine.getNumberOfRulesFailed());
-	                serverObject.setTotalActions(ruleEngine.getNumberOfActions());
-	                serverObject.setObjectLabel(serverObject.getFields().getFieldValues());
-	                serverObject.setProcessId(processId);
-	                
-	                outputStream.writeObject(serverObject);
-	                outputStream.flush();
-	                
-	                // add additional information of the rule engine to the server object for output purposes
-	                // we don't send these back to the client
-	                serverObject.setRuleGroups(ruleEngine.getGroups());
-	                serverObject.setRuleExecutionCollection(ruleEngine.getRuleExecutionCollection());
-	                
-	                // output the results
-	                output(serverObject,ruleEngine.getGroups());
-	                
-	               	// clear the execution results, otherwise they get accumulated
-	               	ruleEngine.getRuleExecutionCollection().clear();
-            	}
-            	else if(object instanceof String)
-            	{
-            		String serverObject = (String)object;
-            		if(serverObject.equals(RESPONSE_EXIT))
-            		{
-            			// write response message
-    	                String responseMessage = "exit";
-    	                sendMessage(responseMessage);
-    	                
-    	                System.out.println(sdf.format(new Date()) + " - client requested exit - closing client socket");
-
-    	                if(!socket.isClosed())
-            			{
-            				socket.close();
-            			}
-    	               	ok=false;
-            		}
-            		else if(serverObject.equals(RESPONSE_RELOAD))
-            		{
-            			// create a new instance of the rule engine
-            			ruleEngine = new BusinessRulesEngine(new ZipFile(ruleFileFolder + ruleFile));
-            			
-    	                String responseMessage = "reloaded rule file: " + ruleFileFolder + ruleFile;
-    	                sendMessage(responseMessage);
-    	                
-    	                System.out.println(sdf.format(new Date()) + " - reloaded rule file: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_UPTIME))
-            		{
-    	                String responseMessage = getRunTime();
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - server running since: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_ROWSPROCESSED))
-            		{
-    	                String responseMessage = "" + rowsProcessed;
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - rows processed: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_PROCESSID))
-            		{
-    	                String responseMessage = processId;
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - process id: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_RULEFILE))
-            		{
-    	                String responseMessage = ruleFileFolder + ruleFile;
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - running rule file: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_RULEENGINE_VERSION))
-            		{
-    	                String responseMessage = BusinessRulesEngine.getVersion();
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - rule engine version: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_NUMBER_OF_GROUPS))
-            		{
-    	                String responseMessage = "" + ruleEngine.getNumberOfGroups();
-    	                sendMessage(responseMessage);
-    	                
-    	                //System.out.println(sdf.format(new Date()) + " - number of rulegroups: " + responseMessage);
-            		}
-            		else if(serverObject.equals(RESPONSE_HELLO))
-            		{
-    	                sendMessage(RESPONSE_HELLO + " client");
-            		}
-            		else
-            		{
-    	                String responseMessage = "unknown request: " + serverObject;
-    	                sendMessage(responseMessage);
-    	                
-    	                System.out.println(sdf.format(new Date()) + " - " + responseMessage);
-            		}
-            	}
-            	else
-            	{
-            		String responseMessage = "unknown or unhandled object received";
-	                sendMessage(responseMessage);
-	                
-	                System.out.println(sdf.format(new Date()) + " - " + responseMessage);
-            	}
-            }
-            
+    			if(objectSerializationEnabled)
+    			{
+    				runObjectProtocol(input);
+    			}
+    			else
+    			{
+    				System.out.println(sdf.format(new Date()) + " - java object serialization is disabled - closing client socket");
+    				socket.close();
+    			}
+    		}
+    		else if(first>=0)
+    		{
+    			runBinaryProtocol(input);
+    		}
+    		else
+    		{
+    			socket.close();
+    		}
         }
     	catch (EOFException e)
         {
         	// something went wrong here
         	try
         	{
-        		transformer.close();
+        		if(!socket.isClosed())
+     			{
+     				socket.close();
+     			}
+        	}
+        	catch(Exception ex)
+        	{
+        		
+        	}
+        }
+        catch (SocketTimeoutException e)
+        {
+        	System.out.println(sdf.format(new Date()) + " - client idle timeout reached - closing client socket");
+        	try
+        	{
         		if(!socket.isClosed())
      			{
      				socket.close();
@@ -251,7 +171,6 @@ public class ClientHandler extends Thread
         	// something went wrong here
         	try
         	{
-        		transformer.close();
         		if(!socket.isClosed())
      			{
      				socket.close();
@@ -267,7 +186,6 @@ public class ClientHandler extends Thread
         	// something went wrong here
         	try
         	{
-        		transformer.close();
         		if(!socket.isClosed())
      			{
      				socket.close();
@@ -281,11 +199,540 @@ public class ClientHandler extends Thread
         }
     }
     
-    private void output(RuleEngineServerObject serverObject,ArrayList<RuleGroup> groups) throws Exception
+    private void runObjectProtocol(InputStream input) throws Exception
+    {
+        this.outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        // flush MUST be called after creating the output stream, otherwise the stream blocks
+        outputStream.flush();
+        this.inputStream = new ObjectInputStream(input);
+
+		boolean ok=true;
+		while (ok)
+		{
+        	// waiting for a server object on the input stream
+        	Object object = inputStream.readObject();
+
+        	if(object instanceof RuleEngineServerObject)
+        	{
+            	RuleEngineServerObject serverObject = (RuleEngineServerObject) object;
+            	
+            	long retryAfter = acquire(1);
+            	if(retryAfter>0)
+            	{
+            		sendMessage(RESPONSE_BUSY + " " + retryAfter);
+            		continue;
+            	}
+            	try
+            	{
+	            	// the engine is used exclusively for this row and returned to the project afterwards.
+	            	// releasing the engine clears the execution results, otherwise they get accumulated.
+	            	// if the project is reloaded in the meantime, the row is finished with the old version
+	            	RuleProject project = getRuleProject();
+	            	BusinessRulesEngine ruleEngine = project.acquireEngine();
+	            	try
+	            	{
+	            		runRuleEngine(project, ruleEngine, serverObject);
+		                
+		                outputStream.writeObject(serverObject);
+		                outputStream.flush();
+		                
+		                // output the results
+		                output(serverObject,ruleEngine);
+	            	}
+	            	finally
+	            	{
+	            		project.releaseEngine(ruleEngine);
+	            	}
+            	}
+            	finally
+            	{
+            		release();
+            	}
+        	}
+        	else if(object instanceof String)
+        	{
+        		String serverObject = (String)object;
+        		if(serverObject.equals(RESPONSE_EXIT))
+        		{
+        			// write response message
+	                String responseMessage = "exit";
+	                sendMessage(responseMessage);
+	                
+	                System.out.println(sdf.format(new Date()) + " - client requested exit - closing client socket");
+
+	                if(!socket.isClosed())
+        			{
+        				socket.close();
+        			}
+	               	ok=false;
+        		}
+        		else
+        		{
+        			sendMessage(getMessageResponse(serverObject));
+        		}
+        	}
+        	else
+        	{
+        		String responseMessage = "unknown or unhandled object received";
+                sendMessage(responseMessage);
+                
+                System.out.println(sdf.format(new Date()) + " - " + responseMessage);
+        	}
+        }
+    }
+    
+    private void runBinaryProtocol(InputStream input) throws Exception
+    {
+    	FrameInputStream frameInput = new FrameInputStream(input);
+    	FrameOutputStream frameOutput = new FrameOutputStream(socket.getOutputStream());
+    	frameInput.readMagic();
+    	if(frameInput.readFrame()!=Protocol.FRAME_HELLO)
+    	{
+    		sendError(frameOutput, "the first frame must be a hello frame");
+    		return;
+    	}
+    	int version = frameInput.readVarInt();
+    	if(version!=Protocol.VERSION)
+    	{
+    		sendError(frameOutput, "unsupported protocol version: [" + version + "]");
+    		return;
+    	}
+    	// the client may select a project other than the default project
+    	if(frameInput.hasRemaining())
+    	{
+    		try
+    		{
+    			selectProject(frameInput.readString());
+    		}
+    		catch(Exception ex)
+    		{
+    			sendError(frameOutput, ex.getMessage());
+    			return;
+    		}
+    	}
+    	frameOutput.begin(Protocol.FRAME_HELLO);
+    	frameOutput.writeVarInt(Protocol.VERSION);
+    	frameOutput.writeString(processId);
+    	frameOutput.writeString(BusinessRulesEngine.getVersion());
+    	frameOutput.end();
+    	frameOutput.flush();
+    	
+    	// the header is sent once and is valid for all following rows
+    	HeaderRow header = null;
+    	// the project, for which the ids of the groups have been sent
+    	RuleProject groupsProject = null;
+    	
+    	int type;
+    	while((type = frameInput.readFrame())>=0)
+    	{
+    		if(type==Protocol.FRAME_ROW)
+    		{
+    			long sequence = frameInput.readVarLong();
+    			int outputType = frameInput.readVarInt();
+    			Object[] values = readValues(frameInput, header);
+    			if(values==null)
+    			{
+    				sendError(frameOutput, "the number of values of the row does not correspond to the header");
+    				return;
+    			}
+    			RuleEngineServerObject serverObject = new RuleEngineServerObject(new RowFieldCollection(header, values), outputType);
+    			
+    			long retryAfter = acquire(sequence, 1);
+    			if(retryAfter>0)
+    			{
+    				writeBusy(frameOutput, sequence, 1, retryAfter);
+    				flushIfIdle(frameInput, frameOutput);
+    				continue;
+    			}
+    			try
+    			{
+	            	RuleProject project = getRuleProject();
+	            	BusinessRulesEngine ruleEngine = project.acquireEngine();
+	            	try
+	            	{
+	            		runRuleEngine(project, ruleEngine, serverObject);
+	            		if(project!=groupsProject)
+	            		{
+	            			writeGroups(frameOutput, project, ruleEngine);
+	            			groupsProject = project;
+	            		}
+	            		frameOutput.begin(Protocol.FRAME_RESULT);
+	            		writeResult(frameOutput, sequence, serverObject, ruleEngine);
+	            		frameOutput.end();
+	            		
+	            		output(serverObject,ruleEngine);
+	            	}
+	            	finally
+	            	{
+	            		project.releaseEngine(ruleEngine);
+	            	}
+    			}
+    			finally
+    			{
+    				release();
+    			}
+            	flushIfIdle(frameInput, frameOutput);
+    		}
+    		else if(type==Protocol.FRAME_BATCH)
+    		{
+    			long sequence = frameInput.readVarLong();
+    			int outputType = frameInput.readVarInt();
+    			// each row takes at least one byte, so the number of rows is checked before the array is allocated
+    			Object[][] rows = new Object[frameInput.readCount()][];
+    			for(int i=0;i<rows.length;i++)
+    			{
+    				rows[i] = readValues(frameInput, header);
+    				if(rows[i]==null)
+    				{
+    					sendError(frameOutput, "the number of values of row: [" + (sequence + i) + "] does not correspond to the header");
+    					return;
+    				}
+    			}
+    			
+    			long retryAfter = acquire(sequence, rows.length);
+    			if(retryAfter>0)
+    			{
+    				writeBusy(frameOutput, sequence, rows.length, retryAfter);
+    				flushIfIdle(frameInput, frameOutput);
+    				continue;
+    			}
+    			try
+    			{
+	    			// all rows of the batch are evaluated with the same engine and project version
+	            	RuleProject project = getRuleProject();
+	            	BusinessRulesEngine ruleEngine = project.acquireEngine();
+	            	try
+	            	{
+	            		if(project!=groupsProject)
+	            		{
+	            			writeGroups(frameOutput, project, ruleEngine);
+	            			groupsProject = project;
+	            		}
+	            		frameOutput.begin(Protocol.FRAME_RESULTS);
+	            		frameOutput.writeVarInt(rows.length);
+	            		for(int i=0;i<rows.length;i++)
+	            		{
+	            			RuleEngineServerObject serverObject = new RuleEngineServerObject(new RowFieldCollection(header, rows[i]), outputType);
+	            			runRuleEngine(project, ruleEngine, serverObject);
+	            			writeResult(frameOutput, sequence + i, serverObject, ruleEngine);
+	            			output(serverObject,ruleEngine);
+	            			// the results of the row must not be accumulated with the ones of the next row
+	            			ruleEngine.getRuleExecutionCollection().clear();
+	            		}
+	            		frameOutput.end();
+	            	}
+	            	finally
+	            	{
+	            		project.releaseEngine(ruleEngine);
+	            	}
+    			}
+    			finally
+    			{
+    				release();
+    			}
+            	flushIfIdle(frameInput, frameOutput);
+    		}
+    		else if(type==Protocol.FRAME_HEADER)
+    		{
+    			String[] fieldNames = new String[frameInput.readCount()];
+    			for(int i=0;i<fieldNames.length;i++)
+    			{
+    				fieldNames[i] = frameInput.readString();
+    			}
+    			// the names of the fields are chosen by the client, so the header row is not interned
+    			header = headerRowCache!=null ? headerRowCache.getHeader(fieldNames) : HeaderRow.createImmutableHeader(fieldNames);
+    		}
+    		else if(type==Protocol.FRAME_MESSAGE)
+    		{
+    			String message = frameInput.readString();
+    			frameOutput.begin(Protocol.FRAME_MESSAGE);
+    			if(message.equals(RESPONSE_EXIT))
+    			{
+    				frameOutput.writeString("exit");
+    				frameOutput.end();
+    				frameOutput.flush();
+    				System.out.println(sdf.format(new Date()) + " - client requested exit - closing client socket");
+    				socket.close();
+    				return;
+    			}
+    			frameOutput.writeString(getMessageResponse(message));
+    			frameOutput.end();
+    			frameOutput.flush();
+    		}
+    		else
+    		{
+    			sendError(frameOutput, "unknown frame type: [" + type + "]");
+    			return;
+    		}
+    	}
+    	socket.close();
+    }
+    
+    private void runRuleEngine(RuleProject project, BusinessRulesEngine ruleEngine, RuleEngineServerObject serverObject) throws Exception
+    {
+        // set the output type
+        ruleEngine.setOutputType(serverObject.getOutputType());
+        
+        // run the rule engine
+        ruleEngine.run("row_" + rowsProcessed + "_" + sdf.format(new Date()), serverObject.getFields());
+        
+        // count the processed rows
+        rowsProcessed++;
+        
+        // set the fields of the object by using the results from the rule engine
+        serverObject.setTotalGroups(ruleEngine.getNumberOfGroups());
+        serverObject.setGroupsFailed(ruleEngine.getNumberOfGroupsFailed());
+        serverObject.setGroupsSkipped(ruleEngine.getNumberOfGroupsSkipped());
+        serverObject.setTotalRules(ruleEngine.getNumberOfRules());
+        serverObject.setRulesFailed(ruleEngine.getNumberOfRulesFailed());
+        serverObject.setTotalActions(ruleEngine.getNumberOfActions());
+        serverObject.setObjectLabel(serverObject.getFields().getFieldValues());
+        serverObject.setProcessId(processId);
+        serverObject.setProjectVersion(project.getVersion());
+    }
+    
+    private void writeGroups(FrameOutputStream frameOutput, RuleProject project, BusinessRulesEngine ruleEngine) throws IOException
+    {
+    	ArrayList<RuleGroup> groups = ruleEngine.getGroups();
+    	frameOutput.begin(Protocol.FRAME_GROUPS);
+    	frameOutput.writeVarLong(project.getVersion());
+    	frameOutput.writeVarInt(groups.size());
+    	for(int i=0;i<groups.size();i++)
+    	{
+    		frameOutput.writeString(groups.get(i).getId());
+    	}
+    	frameOutput.end();
+    }
+    
+    /**
+     * reads the values of a row. returns null, if no header has been received or if the number of values
+     * is different from the number of fields of the header.
+     */
+    private Object[] readValues(FrameInputStream frameInput, HeaderRow header) throws IOException
+    {
+		int numberOfValues = frameInput.readVarInt();
+		if(header==null || numberOfValues!=header.getNumberOfFields())
+		{
+			return null;
+		}
+		Object[] values = new Object[numberOfValues];
+		for(int i=0;i<numberOfValues;i++)
+		{
+			values[i] = frameInput.readValue();
+		}
+		return values;
+    }
+    
+    /**
+     * the results are only written to the client, when there are no further requests of the client available.
+     * so the results of requests that are sent without waiting for the results are written together.
+     */
+    private void flushIfIdle(FrameInputStream frameInput, FrameOutputStream frameOutput) throws IOException
+    {
+    	if(frameInput.available()==0)
+    	{
+    		frameOutput.flush();
+    	}
+    }
+    
+    private void writeResult(FrameOutputStream frameOutput, long sequence, RuleEngineServerObject serverObject, BusinessRulesEngine ruleEngine) throws Exception
+    {
+    	ArrayList<RuleGroup> groups = ruleEngine.getGroups();
+    	boolean[] failed = new boolean[groups.size()];
+    	boolean[] skipped = new boolean[groups.size()];
+    	for(int i=0;i<groups.size();i++)
+    	{
+    		RuleGroup group = groups.get(i);
+    		skipped[i] = group.getSkipped()==1;
+    		failed[i] = !skipped[i] && group.getFailed()==1;
+    	}
+    	
+    	frameOutput.writeVarLong(sequence);
+    	frameOutput.writeVarLong(serverObject.getProjectVersion());
+    	frameOutput.writeVarLong(serverObject.getTotalGroups());
+    	frameOutput.writeVarLong(serverObject.getGroupsFailed());
+    	frameOutput.writeVarLong(serverObject.getGroupsSkipped());
+    	frameOutput.writeVarLong(serverObject.getTotalRules());
+    	frameOutput.writeVarLong(serverObject.getRulesFailed());
+    	frameOutput.writeVarLong(serverObject.getTotalActions());
+    	frameOutput.writeBits(failed);
+    	frameOutput.writeBits(skipped);
+    	
+    	// only the fields updated by actions are sent back
+    	ArrayList<RowField> fields = serverObject.getFields().getFields();
+    	int numberOfUpdatedFields = 0;
+    	for(int i=0;i<fields.size();i++)
+    	{
+    		if(fields.get(i).isUpdated())
+    		{
+    			numberOfUpdatedFields++;
+    		}
+    	}
+    	frameOutput.writeVarInt(numberOfUpdatedFields);
+    	for(int i=0;i<fields.size() && numberOfUpdatedFields>0;i++)
+    	{
+    		if(fields.get(i).isUpdated())
+    		{
+    			frameOutput.writeVarInt(i);
+    			frameOutput.writeValue(fields.get(i).getValue());
+    		}
+    	}
+    }
+    
+    /**
+     * returns 0, if the rows may be evaluated. otherwise the time in milliseconds after which the client should send
+     * them again. if 0 is returned, the release() method must be called after the rows have been evaluated.
+     */
+    private long acquire(int numberOfRows) throws Exception
+    {
+    	if(loadLimiter==null)
+    	{
+    		return 0;
+    	}
+    	return loadLimiter.acquire(clientAddress, projectManager.getRuleFile(), numberOfRows);
+    }
+    
+    /**
+     * like acquire(), but after rows have been rejected, the following ones are rejected as well, until the client
+     * sends the first rejected row again. so the client receives the results in the order of the rows. see the Protocol.
+     */
+    private long acquire(long sequence, int numberOfRows) throws Exception
+    {
+    	if(rejectedSequence>=0 && sequence!=rejectedSequence)
+    	{
+    		return rejectedRetryAfter;
+    	}
+    	long retryAfter = acquire(numberOfRows);
+    	rejectedSequence = retryAfter>0 ? sequence : -1;
+    	rejectedRetryAfter = retryAfter;
+    	return retryAfter;
+    }
+    
+    private void release()
+    {
+    	if(loadLimiter!=null)
+    	{
+    		loadLimiter.release();
+    	}
+    }
+    
+    private void writeBusy(FrameOutputStream frameOutput, long sequence, int numberOfRows, long retryAfter) throws IOException
+    {
+    	frameOutput.begin(Protocol.FRAME_BUSY);
+    	frameOutput.writeVarLong(sequence);
+    	frameOutput.writeVarInt(numberOfRows);
+    	frameOutput.writeVarLong(retryAfter);
+    	frameOutput.end();
+    }
+    
+    private void sendError(FrameOutputStream frameOutput, String message) throws IOException
+    {
+    	System.out.println(sdf.format(new Date()) + " - " + message + " - closing client socket");
+    	frameOutput.begin(Protocol.FRAME_ERROR);
+    	frameOutput.writeString(message);
+    	frameOutput.end();
+    	frameOutput.flush();
+    	socket.close();
+    }
+    
+    /**
+     * returns the current version of the project used by the client. if the project has been unloaded by the cache,
+     * it is requested again.
+     */
+    private RuleProject getRuleProject() throws Exception
+    {
+    	if(projectManager.isClosed() && projectManager!=projectCache.getDefaultProjectManager())
+    	{
+    		projectManager = projectCache.getProjectManager(projectName);
+    	}
+    	return projectManager.getRuleProject();
+    }
+    
+    private void selectProject(String name) throws Exception
+    {
+    	projectManager = projectCache.getProjectManager(name);
+    	projectName = name.trim().length()>0 ? name.trim() : null;
+    }
+    
+    private String getMessageResponse(String message) throws Exception
+    {
+		if(message.startsWith(RESPONSE_PROJECT + " "))
+		{
+			try
+			{
+				selectProject(message.substring(RESPONSE_PROJECT.length() + 1));
+			}
+			catch(Exception ex)
+			{
+				return ex.getMessage();
+			}
+			return projectManager.getRuleFile();
+		}
+		else if(message.equals(RESPONSE_PROJECT))
+		{
+			return projectManager.getRuleFile();
+		}
+		else if(message.equals(RESPONSE_RELOAD))
+		{
+			// the project is reloaded in the background for all clients. the current version is
+			// used until the new version is loaded. a project unloaded by the cache is loaded again first
+			getRuleProject();
+			projectManager.reload();
+			
+            String responseMessage = "reloading rule file: " + projectManager.getRuleFileFolder() + projectManager.getRuleFile() + " - current version: " + projectManager.getRuleProject().getVersion();
+            System.out.println(sdf.format(new Date()) + " - " + responseMessage);
+            return responseMessage;
+		}
+		else if(message.equals(RESPONSE_UPTIME))
+		{
+            return getRunTime();
+		}
+		else if(message.equals(RESPONSE_ROWSPROCESSED))
+		{
+            return "" + rowsProcessed;
+		}
+		else if(message.equals(RESPONSE_PROCESSID))
+		{
+            return processId;
+		}
+		else if(message.equals(RESPONSE_RULEFILE))
+		{
+            return projectManager.getRuleFileFolder() + projectManager.getRuleFile();
+		}
+		else if(message.equals(RESPONSE_RULEENGINE_VERSION))
+		{
+            return BusinessRulesEngine.getVersion();
+		}
+		else if(message.equals(RESPONSE_NUMBER_OF_GROUPS))
+		{
+            return "" + getRuleProject().getNumberOfGroups();
+		}
+		else if(message.equals(RESPONSE_HELLO))
+		{
+            return RESPONSE_HELLO + " client";
+		}
+		else if(message.equals(RESPONSE_PROJECT_VERSION))
+		{
+            return "" + getRuleProject().getVersion();
+		}
+		else
+		{
+            String responseMessage = "unknown request: " + message;
+            System.out.println(sdf.format(new Date()) + " - " + responseMessage);
+            return responseMessage;
+		}
+    }
+    
+    private void output(RuleEngineServerObject serverObject,BusinessRulesEngine ruleEngine) throws Exception
     {
    		if(transformer!=null)
    		{
-   			transformer.write(serverObject,groups);
+            // add additional information of the rule engine to the server object for output purposes
+            // we don't send these back to the client
+            serverObject.setRuleGroups(ruleEngine.getGroups());
+            serverObject.setRuleExecutionCollection(ruleEngine.getRuleExecutionCollection());
+            
+   			transformer.write(serverObject,ruleEngine.getGroups());
    		}
     }
     
@@ -326,19 +773,14 @@ public class ClientHandler extends Thread
 		return processId;
 	}
 
-	public BusinessRulesEngine getRuleEngine() 
-	{
-		return ruleEngine;
-	}
-
 	public String getRuleFileFolder() 
 	{
-		return ruleFileFolder;
+		return projectManager.getRuleFileFolder();
 	}
 
 	public String getRuleFile() 
 	{
-		return ruleFile;
+		return projectManager.getRuleFile();
 	}
 
 	public long getClientStart() 
@@ -355,4 +797,53 @@ public class ClientHandler extends Thread
 	{
 		return transformer;
 	}
+
+	public boolean getObjectSerializationEnabled() 
+	{
+		return objectSerializationEnabled;
+	}
+
+	/**
+	 * sets if clients may use java object serialization instead of the binary protocol. if not enabled, the
+	 * connections of these clients are closed, so that the server never deserializes objects.
+	 * 
+	 * @param objectSerializationEnabled	indicator if java object serialization is enabled
+	 */
+	public void setObjectSerializationEnabled(boolean objectSerializationEnabled) 
+	{
+		this.objectSerializationEnabled = objectSerializationEnabled;
+	}
+
+	public LoadLimiter getLoadLimiter() 
+	{
+		return loadLimiter;
+	}
+
+	/**
+	 * sets the limiter for the rows of the client. rows exceeding the limits are rejected and the client is told
+	 * to send them again later. clients using java object serialization receive the message "busy" followed by the
+	 * time in milliseconds instead of the result.
+	 * 
+	 * @param loadLimiter	the limiter or null for no limits
+	 */
+	public void setLoadLimiter(LoadLimiter loadLimiter) 
+	{
+		this.loadLimiter = loadLimiter;
+	}
+
+	public HeaderRowCache getHeaderRowCache() 
+	{
+		return headerRowCache;
+	}
+
+	/**
+	 * sets the cache of the header rows, which is shared by the clients of the server. if not set, a header row
+	 * is created for each header received.
+	 * 
+	 * @param headerRowCache	the cache of the header rows
+	 */
+	public void setHeaderRowCache(HeaderRowCache headerRowCache) 
+	{
+		this.headerRowCache = headerRowCache;
+	}
 }
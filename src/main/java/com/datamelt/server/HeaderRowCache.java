@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.datamelt.util.HeaderRow;
+
+/**
+ * keeps the header rows for the names of fields sent by the clients of a server, so that the slots of the fields
+ * are resolved once for all rows with the same fields.
+ *
+ * the names of the fields are chosen by the clients. the number of header rows kept is therefore limited and the
+ * header rows are not interned - a client can not fill the table of the interned header rows or of the interned strings.
+ *
+ * @author uwe geercken
+ */
+public class HeaderRowCache
+{
+	private final int maximumHeaders;
+	private final ConcurrentHashMap<List<String>,HeaderRow> headers = new ConcurrentHashMap<List<String>,HeaderRow>();
+
+	/**
+	 * constructor for a cache of the given size
+	 *
+	 * @param maximumHeaders	the maximum number of header rows kept
+	 */
+	public HeaderRowCache(int maximumHeaders)
+	{
+		this.maximumHeaders = maximumHeaders;
+	}
+
+	/**
+	 * returns the immutable header row for the names of the fields
+	 *
+	 * @param fieldNames	array of names of fields
+	 * @return				the immutable header row
+	 */
+	public HeaderRow getHeader(String[] fieldNames)
+	{
+		HeaderRow header = headers.get(Arrays.asList(fieldNames));
+		if(header==null)
+		{
+			header = HeaderRow.createImmutableHeader(fieldNames);
+			// if there are too many different header rows, the header row is not kept
+			if(headers.size()<maximumHeaders)
+			{
+				HeaderRow existingHeader = headers.putIfAbsent(Arrays.asList(header.getFieldNames()), header);
+				if(existingHeader!=null)
+				{
+					header = existingHeader;
+				}
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * returns the number of header rows kept
+	 *
+	 * @return	the number of header rows
+	 */
+	public int size()
+	{
+		return headers.size();
+	}
+}
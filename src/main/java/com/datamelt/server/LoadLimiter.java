@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * limits the load of the server, so that a single client can not starve the others.
+ *
+ * - the rows of each client address and of each rule project are limited by a token bucket: the bucket holds up to
+ *   the burst number of rows and is refilled with the given rate of rows per second
+ * - the number of rows or batches evaluated at the same time is limited. a request waits for a free slot up to the
+ *   maximum queue time
+ *
+ * a request exceeding a limit is rejected and the client is told to retry after some time. a batch takes as many
+ * tokens as it has rows. a batch larger than the burst is accepted, when the bucket is full, so that the following
+ * requests wait until the rows of the batch have been refilled.
+ *
+ * a limit of 0 means no limit.
+ *
+ * @author uwe geercken
+ */
+public class LoadLimiter
+{
+	// buckets which have been refilled completely are removed, when there are more than this
+	private static final int MAXIMUM_BUCKETS			= 10000;
+	private static final String PREFIX_CLIENT			= "client:";
+	private static final String PREFIX_PROJECT			= "project:";
+
+	private final int maximumConcurrent;
+	private final long maximumQueueTime;
+	private final Semaphore slots;
+	private final ConcurrentHashMap<String,TokenBucket> buckets = new ConcurrentHashMap<String,TokenBucket>();
+	private volatile double clientRate = 0;
+	private volatile int clientBurst = 0;
+	private volatile double projectRate = 0;
+	private volatile int projectBurst = 0;
+	private final AtomicLong rejectedRows = new AtomicLong();
+
+	/**
+	 * constructor for a limiter of the number of concurrent evaluations
+	 *
+	 * @param maximumConcurrent		the maximum number of rows or batches evaluated at the same time
+	 * @param maximumQueueTime		the maximum time in milliseconds a request waits for a free slot
+	 */
+	public LoadLimiter(int maximumConcurrent, long maximumQueueTime)
+	{
+		this.maximumConcurrent = maximumConcurrent;
+		this.maximumQueueTime = maximumQueueTime;
+		this.slots = maximumConcurrent>0 ? new Semaphore(maximumConcurrent, true) : null;
+	}
+
+	/**
+	 * acquires a slot for the evaluation of the given number of rows. if the method returns 0, the slot must be
+	 * returned using the release() method, after the rows have been evaluated.
+	 *
+	 * @param client					the address of the client
+	 * @param project					the name of the rule project
+	 * @param numberOfRows				the number of rows
+	 * @return							0 if the rows may be evaluated, otherwise the time in milliseconds after which the client should retry
+	 * @throws InterruptedException		exception when the thread is interrupted while waiting for a slot
+	 */
+	public long acquire(String client, String project, int numberOfRows) throws InterruptedException
+	{
+		TokenBucket clientBucket = getBucket(PREFIX_CLIENT + client, clientRate, clientBurst);
+		TokenBucket projectBucket = getBucket(PREFIX_PROJECT + project, projectRate, projectBurst);
+		long retryAfter = take(clientBucket, numberOfRows);
+		if(retryAfter==0)
+		{
+			retryAfter = take(projectBucket, numberOfRows);
+			if(retryAfter>0)
+			{
+				giveBack(clientBucket, numberOfRows);
+			}
+		}
+		if(retryAfter==0 && slots!=null && !slots.tryAcquire(maximumQueueTime, TimeUnit.MILLISECONDS))
+		{
+			// the rows have not been evaluated, so the client may send them again
+			giveBack(clientBucket, numberOfRows);
+			giveBack(projectBucket, numberOfRows);
+			retryAfter = Math.max(1, maximumQueueTime);
+		}
+		if(retryAfter>0)
+		{
+			rejectedRows.addAndGet(numberOfRows);
+		}
+		return retryAfter;
+	}
+
+	/**
+	 * returns the slot acquired using the acquire() method
+	 */
+	public void release()
+	{
+		if(slots!=null)
+		{
+			slots.release();
+		}
+	}
+
+	private TokenBucket getBucket(String key, double rate, int burst)
+	{
+		if(rate<=0)
+		{
+			return null;
+		}
+		TokenBucket bucket = buckets.get(key);
+		if(bucket==null)
+		{
+			if(buckets.size()>=MAXIMUM_BUCKETS)
+			{
+				removeFullBuckets();
+			}
+			TokenBucket newBucket = new TokenBucket(rate, burst);
+			bucket = buckets.putIfAbsent(key, newBucket);
+			if(bucket==null)
+			{
+				bucket = newBucket;
+			}
+		}
+		return bucket;
+	}
+
+	private void removeFullBuckets()
+	{
+		Iterator<TokenBucket> iterator = buckets.values().iterator();
+		while(iterator.hasNext())
+		{
+			if(iterator.next().isFull())
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * the buckets are created again with the new rate
+	 */
+	private void removeBuckets(String prefix)
+	{
+		buckets.keySet().removeIf(key -> key.startsWith(prefix));
+	}
+
+	private static long take(TokenBucket bucket, int numberOfRows)
+	{
+		return bucket==null ? 0 : bucket.take(numberOfRows);
+	}
+
+	private static void giveBack(TokenBucket bucket, int numberOfRows)
+	{
+		if(bucket!=null)
+		{
+			bucket.giveBack(numberOfRows);
+		}
+	}
+
+	/**
+	 * limits the rows of each client address
+	 *
+	 * @param rowsPerSecond		the number of rows per second or 0 for no limit
+	 * @param burst				the number of rows a client may send at once, after it has been idle
+	 */
+	public void setClientRate(double rowsPerSecond, int burst)
+	{
+		this.clientRate = rowsPerSecond;
+		this.clientBurst = burst;
+		removeBuckets(PREFIX_CLIENT);
+	}
+
+	/**
+	 * limits the rows of each rule project
+	 *
+	 * @param rowsPerSecond		the number of rows per second or 0 for no limit
+	 * @param burst				the number of rows that may be sent at once, after the project has been idle
+	 */
+	public void setProjectRate(double rowsPerSecond, int burst)
+	{
+		this.projectRate = rowsPerSecond;
+		this.projectBurst = burst;
+		removeBuckets(PREFIX_PROJECT);
+	}
+
+	public double getClientRate()
+	{
+		return clientRate;
+	}
+
+	public int getClientBurst()
+	{
+		return clientBurst;
+	}
+
+	public double getProjectRate()
+	{
+		return projectRate;
+	}
+
+	public int getProjectBurst()
+	{
+		return projectBurst;
+	}
+
+	public int getMaximumConcurrent()
+	{
+		return maximumConcurrent;
+	}
+
+	public long getMaximumQueueTime()
+	{
+		return maximumQueueTime;
+	}
+
+	/**
+	 * returns the number of rows or batches being evaluated
+	 *
+	 * @return		the number of concurrent evaluations
+	 */
+	public int getNumberOfConcurrent()
+	{
+		return slots!=null ? maximumConcurrent - slots.availablePermits() : 0;
+	}
+
+	/**
+	 * returns the number of rows, which have been rejected
+	 *
+	 * @return		the number of rejected rows
+	 */
+	public long getNumberOfRejectedRows()
+	{
+		return rejectedRows.get();
+	}
+
+	private static class TokenBucket
+	{
+		// tokens per millisecond
+		private final double rate;
+		private final double capacity;
+		private double tokens;
+		private long lastRefill = System.nanoTime();
+
+		private TokenBucket(double rowsPerSecond, int burst)
+		{
+			this.rate = rowsPerSecond / 1000;
+			this.capacity = Math.max(1, burst);
+			this.tokens = capacity;
+		}
+
+		private void refill()
+		{
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - lastRefill) / 1000000.0 * rate);
+			lastRefill = now;
+		}
+
+		/**
+		 * takes the tokens of the rows and returns 0 or - if there are not enough tokens - the time in milliseconds
+		 * until there are
+		 */
+		private synchronized long take(int numberOfRows)
+		{
+			refill();
+			double required = Math.min(numberOfRows, capacity);
+			if(tokens>=required)
+			{
+				tokens -= numberOfRows;
+				return 0;
+			}
+			return Math.max(1, (long)Math.ceil((required - tokens) / rate));
+		}
+
+		private synchronized void giveBack(int numberOfRows)
+		{
+			tokens = Math.min(capacity, tokens + numberOfRows);
+		}
+
+		private synchronized boolean isFull()
+		{
+			refill();
+			return tokens>=capacity;
+		}
+	}
+}
@@ -21,13 +21,39 @@ package com.datamelt.server;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
+import com.datamelt.server.protocol.Protocol;
 import com.datamelt.util.RowFieldCollection;
 
+/**
+ * client for the RuleEngineServer. the rows are sent to the server and the results of the rule engine are returned.
+ *
+ * by default the client uses the binary protocol: the names of the fields are sent once and then the rows as typed
+ * values. the server responds with the counters of the groups, rules and actions, the failed groups and the fields
+ * that have been updated by actions. the updates are applied to the row that was sent. use the protocol
+ * PROTOCOL_SERIALIZATION for servers that do not support the binary protocol.
+ *
+ * rows can be sent without waiting for the result using the sendRow() and sendBatch() methods, so that the rows are
+ * sent and evaluated while the results of previous rows are on their way back. the results are then received using
+ * the receiveResult() method.
+ *
+ * if the server rejects rows because of its load limits, the client sends them again after waiting. the time to wait
+ * doubles with each retry, but is at least the time requested by the server. after the maximum number of retries an
+ * exception is thrown and - for the binary protocol - the connection is closed.
+ * 
+ * the client is not thread safe. see the AsyncRuleEngineClient class for a client that can be shared by multiple threads.
+ *
+ * @author uwe geercken
+ */
 public class RuleEngineClient
 {
 	// the server address - default is 127.0.0.1
@@ -39,9 +65,25 @@ public class RuleEngineClient
 	// the socket to the server
 	private Socket socket;
 	
+	// the protocol used to communicate with the server
+	private int protocol = PROTOCOL_BINARY;
+	// the name of the rule project or null for the default project of the server
+	private String project;
+	
 	private ObjectOutputStream outputStream;
 	private ObjectInputStream inputStream;
 	
+	private BinaryConnection connection;
+	// the rows sent without a result and the results not yet returned
+	private ArrayDeque<RowFieldCollection> pendingRows = new ArrayDeque<RowFieldCollection>();
+	private ArrayDeque<RuleEngineServerObject> receivedResults = new ArrayDeque<RuleEngineServerObject>();
+	private int maximumPendingRows = DEFAULT_MAXIMUM_PENDING_ROWS;
+	// the number of pending rows rejected by the server and the number of retries since the last result
+	private int rejectedRows = 0;
+	private long rejectedRetryAfter = 0;
+	private int retries = 0;
+	private int maximumRetries = DEFAULT_MAXIMUM_RETRIES;
+	
 	private long resetInterval=1000;
 	private long counter=0;
 	
@@ -49,6 +91,16 @@ public class RuleEngineClient
 	public static final int OUTPUT_TYPE_FAILED_GROUPS_ONLY 	= 1;
 	public static final int OUTPUT_TYPE_PASSED_GROUPS_ONLY 	= 2;
 	
+	public static final int PROTOCOL_BINARY 				= 0;
+	public static final int PROTOCOL_SERIALIZATION 			= 1;
+	
+	public static final int DEFAULT_MAXIMUM_PENDING_ROWS 	= 1000;
+	public static final int DEFAULT_MAXIMUM_RETRIES 		= 10;
+	
+	// milliseconds to wait before the first and at most before any retry
+	private static final long MINIMUM_BACKOFF				= 10;
+	private static final long MAXIMUM_BACKOFF				= 2000;
+	
 	public RuleEngineClient(String server, int port) throws UnknownHostException, IOException
 	{
 		this.server = server;
@@ -57,6 +109,45 @@ public class RuleEngineClient
 		init();
 	}
 	
+	/**
+	 * constructor for a client that uses the given protocol - PROTOCOL_BINARY or PROTOCOL_SERIALIZATION
+	 * 
+	 * @param server				the server address
+	 * @param port					the port the server runs on
+	 * @param protocol				the protocol
+	 * @throws UnknownHostException	exception when the server is unknown
+	 * @throws IOException			exception when the connection can not be established
+	 */
+	public RuleEngineClient(String server, int port, int protocol) throws UnknownHostException, IOException
+	{
+		this.server = server;
+		this.port = port;
+		this.protocol = protocol;
+		
+		init();
+	}
+	
+	/**
+	 * constructor for a client that uses the given protocol and the rule project with the given name. the server
+	 * loads the project from its rule file folder, if it is not loaded yet.
+	 * 
+	 * @param server				the server address
+	 * @param port					the port the server runs on
+	 * @param protocol				the protocol
+	 * @param project				the name of the project - the name of the zip file - or null for the default project
+	 * @throws UnknownHostException	exception when the server is unknown
+	 * @throws IOException			exception when the connection can not be established or the project is unknown
+	 */
+	public RuleEngineClient(String server, int port, int protocol, String project) throws UnknownHostException, IOException
+	{
+		this.server = server;
+		this.port = port;
+		this.protocol = protocol;
+		this.project = project;
+		
+		init();
+	}
+	
 	public RuleEngineClient(String server) throws UnknownHostException, IOException
 	{
 		this.server = server;
@@ -67,25 +158,334 @@ public class RuleEngineClient
 	private void init() throws UnknownHostException, IOException
 	{
 		getServerSocket(server, port);
-		outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
-		// flush MUST be called - otherwise the stream is blocking!
-		outputStream.flush();
-		inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
-		
-		
+		if(protocol==PROTOCOL_SERIALIZATION)
+		{
+			outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			// flush MUST be called - otherwise the stream is blocking!
+			outputStream.flush();
+			inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+			if(project!=null)
+			{
+				// the server responds with the name of the zip file of the selected project
+				sendMessageObject(ClientHandler.RESPONSE_PROJECT + " " + project);
+				String response;
+				try
+				{
+					response = receiveMessageObject();
+				}
+				catch(ClassNotFoundException ex)
+				{
+					throw new IOException("invalid response from server", ex);
+				}
+				if(!response.equals(project) && !response.equals(project + RuleProjectCache.RULEFILE_EXTENSION))
+				{
+					closeSocket();
+					throw new IOException("error from server: " + response);
+				}
+			}
+		}
+		else
+		{
+			connection = new BinaryConnection(socket, project);
+		}
 	}
 	
+	/**
+	 * sends the row to the server and returns the result. the fields updated by actions are updated in the row.
+	 * 
+	 * the results of rows sent using the sendRow() or sendBatch() methods must be received before this method is used.
+	 * 
+	 * @param fields		the row
+	 * @return				the result of the rule engine
+	 * @throws Exception	exception when the row can not be sent or the result can not be received
+	 */
 	public RuleEngineServerObject getServerObject(RowFieldCollection fields) throws Exception
 	{
-		sendObject(fields);
-		
-		return receiveObject();
+		checkNoPendingRows();
+		sendRow(fields);
+		return receiveResult();
+	}
+	
+	/**
+	 * sends the rows to the server as one batch and returns the results in the order of the rows. the fields updated
+	 * by actions are updated in the rows.
+	 * 
+	 * @param rows			the rows
+	 * @return				the results of the rule engine
+	 * @throws Exception	exception when the rows can not be sent or the results can not be received
+	 */
+	public List<RuleEngineServerObject> getServerObjects(List<RowFieldCollection> rows) throws Exception
+	{
+		checkNoPendingRows();
+		sendBatch(rows);
+		ArrayList<RuleEngineServerObject> results = new ArrayList<RuleEngineServerObject>(rows.size());
+		for(int i=0;i<rows.size();i++)
+		{
+			results.add(receiveResult());
+		}
+		return results;
 	}
 	
 	public String getServerObject(String message) throws IOException, ClassNotFoundException
 	{
-		sendMessageObject(message);
-		return receiveMessageObject();
+		if(protocol==PROTOCOL_SERIALIZATION)
+		{
+			sendMessageObject(message);
+			return receiveMessageObject();
+		}
+		else
+		{
+			connection.writeMessage(message);
+			connection.flush();
+			// results of rows sent before the message are kept
+			while(readResponse()!=Protocol.FRAME_MESSAGE);
+			return connection.readMessage();
+		}
+	}
+	
+	/**
+	 * sends the row to the server without waiting for the result. the row is buffered and sent together with following
+	 * rows, when the buffer is full or the flush() or receiveResult() method is called. receive the results using the
+	 * receiveResult() method - they are returned in the order the rows have been sent.
+	 * 
+	 * if the maximum number of pending rows is reached, the results received from the server are buffered, before
+	 * the row is sent.
+	 * 
+	 * @param fields		the row
+	 * @throws Exception	exception when the row can not be sent
+	 */
+	public void sendRow(RowFieldCollection fields) throws Exception
+	{
+		if(protocol==PROTOCOL_SERIALIZATION)
+		{
+			// the serialization protocol does not support sending rows without waiting for the result
+			while(true)
+			{
+				sendObject(fields);
+				Object response = inputStream.readObject();
+				if(response instanceof String && ((String)response).startsWith(ClientHandler.RESPONSE_BUSY + " "))
+				{
+					waitBeforeRetry(Long.parseLong(((String)response).substring(ClientHandler.RESPONSE_BUSY.length() + 1).trim()));
+				}
+				else
+				{
+					retries = 0;
+					receivedResults.add((RuleEngineServerObject)response);
+					return;
+				}
+			}
+		}
+		waitForPendingRows(1);
+		counter++;
+		connection.writeRow(counter, outputType, fields);
+		pendingRows.add(fields);
+	}
+	
+	/**
+	 * sends the rows to the server as batches without waiting for the results. consecutive rows with the same fields
+	 * are sent in one batch. receive the results using the receiveResult() method - they are returned in the order of
+	 * the rows.
+	 * 
+	 * @param rows			the rows
+	 * @throws Exception	exception when the rows can not be sent
+	 */
+	public void sendBatch(List<RowFieldCollection> rows) throws Exception
+	{
+		if(protocol==PROTOCOL_SERIALIZATION)
+		{
+			for(int i=0;i<rows.size();i++)
+			{
+				sendRow(rows.get(i));
+			}
+			return;
+		}
+		int start = 0;
+		while(start<rows.size())
+		{
+			int end = connection.getBatchEnd(rows, start);
+			waitForPendingRows(end - start);
+			connection.writeBatch(counter + 1, outputType, rows, start, end);
+			for(int i=start;i<end;i++)
+			{
+				pendingRows.add(rows.get(i));
+			}
+			counter += end - start;
+			start = end;
+		}
+	}
+	
+	/**
+	 * sends the buffered rows to the server
+	 * 
+	 * @throws IOException	exception when the rows can not be sent
+	 */
+	public void flush() throws IOException
+	{
+		if(connection!=null)
+		{
+			connection.flush();
+		}
+	}
+	
+	/**
+	 * returns the result of the next row sent using the sendRow() or sendBatch() method. the buffered rows are sent
+	 * first and the method waits for the result, if it has not been received yet.
+	 * 
+	 * @return				the result of the rule engine
+	 * @throws Exception	exception when the result can not be received or no row has been sent
+	 */
+	public RuleEngineServerObject receiveResult() throws Exception
+	{
+		if(receivedResults.isEmpty())
+		{
+			if(pendingRows.isEmpty())
+			{
+				throw new IllegalStateException("there are no rows without a result");
+			}
+			connection.flush();
+			while(receivedResults.isEmpty())
+			{
+				readResponse();
+			}
+		}
+		return receivedResults.poll();
+	}
+	
+	private void checkNoPendingRows()
+	{
+		if(!pendingRows.isEmpty() || !receivedResults.isEmpty())
+		{
+			throw new IllegalStateException("the results of the rows sent before must be received first");
+		}
+	}
+	
+	/**
+	 * results are read and buffered, until the given number of rows can be sent without exceeding the maximum
+	 * number of pending rows. otherwise client and server could both wait for the other one to read.
+	 */
+	private void waitForPendingRows(int numberOfRows) throws IOException
+	{
+		if(!pendingRows.isEmpty() && pendingRows.size() + numberOfRows>maximumPendingRows)
+		{
+			connection.flush();
+			while(!pendingRows.isEmpty() && pendingRows.size() + numberOfRows>maximumPendingRows)
+			{
+				readResponse();
+			}
+		}
+	}
+	
+	private void readResult() throws IOException
+	{
+		retries = 0;
+		long sequence = connection.readSequence();
+		long expectedSequence = counter - pendingRows.size() + 1;
+		if(sequence!=expectedSequence)
+		{
+			throw new IOException("received the result of row: [" + sequence + "] instead of row: [" + expectedSequence + "]");
+		}
+		receivedResults.add(connection.readResult(pendingRows.poll(), outputType));
+	}
+	
+	/**
+	 * reads the next frame from the server. results are added to the received results. for other frames the
+	 * payload is left to the caller.
+	 */
+	private int readResponse() throws IOException
+	{
+		int type = connection.readFrame();
+		if(type==Protocol.FRAME_RESULT)
+		{
+			readResult();
+		}
+		else if(type==Protocol.FRAME_RESULTS)
+		{
+			int numberOfResults = connection.readNumberOfResults();
+			for(int i=0;i<numberOfResults;i++)
+			{
+				readResult();
+			}
+		}
+		else if(type==Protocol.FRAME_BUSY)
+		{
+			readBusy();
+		}
+		return type;
+	}
+	
+	/**
+	 * the server rejects the rows from the first rejected one on, until they are sent again. when all pending rows
+	 * have been rejected, they are sent again with the same sequence numbers.
+	 */
+	private void readBusy() throws IOException
+	{
+		long sequence = connection.readSequence();
+		int numberOfRows = connection.readNumberOfResults();
+		long retryAfter = connection.readRetryAfter();
+		long expectedSequence = counter - pendingRows.size() + 1 + rejectedRows;
+		if(sequence!=expectedSequence)
+		{
+			throw new IOException("received the rejection of row: [" + sequence + "] instead of row: [" + expectedSequence + "]");
+		}
+		rejectedRows += numberOfRows;
+		rejectedRetryAfter = Math.max(rejectedRetryAfter, retryAfter);
+		if(rejectedRows==pendingRows.size())
+		{
+			try
+			{
+				waitBeforeRetry(rejectedRetryAfter);
+			}
+			catch(IOException ex)
+			{
+				// the server keeps rejecting the rows of the connection
+				closeSocket();
+				throw ex;
+			}
+			ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>(pendingRows);
+			long firstSequence = counter - rows.size() + 1;
+			int start = 0;
+			while(start<rows.size())
+			{
+				int end = connection.getBatchEnd(rows, start);
+				connection.writeBatch(firstSequence + start, outputType, rows, start, end);
+				start = end;
+			}
+			connection.flush();
+			rejectedRows = 0;
+			rejectedRetryAfter = 0;
+		}
+	}
+	
+	/**
+	 * waits before the rows rejected by the server are sent again
+	 */
+	private void waitBeforeRetry(long retryAfter) throws IOException
+	{
+		if(retries>=maximumRetries)
+		{
+			throw new IOException("the server is busy - the rows have been rejected: [" + (retries + 1) + "] times");
+		}
+		try
+		{
+			Thread.sleep(getBackoff(retries++, retryAfter));
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting to send the rows again");
+		}
+	}
+	
+	/**
+	 * returns the milliseconds to wait before the given retry. the time doubles with each retry up to a maximum, but is
+	 * at least the time requested by the server. a random part is added, so that clients rejected at the same time do
+	 * not retry at the same time.
+	 */
+	static long getBackoff(int retry, long retryAfter)
+	{
+		long backoff = Math.min(MAXIMUM_BACKOFF, MINIMUM_BACKOFF << Math.min(retry, 20));
+		backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+		return Math.max(retryAfter, backoff);
 	}
 	
 	private void sendObject(RowFieldCollection fields) throws IOException
@@ -104,12 +504,6 @@ public class RuleEngineClient
        	}
 	}
 	
-	private RuleEngineServerObject receiveObject() throws Exception
-	{
-		RuleEngineServerObject object = (RuleEngineServerObject)inputStream.readObject();
-       	return object;
-	}
-	
 	private void sendMessageObject(String message) throws IOException
 	{
 		// send the message to the server
@@ -176,4 +570,50 @@ public class RuleEngineClient
 	{
 		return counter;
 	}
+
+	public int getProtocol() 
+	{
+		return protocol;
+	}
+
+	/**
+	 * returns the number of rows sent, for which the result has not been returned by the receiveResult() method
+	 * 
+	 * @return		the number of pending rows
+	 */
+	public int getNumberOfPendingRows() 
+	{
+		return pendingRows.size() + receivedResults.size();
+	}
+
+	public int getMaximumPendingRows() 
+	{
+		return maximumPendingRows;
+	}
+
+	/**
+	 * sets the maximum number of rows sent to the server, for which the result has not been received. the
+	 * default is 1000.
+	 * 
+	 * @param maximumPendingRows	the maximum number of pending rows
+	 */
+	public void setMaximumPendingRows(int maximumPendingRows) 
+	{
+		this.maximumPendingRows = Math.max(1, maximumPendingRows);
+	}
+
+	public int getMaximumRetries() 
+	{
+		return maximumRetries;
+	}
+
+	/**
+	 * sets how often rows rejected by the server because of its load limits are sent again. the default is 10.
+	 * 
+	 * @param maximumRetries	the maximum number of retries or 0 to not send rejected rows again
+	 */
+	public void setMaximumRetries(int maximumRetries) 
+	{
+		this.maximumRetries = Math.max(0, maximumRetries);
+	}
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.datamelt.util.FileUtility;
+import com.datamelt.util.JsonUtility;
+
+/**
+ * measures the throughput and latency of the RuleEngineHttpServer. the server is started in the same process with the
+ * given rule project. a number of threads send the rows of the given file - one JSON object per line - repeatedly to the
+ * server, until the given time has elapsed. the requests of the first second are not measured, so that the engines are
+ * created and the code is compiled before.
+ *
+ * with more than one row per request, the rows are sent as NDJSON.
+ *
+ * @author uwe geercken
+ */
+public class RuleEngineHttpLoadGenerator
+{
+	private static final long WARMUP_MILLISECONDS		= 1000;
+
+	private final URL url;
+	private final List<String> rows;
+	private final int rowsPerRequest;
+
+	RuleEngineHttpLoadGenerator(URL url, List<String> rows, int rowsPerRequest)
+	{
+		this.url = url;
+		this.rows = rows;
+		this.rowsPerRequest = rowsPerRequest;
+	}
+
+	/**
+	 * sends requests until the given time and returns the latencies in nanoseconds of the requests sent after the
+	 * start of the measurement
+	 */
+	long[] run(long measureFrom, long until, int offset) throws IOException
+	{
+		long[] latencies = new long[1024];
+		int numberOfLatencies = 0;
+		int rowIndex = offset;
+		StringBuilder builder = new StringBuilder();
+		while(System.currentTimeMillis()<until)
+		{
+			builder.setLength(0);
+			for(int i=0;i<rowsPerRequest;i++)
+			{
+				builder.append(rows.get(rowIndex++ % rows.size())).append('\n');
+			}
+			long start = System.nanoTime();
+			send(builder.toString().getBytes(StandardCharsets.UTF_8));
+			long latency = System.nanoTime() - start;
+			if(System.currentTimeMillis()>=measureFrom)
+			{
+				if(numberOfLatencies==latencies.length)
+				{
+					latencies = Arrays.copyOf(latencies, latencies.length * 2);
+				}
+				latencies[numberOfLatencies++] = latency;
+			}
+		}
+		return Arrays.copyOf(latencies, numberOfLatencies);
+	}
+
+	private void send(byte[] body) throws IOException
+	{
+		HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", rowsPerRequest>1 ? RuleEngineHttpServer.CONTENT_TYPE_NDJSON : RuleEngineHttpServer.CONTENT_TYPE_JSON);
+		OutputStream output = connection.getOutputStream();
+		output.write(body);
+		output.close();
+		if(connection.getResponseCode()!=200)
+		{
+			throw new IOException("the server responded with status: [" + connection.getResponseCode() + "]");
+		}
+		// the response is read completely, so that the connection is reused
+		InputStream input = connection.getInputStream();
+		byte[] buffer = new byte[8192];
+		while(input.read(buffer)>=0);
+		input.close();
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length<3)
+		{
+			help();
+			return;
+		}
+		String ruleFileFolder = FileUtility.adjustSlash(args[0]);
+		String ruleFile = args[1];
+		final int threads = args.length>3 ? Integer.parseInt(args[3]) : RuleEngineHttpServer.DEFAULT_THREADS;
+		long seconds = args.length>4 ? Long.parseLong(args[4]) : 10;
+		int rowsPerRequest = args.length>5 ? Integer.parseInt(args[5]) : 1;
+
+		final ArrayList<String> rows = new ArrayList<String>();
+		for(String line : Files.readAllLines(new File(args[2]).toPath(), StandardCharsets.UTF_8))
+		{
+			if(line.trim().length()>0)
+			{
+				// invalid rows are rejected before the measurement
+				JsonUtility.parseObject(line);
+				rows.add(line.trim());
+			}
+		}
+		if(rows.isEmpty())
+		{
+			System.out.println("the file: " + args[2] + " contains no rows");
+			return;
+		}
+
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(ruleFileFolder, ruleFile, false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, threads);
+		server.start();
+		final RuleEngineHttpLoadGenerator generator = new RuleEngineHttpLoadGenerator(new URL("http://127.0.0.1:" + server.getPort() + RuleEngineHttpServer.PATH_EVALUATE), rows, rowsPerRequest);
+
+		System.out.println("threads: " + threads + ", rows per request: " + rowsPerRequest + ", duration: " + seconds + " seconds");
+		final long measureFrom = System.currentTimeMillis() + WARMUP_MILLISECONDS;
+		final long until = measureFrom + seconds * 1000;
+		final long[][] latencies = new long[threads][];
+		final Exception[] errors = new Exception[threads];
+		Thread[] clients = new Thread[threads];
+		for(int i=0;i<threads;i++)
+		{
+			final int client = i;
+			clients[i] = new Thread(() ->
+			{
+				try
+				{
+					latencies[client] = generator.run(measureFrom, until, client);
+				}
+				catch(Exception ex)
+				{
+					errors[client] = ex;
+				}
+			});
+			clients[i].start();
+		}
+		for(Thread client : clients)
+		{
+			client.join();
+		}
+		server.close();
+		projectCache.close();
+
+		long[] allLatencies = new long[0];
+		for(int i=0;i<threads;i++)
+		{
+			if(errors[i]!=null)
+			{
+				System.out.println("error: " + errors[i].getMessage());
+				return;
+			}
+			int length = allLatencies.length;
+			allLatencies = Arrays.copyOf(allLatencies, length + latencies[i].length);
+			System.arraycopy(latencies[i], 0, allLatencies, length, latencies[i].length);
+		}
+		Arrays.sort(allLatencies);
+		if(allLatencies.length==0)
+		{
+			System.out.println("no requests have been measured");
+			return;
+		}
+		System.out.println("requests: " + allLatencies.length + ", rows: " + (long)allLatencies.length * rowsPerRequest);
+		System.out.println("requests per second: " + allLatencies.length / seconds + ", rows per second: " + (long)allLatencies.length * rowsPerRequest / seconds);
+		System.out.println("latency in ms - 50%: " + getPercentile(allLatencies, 50) + ", 90%: " + getPercentile(allLatencies, 90) + ", 99%: " + getPercentile(allLatencies, 99) + ", maximum: " + getPercentile(allLatencies, 100));
+	}
+
+	private static String getPercentile(long[] sortedLatencies, int percentile)
+	{
+		int index = Math.min(sortedLatencies.length - 1, (int)Math.ceil(sortedLatencies.length * percentile / 100.0) - 1);
+		return String.format("%.3f", sortedLatencies[Math.max(0, index)] / 1000000.0);
+	}
+
+	private static void help()
+	{
+		System.out.println("RuleEngineHttpLoadGenerator. starts the HTTP endpoint with the given rule project and sends");
+		System.out.println("the rows of the file - one JSON object per line - repeatedly to it. throughput and latency");
+		System.out.println("are measured after a warmup of one second.");
+		System.out.println();
+		System.out.println("RuleEngineHttpLoadGenerator [rule file folder] [rule file] [rows file] [threads] [seconds] [rows per request]");
+		System.out.println("defaults: threads: " + RuleEngineHttpServer.DEFAULT_THREADS + ", seconds: 10, rows per request: 1");
+	}
+}
@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.server.transform.Transformer;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.JsonUtility;
+import com.datamelt.util.RowField;
+import com.datamelt.util.RowFieldCollection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP endpoint for the rule engine, so that clients not written in java can evaluate rows. it uses the HTTP server
+ * of the JDK and shares the rule projects with the RuleEngineServer.
+ *
+ * POST /evaluate evaluates rows, which are JSON objects with the names of the fields as keys:
+ * - a single object: the response is the result as JSON object
+ * - an array of objects: the response is an array of the results
+ * - with the content type application/x-ndjson one object per line: the response contains one result per line. the
+ *   results are sent while the following rows are read, so that large batches are streamed
+ *
+ * the query parameter project selects a project other than the default project - see the RuleProjectCache.
+ *
+ * a result contains the version of the project, the counters of groups, rules and actions, the ids of the failed groups
+ * and the fields that have been updated by actions. for NDJSON the result also contains the number of the row. an invalid
+ * line results in a line with the number of the row and the error, the following lines are evaluated.
+ *
+ * a request - or for NDJSON a line - larger than the maximum body size is rejected with the status 413 - for NDJSON with
+ * a line with the number of the row and the error.
+ *
+ * GET /status returns information about the server and the project.
+ *
+ * if a LoadLimiter is set and a request exceeds its limits, the server responds with the status 503 and the header
+ * Retry-After. for NDJSON the limits apply to each row: a rejected row results in a line with the number of the row,
+ * the error "busy" and the milliseconds after which the client should send it again.
+ *
+ * the requests are handled by a fixed number of threads. each row uses an engine of the project exclusively while it
+ * is evaluated.
+ *
+ * @author uwe geercken
+ */
+public class RuleEngineHttpServer implements Closeable
+{
+	public static final String PATH_EVALUATE				= "/evaluate";
+	public static final String PATH_STATUS					= "/status";
+	public static final String PARAMETER_PROJECT			= "project";
+	public static final String CONTENT_TYPE_JSON			= "application/json";
+	public static final String CONTENT_TYPE_NDJSON			= "application/x-ndjson";
+
+	public static final int DEFAULT_THREADS					= 4;
+	public static final int DEFAULT_MAXIMUM_BODY_SIZE		= 10 * 1024 * 1024;
+
+	private static final int HTTP_OK						= 200;
+	private static final int HTTP_BAD_REQUEST				= 400;
+	private static final int HTTP_NOT_FOUND					= 404;
+	private static final int HTTP_METHOD_NOT_ALLOWED		= 405;
+	private static final int HTTP_PAYLOAD_TOO_LARGE			= 413;
+	private static final int HTTP_INTERNAL_ERROR			= 500;
+	private static final int HTTP_SERVICE_UNAVAILABLE		= 503;
+
+	private static final String ERROR_BUSY					= "busy";
+
+	private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+
+	// maximum number of different header rows of the rows of the clients that are kept
+	private static final int MAXIMUM_HEADERS				= 256;
+
+	private final HttpServer httpServer;
+	private final ExecutorService executor;
+	private final RuleProjectCache projectCache;
+	private final long serverStart = System.currentTimeMillis();
+	private final AtomicLong rowsProcessed = new AtomicLong();
+	private Transformer transformer;
+	private volatile LoadLimiter loadLimiter;
+	private volatile int maximumBodySize = DEFAULT_MAXIMUM_BODY_SIZE;
+	// the header rows of the rows of the clients. they are not interned, because the clients choose the names of the fields
+	private final HeaderRowCache headers = new HeaderRowCache(MAXIMUM_HEADERS);
+
+	static
+	{
+		// the JDK server writes the headers and the body of a response separately. without TCP_NODELAY the body waits
+		// for the acknowledgement of the headers, which adds about 40 milliseconds to each request
+		if(System.getProperty("sun.net.httpserver.nodelay")==null)
+		{
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	/**
+	 * creates the HTTP server on the given port. the server is started using the start() method.
+	 *
+	 * @param projectCache		the rule projects
+	 * @param port				the port or 0 for any free port
+	 * @param threads			the number of threads handling the requests
+	 * @throws IOException		exception when the server can not be created
+	 */
+	public RuleEngineHttpServer(RuleProjectCache projectCache, int port, int threads) throws IOException
+	{
+		this.projectCache = projectCache;
+		this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "httphandler-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		httpServer.setExecutor(executor);
+		httpServer.createContext(PATH_EVALUATE, exchange -> handle(exchange, true));
+		httpServer.createContext(PATH_STATUS, exchange -> handle(exchange, false));
+	}
+
+	public void start()
+	{
+		httpServer.start();
+	}
+
+	/**
+	 * stops the server. requests being handled are finished.
+	 */
+	public void close()
+	{
+		httpServer.stop(0);
+		executor.shutdown();
+	}
+
+	public int getPort()
+	{
+		return httpServer.getAddress().getPort();
+	}
+
+	public long getRowsProcessed()
+	{
+		return rowsProcessed.get();
+	}
+
+	public Transformer getTransformer()
+	{
+		return transformer;
+	}
+
+	/**
+	 * sets the transformer for the output of the results. see the RuleEngineServer.
+	 *
+	 * @param transformer	the transformer
+	 */
+	public void setTransformer(Transformer transformer)
+	{
+		this.transformer = transformer;
+	}
+
+	public LoadLimiter getLoadLimiter()
+	{
+		return loadLimiter;
+	}
+
+	/**
+	 * sets the limiter for the rows of the requests. the address of the client is the remote address of the request.
+	 *
+	 * @param loadLimiter	the limiter or null for no limits
+	 */
+	public void setLoadLimiter(LoadLimiter loadLimiter)
+	{
+		this.loadLimiter = loadLimiter;
+	}
+
+	public int getMaximumBodySize()
+	{
+		return maximumBodySize;
+	}
+
+	/**
+	 * sets the maximum size of a request in bytes. for NDJSON requests the size of each line is limited.
+	 *
+	 * @param maximumBodySize	the maximum size of a request
+	 */
+	public void setMaximumBodySize(int maximumBodySize)
+	{
+		this.maximumBodySize = maximumBodySize;
+	}
+
+	private void handle(HttpExchange exchange, boolean evaluate) throws IOException
+	{
+		try
+		{
+			if(evaluate && !exchange.getRequestMethod().equals("POST"))
+			{
+				sendError(exchange, HTTP_METHOD_NOT_ALLOWED, "rows must be sent using POST");
+				return;
+			}
+			RuleProjectManager projectManager;
+			try
+			{
+				projectManager = projectCache.getProjectManager(getParameter(exchange, PARAMETER_PROJECT));
+			}
+			catch(Exception ex)
+			{
+				sendError(exchange, HTTP_NOT_FOUND, ex.getMessage());
+				return;
+			}
+			if(!evaluate)
+			{
+				sendStatus(exchange, projectManager);
+			}
+			else if(String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type")).startsWith(CONTENT_TYPE_NDJSON))
+			{
+				evaluateLines(exchange, projectManager);
+			}
+			else
+			{
+				evaluateDocument(exchange, projectManager);
+			}
+		}
+		catch(Exception ex)
+		{
+			log("error handling request: " + exchange.getRequestURI() + " - " + ex.getMessage());
+			if(exchange.getResponseCode()<0)
+			{
+				sendError(exchange, HTTP_INTERNAL_ERROR, ex.getMessage());
+			}
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	/**
+	 * evaluates a single row or an array of rows
+	 */
+	@SuppressWarnings("unchecked")
+	private void evaluateDocument(HttpExchange exchange, RuleProjectManager projectManager) throws Exception
+	{
+		String body = readBody(exchange);
+		if(body==null)
+		{
+			sendError(exchange, HTTP_PAYLOAD_TOO_LARGE, "the request is larger than the maximum of: [" + maximumBodySize + "] bytes");
+			return;
+		}
+		Object document;
+		try
+		{
+			document = JsonUtility.parse(body);
+		}
+		catch(Exception ex)
+		{
+			sendError(exchange, HTTP_BAD_REQUEST, ex.getMessage());
+			return;
+		}
+		if(document instanceof List)
+		{
+			for(Object row : (List<Object>)document)
+			{
+				if(!(row instanceof Map))
+				{
+					sendError(exchange, HTTP_BAD_REQUEST, "the array must contain objects only");
+					return;
+				}
+			}
+		}
+		else if(!(document instanceof Map))
+		{
+			sendError(exchange, HTTP_BAD_REQUEST, "the row must be an object or an array of objects");
+			return;
+		}
+
+		// all rows of the request are accepted or rejected together
+		LoadLimiter limiter = loadLimiter;
+		if(limiter!=null)
+		{
+			long retryAfter = limiter.acquire(getClientAddress(exchange), projectManager.getRuleFile(), document instanceof List ? ((List<Object>)document).size() : 1);
+			if(retryAfter>0)
+			{
+				sendBusy(exchange, retryAfter);
+				return;
+			}
+		}
+		Object response;
+		try
+		{
+			if(document instanceof Map)
+			{
+				response = evaluate(projectManager, (Map<String,Object>)document, 0);
+			}
+			else
+			{
+				ArrayList<Object> results = new ArrayList<Object>();
+				for(Object row : (List<Object>)document)
+				{
+					results.add(evaluate(projectManager, (Map<String,Object>)row, 0));
+				}
+				response = results;
+			}
+		}
+		finally
+		{
+			if(limiter!=null)
+			{
+				limiter.release();
+			}
+		}
+		send(exchange, HTTP_OK, CONTENT_TYPE_JSON, JsonUtility.toJson(response));
+	}
+
+	/**
+	 * evaluates the rows of the NDJSON request one after the other. the results are flushed, when no further rows
+	 * are available, so that the client receives them while it sends further rows.
+	 */
+	private void evaluateLines(HttpExchange exchange, RuleProjectManager projectManager) throws Exception
+	{
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_NDJSON);
+		// the length of the response is not known: it is sent in chunks
+		exchange.sendResponseHeaders(HTTP_OK, 0);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+		StringBuilder builder = new StringBuilder();
+		LoadLimiter limiter = loadLimiter;
+		String clientAddress = getClientAddress(exchange);
+		long rowNumber = 0;
+		StringBuilder line = new StringBuilder();
+		while(readLine(reader, line))
+		{
+			if(line.toString().trim().length()==0)
+			{
+				continue;
+			}
+			rowNumber++;
+			Object result;
+			boolean tooLarge = line.length()>maximumBodySize;
+			long retryAfter = !tooLarge && limiter!=null ? limiter.acquire(clientAddress, projectManager.getRuleFile(), 1) : 0;
+			if(tooLarge)
+			{
+				LinkedHashMap<String,Object> error = new LinkedHashMap<String,Object>();
+				error.put("row", rowNumber);
+				error.put("error", "the row is larger than the maximum of: [" + maximumBodySize + "] characters");
+				result = error;
+			}
+			else if(retryAfter>0)
+			{
+				LinkedHashMap<String,Object> busy = new LinkedHashMap<String,Object>();
+				busy.put("row", rowNumber);
+				busy.put("error", ERROR_BUSY);
+				busy.put("retryafter", retryAfter);
+				result = busy;
+			}
+			else
+			{
+				try
+				{
+					result = evaluate(projectManager, JsonUtility.parseObject(line.toString()), rowNumber);
+				}
+				catch(Exception ex)
+				{
+					LinkedHashMap<String,Object> error = new LinkedHashMap<String,Object>();
+					error.put("row", rowNumber);
+					error.put("error", ex.getMessage());
+					result = error;
+				}
+				finally
+				{
+					if(limiter!=null)
+					{
+						limiter.release();
+					}
+				}
+			}
+			builder.setLength(0);
+			JsonUtility.append(builder, result);
+			builder.append('\n');
+			writer.write(builder.toString());
+			if(!reader.ready())
+			{
+				writer.flush();
+			}
+		}
+		writer.close();
+	}
+
+	/**
+	 * evaluates the row and returns the result
+	 *
+	 * @param rowNumber		the number of the row in the request or 0, if it is not part of the result
+	 */
+	private Map<String,Object> evaluate(RuleProjectManager projectManager, Map<String,Object> row, long rowNumber) throws Exception
+	{
+		RowFieldCollection fields = new RowFieldCollection(getHeader(row), row.values().toArray());
+		RuleEngineServerObject serverObject = new RuleEngineServerObject(fields, RuleEngineClient.OUTPUT_TYPE_FAILED_GROUPS_ONLY);
+
+		LinkedHashMap<String,Object> result = new LinkedHashMap<String,Object>();
+		if(rowNumber>0)
+		{
+			result.put("row", rowNumber);
+		}
+		// the engine is used exclusively for this row and returned to the project afterwards
+		RuleProject project = projectManager.getRuleProject();
+		BusinessRulesEngine ruleEngine = project.acquireEngine();
+		try
+		{
+			ruleEngine.setOutputType(serverObject.getOutputType());
+			ruleEngine.run("row_" + rowsProcessed.incrementAndGet(), fields);
+
+			result.put("projectversion", project.getVersion());
+			result.put("groups", ruleEngine.getNumberOfGroups());
+			result.put("groupsfailed", ruleEngine.getNumberOfGroupsFailed());
+			result.put("groupsskipped", ruleEngine.getNumberOfGroupsSkipped());
+			result.put("rules", ruleEngine.getNumberOfRules());
+			result.put("rulesfailed", ruleEngine.getNumberOfRulesFailed());
+			result.put("actions", ruleEngine.getNumberOfActions());
+
+			ArrayList<RuleGroup> groups = ruleEngine.getGroups();
+			ArrayList<String> failedGroups = new ArrayList<String>();
+			for(int i=0;i<groups.size();i++)
+			{
+				// a skipped group keeps the result of the last row it was run for
+				if(groups.get(i).getSkipped()==0 && groups.get(i).getFailed()==1)
+				{
+					failedGroups.add(groups.get(i).getId());
+				}
+			}
+			result.put("failedgroups", failedGroups);
+
+			LinkedHashMap<String,Object> updatedFields = new LinkedHashMap<String,Object>();
+			for(RowField field : fields.getFields())
+			{
+				if(field.isUpdated())
+				{
+					updatedFields.put(field.getName(), field.getValue());
+				}
+			}
+			result.put("updatedfields", updatedFields);
+
+			if(transformer!=null)
+			{
+				serverObject.setTotalGroups(ruleEngine.getNumberOfGroups());
+				serverObject.setGroupsFailed(ruleEngine.getNumberOfGroupsFailed());
+				serverObject.setGroupsSkipped(ruleEngine.getNumberOfGroupsSkipped());
+				serverObject.setTotalRules(ruleEngine.getNumberOfRules());
+				serverObject.setRulesFailed(ruleEngine.getNumberOfRulesFailed());
+				serverObject.setTotalActions(ruleEngine.getNumberOfActions());
+				serverObject.setObjectLabel(fields.getFieldValues());
+				serverObject.setProjectVersion(project.getVersion());
+				serverObject.setRuleGroups(groups);
+				serverObject.setRuleExecutionCollection(ruleEngine.getRuleExecutionCollection());
+				transformer.write(serverObject, groups);
+			}
+		}
+		finally
+		{
+			project.releaseEngine(ruleEngine);
+		}
+		return result;
+	}
+
+	private void sendStatus(HttpExchange exchange, RuleProjectManager projectManager) throws IOException
+	{
+		RuleProject project = projectManager.getRuleProject();
+		LinkedHashMap<String,Object> status = new LinkedHashMap<String,Object>();
+		status.put("ruleengineversion", BusinessRulesEngine.getVersion());
+		status.put("uptime", System.currentTimeMillis() - serverStart);
+		status.put("rowsprocessed", rowsProcessed.get());
+		status.put("rulefile", project.getRuleFile());
+		status.put("projectversion", project.getVersion());
+		status.put("groups", project.getNumberOfGroups());
+		status.put("loadedprojects", projectCache.getLoadedProjects());
+		send(exchange, HTTP_OK, CONTENT_TYPE_JSON, JsonUtility.toJson(status));
+	}
+
+	/**
+	 * responds with the status 503. the header Retry-After contains the seconds, the body the milliseconds after which
+	 * the client should send the request again.
+	 */
+	private void sendBusy(HttpExchange exchange, long retryAfter) throws IOException
+	{
+		exchange.getResponseHeaders().set("Retry-After", String.valueOf((retryAfter + 999) / 1000));
+		LinkedHashMap<String,Object> error = new LinkedHashMap<String,Object>();
+		error.put("error", ERROR_BUSY);
+		error.put("retryafter", retryAfter);
+		send(exchange, HTTP_SERVICE_UNAVAILABLE, CONTENT_TYPE_JSON, JsonUtility.toJson(error));
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		LinkedHashMap<String,Object> error = new LinkedHashMap<String,Object>();
+		error.put("error", message);
+		send(exchange, status, CONTENT_TYPE_JSON, JsonUtility.toJson(error));
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException
+	{
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream output = exchange.getResponseBody();
+		output.write(bytes);
+		output.close();
+	}
+
+	/**
+	 * returns the header row for the names of the fields of the row. the header rows are kept in a cache of limited
+	 * size, so that the slots of the fields are resolved once for all rows with the same fields.
+	 */
+	private HeaderRow getHeader(Map<String,Object> row)
+	{
+		return headers.getHeader(row.keySet().toArray(new String[row.size()]));
+	}
+
+	/**
+	 * reads the body of the request. returns null, if it is larger than the maximum body size
+	 */
+	private String readBody(HttpExchange exchange) throws IOException
+	{
+		String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+		if(contentLength!=null && Long.parseLong(contentLength.trim())>maximumBodySize)
+		{
+			return null;
+		}
+		InputStream input = exchange.getRequestBody();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = input.read(buffer))>0)
+		{
+			if(output.size() + read>maximumBodySize)
+			{
+				return null;
+			}
+			output.write(buffer, 0, read);
+		}
+		return new String(output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * reads the next line of a NDJSON request. of a line longer than the maximum body size only the first characters
+	 * are kept, so that its length exceeds the maximum body size by one.
+	 *
+	 * @return		false, if the end of the request has been reached
+	 */
+	private boolean readLine(BufferedReader reader, StringBuilder line) throws IOException
+	{
+		line.setLength(0);
+		int character = reader.read();
+		if(character<0)
+		{
+			return false;
+		}
+		while(character>=0 && character!='\n')
+		{
+			if(line.length()<=maximumBodySize)
+			{
+				line.append((char)character);
+			}
+			character = reader.read();
+		}
+		if(line.length()>0 && line.length()<=maximumBodySize && line.charAt(line.length() - 1)=='\r')
+		{
+			line.setLength(line.length() - 1);
+		}
+		return true;
+	}
+
+	private static String getClientAddress(HttpExchange exchange)
+	{
+		return exchange.getRemoteAddress().getAddress().getHostAddress();
+	}
+
+	private static void log(String message)
+	{
+		System.out.println(new SimpleDateFormat(DEFAULT_DATETIME_FORMAT).format(new Date()) + " - " + message);
+	}
+
+	private static String getParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException
+	{
+		String query = exchange.getRequestURI().getRawQuery();
+		if(query!=null)
+		{
+			for(String parameter : query.split("&"))
+			{
+				int separator = parameter.indexOf('=');
+				if(separator>0 && URLDecoder.decode(parameter.substring(0, separator), "UTF-8").equals(name))
+				{
+					return URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -26,12 +26,53 @@ import java.net.Socket;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ServerSocketFactory;
 
+import com.datamelt.server.transform.AsyncTransformer;
 import com.datamelt.server.transform.Transformer;
 import com.datamelt.util.FileUtility;
 
+/**
+ * server, that evaluates the rows sent by clients using the rules of a rule project.
+ *
+ * the connections of the clients are handled by a bounded pool of threads: each thread serves one connection at a time.
+ * when all threads are busy, new connections wait in a queue of limited size and are served in the order they arrived.
+ * when the queue is full, new connections are closed immediately. connections without a request for longer than the idle
+ * timeout are closed, so that their threads are available for other clients.
+ *
+ * a thread per connection is used and not a selector, because the clients use blocking streams.
+ *
+ * clients use the binary protocol of the RuleEngineClient or - for older clients - java object serialization. the
+ * server determines the protocol from the first bytes sent by the client. set the property server.serialization.enabled
+ * to false, to only accept clients using the binary protocol.
+ *
+ * besides the project of the property rulefile.name, clients may use other projects of the rule file folder by name. they
+ * are loaded when requested and unloaded depending on the properties server.projects.maximum, server.projects.memory
+ * (megabytes) and server.projects.idletimeout (milliseconds). see the RuleProjectCache.
+ *
+ * if the property server.http.port is set, rows can also be evaluated using HTTP and JSON. see the RuleEngineHttpServer.
+ * the property server.http.maxbodysize limits the size of a request in bytes.
+ *
+ * the load of the server is limited using the properties server.limit.concurrent - the number of rows or batches
+ * evaluated at the same time -, server.limit.queuetime - the milliseconds a row waits for its evaluation -,
+ * server.limit.client.rate and server.limit.project.rate - rows per second of each client address and project - with
+ * their .burst properties. rows exceeding the limits are rejected and the clients send them again after some time. see
+ * the LoadLimiter.
+ *
+ * the output of the transformer is written in the background by an AsyncTransformer. set the property transformer.async
+ * to false, to write it while the client waits.
+ *
+ * @author uwe geercken
+ */
 public class RuleEngineServer extends Thread
 {
     private ServerSocket serverSocket;
@@ -39,9 +80,21 @@ public class RuleEngineServer extends Thread
     private String ruleFile;
     private Properties properties = new Properties();
     private Transformer transformer;
+    private RuleProjectCache projectCache;
+    private RuleEngineHttpServer httpServer;
+    private LoadLimiter loadLimiter;
+    private boolean watchRuleFile;
     private int port;
     private String propertiesFileFullname;
     private long serverStart;
+    private int maximumThreads;
+    private int maximumQueuedConnections;
+    private int idleTimeout;
+    private int backlog;
+    private ThreadPoolExecutor executor;
+    private boolean objectSerializationEnabled;
+    // the header rows of the fields sent by the clients using the binary protocol
+    private final HeaderRowCache headers = new HeaderRowCache(MAXIMUM_HEADERS);
     
     private static final String PROPERTIES_FILE 			= "server.properties";
     
@@ -49,10 +102,38 @@ public class RuleEngineServer extends Thread
     private static final String PROPERTY_FOLDER_RULEFILE 	= "rulefile.folder";
     private static final String PROPERTY_RULEFILE 			= "rulefile.name";
     private static final String PROPERTY_TRANSFORMER 		= "transformer.classname";
+    private static final String PROPERTY_WATCH_RULEFILE 	= "rulefile.watch";
+    private static final String PROPERTY_MAXIMUM_THREADS	= "server.threads.maximum";
+    private static final String PROPERTY_MAXIMUM_QUEUED		= "server.connections.queue";
+    private static final String PROPERTY_IDLE_TIMEOUT		= "server.connections.idletimeout";
+    private static final String PROPERTY_BACKLOG			= "server.backlog";
+    private static final String PROPERTY_SERIALIZATION		= "server.serialization.enabled";
+    private static final String PROPERTY_TRANSFORMER_ASYNC	= "transformer.async";
+    private static final String PROPERTY_MAXIMUM_PROJECTS	= "server.projects.maximum";
+    private static final String PROPERTY_PROJECTS_MEMORY	= "server.projects.memory";
+    private static final String PROPERTY_PROJECTS_IDLETIMEOUT	= "server.projects.idletimeout";
+    private static final String PROPERTY_PROJECTS_IDLEENGINES	= "server.projects.idleengines";
+    private static final String PROPERTY_HTTP_PORT			= "server.http.port";
+    private static final String PROPERTY_HTTP_THREADS		= "server.http.threads";
+    private static final String PROPERTY_HTTP_MAXBODYSIZE	= "server.http.maxbodysize";
+    private static final String PROPERTY_LIMIT_CONCURRENT	= "server.limit.concurrent";
+    private static final String PROPERTY_LIMIT_QUEUETIME	= "server.limit.queuetime";
+    private static final String PROPERTY_LIMIT_CLIENT_RATE	= "server.limit.client.rate";
+    private static final String PROPERTY_LIMIT_CLIENT_BURST	= "server.limit.client.burst";
+    private static final String PROPERTY_LIMIT_PROJECT_RATE	= "server.limit.project.rate";
+    private static final String PROPERTY_LIMIT_PROJECT_BURST	= "server.limit.project.burst";
 
     private static final int 	DEFAULT_PORT 				= 9000;
     private static final String DEFAULT_FOLDER_RULEFOLDER 	= ".";
     private static final String DEFAULT_RULEFILE 			= "rules.zip";
+    private static final int 	DEFAULT_MAXIMUM_THREADS		= 200;
+    private static final int 	DEFAULT_MAXIMUM_QUEUED		= 1000;
+    // no idle timeout
+    private static final int 	DEFAULT_IDLE_TIMEOUT		= 0;
+    private static final int 	DEFAULT_BACKLOG				= 50;
+    private static final int 	DEFAULT_LIMIT_QUEUETIME		= 100;
+    // maximum number of different header rows kept for the clients
+    private static final int 	MAXIMUM_HEADERS				= 256;
     
     private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
     
@@ -77,6 +158,14 @@ public class RuleEngineServer extends Thread
         createTransformer();
     }
     
+    RuleEngineServer(Properties properties) throws Exception
+    {
+    	this.properties = properties;
+    	setVariables();
+    	createSocket();
+        createTransformer();
+    }
+    
     private void loadProperties() throws IOException
     {
     	propertiesFileFullname = FileUtility.adjustSlash(RuleEngineServer.class.getClassLoader().getResource("").getPath()) + PROPERTIES_FILE;
@@ -116,11 +205,62 @@ public class RuleEngineServer extends Thread
     	{
     		ruleFile = DEFAULT_RULEFILE;
     	}
+    	watchRuleFile = Boolean.parseBoolean(getProperty(PROPERTY_WATCH_RULEFILE));
+    	maximumThreads = getIntProperty(PROPERTY_MAXIMUM_THREADS, DEFAULT_MAXIMUM_THREADS);
+    	maximumQueuedConnections = getIntProperty(PROPERTY_MAXIMUM_QUEUED, DEFAULT_MAXIMUM_QUEUED);
+    	idleTimeout = getIntProperty(PROPERTY_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+    	backlog = getIntProperty(PROPERTY_BACKLOG, DEFAULT_BACKLOG);
+    	// clients using java object serialization are only accepted, if enabled - the server deserializes the objects sent by them
+    	objectSerializationEnabled = getProperty(PROPERTY_SERIALIZATION)!=null && Boolean.parseBoolean(getProperty(PROPERTY_SERIALIZATION).trim());
+    	createLoadLimiter();
+    }
+    
+    /**
+     * creates the limiter, if one of the limits is defined. the burst defaults to the rows of one second.
+     */
+    private void createLoadLimiter()
+    {
+    	int maximumConcurrent = getIntProperty(PROPERTY_LIMIT_CONCURRENT, 0);
+    	int clientRate = getIntProperty(PROPERTY_LIMIT_CLIENT_RATE, 0);
+    	int projectRate = getIntProperty(PROPERTY_LIMIT_PROJECT_RATE, 0);
+    	if(maximumConcurrent>0 || clientRate>0 || projectRate>0)
+    	{
+    		loadLimiter = new LoadLimiter(maximumConcurrent, getIntProperty(PROPERTY_LIMIT_QUEUETIME, DEFAULT_LIMIT_QUEUETIME));
+    		loadLimiter.setClientRate(clientRate, getIntProperty(PROPERTY_LIMIT_CLIENT_BURST, clientRate));
+    		loadLimiter.setProjectRate(projectRate, getIntProperty(PROPERTY_LIMIT_PROJECT_BURST, projectRate));
+    	}
     }
     
     private void createSocket() throws IOException
     {
-    	serverSocket = ServerSocketFactory.getDefault().createServerSocket(port);
+    	serverSocket = ServerSocketFactory.getDefault().createServerSocket(port, backlog);
+    }
+    
+    private void createExecutor()
+    {
+    	// connections wait in the queue, when all threads are busy. without a queue they are only accepted,
+    	// when a thread is available
+    	BlockingQueue<Runnable> queue;
+    	if(maximumQueuedConnections>0)
+    	{
+    		queue = new ArrayBlockingQueue<Runnable>(maximumQueuedConnections);
+    	}
+    	else
+    	{
+    		queue = new SynchronousQueue<Runnable>();
+    	}
+    	final AtomicInteger threadNumber = new AtomicInteger();
+    	executor = new ThreadPoolExecutor(maximumThreads, maximumThreads, 60, TimeUnit.SECONDS, queue, new ThreadFactory()
+    	{
+    		public Thread newThread(Runnable runnable)
+    		{
+    			Thread thread = new Thread(runnable, "clienthandler-" + threadNumber.incrementAndGet());
+    			thread.setDaemon(true);
+    			return thread;
+    		}
+    	});
+    	// threads which are not used are ended
+    	executor.allowCoreThreadTimeOut(true);
     }
     
     private void createTransformer() throws Exception
@@ -134,6 +274,14 @@ public class RuleEngineServer extends Thread
 	    		transformer = (Transformer)transformerClass.newInstance();
 	    		transformer.setProperties(properties);
 	    		transformer.init();
+	    		// the output is written in the background, unless the property is set to false
+	    		if(getProperty(PROPERTY_TRANSFORMER_ASYNC)==null || !getProperty(PROPERTY_TRANSFORMER_ASYNC).trim().equals("false"))
+	    		{
+	    			AsyncTransformer asyncTransformer = new AsyncTransformer(transformer);
+	    			asyncTransformer.setProperties(properties);
+	    			asyncTransformer.init();
+	    			transformer = asyncTransformer;
+	    		}
 	    	}
     	}
     }
@@ -164,7 +312,26 @@ public class RuleEngineServer extends Thread
     	{
     		System.out.println(sdf.format(new Date()) + " - using properties from: " + server.propertiesFileFullname);
     		System.out.println(sdf.format(new Date()) + " - running rule engine file: " + FileUtility.adjustSlash(server.ruleFileFolder) + server.ruleFile);
-    		if(server.transformer!=null)
+    		// the project is loaded once and shared by all clients. if no transformer is defined then no detailed output
+    		// is generated. so we don't need the detailed results of the rule engine. if one is defined, we keep them.
+    		RuleProjectManager projectManager = new RuleProjectManager(FileUtility.adjustSlash(server.ruleFileFolder), server.ruleFile, server.transformer!=null);
+    		System.out.println(sdf.format(new Date()) + " - loaded rule project with: " + projectManager.getRuleProject().getNumberOfGroups() + " rulegroups");
+    		if(server.watchRuleFile)
+    		{
+    			projectManager.startWatching();
+    		}
+    		server.setRuleProjectManager(projectManager);
+    		System.out.println(sdf.format(new Date()) + " - maximum threads: " + server.maximumThreads + ", maximum queued connections: " + server.maximumQueuedConnections + ", idle timeout: " + server.idleTimeout + " ms");
+    		if(server.loadLimiter!=null)
+    		{
+    			System.out.println(sdf.format(new Date()) + " - maximum concurrent evaluations: " + server.loadLimiter.getMaximumConcurrent() + ", maximum queue time: " + server.loadLimiter.getMaximumQueueTime() + " ms, rows per second per client: " + server.loadLimiter.getClientRate() + ", per project: " + server.loadLimiter.getProjectRate());
+    		}
+    		if(server.transformer instanceof AsyncTransformer)
+    		{
+    			AsyncTransformer asyncTransformer = (AsyncTransformer)server.transformer;
+    			System.out.println(sdf.format(new Date()) + " - output with transformer: " + asyncTransformer.getTransformer().getClass() + ", queue policy: " + asyncTransformer.getPolicy());
+    		}
+    		else if(server.transformer!=null)
     		{
     			System.out.println(sdf.format(new Date()) + " - output with transformer: " + server.transformer.getClass());
     		}
@@ -172,7 +339,11 @@ public class RuleEngineServer extends Thread
     		{
     			System.out.println(sdf.format(new Date()) + " - no transformer defined: no ruleengine ouput generated");
     		}
+    		// the rows remaining in the output queue are written, when the server is stopped
+    		final RuleEngineServer runningServer = server;
+    		Runtime.getRuntime().addShutdownHook(new Thread(() -> runningServer.closeTransformer()));
     		server.start();
+    		server.startHttpServer();
             System.out.println(sdf.format(new Date()) +  " - waiting on: " + server.serverSocket.getInetAddress() + ", port: " + server.port + " for connections");
     	}
     	else
@@ -184,6 +355,7 @@ public class RuleEngineServer extends Thread
     @Override
     public void run()
     {
+    	createExecutor();
     	boolean ok=true;
         while (ok)
         {
@@ -191,12 +363,29 @@ public class RuleEngineServer extends Thread
             {
                 final Socket socketToClient = serverSocket.accept();
                 System.out.println(sdf.format(new Date()) + " - client connected from: " + socketToClient.getInetAddress());
-                ClientHandler clientHandler = new ClientHandler(getProcessId(socketToClient.getInetAddress().toString()),socketToClient,FileUtility.adjustSlash(ruleFileFolder),ruleFile,transformer,serverStart);
-                clientHandler.start();
+                socketToClient.setSoTimeout(idleTimeout);
+                try
+                {
+                	ClientHandler clientHandler = new ClientHandler(getProcessId(socketToClient.getInetAddress().toString()),socketToClient,projectCache,transformer,serverStart);
+                	clientHandler.setObjectSerializationEnabled(objectSerializationEnabled);
+                	clientHandler.setLoadLimiter(loadLimiter);
+                	clientHandler.setHeaderRowCache(headers);
+                	executor.execute(clientHandler);
+                }
+                catch (RejectedExecutionException e)
+                {
+                	System.out.println(sdf.format(new Date()) + " - maximum number of connections reached - closing connection from: " + socketToClient.getInetAddress());
+                	socketToClient.close();
+                }
             }
             catch (Exception e)
             {
             	ok = false;
+            	if(serverSocket.isClosed())
+            	{
+            		// the server has been shut down
+            		break;
+            	}
             	if(!serverSocket.isClosed())
             	{
             		try 
@@ -213,11 +402,116 @@ public class RuleEngineServer extends Thread
         }
     }
 
+    /**
+     * closes the server socket, so that no new connections are accepted. connections of clients stay open,
+     * until the clients close them or the idle timeout is reached. the transformer is closed.
+     */
+    void shutdown() throws IOException
+    {
+    	serverSocket.close();
+    	if(executor!=null)
+    	{
+    		executor.shutdownNow();
+    	}
+    	if(httpServer!=null)
+    	{
+    		httpServer.close();
+    	}
+    	if(projectCache!=null)
+    	{
+    		projectCache.close();
+    	}
+    	closeTransformer();
+    }
+    
+    /**
+     * starts the HTTP endpoint, if the property server.http.port is set
+     */
+    void startHttpServer() throws IOException
+    {
+    	if(getProperty(PROPERTY_HTTP_PORT)!=null && getProperty(PROPERTY_HTTP_PORT).trim().length()>0)
+    	{
+    		httpServer = new RuleEngineHttpServer(projectCache, getIntProperty(PROPERTY_HTTP_PORT, 0), getIntProperty(PROPERTY_HTTP_THREADS, RuleEngineHttpServer.DEFAULT_THREADS));
+    		httpServer.setTransformer(transformer);
+    		httpServer.setLoadLimiter(loadLimiter);
+    		httpServer.setMaximumBodySize(getIntProperty(PROPERTY_HTTP_MAXBODYSIZE, RuleEngineHttpServer.DEFAULT_MAXIMUM_BODY_SIZE));
+    		httpServer.start();
+    		System.out.println(sdf.format(new Date()) + " - waiting on port: " + httpServer.getPort() + " for HTTP requests");
+    	}
+    }
+    
+    int getHttpPort()
+    {
+    	return httpServer.getPort();
+    }
+    
+    LoadLimiter getLoadLimiter()
+    {
+    	return loadLimiter;
+    }
+    
+    private synchronized void closeTransformer()
+    {
+    	if(transformer!=null)
+    	{
+    		try
+    		{
+    			transformer.close();
+    		}
+    		catch(Exception ex)
+    		{
+    			ex.printStackTrace();
+    		}
+    		transformer = null;
+    	}
+    }
+
 	private String getProperty(String key)
 	{
 		return properties.getProperty(key);
 	}
 	
+	private int getIntProperty(String key, int defaultValue)
+	{
+		if(getProperty(key)!=null && getProperty(key).trim().length()>0)
+		{
+			return Integer.parseInt(getProperty(key).trim());
+		}
+		return defaultValue;
+	}
+	
+	int getLocalPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+	
+	/**
+	 * sets the manager of the default project. the other projects are loaded from the same folder.
+	 */
+	void setRuleProjectManager(RuleProjectManager projectManager)
+	{
+		projectCache = new RuleProjectCache(projectManager, transformer!=null);
+		projectCache.setMaximumProjects(getIntProperty(PROPERTY_MAXIMUM_PROJECTS, 0));
+		projectCache.setMaximumSize(getIntProperty(PROPERTY_PROJECTS_MEMORY, 0) * 1024L * 1024L);
+		projectCache.setIdleTimeout(getIntProperty(PROPERTY_PROJECTS_IDLETIMEOUT, 0));
+		projectCache.setMaximumIdleEngines(getIntProperty(PROPERTY_PROJECTS_IDLEENGINES, getMaximumWorkers()));
+		projectCache.setWatching(watchRuleFile);
+	}
+	
+	/**
+	 * returns the maximum number of threads evaluating rows: the threads of the clients and of the HTTP endpoint.
+	 * each of them uses its own engine instance.
+	 */
+	private int getMaximumWorkers()
+	{
+		int workers = maximumThreads;
+		if(getProperty(PROPERTY_HTTP_PORT)!=null && getProperty(PROPERTY_HTTP_PORT).trim().length()>0)
+		{
+			workers += getIntProperty(PROPERTY_HTTP_THREADS, RuleEngineHttpServer.DEFAULT_THREADS);
+		}
+		return workers;
+	}
+	
 	private String getProcessId(String clientInetAddress)
 	{
 		return "client-" + clientInetAddress + "-" + ruleFile + "_" + sdf.format(new Date());
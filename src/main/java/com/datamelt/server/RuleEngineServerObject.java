@@ -41,6 +41,8 @@ public class RuleEngineServerObject implements Serializable
      private int outputType;
      private String objectLabel;
      private String processId;
+     private long projectVersion;
+     private String[] failedGroupIds;
      
      public static final long serialVersionUID = 200003;
      
@@ -190,4 +192,29 @@ public class RuleEngineServerObject implements Serializable
 	{
 		this.totalActions = totalActions;
 	}
+
+	public long getProjectVersion() 
+	{
+		return projectVersion;
+	}
+
+	public void setProjectVersion(long projectVersion) 
+	{
+		this.projectVersion = projectVersion;
+	}
+
+	/**
+	 * returns the ids of the groups that failed. only available for results received using the binary protocol.
+	 * 
+	 * @return		the ids of the failed groups
+	 */
+	public String[] getFailedGroupIds() 
+	{
+		return failedGroupIds;
+	}
+
+	public void setFailedGroupIds(String[] failedGroupIds) 
+	{
+		this.failedGroupIds = failedGroupIds;
+	}
 }
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+/**
+ * a rule project - the rule files of a project zip file - which is loaded once and shared by all clients of the server.
+ *
+ * the zip file is read once into memory. the rule groups keep the results of an evaluation in their objects, so a
+ * rule engine instance can only be used by one thread at a time. the project therefore keeps a pool of engine
+ * instances: a client acquires an engine to evaluate a row and releases it afterwards. new engine instances are created
+ * from the in-memory rule files when all instances are in use, so that the number of instances depends on the number of
+ * rows that are evaluated at the same time and not on the number of connected clients.
+ *
+ * each project has a version, so that the results of an evaluation can be related to the version of the project
+ * that produced them.
+ *
+ * the project may be used by multiple threads at the same time.
+ *
+ * @author uwe geercken
+ */
+public class RuleProject
+{
+	private final String ruleFileFolder;
+	private final String ruleFile;
+	private final boolean preserveRuleExcecutionResults;
+	private final long version;
+	private final long loadTime;
+	// the contents of the rule files of the zip file
+	private final byte[][] ruleFiles;
+	private final long sizeOfRuleFiles;
+	private final long numberOfGroups;
+	private final long numberOfRules;
+	private final long numberOfActions;
+
+	private final ConcurrentLinkedQueue<BusinessRulesEngine> idleEngines = new ConcurrentLinkedQueue<BusinessRulesEngine>();
+	private final AtomicInteger numberOfIdleEngines = new AtomicInteger();
+	private final AtomicLong numberOfEnginesCreated = new AtomicLong();
+	private int maximumIdleEngines = Runtime.getRuntime().availableProcessors() * 2;
+
+	/**
+	 * loads the rule project from the given zip file. one engine instance is created to validate the rule files.
+	 * the version of the project is 1.
+	 *
+	 * @param ruleFileFolder					the folder of the zip file
+	 * @param ruleFile							the name of the zip file
+	 * @param preserveRuleExcecutionResults		indicator if the engines keep the detailed results of the rules
+	 * @throws Exception						exception when the zip file can not be read or the rule files can not be parsed
+	 */
+	public RuleProject(String ruleFileFolder, String ruleFile, boolean preserveRuleExcecutionResults) throws Exception
+	{
+		this(ruleFileFolder, ruleFile, preserveRuleExcecutionResults, 1);
+	}
+
+	/**
+	 * loads the rule project from the given zip file with the given version. one engine instance is created to validate
+	 * the rule files.
+	 *
+	 * @param ruleFileFolder					the folder of the zip file
+	 * @param ruleFile							the name of the zip file
+	 * @param preserveRuleExcecutionResults		indicator if the engines keep the detailed results of the rules
+	 * @param version							the version of the project
+	 * @throws Exception						exception when the zip file can not be read, contains no rule files or the rule files can not be parsed
+	 */
+	public RuleProject(String ruleFileFolder, String ruleFile, boolean preserveRuleExcecutionResults, long version) throws Exception
+	{
+		this.ruleFileFolder = ruleFileFolder;
+		this.ruleFile = ruleFile;
+		this.preserveRuleExcecutionResults = preserveRuleExcecutionResults;
+		this.version = version;
+		this.loadTime = System.currentTimeMillis();
+		this.ruleFiles = readZipFile(new ZipFile(ruleFileFolder + ruleFile));
+		if(ruleFiles.length==0)
+		{
+			throw new Exception("the project file: [" + ruleFileFolder + ruleFile + "] contains no rule files");
+		}
+		long size = 0;
+		for(int i=0;i<ruleFiles.length;i++)
+		{
+			size += ruleFiles[i].length;
+		}
+		this.sizeOfRuleFiles = size;
+
+		BusinessRulesEngine engine = createEngine();
+		this.numberOfGroups = engine.getNumberOfGroups();
+		this.numberOfRules = engine.getNumberOfRules();
+		this.numberOfActions = engine.getNumberOfActions();
+		releaseEngine(engine);
+	}
+
+	private static byte[][] readZipFile(ZipFile zipFile) throws Exception
+	{
+		ArrayList<byte[]> files = new ArrayList<byte[]>();
+		try
+		{
+			byte[] buffer = new byte[8192];
+			for(Enumeration<? extends ZipEntry> entries = zipFile.entries();entries.hasMoreElements();)
+			{
+				ZipEntry entry = entries.nextElement();
+				if(!entry.isDirectory())
+				{
+					ByteArrayOutputStream output = new ByteArrayOutputStream();
+					InputStream input = zipFile.getInputStream(entry);
+					int read;
+					while((read = input.read(buffer))>0)
+					{
+						output.write(buffer, 0, read);
+					}
+					input.close();
+					files.add(output.toByteArray());
+				}
+			}
+		}
+		finally
+		{
+			zipFile.close();
+		}
+		return files.toArray(new byte[files.size()][]);
+	}
+
+	private BusinessRulesEngine createEngine() throws Exception
+	{
+		InputStream[] inputStreams = new InputStream[ruleFiles.length];
+		for(int i=0;i<ruleFiles.length;i++)
+		{
+			inputStreams[i] = new ByteArrayInputStream(ruleFiles[i]);
+		}
+		BusinessRulesEngine engine = new BusinessRulesEngine(inputStreams);
+		engine.setPreserveRuleExcecutionResults(preserveRuleExcecutionResults);
+		numberOfEnginesCreated.incrementAndGet();
+		return engine;
+	}
+
+	/**
+	 * returns an engine instance for the exclusive use of the calling thread. release the engine
+	 * using the releaseEngine() method, when the evaluation of the row is finished.
+	 *
+	 * @return				an engine instance
+	 * @throws Exception	exception when a new engine instance can not be created
+	 */
+	public BusinessRulesEngine acquireEngine() throws Exception
+	{
+		BusinessRulesEngine engine = idleEngines.poll();
+		if(engine!=null)
+		{
+			numberOfIdleEngines.decrementAndGet();
+			return engine;
+		}
+		return createEngine();
+	}
+
+	/**
+	 * returns the engine instance to the pool. the results of the engine are cleared. if the pool already
+	 * contains the maximum number of idle engines, the engine is discarded.
+	 *
+	 * @param engine		the engine instance
+	 */
+	public void releaseEngine(BusinessRulesEngine engine)
+	{
+		engine.getRuleExecutionCollection().clear();
+		if(numberOfIdleEngines.incrementAndGet()<=maximumIdleEngines)
+		{
+			idleEngines.offer(engine);
+		}
+		else
+		{
+			numberOfIdleEngines.decrementAndGet();
+		}
+	}
+
+	/**
+	 * returns the folder of the zip file
+	 *
+	 * @return		the folder
+	 */
+	public String getRuleFileFolder()
+	{
+		return ruleFileFolder;
+	}
+
+	/**
+	 * returns the name of the zip file
+	 *
+	 * @return		the name of the zip file
+	 */
+	public String getRuleFile()
+	{
+		return ruleFile;
+	}
+
+	/**
+	 * returns the version of the project
+	 *
+	 * @return		the version
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * returns the time when the project was loaded in milliseconds
+	 *
+	 * @return		the time when the project was loaded
+	 */
+	public long getLoadTime()
+	{
+		return loadTime;
+	}
+
+	/**
+	 * returns the size of the uncompressed rule files in bytes
+	 *
+	 * @return		the size of the rule files
+	 */
+	public long getSizeOfRuleFiles()
+	{
+		return sizeOfRuleFiles;
+	}
+
+	/**
+	 * returns an estimate of the memory used by the project in bytes: the size of the rule files for the files kept in
+	 * memory and for each idle engine instance. the engines in use are not counted.
+	 *
+	 * @return		the estimated size of the project
+	 */
+	public long getEstimatedSize()
+	{
+		return sizeOfRuleFiles * (1 + numberOfIdleEngines.get());
+	}
+
+	/**
+	 * returns the number of rule groups of the project
+	 *
+	 * @return		the number of groups
+	 */
+	public long getNumberOfGroups()
+	{
+		return numberOfGroups;
+	}
+
+	/**
+	 * returns the number of rules of the project
+	 *
+	 * @return		the number of rules
+	 */
+	public long getNumberOfRules()
+	{
+		return numberOfRules;
+	}
+
+	/**
+	 * returns the number of actions of the project
+	 *
+	 * @return		the number of actions
+	 */
+	public long getNumberOfActions()
+	{
+		return numberOfActions;
+	}
+
+	/**
+	 * returns the number of engine instances that have been created
+	 *
+	 * @return		the number of engine instances
+	 */
+	public long getNumberOfEnginesCreated()
+	{
+		return numberOfEnginesCreated.get();
+	}
+
+	/**
+	 * returns the maximum number of engine instances that are kept in the pool, when they are not in use
+	 *
+	 * @return		the maximum number of idle engines
+	 */
+	public int getMaximumIdleEngines()
+	{
+		return maximumIdleEngines;
+	}
+
+	/**
+	 * sets the maximum number of engine instances that are kept in the pool, when they are not in use.
+	 * the default is two times the number of processors.
+	 *
+	 * @param maximumIdleEngines		the maximum number of idle engines
+	 */
+	public void setMaximumIdleEngines(int maximumIdleEngines)
+	{
+		this.maximumIdleEngines = Math.max(1, maximumIdleEngines);
+	}
+}
@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * holds the rule projects of the server: the default project and further projects, which clients request by name.
+ *
+ * the name of a project is the name of its zip file in the folder of the default project - with or without the .zip
+ * extension. a project is loaded, when it is requested for the first time. each project has its own RuleProjectManager,
+ * so it is reloaded independently of the other projects.
+ *
+ * the projects requested by name are unloaded, when
+ * - more than the maximum number of projects are loaded
+ * - the estimated size of the loaded projects exceeds the maximum size
+ * - the project has not been used for longer than the idle timeout
+ * in the first two cases, the least recently used projects are unloaded. the default project is always loaded and not
+ * counted. clients which still use an unloaded project request it again using the getProjectManager() method, when the
+ * manager has been closed.
+ *
+ * loaded projects are looked up without a lock. a project is loaded by the first client requesting it. other clients
+ * requesting the same project wait for it, clients requesting other projects do not.
+ *
+ * @author uwe geercken
+ */
+public class RuleProjectCache implements Closeable
+{
+	public static final String RULEFILE_EXTENSION			= ".zip";
+
+	private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+
+	private final RuleProjectManager defaultProjectManager;
+	private final boolean preserveRuleExcecutionResults;
+	// the managers of the projects requested by name - loaded or being loaded -, with the name of the zip file as key
+	private final ConcurrentHashMap<String,FutureTask<RuleProjectManager>> projectManagers = new ConcurrentHashMap<String,FutureTask<RuleProjectManager>>();
+	private int maximumProjects = 0;
+	private long maximumSize = 0;
+	private long idleTimeout = 0;
+	private int maximumIdleEngines = 0;
+	private boolean watching = false;
+	private ScheduledExecutorService executor;
+	private boolean closed = false;
+
+	/**
+	 * constructor using the manager of the default project. the projects requested by name are loaded from the same
+	 * folder.
+	 *
+	 * @param defaultProjectManager				the manager of the default project
+	 * @param preserveRuleExcecutionResults		indicator if the engines keep the detailed results of the rules
+	 */
+	public RuleProjectCache(RuleProjectManager defaultProjectManager, boolean preserveRuleExcecutionResults)
+	{
+		this.defaultProjectManager = defaultProjectManager;
+		this.preserveRuleExcecutionResults = preserveRuleExcecutionResults;
+	}
+
+	/**
+	 * returns the manager of the project with the given name. the project is loaded, if it is not loaded yet.
+	 *
+	 * @param name				the name of the project or null or an empty string for the default project
+	 * @return					the manager of the project
+	 * @throws Exception		exception when the project does not exist or can not be loaded
+	 */
+	public RuleProjectManager getProjectManager(String name) throws Exception
+	{
+		if(name==null || name.trim().length()==0)
+		{
+			return defaultProjectManager;
+		}
+		String ruleFile = getRuleFile(name.trim());
+		if(ruleFile.equals(defaultProjectManager.getRuleFile()))
+		{
+			return defaultProjectManager;
+		}
+
+		FutureTask<RuleProjectManager> loading = projectManagers.get(ruleFile);
+		if(loading==null)
+		{
+			if(!new File(getRuleFileFolder(), ruleFile).isFile())
+			{
+				throw new Exception("unknown rule project: [" + name + "]");
+			}
+			// the load is registered, so that other clients requesting the project wait for it instead of loading it again
+			FutureTask<RuleProjectManager> newLoading = new FutureTask<RuleProjectManager>(() -> load(ruleFile));
+			loading = projectManagers.putIfAbsent(ruleFile, newLoading);
+			if(loading==null)
+			{
+				loading = newLoading;
+				newLoading.run();
+			}
+		}
+		try
+		{
+			return loading.get();
+		}
+		catch(ExecutionException ex)
+		{
+			// the project is loaded again, when it is requested the next time
+			projectManagers.remove(ruleFile, loading);
+			if(ex.getCause() instanceof Exception)
+			{
+				throw (Exception)ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * loads the project without holding the lock of the cache. the lock is only held to unload other projects, if the
+	 * limits are exceeded.
+	 */
+	private RuleProjectManager load(String ruleFile) throws Exception
+	{
+		RuleProjectManager projectManager = new RuleProjectManager(getRuleFileFolder(), ruleFile, preserveRuleExcecutionResults);
+		synchronized(this)
+		{
+			if(closed)
+			{
+				projectManager.close();
+				throw new Exception("the rule projects have been closed");
+			}
+			if(watching)
+			{
+				projectManager.startWatching();
+			}
+			projectManager.setMaximumIdleEngines(maximumIdleEngines);
+			log("loaded rule project: " + ruleFile + " - rulegroups: " + projectManager.getRuleProject().getNumberOfGroups() + ", loaded projects: " + projectManagers.size());
+			unloadLeastRecentlyUsed(projectManager);
+		}
+		return projectManager;
+	}
+
+	/**
+	 * returns the manager of the project or null, if the project is still being loaded or could not be loaded
+	 */
+	private static RuleProjectManager getLoadedManager(FutureTask<RuleProjectManager> loading)
+	{
+		if(!loading.isDone())
+		{
+			return null;
+		}
+		try
+		{
+			return loading.get();
+		}
+		catch(Exception ex)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * returns the name of the zip file of the project. names containing a path are not allowed, so that only files of
+	 * the folder can be loaded.
+	 */
+	private static String getRuleFile(String name) throws Exception
+	{
+		if(!name.matches("[\\w.-]+") || name.startsWith("."))
+		{
+			throw new Exception("invalid name of rule project: [" + name + "]");
+		}
+		return name.endsWith(RULEFILE_EXTENSION) ? name : name + RULEFILE_EXTENSION;
+	}
+
+	/**
+	 * unloads the least recently used projects - except the given one - until the maximum number of projects and
+	 * the maximum size are not exceeded anymore
+	 */
+	private synchronized void unloadLeastRecentlyUsed(RuleProjectManager keep)
+	{
+		while((maximumProjects>0 && projectManagers.size()>maximumProjects) || (maximumSize>0 && getEstimatedSize() + keep.getLoadedRuleProject().getEstimatedSize()>maximumSize))
+		{
+			String leastRecentlyUsed = null;
+			long leastRecentAccess = Long.MAX_VALUE;
+			for(Map.Entry<String,FutureTask<RuleProjectManager>> entry : projectManagers.entrySet())
+			{
+				RuleProjectManager projectManager = getLoadedManager(entry.getValue());
+				if(projectManager!=null && projectManager.getLastAccess()<leastRecentAccess)
+				{
+					leastRecentlyUsed = entry.getKey();
+					leastRecentAccess = projectManager.getLastAccess();
+				}
+			}
+			if(leastRecentlyUsed==null)
+			{
+				// the other projects are being loaded
+				return;
+			}
+			unload(leastRecentlyUsed, "least recently used");
+		}
+	}
+
+	/**
+	 * unloads the projects, which have not been used for longer than the idle timeout
+	 */
+	synchronized void unloadIdleProjects()
+	{
+		long limit = System.currentTimeMillis() - idleTimeout;
+		for(Map.Entry<String,FutureTask<RuleProjectManager>> entry : projectManagers.entrySet())
+		{
+			RuleProjectManager projectManager = getLoadedManager(entry.getValue());
+			if(projectManager!=null && projectManager.getLastAccess()<limit)
+			{
+				unload(entry.getKey(), "idle");
+			}
+		}
+	}
+
+	private void unload(String ruleFile, String reason)
+	{
+		RuleProjectManager projectManager = getLoadedManager(projectManagers.remove(ruleFile));
+		try
+		{
+			projectManager.close();
+		}
+		catch(IOException ex)
+		{
+			// the project is not used anymore
+		}
+		log("unloaded rule project: " + ruleFile + " - " + reason + ", loaded projects: " + projectManagers.size());
+	}
+
+	/**
+	 * returns the estimated size of the projects requested by name in bytes
+	 *
+	 * @return		the estimated size
+	 */
+	public synchronized long getEstimatedSize()
+	{
+		long size = 0;
+		for(FutureTask<RuleProjectManager> loading : projectManagers.values())
+		{
+			RuleProjectManager projectManager = getLoadedManager(loading);
+			if(projectManager!=null)
+			{
+				size += projectManager.getLoadedRuleProject().getEstimatedSize();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * returns the names of the zip files of the loaded projects requested by name
+	 *
+	 * @return		the names of the loaded projects
+	 */
+	public List<String> getLoadedProjects()
+	{
+		ArrayList<String> loadedProjects = new ArrayList<String>();
+		for(Map.Entry<String,FutureTask<RuleProjectManager>> entry : projectManagers.entrySet())
+		{
+			if(getLoadedManager(entry.getValue())!=null)
+			{
+				loadedProjects.add(entry.getKey());
+			}
+		}
+		return loadedProjects;
+	}
+
+	/**
+	 * unloads all projects
+	 *
+	 * @throws IOException	exception when a manager can not be closed
+	 */
+	public synchronized void close() throws IOException
+	{
+		closed = true;
+		if(executor!=null)
+		{
+			executor.shutdownNow();
+		}
+		for(FutureTask<RuleProjectManager> loading : projectManagers.values())
+		{
+			RuleProjectManager projectManager = getLoadedManager(loading);
+			if(projectManager!=null)
+			{
+				projectManager.close();
+			}
+		}
+		projectManagers.clear();
+		defaultProjectManager.close();
+	}
+
+	public RuleProjectManager getDefaultProjectManager()
+	{
+		return defaultProjectManager;
+	}
+
+	public String getRuleFileFolder()
+	{
+		return defaultProjectManager.getRuleFileFolder();
+	}
+
+	public synchronized int getMaximumProjects()
+	{
+		return maximumProjects;
+	}
+
+	/**
+	 * sets the maximum number of projects loaded in addition to the default project
+	 *
+	 * @param maximumProjects	the maximum number of projects or 0 for no limit
+	 */
+	public synchronized void setMaximumProjects(int maximumProjects)
+	{
+		this.maximumProjects = maximumProjects;
+	}
+
+	public synchronized long getMaximumSize()
+	{
+		return maximumSize;
+	}
+
+	/**
+	 * sets the maximum estimated size in bytes of the projects loaded in addition to the default project. see the
+	 * getEstimatedSize() method of the RuleProject.
+	 *
+	 * @param maximumSize		the maximum size in bytes or 0 for no limit
+	 */
+	public synchronized void setMaximumSize(long maximumSize)
+	{
+		this.maximumSize = maximumSize;
+	}
+
+	public synchronized long getIdleTimeout()
+	{
+		return idleTimeout;
+	}
+
+	/**
+	 * sets the time in milliseconds after which a project, that has not been used, is unloaded. the projects are
+	 * checked by a background thread.
+	 *
+	 * @param idleTimeout		the idle timeout in milliseconds or 0 to keep idle projects
+	 */
+	public synchronized void setIdleTimeout(long idleTimeout)
+	{
+		this.idleTimeout = idleTimeout;
+		if(executor!=null)
+		{
+			executor.shutdownNow();
+			executor = null;
+		}
+		if(idleTimeout>0)
+		{
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "ruleproject-unload");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			long interval = Math.max(1, idleTimeout / 2);
+			executor.scheduleWithFixedDelay(() -> unloadIdleProjects(), interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public synchronized int getMaximumIdleEngines()
+	{
+		return maximumIdleEngines;
+	}
+
+	/**
+	 * sets the maximum number of engine instances kept by each project, when they are not in use. see the
+	 * setMaximumIdleEngines() method of the RuleProjectManager.
+	 *
+	 * @param maximumIdleEngines	the maximum number of idle engines or 0 for the default of the rule project
+	 */
+	public synchronized void setMaximumIdleEngines(int maximumIdleEngines)
+	{
+		this.maximumIdleEngines = maximumIdleEngines;
+		defaultProjectManager.setMaximumIdleEngines(maximumIdleEngines);
+		for(FutureTask<RuleProjectManager> loading : projectManagers.values())
+		{
+			RuleProjectManager projectManager = getLoadedManager(loading);
+			if(projectManager!=null)
+			{
+				projectManager.setMaximumIdleEngines(maximumIdleEngines);
+			}
+		}
+	}
+
+	public synchronized boolean getWatching()
+	{
+		return watching;
+	}
+
+	/**
+	 * sets if the zip files of the projects loaded afterwards are watched for changes. see the startWatching() method
+	 * of the RuleProjectManager.
+	 *
+	 * @param watching		indicator if the zip files are watched
+	 */
+	public synchronized void setWatching(boolean watching)
+	{
+		this.watching = watching;
+	}
+
+	private static void log(String message)
+	{
+		System.out.println(new SimpleDateFormat(DEFAULT_DATETIME_FORMAT).format(new Date()) + " - " + message);
+	}
+}
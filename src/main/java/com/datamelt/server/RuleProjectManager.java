@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * holds the current version of the rule project of the server and reloads it.
+ *
+ * a reload parses the project zip file in a background thread. only if the new project can be loaded, it replaces the
+ * current one. clients get the current project for each row they evaluate, so rows that are evaluated while the project is
+ * replaced finish with the engine of the old version and all following rows use the new version. if the new project can
+ * not be loaded, the current version stays active.
+ *
+ * optionally the folder of the zip file is watched and the project is reloaded when the zip file is created or modified.
+ * the reload is delayed, so that multiple changes while the file is written result in one reload.
+ *
+ * @author uwe geercken
+ */
+public class RuleProjectManager implements Closeable
+{
+	public static final long DEFAULT_WATCH_DELAY			= 1000;
+
+	private static final String DEFAULT_DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+
+	private final String ruleFileFolder;
+	private final String ruleFile;
+	private final boolean preserveRuleExcecutionResults;
+	private volatile RuleProject ruleProject;
+	private volatile long lastAccess = System.currentTimeMillis();
+	private volatile boolean closed = false;
+
+	// reloads are executed one after the other by a single thread
+	private final ScheduledExecutorService executor;
+	private ScheduledFuture<RuleProject> scheduledReload;
+	private WatchService watchService;
+	private long watchDelay = DEFAULT_WATCH_DELAY;
+	// 0 keeps the default of the rule project
+	private volatile int maximumIdleEngines = 0;
+
+	/**
+	 * loads the rule project from the given zip file. the version of the project is 1.
+	 *
+	 * @param ruleFileFolder					the folder of the zip file
+	 * @param ruleFile							the name of the zip file
+	 * @param preserveRuleExcecutionResults		indicator if the engines keep the detailed results of the rules
+	 * @throws Exception						exception when the project can not be loaded
+	 */
+	public RuleProjectManager(String ruleFileFolder, String ruleFile, boolean preserveRuleExcecutionResults) throws Exception
+	{
+		this.ruleFileFolder = ruleFileFolder;
+		this.ruleFile = ruleFile;
+		this.preserveRuleExcecutionResults = preserveRuleExcecutionResults;
+		this.ruleProject = new RuleProject(ruleFileFolder, ruleFile, preserveRuleExcecutionResults, 1);
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "ruleproject-reload");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * returns the current version of the rule project. get the project once per row and use it to acquire and
+	 * release the engine, as the project may be replaced by a reload in the meantime.
+	 *
+	 * @return		the current rule project
+	 */
+	public RuleProject getRuleProject()
+	{
+		lastAccess = System.currentTimeMillis();
+		return ruleProject;
+	}
+
+	/**
+	 * returns the current version of the rule project without updating the time of the last access
+	 */
+	RuleProject getLoadedRuleProject()
+	{
+		return ruleProject;
+	}
+
+	/**
+	 * reloads the rule project in the background. the returned future contains the new project or - when
+	 * it can not be loaded - the exception. the current project is then kept.
+	 *
+	 * @return		the future of the reload
+	 */
+	public Future<RuleProject> reload()
+	{
+		return executor.submit(new ReloadTask());
+	}
+
+	private synchronized void scheduleReload()
+	{
+		// a reload that has not started yet is replaced, so that a file written in multiple steps is loaded once
+		if(scheduledReload!=null)
+		{
+			scheduledReload.cancel(false);
+		}
+		scheduledReload = executor.schedule(new ReloadTask(), watchDelay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * starts watching the folder of the zip file. the project is reloaded when the zip file is created or modified.
+	 *
+	 * @throws IOException	exception when the folder can not be watched
+	 */
+	public synchronized void startWatching() throws IOException
+	{
+		if(watchService!=null)
+		{
+			return;
+		}
+		watchService = FileSystems.getDefault().newWatchService();
+		Paths.get(ruleFileFolder).register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		final WatchService service = watchService;
+		Thread watcher = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					while(true)
+					{
+						WatchKey key = service.take();
+						for(WatchEvent<?> event : key.pollEvents())
+						{
+							if(event.context() instanceof Path && ((Path)event.context()).getFileName().toString().equals(ruleFile))
+							{
+								scheduleReload();
+							}
+						}
+						key.reset();
+					}
+				}
+				catch(ClosedWatchServiceException ex)
+				{
+					// the manager has been closed
+				}
+				catch(InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "ruleproject-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		log("watching folder: " + ruleFileFolder + " for changes of rule file: " + ruleFile);
+	}
+
+	/**
+	 * stops watching the folder and the background thread for the reloads
+	 *
+	 * @throws IOException	exception when the watcher can not be closed
+	 */
+	public synchronized void close() throws IOException
+	{
+		closed = true;
+		executor.shutdownNow();
+		if(watchService!=null)
+		{
+			watchService.close();
+			watchService = null;
+		}
+	}
+
+	/**
+	 * indicates if the manager has been closed - e.g. because the project has been unloaded by the RuleProjectCache.
+	 * the project can still be used, but it is not reloaded anymore.
+	 *
+	 * @return		indicator if the manager has been closed
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+
+	/**
+	 * returns the time in milliseconds, when the project was last requested using the getRuleProject() method
+	 *
+	 * @return		the time of the last access
+	 */
+	public long getLastAccess()
+	{
+		return lastAccess;
+	}
+
+	/**
+	 * returns the folder of the zip file
+	 *
+	 * @return		the folder
+	 */
+	public String getRuleFileFolder()
+	{
+		return ruleFileFolder;
+	}
+
+	/**
+	 * returns the name of the zip file
+	 *
+	 * @return		the name of the zip file
+	 */
+	public String getRuleFile()
+	{
+		return ruleFile;
+	}
+
+	/**
+	 * returns the time in milliseconds the reload is delayed after a change of the zip file
+	 *
+	 * @return		the delay in milliseconds
+	 */
+	public long getWatchDelay()
+	{
+		return watchDelay;
+	}
+
+	/**
+	 * sets the time in milliseconds the reload is delayed after a change of the zip file
+	 *
+	 * @param watchDelay	the delay in milliseconds
+	 */
+	public void setWatchDelay(long watchDelay)
+	{
+		this.watchDelay = Math.max(0, watchDelay);
+	}
+
+	/**
+	 * returns the maximum number of engine instances kept by the rule project, when they are not in use
+	 *
+	 * @return		the maximum number of idle engines or 0 for the default of the rule project
+	 */
+	public int getMaximumIdleEngines()
+	{
+		return maximumIdleEngines;
+	}
+
+	/**
+	 * sets the maximum number of engine instances kept by the current rule project and by the projects reloaded
+	 * afterwards, when they are not in use. set it to the number of threads evaluating rows, so that the engines
+	 * are not discarded and created again.
+	 *
+	 * @param maximumIdleEngines	the maximum number of idle engines or 0 for the default of the rule project
+	 */
+	public void setMaximumIdleEngines(int maximumIdleEngines)
+	{
+		this.maximumIdleEngines = Math.max(0, maximumIdleEngines);
+		if(maximumIdleEngines>0)
+		{
+			ruleProject.setMaximumIdleEngines(maximumIdleEngines);
+		}
+	}
+
+	private static void log(String message)
+	{
+		System.out.println(new SimpleDateFormat(DEFAULT_DATETIME_FORMAT).format(new Date()) + " - " + message);
+	}
+
+	private class ReloadTask implements Callable<RuleProject>
+	{
+		public RuleProject call() throws Exception
+		{
+			// reloads run on a single thread, so the version can not be used twice
+			RuleProject currentProject = ruleProject;
+			try
+			{
+				RuleProject project = new RuleProject(ruleFileFolder, ruleFile, preserveRuleExcecutionResults, currentProject.getVersion() + 1);
+				if(maximumIdleEngines>0)
+				{
+					project.setMaximumIdleEngines(maximumIdleEngines);
+				}
+				ruleProject = project;
+				log("reloaded rule file: " + ruleFileFolder + ruleFile + " - version: " + project.getVersion() + ", rulegroups: " + project.getNumberOfGroups());
+				return project;
+			}
+			catch(Exception ex)
+			{
+				log("error reloading rule file: " + ruleFileFolder + ruleFile + " - keeping version: " + currentProject.getVersion() + " - " + ex.getMessage());
+				throw ex;
+			}
+		}
+	}
+}
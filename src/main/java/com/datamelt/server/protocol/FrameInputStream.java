@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server.protocol;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * reads frames of the binary protocol from an input stream.
+ *
+ * the readFrame() method reads the next frame into a buffer and returns its type. the payload of the frame is then
+ * read using the other methods of the stream.
+ *
+ * the stream is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class FrameInputStream implements Closeable
+{
+	private final DataInputStream input;
+	private byte[] buffer = new byte[8192];
+	private int position = 0;
+	private int limit = 0;
+
+	/**
+	 * constructor for a stream that reads from the given input stream
+	 *
+	 * @param input		the input stream
+	 */
+	public FrameInputStream(InputStream input)
+	{
+		this.input = new DataInputStream(input);
+	}
+
+	/**
+	 * reads the magic number of the protocol and checks it
+	 *
+	 * @throws IOException		exception when the magic number can not be read or is not the one of the protocol
+	 */
+	public void readMagic() throws IOException
+	{
+		if(input.readInt()!=Protocol.MAGIC)
+		{
+			throw new IOException("the stream does not use the binary protocol");
+		}
+	}
+
+	/**
+	 * reads the next frame
+	 *
+	 * @return					the type of the frame or -1 if the end of the stream is reached
+	 * @throws IOException		exception when the frame can not be read or is too large
+	 */
+	public int readFrame() throws IOException
+	{
+		int first = input.read();
+		if(first<0)
+		{
+			return -1;
+		}
+		int length = (first << 24) | (input.readUnsignedByte() << 16) | (input.readUnsignedByte() << 8) | input.readUnsignedByte();
+		if(length<1 || length>Protocol.MAXIMUM_FRAME_LENGTH)
+		{
+			throw new IOException("invalid frame length: [" + length + "]");
+		}
+		int type = input.readUnsignedByte();
+		length--;
+		if(length>buffer.length)
+		{
+			buffer = new byte[Math.max(buffer.length * 2, length)];
+		}
+		input.readFully(buffer, 0, length);
+		position = 0;
+		limit = length;
+		return type;
+	}
+
+	/**
+	 * indicates if the payload of the current frame contains more bytes
+	 *
+	 * @return		indicator if more bytes are available
+	 */
+	public boolean hasRemaining()
+	{
+		return position<limit;
+	}
+
+	/**
+	 * returns the number of bytes that can be read from the underlying stream without blocking
+	 *
+	 * @return					the number of bytes
+	 * @throws IOException		exception when the underlying stream is closed
+	 */
+	public int available() throws IOException
+	{
+		return input.available();
+	}
+
+	/**
+	 * closes the underlying stream
+	 *
+	 * @throws IOException		exception when the stream can not be closed
+	 */
+	public void close() throws IOException
+	{
+		input.close();
+	}
+
+	private void check(int length) throws EOFException
+	{
+		if(length<0 || length>limit - position)
+		{
+			throw new EOFException("end of frame reached");
+		}
+	}
+
+	private int readFixedInt() throws EOFException
+	{
+		check(4);
+		int value = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16) | ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+		position += 4;
+		return value;
+	}
+
+	/**
+	 * reads one byte
+	 *
+	 * @return					the byte as a value between 0 and 255
+	 * @throws EOFException		exception when the end of the frame is reached
+	 */
+	public int readByte() throws EOFException
+	{
+		check(1);
+		return buffer[position++] & 0xFF;
+	}
+
+	/**
+	 * reads bytes written by the writeBytes() method of the FrameOutputStream
+	 *
+	 * @return					the bytes
+	 * @throws IOException		exception when the end of the frame is reached
+	 */
+	public byte[] readBytes() throws IOException
+	{
+		int length = readCount();
+		byte[] bytes = new byte[length];
+		System.arraycopy(buffer, position, bytes, 0, length);
+		position += length;
+		return bytes;
+	}
+
+	/**
+	 * reads a positive integer written by the writeVarInt() method of the FrameOutputStream
+	 *
+	 * @return					the value
+	 * @throws IOException		exception when the end of the frame is reached or the value is invalid
+	 */
+	public int readVarInt() throws IOException
+	{
+		int value = 0;
+		for(int shift=0;shift<32;shift+=7)
+		{
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80)==0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("invalid variable length integer");
+	}
+
+	/**
+	 * reads a length or a number of elements written by the writeVarInt() method of the FrameOutputStream. each
+	 * element takes at least one byte, so a value that is negative or larger than the remaining bytes of the frame is
+	 * rejected before an array is allocated for it.
+	 *
+	 * @return					the length or number of elements
+	 * @throws IOException		exception when the end of the frame is reached or the value is invalid
+	 */
+	public int readCount() throws IOException
+	{
+		int count = readVarInt();
+		if(count<0 || count>limit - position)
+		{
+			throw new IOException("invalid length or number of elements: [" + count + "]");
+		}
+		return count;
+	}
+
+	/**
+	 * reads a positive long written by the writeVarLong() method of the FrameOutputStream
+	 *
+	 * @return					the value
+	 * @throws IOException		exception when the end of the frame is reached or the value is invalid
+	 */
+	public long readVarLong() throws IOException
+	{
+		long value = 0;
+		for(int shift=0;shift<64;shift+=7)
+		{
+			int b = readByte();
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80)==0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("invalid variable length long");
+	}
+
+	/**
+	 * reads a string written by the writeString() method of the FrameOutputStream
+	 *
+	 * @return					the string
+	 * @throws IOException		exception when the end of the frame is reached
+	 */
+	public String readString() throws IOException
+	{
+		int length = readCount();
+		String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return value;
+	}
+
+	/**
+	 * reads bits written by the writeBits() method of the FrameOutputStream
+	 *
+	 * @return					the bits
+	 * @throws IOException		exception when the end of the frame is reached
+	 */
+	public boolean[] readBits() throws IOException
+	{
+		int numberOfBits = readVarInt();
+		if(numberOfBits<0)
+		{
+			throw new IOException("invalid number of bits: [" + numberOfBits + "]");
+		}
+		int length = (int)(((long)numberOfBits + 7) / 8);
+		check(length);
+		boolean[] bits = new boolean[numberOfBits];
+		for(int i=0;i<numberOfBits;i++)
+		{
+			bits[i] = (buffer[position + i / 8] & (1 << (i % 8)))!=0;
+		}
+		position += length;
+		return bits;
+	}
+
+	/**
+	 * reads a value written by the writeValue() method of the FrameOutputStream
+	 *
+	 * @return					the value
+	 * @throws IOException		exception when the end of the frame is reached or the type of the value is unknown
+	 */
+	public Object readValue() throws IOException
+	{
+		int type = readByte();
+		switch(type)
+		{
+			case Protocol.VALUE_NULL:
+				return null;
+			case Protocol.VALUE_STRING:
+				return readString();
+			case Protocol.VALUE_INTEGER:
+				int intValue = readVarInt();
+				return (intValue >>> 1) ^ -(intValue & 1);
+			case Protocol.VALUE_LONG:
+				long longValue = readVarLong();
+				return (longValue >>> 1) ^ -(longValue & 1);
+			case Protocol.VALUE_DOUBLE:
+				long high = readFixedInt() & 0xFFFFFFFFL;
+				long low = readFixedInt() & 0xFFFFFFFFL;
+				return Double.longBitsToDouble((high << 32) | low);
+			case Protocol.VALUE_FLOAT:
+				return Float.intBitsToFloat(readFixedInt());
+			case Protocol.VALUE_TRUE:
+				return Boolean.TRUE;
+			case Protocol.VALUE_FALSE:
+				return Boolean.FALSE;
+			case Protocol.VALUE_BIGDECIMAL:
+				return new BigDecimal(readString());
+			case Protocol.VALUE_BIGINTEGER:
+				return new BigInteger(readString());
+			case Protocol.VALUE_DATE:
+				long time = readVarLong();
+				return new Date((time >>> 1) ^ -(time & 1));
+			default:
+				throw new IOException("unknown type of value: [" + type + "]");
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * writes frames of the binary protocol to an output stream.
+ *
+ * a frame is started with the begin() method, then its payload is written and the frame is finished with the end()
+ * method. the frames are collected in a buffer, which is written to the output stream when it is full or when the
+ * flush() method is called.
+ *
+ * the stream is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class FrameOutputStream implements Closeable
+{
+	// the buffer is written to the output stream when a frame ends and the buffer contains more bytes than this
+	private static final int FLUSH_SIZE		= 64 * 1024;
+
+	private final OutputStream output;
+	private byte[] buffer = new byte[8192];
+	private int position = 0;
+	private int frameStart = -1;
+
+	/**
+	 * constructor for a stream that writes to the given output stream
+	 *
+	 * @param output	the output stream
+	 */
+	public FrameOutputStream(OutputStream output)
+	{
+		this.output = output;
+	}
+
+	/**
+	 * writes the magic number of the protocol. the client writes it once, before the first frame.
+	 *
+	 * @throws IOException		exception when the buffer can not be written
+	 */
+	public void writeMagic() throws IOException
+	{
+		ensureCapacity(4);
+		writeFixedInt(position, Protocol.MAGIC);
+		position += 4;
+	}
+
+	/**
+	 * starts a new frame of the given type
+	 *
+	 * @param type		the type of the frame
+	 */
+	public void begin(int type)
+	{
+		if(frameStart>=0)
+		{
+			throw new IllegalStateException("the previous frame has not been finished");
+		}
+		ensureCapacity(5);
+		frameStart = position;
+		position += 4;
+		buffer[position++] = (byte)type;
+	}
+
+	/**
+	 * finishes the current frame
+	 *
+	 * @throws IOException		exception when the buffer can not be written
+	 */
+	public void end() throws IOException
+	{
+		if(frameStart<0)
+		{
+			throw new IllegalStateException("no frame has been started");
+		}
+		writeFixedInt(frameStart, position - frameStart - 4);
+		frameStart = -1;
+		if(position>=FLUSH_SIZE)
+		{
+			writeBuffer();
+		}
+	}
+
+	/**
+	 * writes the buffered frames to the output stream and flushes it
+	 *
+	 * @throws IOException		exception when the frames can not be written
+	 */
+	public void flush() throws IOException
+	{
+		writeBuffer();
+		output.flush();
+	}
+
+	/**
+	 * flushes the buffered frames and closes the output stream
+	 *
+	 * @throws IOException		exception when the frames can not be written or the stream can not be closed
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	private void writeBuffer() throws IOException
+	{
+		// an unfinished frame stays in the buffer
+		int length = frameStart>=0 ? frameStart : position;
+		if(length>0)
+		{
+			output.write(buffer, 0, length);
+			System.arraycopy(buffer, length, buffer, 0, position - length);
+			position -= length;
+			if(frameStart>=0)
+			{
+				frameStart = 0;
+			}
+		}
+	}
+
+	private void ensureCapacity(int length)
+	{
+		if(position + length>buffer.length)
+		{
+			byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+			System.arraycopy(buffer, 0, newBuffer, 0, position);
+			buffer = newBuffer;
+		}
+	}
+
+	private void writeFixedInt(int offset, int value)
+	{
+		buffer[offset] = (byte)(value >>> 24);
+		buffer[offset + 1] = (byte)(value >>> 16);
+		buffer[offset + 2] = (byte)(value >>> 8);
+		buffer[offset + 3] = (byte)value;
+	}
+
+	/**
+	 * writes one byte
+	 *
+	 * @param value		the byte
+	 */
+	public void writeByte(int value)
+	{
+		ensureCapacity(1);
+		buffer[position++] = (byte)value;
+	}
+
+	/**
+	 * writes the given bytes
+	 *
+	 * @param bytes		the bytes
+	 */
+	public void writeBytes(byte[] bytes)
+	{
+		writeVarInt(bytes.length);
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * writes a positive integer using one to five bytes
+	 *
+	 * @param value		the value
+	 */
+	public void writeVarInt(int value)
+	{
+		ensureCapacity(5);
+		while((value & ~0x7F)!=0)
+		{
+			buffer[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte)value;
+	}
+
+	/**
+	 * writes a positive long using one to ten bytes
+	 *
+	 * @param value		the value
+	 */
+	public void writeVarLong(long value)
+	{
+		ensureCapacity(10);
+		while((value & ~0x7FL)!=0)
+		{
+			buffer[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte)value;
+	}
+
+	/**
+	 * writes a string. null is written as an empty string.
+	 *
+	 * @param value		the string
+	 */
+	public void writeString(String value)
+	{
+		writeBytes(value!=null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+	}
+
+	/**
+	 * writes the bits as bytes - the first bit is the lowest bit of the first byte
+	 *
+	 * @param bits		the bits
+	 */
+	public void writeBits(boolean[] bits)
+	{
+		int length = (bits.length + 7) / 8;
+		writeVarInt(bits.length);
+		ensureCapacity(length);
+		for(int i=0;i<length;i++)
+		{
+			buffer[position + i] = 0;
+		}
+		for(int i=0;i<bits.length;i++)
+		{
+			if(bits[i])
+			{
+				buffer[position + i / 8] |= 1 << (i % 8);
+			}
+		}
+		position += length;
+	}
+
+	/**
+	 * writes a value with its type. supported are strings, numbers, booleans, dates and null values. byte and short
+	 * values are written as integers.
+	 *
+	 * @param value				the value
+	 * @throws IOException		exception when the type of the value is not supported
+	 */
+	public void writeValue(Object value) throws IOException
+	{
+		if(value==null)
+		{
+			writeByte(Protocol.VALUE_NULL);
+		}
+		else if(value instanceof String)
+		{
+			writeByte(Protocol.VALUE_STRING);
+			writeString((String)value);
+		}
+		else if(value instanceof Integer || value instanceof Short || value instanceof Byte)
+		{
+			int number = ((Number)value).intValue();
+			writeByte(Protocol.VALUE_INTEGER);
+			writeVarInt((number << 1) ^ (number >> 31));
+		}
+		else if(value instanceof Long)
+		{
+			long number = (Long)value;
+			writeByte(Protocol.VALUE_LONG);
+			writeVarLong((number << 1) ^ (number >> 63));
+		}
+		else if(value instanceof Double)
+		{
+			writeByte(Protocol.VALUE_DOUBLE);
+			long bits = Double.doubleToLongBits((Double)value);
+			ensureCapacity(8);
+			writeFixedInt(position, (int)(bits >>> 32));
+			writeFixedInt(position + 4, (int)bits);
+			position += 8;
+		}
+		else if(value instanceof Float)
+		{
+			writeByte(Protocol.VALUE_FLOAT);
+			ensureCapacity(4);
+			writeFixedInt(position, Float.floatToIntBits((Float)value));
+			position += 4;
+		}
+		else if(value instanceof Boolean)
+		{
+			writeByte((Boolean)value ? Protocol.VALUE_TRUE : Protocol.VALUE_FALSE);
+		}
+		else if(value instanceof BigDecimal)
+		{
+			writeByte(Protocol.VALUE_BIGDECIMAL);
+			writeString(value.toString());
+		}
+		else if(value instanceof BigInteger)
+		{
+			writeByte(Protocol.VALUE_BIGINTEGER);
+			writeString(value.toString());
+		}
+		else if(value instanceof Date)
+		{
+			writeByte(Protocol.VALUE_DATE);
+			long time = ((Date)value).getTime();
+			writeVarLong((time << 1) ^ (time >> 63));
+		}
+		else
+		{
+			throw new IOException("values of type: [" + value.getClass().getName() + "] are not supported");
+		}
+	}
+}
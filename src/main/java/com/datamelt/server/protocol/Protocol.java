@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server.protocol;
+
+/**
+ * constants of the binary protocol between the RuleEngineClient and the RuleEngineServer.
+ *
+ * a connection starts with the magic number, sent by the client. then client and server exchange frames. a frame
+ * consists of its length as a four byte integer - the number of bytes that follow -, the type of the frame as one
+ * byte and the payload. numbers are written as variable length integers, strings as their length followed by the
+ * UTF-8 bytes.
+ *
+ * frames sent by the client:
+ * - HELLO: version of the protocol, optionally the name of the rule project. otherwise the default project of the
+ *   server is used
+ * - HEADER: number of fields, names of the fields. valid for all following rows, until the next header is sent
+ * - ROW: sequence number, output type, number of values, the typed values in the order of the header
+ * - BATCH: sequence number of the first row, output type, number of rows, for each row the number of values and
+ *   the typed values. the rows are numbered consecutively
+ * - MESSAGE: a message - e.g. "uptime" - for the server
+ *
+ * frames sent by the server:
+ * - HELLO: version of the protocol, process id, version of the rule engine
+ * - GROUPS: version of the project, number of groups, ids of the groups. sent before the first result and after
+ *   the project has been reloaded
+ * - RESULT: sequence number of the row, version of the project, the counters of groups, rules and actions, the bits
+ *   of the failed and skipped groups in the order of the GROUPS frame, the updated fields as index and value
+ * - RESULTS: the number of results, followed by the results of the rows of a batch - each like a RESULT frame
+ * - MESSAGE: the response to a message
+ * - ERROR: an error message. the server closes the connection afterwards
+ * - BUSY: sequence number of the first row, number of rows, time in milliseconds after which the client should retry.
+ *   sent instead of a RESULT or RESULTS frame, when the server rejects a row or batch because of its load limits
+ *
+ * the client may send further rows or batches before it has received the results of the previous ones. the server
+ * responds in the order of the requests.
+ *
+ * after a BUSY frame, the server rejects all following rows and batches with BUSY frames as well, until the client
+ * sends the first rejected row again. so the client sends the rejected rows again in their order, using the same
+ * sequence numbers.
+ *
+ * @author uwe geercken
+ */
+public final class Protocol
+{
+	// "JARE" - the first bytes of a serialized java object are 0xACED
+	public static final int MAGIC						= 0x4A415245;
+	public static final int VERSION						= 1;
+
+	// frames larger than this are rejected
+	public static final int MAXIMUM_FRAME_LENGTH		= 16 * 1024 * 1024;
+
+	public static final int FRAME_HELLO					= 1;
+	public static final int FRAME_HEADER				= 2;
+	public static final int FRAME_ROW					= 3;
+	public static final int FRAME_RESULT				= 4;
+	public static final int FRAME_GROUPS				= 5;
+	public static final int FRAME_MESSAGE				= 6;
+	public static final int FRAME_ERROR					= 7;
+	public static final int FRAME_BATCH					= 8;
+	public static final int FRAME_RESULTS				= 9;
+	public static final int FRAME_BUSY					= 10;
+
+	public static final int VALUE_NULL					= 0;
+	public static final int VALUE_STRING				= 1;
+	public static final int VALUE_INTEGER				= 2;
+	public static final int VALUE_LONG					= 3;
+	public static final int VALUE_DOUBLE				= 4;
+	public static final int VALUE_FLOAT					= 5;
+	public static final int VALUE_TRUE					= 6;
+	public static final int VALUE_FALSE					= 7;
+	public static final int VALUE_BIGDECIMAL			= 8;
+	public static final int VALUE_BIGINTEGER			= 9;
+	public static final int VALUE_DATE					= 10;
+
+	private Protocol()
+	{
+	}
+}
@@ -0,0 +1,599 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.server.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.datamelt.rules.core.RuleExecutionCollection;
+import com.datamelt.rules.core.RuleExecutionResult;
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.core.util.Converter;
+import com.datamelt.server.RuleEngineServerObject;
+import com.datamelt.util.RowField;
+import com.datamelt.util.RowFieldCollection;
+
+/**
+ * transformer, that writes the output of another transformer in the background, so that the rows of the clients
+ * are not delayed by the output.
+ *
+ * the rows are put into a queue of limited size. a copy of the row and the results of the rule engine is put into
+ * the queue, because the rule engine is used for the next rows. only the data of the output is copied: the values of
+ * the fields, the counters of the row and - for each group - its id, description, failed and skipped flags, counters
+ * and the results of its rules. the subgroups and actions of a group are not copied. writer threads take the rows
+ * from the queue and pass them to the transformer. all rows taken at once are written, before the output of the
+ * transformer is flushed.
+ *
+ * when the queue is full, the policy determines what happens:
+ * - block: the client waits until there is space in the queue
+ * - drop: the row is not written. the number of dropped rows is logged when the transformer is closed
+ * - spill: the row is written to a temporary file and passed to the transformer, when the queue is empty
+ *
+ * with more than one writer thread or the spill policy, the rows are not necessarily written in the order they were
+ * evaluated. the transformer must be thread-safe, when more than one writer thread is used.
+ *
+ * @author uwe geercken
+ */
+public class AsyncTransformer extends Transformer
+{
+	public static final String POLICY_BLOCK						= "block";
+	public static final String POLICY_DROP						= "drop";
+	public static final String POLICY_SPILL						= "spill";
+
+	private static final String PROPERTY_QUEUE_SIZE				= "transformer.queue.size";
+	private static final String PROPERTY_QUEUE_POLICY			= "transformer.queue.policy";
+	private static final String PROPERTY_THREADS				= "transformer.threads";
+	private static final String PROPERTY_BATCH_SIZE				= "transformer.batch.size";
+	private static final String PROPERTY_SPILL_FOLDER			= "transformer.spill.folder";
+
+	private static final int DEFAULT_QUEUE_SIZE					= 10000;
+	private static final int DEFAULT_THREADS					= 1;
+	private static final int DEFAULT_BATCH_SIZE					= 1000;
+
+	// interval in which idle writer threads check for spilled rows and if the transformer has been closed
+	private static final long POLL_INTERVAL						= 100;
+
+	private static final String DATETIME_FORMAT					= "yyyy-MM-dd HH:mm:ss";
+
+	private final Transformer transformer;
+	private ArrayBlockingQueue<QueuedRow> queue;
+	private String policy;
+	private int batchSize;
+	private SpillFile spillFile;
+	private Thread[] writers;
+	private volatile boolean closed = false;
+	// the threads writing rows hold the read lock, so that no row is added after the transformer has been closed
+	private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private final AtomicLong droppedRows = new AtomicLong();
+	private final AtomicLong spilledRows = new AtomicLong();
+
+	/**
+	 * constructor for the given transformer. the transformer must already be initialized.
+	 *
+	 * @param transformer	the transformer writing the output
+	 * @throws Exception	exception when the transformer can not be created
+	 */
+	public AsyncTransformer(Transformer transformer) throws Exception
+	{
+		super();
+		this.transformer = transformer;
+	}
+
+	/**
+	 * creates the queue and starts the writer threads
+	 */
+	public void init() throws Exception
+	{
+		queue = new ArrayBlockingQueue<QueuedRow>(getIntProperty(PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+		batchSize = getIntProperty(PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+		policy = POLICY_BLOCK;
+		if(getProperty(PROPERTY_QUEUE_POLICY)!=null)
+		{
+			policy = getProperty(PROPERTY_QUEUE_POLICY).trim().toLowerCase();
+		}
+		if(policy.equals(POLICY_SPILL))
+		{
+			String folder = getProperty(PROPERTY_SPILL_FOLDER);
+			File file = File.createTempFile("transformer-", ".spill", folder!=null ? new File(folder.trim()) : null);
+			file.deleteOnExit();
+			spillFile = new SpillFile(file);
+		}
+		else if(!policy.equals(POLICY_BLOCK) && !policy.equals(POLICY_DROP))
+		{
+			throw new Exception("invalid value for property: " + PROPERTY_QUEUE_POLICY + ": [" + policy + "]");
+		}
+
+		writers = new Thread[getIntProperty(PROPERTY_THREADS, DEFAULT_THREADS)];
+		for(int i=0;i<writers.length;i++)
+		{
+			writers[i] = new Thread(() -> writeQueuedRows(), "transformer-writer-" + (i + 1));
+			writers[i].setDaemon(true);
+			writers[i].start();
+		}
+	}
+
+	/**
+	 * puts a copy of the row and the results of the rule engine into the queue
+	 */
+	public void write(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups) throws Exception
+	{
+		QueuedRow row = copy(serverObject, groups);
+		closeLock.readLock().lock();
+		try
+		{
+			if(closed)
+			{
+				throw new Exception("the transformer has been closed");
+			}
+			if(policy.equals(POLICY_BLOCK))
+			{
+				queue.put(row);
+			}
+			else if(!queue.offer(row))
+			{
+				if(spillFile!=null)
+				{
+					spillFile.append(row);
+					spilledRows.incrementAndGet();
+				}
+				else
+				{
+					droppedRows.incrementAndGet();
+				}
+			}
+		}
+		finally
+		{
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * writes the rows remaining in the queue and closes the transformer
+	 */
+	public void close() throws Exception
+	{
+		// waits for the rows being added, the rows added afterwards are rejected
+		closeLock.writeLock().lock();
+		try
+		{
+			closed = true;
+		}
+		finally
+		{
+			closeLock.writeLock().unlock();
+		}
+		for(Thread writer : writers)
+		{
+			writer.join();
+		}
+		// rows put into the queue while the writer threads ended
+		ArrayList<QueuedRow> rows = new ArrayList<QueuedRow>(batchSize);
+		while(takeRows(rows, 0))
+		{
+			writeRows(rows);
+		}
+		transformer.close();
+		if(spillFile!=null)
+		{
+			spillFile.delete();
+		}
+		if(droppedRows.get()>0)
+		{
+			System.out.println(getSimpleDateFormat(DATETIME_FORMAT).format(new Date()) + " - output queue was full: " + droppedRows.get() + " rows dropped");
+		}
+	}
+
+	/**
+	 * copies the data of the row and the groups, which is needed for the output. both are modified, when the rule
+	 * engine evaluates the next row. the values of the fields and the results of the rules are not modified, so they
+	 * are not copied.
+	 */
+	private static QueuedRow copy(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups)
+	{
+		ArrayList<RuleGroup> copiedGroups = new ArrayList<RuleGroup>(groups.size());
+		// the results are collected the same way as by the rule engine
+		RuleExecutionCollection executionCollection = new RuleExecutionCollection();
+		for(RuleGroup group : groups)
+		{
+			RuleGroupCopy copy = new RuleGroupCopy(group);
+			copiedGroups.add(copy);
+			if(copy.getSkipped()==1)
+			{
+				executionCollection.increaseSkippedGroupCount();
+				continue;
+			}
+			if(copy.getFailed()==1)
+			{
+				executionCollection.increaseFailedGroupCount();
+			}
+			else
+			{
+				executionCollection.increasePassedGroupCount();
+			}
+			executionCollection.addAll(copy.getResults());
+			executionCollection.addNumberOfActionsExecuted(copy.getNumberOfActionsExecuted());
+			executionCollection.addNumberOfRulesRun(copy.getNumberOfRulesRun());
+			executionCollection.addNumberOfRulesFailed(copy.getNumberOfRulesFailed());
+			executionCollection.addNumberOfRulesPassed(copy.getNumberOfRulesPassed());
+		}
+
+		RuleEngineServerObject copiedObject = new RuleEngineServerObject(copy(serverObject.getFields()), serverObject.getOutputType());
+		copiedObject.setPassed(serverObject.isPassed());
+		copiedObject.setTotalGroups(serverObject.getTotalGroups());
+		copiedObject.setGroupsFailed(serverObject.getGroupsFailed());
+		copiedObject.setGroupsSkipped(serverObject.getGroupsSkipped());
+		copiedObject.setTotalRules(serverObject.getTotalRules());
+		copiedObject.setRulesFailed(serverObject.getRulesFailed());
+		copiedObject.setTotalActions(serverObject.getTotalActions());
+		copiedObject.setObjectLabel(serverObject.getObjectLabel());
+		copiedObject.setProcessId(serverObject.getProcessId());
+		copiedObject.setProjectVersion(serverObject.getProjectVersion());
+		copiedObject.setFailedGroupIds(serverObject.getFailedGroupIds());
+		copiedObject.setRuleGroups(copiedGroups);
+		copiedObject.setRuleExecutionCollection(executionCollection);
+		return new QueuedRow(copiedObject, copiedGroups);
+	}
+
+	private static RowFieldCollection copy(RowFieldCollection fields)
+	{
+		if(fields==null)
+		{
+			return null;
+		}
+		ArrayList<RowField> copiedFields = new ArrayList<RowField>(fields.getFields().size());
+		for(RowField field : fields.getFields())
+		{
+			RowField copiedField = new RowField(field.getName(), field.getValue());
+			copiedField.setUpdated(field.isUpdated());
+			copiedFields.add(copiedField);
+		}
+		return new RowFieldCollection(copiedFields);
+	}
+
+	private void writeQueuedRows()
+	{
+		ArrayList<QueuedRow> rows = new ArrayList<QueuedRow>(batchSize);
+		try
+		{
+			while(true)
+			{
+				if(takeRows(rows, POLL_INTERVAL))
+				{
+					writeRows(rows);
+				}
+				else if(closed)
+				{
+					return;
+				}
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			// the thread ends
+		}
+	}
+
+	/**
+	 * takes the available rows from the queue - up to the batch size - or, if the queue is empty, from the spill file
+	 *
+	 * @return		true, if rows have been taken
+	 */
+	private boolean takeRows(List<QueuedRow> rows, long timeout) throws InterruptedException
+	{
+		QueuedRow row = queue.poll(timeout, TimeUnit.MILLISECONDS);
+		if(row!=null)
+		{
+			rows.add(row);
+			queue.drainTo(rows, batchSize - 1);
+		}
+		else if(spillFile!=null)
+		{
+			try
+			{
+				spillFile.read(rows, batchSize);
+			}
+			catch(IOException ex)
+			{
+				System.out.println(getSimpleDateFormat(DATETIME_FORMAT).format(new Date()) + " - error reading spilled rows: " + ex.getMessage());
+			}
+		}
+		return rows.size()>0;
+	}
+
+	/**
+	 * passes the rows to the transformer and flushes its output
+	 */
+	private void writeRows(List<QueuedRow> rows)
+	{
+		try
+		{
+			for(QueuedRow row : rows)
+			{
+				transformer.write(row.serverObject, row.groups);
+			}
+			transformer.flush();
+		}
+		catch(Exception ex)
+		{
+			System.out.println(getSimpleDateFormat(DATETIME_FORMAT).format(new Date()) + " - error writing output: " + ex.getMessage());
+		}
+		rows.clear();
+	}
+
+	private String getProperty(String key)
+	{
+		return getProperties()!=null ? getProperties().getProperty(key) : null;
+	}
+
+	private int getIntProperty(String key, int defaultValue)
+	{
+		if(getProperty(key)!=null && getProperty(key).trim().length()>0)
+		{
+			return Integer.parseInt(getProperty(key).trim());
+		}
+		return defaultValue;
+	}
+
+	public Transformer getTransformer()
+	{
+		return transformer;
+	}
+
+	public String getPolicy()
+	{
+		return policy;
+	}
+
+	/**
+	 * returns the number of rows in the queue, which have not been written
+	 *
+	 * @return		the number of queued rows
+	 */
+	public int getNumberOfQueuedRows()
+	{
+		return queue.size();
+	}
+
+	public long getNumberOfDroppedRows()
+	{
+		return droppedRows.get();
+	}
+
+	public long getNumberOfSpilledRows()
+	{
+		return spilledRows.get();
+	}
+
+	/**
+	 * the copy of a row and its groups
+	 */
+	private static class QueuedRow implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final RuleEngineServerObject serverObject;
+		private final ArrayList<RuleGroup> groups;
+
+		private QueuedRow(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups)
+		{
+			this.serverObject = serverObject;
+			this.groups = groups;
+		}
+	}
+
+	/**
+	 * copy of a group, which keeps the state of the group after a row was evaluated
+	 */
+	private static class RuleGroupCopy extends RuleGroup
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int failed;
+		private final int numberOfRules;
+		private final int numberOfActions;
+		private final int numberOfActionsExecuted;
+		private final long numberOfRulesRun;
+		private final long numberOfRulesFailed;
+		private final long numberOfRulesPassed;
+		private final ArrayList<RuleExecutionResult> results;
+
+		private RuleGroupCopy(RuleGroup group)
+		{
+			super(group.getId(), group.getDescription());
+			setValidFrom(group.getValidFrom());
+			setValidUntil(group.getValidUntil());
+			setOutputType(group.getOutputType());
+			setTimestampFormat(group.getTimestampFormat());
+			setDependentRuleGroupId(group.getDependentRuleGroupId());
+			setDependentRuleGroupExecuteIf(group.getDependentRuleGroupExecuteIf());
+			setSkipped(group.getSkipped());
+			failed = group.getFailed();
+			numberOfRules = group.getNumberOfRules();
+			numberOfActions = group.getNumberOfActions();
+			numberOfActionsExecuted = group.getNumberOfActionsExecuted();
+			numberOfRulesRun = group.getNumberOfRulesRun();
+			numberOfRulesFailed = group.getNumberOfRulesFailed();
+			numberOfRulesPassed = group.getNumberOfRulesPassed();
+			ArrayList<RuleExecutionResult> groupResults = group.getResults();
+			results = new ArrayList<RuleExecutionResult>(groupResults.size());
+			for(RuleExecutionResult result : groupResults)
+			{
+				results.add(new RuleExecutionResultCopy(result));
+			}
+		}
+
+		public int getFailed()
+		{
+			return failed;
+		}
+
+		public int getNumberOfRules()
+		{
+			return numberOfRules;
+		}
+
+		public int getNumberOfActions()
+		{
+			return numberOfActions;
+		}
+
+		public int getNumberOfActionsExecuted()
+		{
+			return numberOfActionsExecuted;
+		}
+
+		public long getNumberOfRulesRun()
+		{
+			return numberOfRulesRun;
+		}
+
+		public long getNumberOfRulesFailed()
+		{
+			return numberOfRulesFailed;
+		}
+
+		public long getNumberOfRulesPassed()
+		{
+			return numberOfRulesPassed;
+		}
+
+		public RuleExecutionCollection getExecutionCollection()
+		{
+			RuleExecutionCollection collection = new RuleExecutionCollection();
+			collection.addAll(results);
+			collection.addNumberOfRulesRun(numberOfRulesRun);
+			collection.addNumberOfRulesPassed(numberOfRulesPassed);
+			collection.addNumberOfRulesFailed(numberOfRulesFailed);
+			return collection;
+		}
+
+		public ArrayList<RuleExecutionResult> getResults()
+		{
+			return results;
+		}
+	}
+
+	/**
+	 * copy of the result of a rule. the rule is shared by all rows, so the copy keeps if the rule failed.
+	 */
+	private static class RuleExecutionResultCopy extends RuleExecutionResult
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int failed;
+
+		private RuleExecutionResultCopy(RuleExecutionResult result)
+		{
+			super(result.getTimestamp(), result.getRule(), result.getObjectLabel(), result.getSubgroupId());
+			setResultObject1(result.getResultObject1());
+			setResultObject2(result.getResultObject2());
+			failed = result.getFailed();
+		}
+
+		public int getFailed()
+		{
+			return failed;
+		}
+
+		public boolean isFailed()
+		{
+			return failed==1;
+		}
+
+		public String getFailedAsString()
+		{
+			return "[" + Converter.convertIntegerToBooleanString(failed) + "]";
+		}
+	}
+
+	/**
+	 * file for the rows, which did not fit into the queue. the file is truncated, when all rows have been read.
+	 */
+	private static class SpillFile
+	{
+		private final File file;
+		private final RandomAccessFile randomAccessFile;
+		private long readPosition = 0;
+		private long writePosition = 0;
+
+		private SpillFile(File file) throws IOException
+		{
+			this.file = file;
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+		}
+
+		private synchronized void append(QueuedRow row) throws IOException
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream output = new ObjectOutputStream(bytes);
+			output.writeObject(row);
+			output.close();
+			randomAccessFile.seek(writePosition);
+			randomAccessFile.writeInt(bytes.size());
+			randomAccessFile.write(bytes.toByteArray());
+			writePosition = randomAccessFile.getFilePointer();
+		}
+
+		private synchronized void read(List<QueuedRow> rows, int maximumRows) throws IOException
+		{
+			while(readPosition<writePosition && rows.size()<maximumRows)
+			{
+				randomAccessFile.seek(readPosition);
+				byte[] row = new byte[randomAccessFile.readInt()];
+				randomAccessFile.readFully(row);
+				readPosition = randomAccessFile.getFilePointer();
+				ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(row));
+				try
+				{
+					rows.add((QueuedRow)input.readObject());
+				}
+				catch(ClassNotFoundException ex)
+				{
+					throw new IOException(ex);
+				}
+			}
+			if(readPosition==writePosition && writePosition>0)
+			{
+				randomAccessFile.setLength(0);
+				readPosition = 0;
+				writePosition = 0;
+			}
+		}
+
+		private synchronized void delete() throws IOException
+		{
+			randomAccessFile.close();
+			file.delete();
+		}
+	}
+}
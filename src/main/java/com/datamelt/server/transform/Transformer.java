@@ -37,6 +37,16 @@ public abstract class Transformer
 	public abstract void write(RuleEngineServerObject serverObject,ArrayList<RuleGroup> group) throws Exception;
 	public abstract void close() throws Exception;
 	
+	/**
+	 * writes buffered output. called after a number of rows have been written, so that the output is
+	 * written in larger blocks. the default implementation does nothing.
+	 * 
+	 * @throws Exception	exception when the output can not be written
+	 */
+	public void flush() throws Exception
+	{
+	}
+	
 	public Properties getProperties() 
 	{
 		return properties;
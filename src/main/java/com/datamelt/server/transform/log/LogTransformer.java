@@ -52,7 +52,8 @@ public class LogTransformer extends Transformer
 		// velocity writer
 		dataWriter = new VelocityDataWriter(getProperties().getProperty(PROPERTY_TEMPLATE_FOLDER), getProperties().getProperty(PROPERTY_TEMPLATE_FILENAME));
 	}
-	public void write(RuleEngineServerObject serverObject,ArrayList<RuleGroup> groups) throws Exception
+	// the writer is shared by all threads writing output
+	public synchronized void write(RuleEngineServerObject serverObject,ArrayList<RuleGroup> groups) throws Exception
 	{
 		// review this loop: depends on how the output should look like
 		// currently it outputs all groups separately
@@ -74,7 +75,12 @@ public class LogTransformer extends Transformer
 		}
 	}
 	
-	public void close() throws Exception
+	public synchronized void flush() throws Exception
+	{
+		writer.flush();
+	}
+	
+	public synchronized void close() throws Exception
 	{
 		writer.close();
 	}
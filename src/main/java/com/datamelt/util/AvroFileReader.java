@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * reader for Avro container files - the records of the file are returned as RowFieldCollection objects.
+ *
+ * the schema is taken from the file and processed once. the values of a record are retrieved by their
+ * position, so the names of the fields are not looked up for each record. all rows share the same immutable
+ * header row with the names of the fields of the schema.
+ *
+ * if rows are recycled, the same GenericRecord object is used to read all records and the same RowFieldCollection
+ * object is returned for all records - unless it has been marked as retained. the reader is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class AvroFileReader implements Closeable
+{
+	private final DataFileStream<GenericRecord> stream;
+	private final AvroSchemaUtility schemaUtility;
+	private final Object[] values;
+	private boolean recycleRows = false;
+
+	private GenericRecord recycledRecord;
+	private RowFieldCollection recycledRow;
+	private long numberOfRecords = 0;
+
+	/**
+	 * constructor for a reader for the given Avro file
+	 *
+	 * @param fileName		the name of the file to read
+	 * @throws Exception	exception when the file can not be read or the schema is not of the type [RECORD]
+	 */
+	public AvroFileReader(String fileName) throws Exception
+	{
+		this(new BufferedInputStream(new FileInputStream(fileName)));
+	}
+
+	/**
+	 * constructor for a reader for the given stream of an Avro container file
+	 *
+	 * @param stream		the stream to read
+	 * @throws Exception	exception when the stream can not be read or the schema is not of the type [RECORD]
+	 */
+	public AvroFileReader(InputStream stream) throws Exception
+	{
+		this.stream = new DataFileStream<GenericRecord>(stream, new GenericDatumReader<GenericRecord>());
+		this.schemaUtility = new AvroSchemaUtility(this.stream.getSchema());
+		this.values = new Object[schemaUtility.getHeaderRow().getNumberOfFields()];
+	}
+
+	/**
+	 * returns the next record as a RowFieldCollection
+	 *
+	 * @return				the next record or null if the end of the file is reached
+	 * @throws IOException	when the file can not be read
+	 */
+	public RowFieldCollection getRowFieldCollection() throws IOException
+	{
+		if(!stream.hasNext())
+		{
+			return null;
+		}
+		numberOfRecords++;
+		HeaderRow header = schemaUtility.getHeaderRow();
+		if(recycleRows)
+		{
+			recycledRecord = stream.next(recycledRecord);
+			schemaUtility.getGenericRecordData(recycledRecord, values);
+			if(recycledRow==null || recycledRow.isRetained())
+			{
+				recycledRow = new RowFieldCollection(header, values);
+			}
+			else
+			{
+				recycledRow.reset(header, values);
+			}
+			return recycledRow;
+		}
+		return new RowFieldCollection(header, schemaUtility.getGenericRecordData(stream.next()));
+	}
+
+	/**
+	 * closes the underlying stream
+	 *
+	 * @throws IOException	when the stream can not be closed
+	 */
+	public void close() throws IOException
+	{
+		stream.close();
+	}
+
+	/**
+	 * returns the schema of the file
+	 *
+	 * @return		the Avro schema
+	 */
+	public Schema getSchema()
+	{
+		return schemaUtility.getSchema();
+	}
+
+	/**
+	 * returns the header row with the names of the fields of the schema
+	 *
+	 * @return		the header row
+	 */
+	public HeaderRow getHeader()
+	{
+		return schemaUtility.getHeaderRow();
+	}
+
+	/**
+	 * returns the number of records read
+	 *
+	 * @return		the number of records
+	 */
+	public long getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * indicates if the same objects are used for all records
+	 *
+	 * @return		indicator if rows are recycled
+	 */
+	public boolean getRecycleRows()
+	{
+		return recycleRows;
+	}
+
+	/**
+	 * sets if the same GenericRecord and RowFieldCollection objects are used for all records. the row returned by the
+	 * getRowFieldCollection() method is then only valid until the next record is read. call the setRetained() method
+	 * of the row to keep it.
+	 *
+	 * @param recycleRows		indicator if rows are recycled
+	 */
+	public void setRecycleRows(boolean recycleRows)
+	{
+		this.recycleRows = recycleRows;
+		this.recycledRow = null;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+/**
+ * writer for Avro container files - writes the rows after the rules have been run, together with the results
+ * of the rule engine for the row.
+ *
+ * the schema of the output file contains the fields of the given schema - usually the schema of the input file - and
+ * the result fields: the number of groups failed, the number of groups skipped and the number of rules failed.
+ *
+ * the values of the fields are taken from the row by their position in the header row of the row. the positions are
+ * determined once per header row. values which have been changed by actions to a different type are converted to
+ * the type of the field. the writer is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class AvroFileWriter implements Closeable
+{
+	public static final String FIELD_NUMBER_OF_GROUPS_FAILED	= "number_of_groups_failed";
+	public static final String FIELD_NUMBER_OF_GROUPS_SKIPPED	= "number_of_groups_skipped";
+	public static final String FIELD_NUMBER_OF_RULES_FAILED		= "number_of_rules_failed";
+
+	private static final String[] RESULT_FIELDS = {FIELD_NUMBER_OF_GROUPS_FAILED, FIELD_NUMBER_OF_GROUPS_SKIPPED, FIELD_NUMBER_OF_RULES_FAILED};
+
+	private final DataFileWriter<GenericRecord> writer;
+	private final Schema schema;
+	private final String[] fieldNames;
+	private final Type[] fieldTypes;
+	private final GenericRecord record;
+
+	// the positions of the fields of the schema in the header row of the rows
+	private HeaderRow resolvedHeader;
+	private int[] slots;
+	private long numberOfRecords = 0;
+
+	/**
+	 * constructor for a writer for the given Avro file
+	 *
+	 * @param fileName		the name of the file to write
+	 * @param schema		the schema of the rows
+	 * @throws Exception	exception when the file can not be written or the schema is not of the type [RECORD]
+	 */
+	public AvroFileWriter(String fileName, Schema schema) throws Exception
+	{
+		this(new BufferedOutputStream(new FileOutputStream(fileName)), schema);
+	}
+
+	/**
+	 * constructor for a writer for the given stream
+	 *
+	 * @param stream		the stream to write to
+	 * @param schema		the schema of the rows
+	 * @throws Exception	exception when the stream can not be written or the schema is not of the type [RECORD]
+	 */
+	public AvroFileWriter(OutputStream stream, Schema schema) throws Exception
+	{
+		AvroSchemaUtility schemaUtility = new AvroSchemaUtility(schema);
+		this.fieldNames = schemaUtility.getFieldNames();
+		this.fieldTypes = new Type[fieldNames.length];
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			fieldTypes[i] = schemaUtility.getFieldType(schema.getFields().get(i));
+		}
+		this.schema = getOutputSchema(schema);
+		this.record = new GenericData.Record(this.schema);
+		this.writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(this.schema));
+		this.writer.create(this.schema, stream);
+	}
+
+	/**
+	 * creates the schema of the output, containing the fields of the given schema and the result fields
+	 *
+	 * @param schema		the schema of the rows
+	 * @return				the schema of the output
+	 * @throws Exception	exception when the schema already contains one of the result fields
+	 */
+	private static Schema getOutputSchema(Schema schema) throws Exception
+	{
+		List<Schema.Field> fields = new ArrayList<Schema.Field>();
+		for(Schema.Field field : schema.getFields())
+		{
+			// a field can only be used in one schema, so it is copied
+			fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal()));
+		}
+		for(String resultField : RESULT_FIELDS)
+		{
+			if(schema.getField(resultField)!=null)
+			{
+				throw new Exception("the schema already contains the field: [" + resultField + "]");
+			}
+			fields.add(new Schema.Field(resultField, Schema.create(Type.LONG), null, (Object)null));
+		}
+		Schema outputSchema = Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), false);
+		outputSchema.setFields(fields);
+		return outputSchema;
+	}
+
+	/**
+	 * writes the row and the results of the rule engine for the row. the results of the engine should be cleared
+	 * before the rules are run for the next row.
+	 *
+	 * @param row			the row
+	 * @param engine		the rule engine that has run the rules for the row
+	 * @throws Exception	exception when the row does not contain a field of the schema or can not be written
+	 */
+	public void write(RowFieldCollection row, BusinessRulesEngine engine) throws Exception
+	{
+		HeaderRow header = row.getHeader();
+		if(header!=resolvedHeader)
+		{
+			resolveSlots(row);
+		}
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			record.put(i, getAvroValue(fieldTypes[i], row.getFieldValue(slots[i])));
+		}
+		int position = fieldNames.length;
+		record.put(position++, engine.getNumberOfGroupsFailed());
+		record.put(position++, engine.getNumberOfGroupsSkipped());
+		record.put(position, engine.getNumberOfRulesFailed());
+		writer.append(record);
+		numberOfRecords++;
+	}
+
+	private void resolveSlots(RowFieldCollection row) throws FieldNotFoundException
+	{
+		int[] resolvedSlots = new int[fieldNames.length];
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			resolvedSlots[i] = row.getFieldIndex(fieldNames[i]);
+			if(resolvedSlots[i]<0)
+			{
+				throw new FieldNotFoundException("field: [" + fieldNames[i] + "] not found");
+			}
+		}
+		slots = resolvedSlots;
+		resolvedHeader = row.getHeader();
+	}
+
+	/**
+	 * converts a value to the type of the Avro field, if it has been changed to a different type
+	 *
+	 * @param type		the type of the field
+	 * @param value		the value
+	 * @return			the value for the field
+	 */
+	private static Object getAvroValue(Type type, Object value)
+	{
+		if(value==null)
+		{
+			return null;
+		}
+		switch(type)
+		{
+			case STRING:
+				return value instanceof String ? value : value.toString();
+			case INT:
+				return value instanceof Integer ? value : ClassUtility.convertObject(ClassUtility.TYPE_INTEGER, value);
+			case LONG:
+				return value instanceof Long ? value : ClassUtility.convertObject(ClassUtility.TYPE_LONG, value);
+			case FLOAT:
+				return value instanceof Float ? value : ClassUtility.convertObject(ClassUtility.TYPE_FLOAT, value);
+			case DOUBLE:
+				return value instanceof Double ? value : ClassUtility.convertObject(ClassUtility.TYPE_DOUBLE, value);
+			case BOOLEAN:
+				return value instanceof Boolean ? value : ClassUtility.convertObject(ClassUtility.TYPE_BOOLEAN, value);
+			default:
+				return value;
+		}
+	}
+
+	/**
+	 * flushes and closes the file
+	 *
+	 * @throws IOException	when the file can not be closed
+	 */
+	public void close() throws IOException
+	{
+		writer.close();
+	}
+
+	/**
+	 * returns the schema of the output, containing the result fields
+	 *
+	 * @return		the Avro schema
+	 */
+	public Schema getSchema()
+	{
+		return schema;
+	}
+
+	/**
+	 * returns the number of records written
+	 *
+	 * @return		the number of records
+	 */
+	public long getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+}
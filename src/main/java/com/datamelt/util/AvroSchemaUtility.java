@@ -38,7 +38,14 @@ public class AvroSchemaUtility
 	private static final String FIELDTYPE_UNION			= "union";
 	private static final String COMPLEX_TYPE_RECORD		= "record";
 	
+	private Schema schema;
 	private List<Field> fields;
+	// the names of the fields are determined once for the schema
+	private String[] fieldNames;
+	private HeaderRow header;
+	
+	// the utility for the schema that was used last. records that are read from the same file share the same schema object
+	private static volatile AvroSchemaUtility lastSchemaUtility;
 	
 	/*
 	 * constructor for AvroSchemaUtility object. 
@@ -55,7 +62,56 @@ public class AvroSchemaUtility
 			throw new Exception("complex type of the Avro schema is not equal to [RECORD]");
 		}
 		
+		this.schema = avroSchema;
 		this.fields = avroSchema.getFields();
+		this.fieldNames = new String[fields.size()];
+		for(int i=0;i<fields.size();i++)
+		{
+			fieldNames[i] = fields.get(i).name();
+		}
+	}
+	
+	/**
+	 * returns the utility for the given schema. the utility for the schema that was used last is kept,
+	 * so that the schema is not processed again for each record of a file.
+	 * 
+	 * @param avroSchema	an Avro schema
+	 * @return				the utility for the schema
+	 * @throws Exception	exception when the complex type of the schema is not equal to [RECORD]
+	 */
+	public static AvroSchemaUtility getSchemaUtility(Schema avroSchema) throws Exception
+	{
+		AvroSchemaUtility schemaUtility = lastSchemaUtility;
+		if(schemaUtility==null || schemaUtility.schema!=avroSchema)
+		{
+			schemaUtility = new AvroSchemaUtility(avroSchema);
+			lastSchemaUtility = schemaUtility;
+		}
+		return schemaUtility;
+	}
+	
+	/**
+	 * returns the schema
+	 * 
+	 * @return		the Avro schema
+	 */
+	public Schema getSchema()
+	{
+		return schema;
+	}
+	
+	/**
+	 * returns the immutable header row with the names of the fields of the schema
+	 * 
+	 * @return		the header row
+	 */
+	public HeaderRow getHeaderRow()
+	{
+		if(header==null)
+		{
+			header = HeaderRow.intern(fieldNames);
+		}
+		return header;
 	}
 
 	/*
@@ -125,14 +181,7 @@ public class AvroSchemaUtility
 	 */
 	public String[] getFieldNames()
 	{
-		String[] fieldNames = new String[fields.size()];
-		
-		for(int i=0;i<fields.size();i++)
-		{
-			fieldNames[i] = fields.get(i).name();
-		}
-		
-		return fieldNames;
+		return fieldNames.clone();
 	}
 	
 	/**
@@ -143,10 +192,25 @@ public class AvroSchemaUtility
 	 */
 	public Object[] getGenericRecordData(GenericRecord record)
 	{
-		Object[] objects = new Object[getFieldNames().length];
-		for(int i=0;i<getFieldNames().length;i++)
+		return getGenericRecordData(record, new Object[fieldNames.length]);
+	}
+	
+	/**
+	 * Collects all values of the avro record into the given array, which must have one element per field of the schema.
+	 * 
+	 * if the record has the schema of this utility, the values are retrieved by their position. otherwise they are
+	 * retrieved by their name.
+	 * 
+	 * @param record		an avro record
+	 * @param objects		the array for the values
+	 * @return				the array of objects
+	 */
+	public Object[] getGenericRecordData(GenericRecord record, Object[] objects)
+	{
+		boolean sameSchema = record.getSchema()==schema;
+		for(int i=0;i<fieldNames.length;i++)
 		{
-			objects[i] = record.get(getFieldNames()[i]);
+			objects[i] = sameSchema ? record.get(i) : record.get(fieldNames[i]);
 			if(objects[i] instanceof Utf8)
 			{
 				objects[i] = objects[i].toString();
@@ -20,7 +20,6 @@ package com.datamelt.util;
 
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 
@@ -49,6 +48,10 @@ public class ClassUtility
     public static final String TYPE_ARRAYLIST = "arraylist";
     public static final String TYPE_BIGDECIMAL= "bigdecimal";
     
+    // formats used to convert a value to a date
+    public static final String DEFAULT_DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    public static final String DEFAULT_DATE_FORMAT     = "yyyy-MM-dd";
+    
 	 /**
      * method is used to return a class corresponding to the type passed to it.
      * 
@@ -195,20 +198,16 @@ public class ClassUtility
         // try to convert the value to a datetime value first
         else if(type.toLowerCase().equals(TYPE_DATE))
         {
-        	SimpleDateFormat sdtf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         	try
         	{
-        		Date d = sdtf.parse(value);
-                return  d;
+        		return DateUtility.parse(value, DEFAULT_DATETIME_FORMAT);
         	}
         	// if it does not work, try to make a date from the value
         	catch(Exception ex)
         	{
-        		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
             	try
             	{
-            		Date d = sdf.parse(value);
-                    return  d;
+            		return DateUtility.parse(value, DEFAULT_DATE_FORMAT);
             	}
             	catch(Exception ex2)
             	{
@@ -222,6 +221,41 @@ public class ClassUtility
         }
     }
     
+    /**
+     * converts an object to the given type. strings are converted using the getObject() method. numbers are
+     * converted to the requested type of number without parsing them again - this is the case when the values
+     * have already been converted to the type of a reference field, when they were read.
+     * 
+     * @param type		the name of the type according to constants defined in this class		
+     * @param value		the object to convert
+     * @return			an object corresponding to the type and value specified. return null if type is unknown or a conversion can not be done.
+     */
+    public static Object convertObject(String type, Object value)
+    {
+    	if(value instanceof Number)
+    	{
+    		Number number = (Number)value;
+    		String lowerCaseType = type.toLowerCase();
+    		if(lowerCaseType.equals(TYPE_INTEGER))
+    		{
+    			return Integer.valueOf(number.intValue());
+    		}
+    		else if(lowerCaseType.equals(TYPE_LONG))
+    		{
+    			return Long.valueOf(number.longValue());
+    		}
+    		else if(lowerCaseType.equals(TYPE_DOUBLE))
+    		{
+    			return Double.valueOf(number.doubleValue());
+    		}
+    		else if(lowerCaseType.equals(TYPE_FLOAT))
+    		{
+    			return Float.valueOf(number.floatValue());
+    		}
+    	}
+    	return getObject(type, value!=null ? value.toString() : null);
+    }
+    
     /**
      * evaluates which class type the relevant object is
      * 
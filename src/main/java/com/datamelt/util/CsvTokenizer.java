@@ -0,0 +1,445 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * tokenizer for CSV data according to RFC 4180.
+ *
+ * the data is read from a Reader into a buffer of characters and split into records and fields in a single pass.
+ * fields may be enclosed in quotes. a quoted field may contain the separator, line breaks and quotes - which
+ * are escaped by doubling them (""). records are separated by a line feed, a carriage return or both.
+ *
+ * the tokenizer is lenient: a quote inside an unquoted field and characters following the closing quote of a field
+ * are taken as they are.
+ *
+ * per default empty lines are skipped. optionally lines starting with a comment character are skipped as well.
+ *
+ * @author uwe geercken
+ */
+public class CsvTokenizer implements Closeable
+{
+	public static final char DEFAULT_SEPARATOR		= ';';
+	public static final char QUOTE					= '"';
+	// comment character used by the readers of this project
+	public static final char DEFAULT_COMMENT_CHARACTER	= '#';
+
+	private static final int BUFFER_SIZE			= 16384;
+
+	private final Reader reader;
+	private final char separator;
+	private char commentCharacter = 0;
+	private boolean skipEmptyLines = true;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+	private boolean endOfInput = false;
+
+	// collects the characters of the current field
+	private char[] field = new char[256];
+	private int fieldLength;
+	private final ArrayList<String> fields = new ArrayList<String>();
+	// indicates if the last field that was read was quoted
+	private boolean lastFieldQuoted;
+
+	private long lineNumber = 0;
+	private long recordNumber = 0;
+
+	/**
+	 * constructor for a tokenizer reading from the given reader and using the default separator (;)
+	 *
+	 * @param reader		the reader of the CSV data
+	 */
+	public CsvTokenizer(Reader reader)
+	{
+		this(reader, DEFAULT_SEPARATOR);
+	}
+
+	/**
+	 * constructor for a tokenizer reading from the given reader and using the given separator
+	 *
+	 * @param reader		the reader of the CSV data
+	 * @param separator		the separator of the fields
+	 */
+	public CsvTokenizer(Reader reader, char separator)
+	{
+		if(separator==QUOTE || separator=='\r' || separator=='\n')
+		{
+			throw new IllegalArgumentException("invalid separator: [" + separator + "]");
+		}
+		this.reader = reader;
+		this.separator = separator;
+	}
+
+	/**
+	 * splits a single line into its fields the same way as the nextRecord() method splits a record. the line is split
+	 * in place: a field without escaped quotes is a substring of the line, so that no buffers are allocated per line.
+	 * the line ends at the first line break outside of a quoted field.
+	 *
+	 * @param line			the line to split
+	 * @param separator		the separator of the fields
+	 * @return				the fields of the line
+	 * @throws IllegalArgumentException		when the line ends inside a quoted field
+	 */
+	public static String[] split(String line, char separator)
+	{
+		ArrayList<String> values = new ArrayList<String>();
+		// the parts of a field before an escaped or closing quote
+		StringBuilder value = new StringBuilder();
+		int length = line.length();
+		int position = 0;
+		boolean endOfRecord = false;
+		while(!endOfRecord)
+		{
+			value.setLength(0);
+			boolean quoted = position<length && line.charAt(position)==QUOTE;
+			if(quoted)
+			{
+				position++;
+			}
+			int start = position;
+			while(true)
+			{
+				if(position>=length)
+				{
+					if(quoted)
+					{
+						throw new IllegalArgumentException("unterminated quoted field in line: [" + line + "]");
+					}
+					endOfRecord = true;
+					break;
+				}
+				char c = line.charAt(position);
+				if(quoted)
+				{
+					if(c==QUOTE)
+					{
+						value.append(line, start, position);
+						position++;
+						// a doubled quote is an escaped quote, otherwise the quoted part of the field ends
+						if(position<length && line.charAt(position)==QUOTE)
+						{
+							start = position++;
+						}
+						else
+						{
+							quoted = false;
+							start = position;
+						}
+						continue;
+					}
+				}
+				else if(c==separator)
+				{
+					break;
+				}
+				else if(c=='\n' || c=='\r')
+				{
+					endOfRecord = true;
+					break;
+				}
+				position++;
+			}
+			if(value.length()==0)
+			{
+				values.add(line.substring(start, position));
+			}
+			else
+			{
+				values.add(value.append(line, start, position).toString());
+			}
+			position++;
+		}
+		return values.toArray(new String[values.size()]);
+	}
+
+	/**
+	 * reads the next record and returns its fields
+	 *
+	 * @return				the fields of the record or null if the end of the input is reached
+	 * @throws IOException	when the data can not be read or the input ends inside a quoted field
+	 */
+	public String[] nextRecord() throws IOException
+	{
+		while(true)
+		{
+			if(position>=limit && !fill())
+			{
+				return null;
+			}
+			lineNumber++;
+			char first = buffer[position];
+			if(commentCharacter!=0 && first==commentCharacter)
+			{
+				skipLine();
+				continue;
+			}
+			if(skipEmptyLines && (first=='\n' || first=='\r'))
+			{
+				skipLine();
+				continue;
+			}
+			String[] record = readRecord();
+			if(skipEmptyLines && record.length==1 && record[0].trim().length()==0 && !lastFieldQuoted)
+			{
+				continue;
+			}
+			recordNumber++;
+			return record;
+		}
+	}
+
+	private String[] readRecord() throws IOException
+	{
+		fields.clear();
+		while(true)
+		{
+			boolean endOfRecord = readField();
+			fields.add(new String(field, 0, fieldLength));
+			if(endOfRecord)
+			{
+				break;
+			}
+		}
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * reads the characters of a field. the state of the field changes from unquoted to quoted when the field starts
+	 * with a quote and back when the closing quote is found.
+	 *
+	 * @return				true if the field is the last field of the record
+	 * @throws IOException	when the data can not be read or the input ends inside a quoted field
+	 */
+	private boolean readField() throws IOException
+	{
+		fieldLength = 0;
+		lastFieldQuoted = false;
+		boolean quoted = false;
+		if(position<limit || fill())
+		{
+			if(buffer[position]==QUOTE)
+			{
+				quoted = true;
+				lastFieldQuoted = true;
+				position++;
+			}
+		}
+		while(true)
+		{
+			if(position>=limit && !fill())
+			{
+				if(quoted)
+				{
+					throw new IOException("unterminated quoted field in record starting before line: [" + lineNumber + "]");
+				}
+				return true;
+			}
+			char c = buffer[position++];
+			if(quoted)
+			{
+				if(c==QUOTE)
+				{
+					// a doubled quote is an escaped quote, otherwise the quoted part of the field ends
+					if(position>=limit && !fill())
+					{
+						return true;
+					}
+					if(buffer[position]==QUOTE)
+					{
+						position++;
+						append(QUOTE);
+					}
+					else
+					{
+						quoted = false;
+					}
+				}
+				else
+				{
+					if(c=='\n')
+					{
+						lineNumber++;
+					}
+					append(c);
+				}
+			}
+			else if(c==separator)
+			{
+				return false;
+			}
+			else if(c=='\n')
+			{
+				return true;
+			}
+			else if(c=='\r')
+			{
+				// a carriage return may be followed by a line feed
+				if((position<limit || fill()) && buffer[position]=='\n')
+				{
+					position++;
+				}
+				return true;
+			}
+			else
+			{
+				append(c);
+			}
+		}
+	}
+
+	private void skipLine() throws IOException
+	{
+		while(position<limit || fill())
+		{
+			char c = buffer[position++];
+			if(c=='\n')
+			{
+				return;
+			}
+			else if(c=='\r')
+			{
+				if((position<limit || fill()) && buffer[position]=='\n')
+				{
+					position++;
+				}
+				return;
+			}
+		}
+	}
+
+	private void append(char c)
+	{
+		if(fieldLength==field.length)
+		{
+			field = Arrays.copyOf(field, field.length * 2);
+		}
+		field[fieldLength++] = c;
+	}
+
+	private boolean fill() throws IOException
+	{
+		if(endOfInput)
+		{
+			return false;
+		}
+		int read = reader.read(buffer, 0, buffer.length);
+		while(read==0)
+		{
+			read = reader.read(buffer, 0, buffer.length);
+		}
+		if(read<0)
+		{
+			endOfInput = true;
+			position = 0;
+			limit = 0;
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+
+	/**
+	 * closes the underlying reader
+	 *
+	 * @throws IOException	when the reader can not be closed
+	 */
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	/**
+	 * returns the separator of the fields
+	 *
+	 * @return		the separator
+	 */
+	public char getSeparator()
+	{
+		return separator;
+	}
+
+	/**
+	 * returns the character that indicates a comment line. 0 if comment lines are not skipped.
+	 *
+	 * @return		the comment character
+	 */
+	public char getCommentCharacter()
+	{
+		return commentCharacter;
+	}
+
+	/**
+	 * sets the character that indicates a comment line, when it is the first character of a line - e.g. the
+	 * hash sign (#). the default is 0, which means that comment lines are not skipped.
+	 *
+	 * @param commentCharacter		the comment character
+	 */
+	public void setCommentCharacter(char commentCharacter)
+	{
+		this.commentCharacter = commentCharacter;
+	}
+
+	/**
+	 * indicates if empty lines and lines containing only spaces are skipped
+	 *
+	 * @return		indicator if empty lines are skipped
+	 */
+	public boolean getSkipEmptyLines()
+	{
+		return skipEmptyLines;
+	}
+
+	/**
+	 * sets if empty lines and lines containing only spaces are skipped. the default is true.
+	 *
+	 * @param skipEmptyLines	indicator if empty lines are skipped
+	 */
+	public void setSkipEmptyLines(boolean skipEmptyLines)
+	{
+		this.skipEmptyLines = skipEmptyLines;
+	}
+
+	/**
+	 * returns the number of the current line of the input. a record may span multiple lines.
+	 *
+	 * @return		the line number
+	 */
+	public long getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	/**
+	 * returns the number of records read
+	 *
+	 * @return		the number of records
+	 */
+	public long getRecordNumber()
+	{
+		return recordNumber;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * utility class for formatting and parsing dates.
+ *
+ * the formatters are created once per date format and then kept in a cache. as the formatters
+ * are immutable, they can be shared by all threads.
+ *
+ * the formatters parse leniently - similar to the SimpleDateFormat class: numbers may have fewer digits
+ * than specified in the format, invalid days roll over into the next month and text following
+ * the date is ignored.
+ *
+ * @author uwe geercken
+ */
+public class DateUtility
+{
+	private static ConcurrentHashMap<String, DateTimeFormatter> formatterCache = new ConcurrentHashMap<>();
+
+	/**
+	 * returns the formatter for the given date format from the cache. if it is not
+	 * available yet, it will be created.
+	 *
+	 * @param dateFormat	the date format
+	 * @return				formatter for the date format
+	 */
+	public static DateTimeFormatter getFormatter(String dateFormat)
+	{
+		DateTimeFormatter formatter = formatterCache.get(dateFormat);
+		if(formatter==null)
+		{
+			formatter = new DateTimeFormatterBuilder()
+					.parseCaseInsensitive()
+					.parseLenient()
+					.appendPattern(dateFormat)
+					.toFormatter()
+					.withResolverStyle(ResolverStyle.LENIENT);
+			formatterCache.put(dateFormat, formatter);
+		}
+		return formatter;
+	}
+
+	/**
+	 * formats the given date using the given date format
+	 *
+	 * @param date			the date to format
+	 * @param dateFormat	the date format
+	 * @return				the formatted date
+	 */
+	public static String format(Date date, String dateFormat)
+	{
+		return getFormatter(dateFormat).format(toZonedDateTime(date));
+	}
+
+	/**
+	 * formats the given date and time using the given date format
+	 *
+	 * @param dateTime		the date to format
+	 * @param dateFormat	the date format
+	 * @return				the formatted date
+	 */
+	public static String format(ZonedDateTime dateTime, String dateFormat)
+	{
+		return getFormatter(dateFormat).format(dateTime);
+	}
+
+	/**
+	 * parses the given value to a date using the given date format.
+	 *
+	 * parts that are not present in the date format are set to their lowest value, which is
+	 * the date 1970-01-01 and the time 00:00:00. if the date format does not contain a time zone, the
+	 * default time zone of the system is used.
+	 *
+	 * @param value					the value to parse
+	 * @param dateFormat			the date format
+	 * @return						the parsed date
+	 * @throws DateTimeParseException	if the value can not be parsed
+	 */
+	public static Date parse(String value, String dateFormat)
+	{
+		return Date.from(parseZonedDateTime(value, dateFormat).toInstant());
+	}
+
+	/**
+	 * parses the given value to a date and time using the given date format.
+	 *
+	 * @see #parse(String, String)
+	 *
+	 * @param value					the value to parse
+	 * @param dateFormat			the date format
+	 * @return						the parsed date and time
+	 * @throws DateTimeParseException	if the value can not be parsed
+	 */
+	public static ZonedDateTime parseZonedDateTime(String value, String dateFormat)
+	{
+		if(value==null)
+		{
+			throw new DateTimeParseException("the value to parse is undefined", "", 0);
+		}
+		TemporalAccessor parsed = getFormatter(dateFormat).parse(value, new ParsePosition(0));
+
+		LocalDate date = parsed.query(TemporalQueries.localDate());
+		if(date==null)
+		{
+			date = LocalDate.of(getField(parsed, ChronoField.YEAR, 1970), 1, 1)
+					.plusMonths(getField(parsed, ChronoField.MONTH_OF_YEAR, 1) - 1)
+					.plusDays(getField(parsed, ChronoField.DAY_OF_MONTH, 1) - 1);
+		}
+		LocalTime time = parsed.query(TemporalQueries.localTime());
+		if(time==null)
+		{
+			time = LocalTime.MIDNIGHT;
+		}
+		ZoneId zone = parsed.query(TemporalQueries.zone());
+		if(zone==null)
+		{
+			zone = ZoneId.systemDefault();
+		}
+		return ZonedDateTime.of(date, time, zone);
+	}
+
+	/**
+	 * converts the given date to a date and time in the default time zone of the system
+	 *
+	 * @param date		the date to convert
+	 * @return			the date and time
+	 */
+	public static ZonedDateTime toZonedDateTime(Date date)
+	{
+		// Date.toInstant() is not supported by java.sql.Date, so the milliseconds are used
+		return ZonedDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+	}
+
+	/**
+	 * converts the given date and time to a date
+	 *
+	 * @param dateTime	the date and time to convert
+	 * @return			the date
+	 */
+	public static Date toDate(ZonedDateTime dateTime)
+	{
+		return Date.from(dateTime.toInstant());
+	}
+
+	private static int getField(TemporalAccessor parsed, ChronoField field, int defaultValue)
+	{
+		if(parsed.isSupported(field))
+		{
+			return parsed.get(field);
+		}
+		else
+		{
+			return defaultValue;
+		}
+	}
+}
@@ -25,6 +25,10 @@ import java.io.Serializable;
  * and position. so the fields are defined by a start position and a length.
  * 
  * optionally a field description may be given.
+ * 
+ * the type of the field defines how the bytes of the field are decoded by the
+ * FixedLengthReader class. the default type is string. for packed decimal and binary fields
+ * the number of decimals may be defined.
  */
 public class Field implements Serializable
 {
@@ -32,9 +36,20 @@ public class Field implements Serializable
 	public String description;
 	public int start;
 	public int length;
+	public String type = TYPE_STRING;
+	public int decimals = 0;
 	
 	public static final long serialVersionUID = 1964070323;
 	
+	// text in the default character set of the reader
+	public static final String TYPE_STRING			= "string";
+	// text in the EBCDIC character set
+	public static final String TYPE_EBCDIC			= "ebcdic";
+	// packed decimal number (COMP-3): two digits per byte and the sign in the last half byte
+	public static final String TYPE_PACKED_DECIMAL	= "packed";
+	// signed binary number in big-endian byte order (COMP) with a length of 1 to 8 bytes
+	public static final String TYPE_BINARY			= "binary";
+	
 	/**
 	 * constructor for a field using the name, start and length of the field 
 	 *
@@ -145,4 +160,44 @@ public class Field implements Serializable
 		this.start = start;
 	}
 
+	/**
+	 * retrieves the type of the field
+	 * 
+	 * @return	the type of the field
+	 */
+	public String getType() 
+	{
+		return type;
+	}
+
+	/**
+	 * sets the type of the field. use one of the type constants of this class.
+	 * 
+	 * @param type		the type of the field
+	 */
+	public void setType(String type) 
+	{
+		this.type = type;
+	}
+
+	/**
+	 * retrieves the number of decimals of a packed decimal or binary field
+	 * 
+	 * @return	the number of decimals
+	 */
+	public int getDecimals() 
+	{
+		return decimals;
+	}
+
+	/**
+	 * sets the number of decimals of a packed decimal or binary field
+	 * 
+	 * @param decimals		the number of decimals
+	 */
+	public void setDecimals(int decimals) 
+	{
+		this.decimals = decimals;
+	}
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+/**
+ * resolves the name of a field to its slot - the index of the field - in a RowFieldCollection.
+ *
+ * the slot is resolved once per HeaderRow and is then valid for all rows that share the same
+ * HeaderRow object. the resolved slots are kept in a small cache, which is keyed by the identity
+ * of the header row. this way the name of the field does not need to be looked up for every row.
+ *
+ * only slots found in an immutable header row, which corresponds to the fields of the row, are
+ * kept. rows whose fields are not described by their header - e.g. rows sharing the default header
+ * to which fields have been added - are resolved for each row.
+ *
+ * the resolver may be used by multiple threads at the same time.
+ *
+ * @author uwe geercken
+ */
+public class FieldSlotResolver
+{
+	// maximum number of different header rows for which the slot is kept
+	private static final int MAXIMUM_CACHED_HEADERS = 4;
+
+	private final String fieldName;
+
+	// the array is never modified, but replaced by a new one when a slot is added
+	private volatile ResolvedSlot[] resolvedSlots = new ResolvedSlot[0];
+	private int nextReplacedSlot = 0;
+
+	/**
+	 * constructor for a resolver for the given field name
+	 *
+	 * @param fieldName		the name of the field
+	 */
+	public FieldSlotResolver(String fieldName)
+	{
+		this.fieldName = fieldName;
+	}
+
+	/**
+	 * returns the slot of the field for the given row
+	 *
+	 * @param row						the row
+	 * @return							the slot of the field
+	 * @throws FieldNotFoundException	when the row does not contain the field
+	 */
+	public int getSlot(RowFieldCollection row) throws FieldNotFoundException
+	{
+		HeaderRow header = row.getHeader();
+		ResolvedSlot[] slots = resolvedSlots;
+		for(int i=0;i<slots.length;i++)
+		{
+			int slot = slots[i].slot;
+			// the fields of the row might not correspond to its header
+			if(slots[i].header==header && slot<row.getNumberOfFields() && RowFieldCollection.hasName(row.getFields().get(slot), fieldName))
+			{
+				return slot;
+			}
+		}
+		int slot = row.getFieldIndex(fieldName);
+		if(slot<0)
+		{
+			throw new FieldNotFoundException("field: [" + fieldName + "] not found");
+		}
+		if(isResolvedByHeader(header, row, slot))
+		{
+			addResolvedSlot(header, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * indicates if the slot has been found using the index of the header. otherwise it has been found by
+	 * searching the fields of this row and is not valid for other rows with the same header.
+	 */
+	private boolean isResolvedByHeader(HeaderRow header, RowFieldCollection row, int slot)
+	{
+		Integer headerSlot = header.getFields().get(fieldName);
+		return header.isImmutable() && header.getNumberOfFields()==row.getNumberOfFields() && headerSlot!=null && headerSlot==slot;
+	}
+
+	/**
+	 * returns the value of the field from the given row
+	 *
+	 * @param row			the row
+	 * @return				the value of the field
+	 * @throws Exception	when the row does not contain the field
+	 */
+	public Object getFieldValue(RowFieldCollection row) throws Exception
+	{
+		return row.getFieldValue(getSlot(row));
+	}
+
+	/**
+	 * returns the value of the field from the given row as a string. if the value was converted to the type of the
+	 * column when the row was read, the text it was converted from is returned, so that e.g. leading zeros of a number
+	 * or the format of a date are kept.
+	 *
+	 * @param row			the row
+	 * @return				the text of the field or its value, if it was not converted
+	 * @throws Exception	when the row does not contain the field
+	 */
+	public Object getFieldText(RowFieldCollection row) throws Exception
+	{
+		RowField field = row.getField(getSlot(row));
+		String text = field.getText();
+		return text!=null ? text : field.getValue();
+	}
+
+	/**
+	 * sets the value of the field in the given row
+	 *
+	 * @param row			the row
+	 * @param value			the value of the field
+	 * @throws Exception	when the row does not contain the field
+	 */
+	public void setFieldValue(RowFieldCollection row, Object value) throws Exception
+	{
+		row.setFieldValue(getSlot(row), value);
+	}
+
+	/**
+	 * returns the value of the field from the given row as a long value
+	 *
+	 * @param row			the row
+	 * @return				the value of the field
+	 * @throws Exception	when the row does not contain the field or the value is not a number
+	 */
+	public long getLongValue(RowFieldCollection row) throws Exception
+	{
+		return row.getFieldLongValue(getSlot(row));
+	}
+
+	/**
+	 * returns the value of the field from the given row as a double value
+	 *
+	 * @param row			the row
+	 * @return				the value of the field
+	 * @throws Exception	when the row does not contain the field or the value is not a number
+	 */
+	public double getDoubleValue(RowFieldCollection row) throws Exception
+	{
+		return row.getFieldDoubleValue(getSlot(row));
+	}
+
+	/**
+	 * sets the value of the field in the given row
+	 *
+	 * @param row			the row
+	 * @param value			the value of the field
+	 * @throws Exception	when the row does not contain the field
+	 */
+	public void setLongValue(RowFieldCollection row, long value) throws Exception
+	{
+		row.setFieldValue(getSlot(row), value);
+	}
+
+	/**
+	 * sets the value of the field in the given row
+	 *
+	 * @param row			the row
+	 * @param value			the value of the field
+	 * @throws Exception	when the row does not contain the field
+	 */
+	public void setDoubleValue(RowFieldCollection row, double value) throws Exception
+	{
+		row.setFieldValue(getSlot(row), value);
+	}
+
+	/**
+	 * returns the name of the field
+	 *
+	 * @return		the name of the field
+	 */
+	public String getFieldName()
+	{
+		return fieldName;
+	}
+
+	private synchronized void addResolvedSlot(HeaderRow header, int slot)
+	{
+		ResolvedSlot[] slots = resolvedSlots;
+		ResolvedSlot[] newSlots;
+		if(slots.length < MAXIMUM_CACHED_HEADERS)
+		{
+			newSlots = new ResolvedSlot[slots.length + 1];
+			System.arraycopy(slots, 0, newSlots, 0, slots.length);
+			newSlots[slots.length] = new ResolvedSlot(header, slot);
+		}
+		else
+		{
+			// replace the entries one after the other
+			newSlots = slots.clone();
+			newSlots[nextReplacedSlot] = new ResolvedSlot(header, slot);
+			nextReplacedSlot = (nextReplacedSlot + 1) % MAXIMUM_CACHED_HEADERS;
+		}
+		resolvedSlots = newSlots;
+	}
+
+	/**
+	 * the slot of the field for a given header row
+	 */
+	private static class ResolvedSlot
+	{
+		private final HeaderRow header;
+		private final int slot;
+
+		private ResolvedSlot(HeaderRow header, int slot)
+		{
+			this.header = header;
+			this.slot = slot;
+		}
+	}
+}
@@ -0,0 +1,510 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import com.datamelt.rules.parser.xml.RowDefinitionParser;
+
+/**
+ * reader for files with records of a fixed length in bytes - e.g. extracts from a mainframe.
+ *
+ * the layout of the records is defined in a row definition xml file - the same as it is used by the
+ * Splitter class. the start and length of the fields are byte positions. the type of a field defines how
+ * its bytes are decoded: as text in the default character set, as text in the EBCDIC character set, as packed
+ * decimal or as binary number. see the Field class.
+ *
+ * the records are read in blocks into a ByteBuffer. a field is only decoded when its value is accessed
+ * for the first time, so fields that are not used by the rules are never decoded.
+ *
+ * records may be followed by a separator - e.g. a line feed - which is skipped. use the setRecordSeparatorLength()
+ * method to define the number of bytes of the separator.
+ *
+ * if rows are recycled, the same RowFieldCollection object is returned for all records - unless it has
+ * been marked as retained. the reader is not thread safe.
+ *
+ * @author uwe geercken
+ */
+public class FixedLengthReader implements Closeable
+{
+	public static final String DEFAULT_CHARSET			= "ISO-8859-1";
+	public static final String DEFAULT_EBCDIC_CHARSET	= "IBM037";
+
+	private static final int DEFAULT_BUFFER_SIZE		= 65536;
+	// bytes used to fill text fields
+	private static final byte ASCII_SPACE				= 0x20;
+	private static final byte EBCDIC_SPACE				= 0x40;
+
+	private final ReadableByteChannel channel;
+	private final Field[] fields;
+	private final HeaderRow header;
+	private int recordLength;
+	private int recordSeparatorLength = 0;
+	private Charset charset = Charset.forName(DEFAULT_CHARSET);
+	private Charset ebcdicCharset = Charset.forName(DEFAULT_EBCDIC_CHARSET);
+	private boolean trimFields = true;
+	private boolean recycleRows = false;
+
+	private ByteBuffer buffer;
+	private boolean endOfInput = false;
+	private long numberOfRecords = 0;
+	private RowFieldCollection recycledRow;
+	private byte[] recycledRecord;
+
+	/**
+	 * constructor for a reader for the given file, using the layout of the records
+	 * as defined in the row definition file.
+	 *
+	 * @param fileName				the name of the file to read
+	 * @param rowDefinitionFile		the name of the row definition xml file
+	 * @throws Exception			exception when one of the files can not be read
+	 */
+	public FixedLengthReader(String fileName, String rowDefinitionFile) throws Exception
+	{
+		this(new FileInputStream(fileName).getChannel(), parseRowDefinitionFile(rowDefinitionFile));
+	}
+
+	/**
+	 * constructor for a reader for the given stream, using the given list of fields
+	 *
+	 * @param stream		the stream to read
+	 * @param fields		the fields of the records
+	 */
+	public FixedLengthReader(InputStream stream, ArrayList<Field> fields)
+	{
+		this(Channels.newChannel(stream), fields);
+	}
+
+	/**
+	 * constructor for a reader for the given channel, using the given list of fields
+	 *
+	 * @param channel		the channel to read
+	 * @param fields		the fields of the records
+	 */
+	public FixedLengthReader(ReadableByteChannel channel, ArrayList<Field> fields)
+	{
+		this.channel = channel;
+		this.fields = fields.toArray(new Field[fields.size()]);
+
+		String[] fieldNames = new String[this.fields.length];
+		for(int i=0;i<this.fields.length;i++)
+		{
+			fieldNames[i] = this.fields[i].getName();
+			recordLength = Math.max(recordLength, this.fields[i].getStart() + this.fields[i].getLength());
+		}
+		this.header = HeaderRow.intern(fieldNames);
+	}
+
+	private static ArrayList<Field> parseRowDefinitionFile(String rowDefinitionFile) throws Exception
+	{
+		RowDefinitionParser parser = new RowDefinitionParser();
+		parser.parse(rowDefinitionFile);
+		return parser.getFields();
+	}
+
+	/**
+	 * returns the next record as a RowFieldCollection. the fields are decoded when their value is accessed.
+	 *
+	 * @return				the next record or null if the end of the input is reached
+	 * @throws IOException	when the input can not be read or the last record is incomplete
+	 */
+	public RowFieldCollection getRowFieldCollection() throws IOException
+	{
+		if(recordLength<=0)
+		{
+			throw new IOException("the length of the records is undefined");
+		}
+		int available = fillBuffer(recordLength);
+		if(available==0)
+		{
+			return null;
+		}
+		else if(available<recordLength)
+		{
+			throw new IOException("incomplete record after record number: [" + numberOfRecords + "] - only " + available + " of " + recordLength + " bytes available");
+		}
+		
+		RowFieldCollection row;
+		if(recycleRows && recycledRow!=null && !recycledRow.isRetained())
+		{
+			// the bytes of the new record replace the bytes of the previous one
+			row = recycledRow;
+			buffer.get(recycledRecord);
+			row.resetIndicators();
+			for(RowField field : row.getFields())
+			{
+				((FixedLengthRowField)field).reset();
+			}
+		}
+		else
+		{
+			byte[] record = new byte[recordLength];
+			buffer.get(record);
+			row = new RowFieldCollection();
+			row.setHeader(header);
+			for(int i=0;i<fields.length;i++)
+			{
+				row.getFields().add(new FixedLengthRowField(this, i, record));
+			}
+			if(recycleRows)
+			{
+				recycledRow = row;
+				recycledRecord = record;
+			}
+		}
+		
+		// the separator after the last record is optional
+		if(recordSeparatorLength>0)
+		{
+			int separatorLength = fillBuffer(recordSeparatorLength);
+			buffer.position(buffer.position() + separatorLength);
+		}
+		numberOfRecords++;
+		return row;
+	}
+
+	/**
+	 * returns the name of the field with the given index
+	 *
+	 * @param index		the index of the field
+	 * @return			the name of the field
+	 */
+	String getFieldName(int index)
+	{
+		return fields[index].getName();
+	}
+
+	/**
+	 * decodes the field with the given index from the bytes of the record
+	 *
+	 * @param index		the index of the field
+	 * @param record	the bytes of the record
+	 * @return			the value of the field or null if a number is invalid
+	 */
+	Object decodeField(int index, byte[] record)
+	{
+		Field field = fields[index];
+		String type = field.getType();
+		if(Field.TYPE_PACKED_DECIMAL.equals(type))
+		{
+			return decodePackedDecimal(record, field.getStart(), field.getLength(), field.getDecimals());
+		}
+		else if(Field.TYPE_BINARY.equals(type))
+		{
+			return decodeBinary(record, field.getStart(), field.getLength(), field.getDecimals());
+		}
+		else if(Field.TYPE_EBCDIC.equals(type))
+		{
+			return decodeText(record, field.getStart(), field.getLength(), ebcdicCharset, EBCDIC_SPACE);
+		}
+		else
+		{
+			return decodeText(record, field.getStart(), field.getLength(), charset, ASCII_SPACE);
+		}
+	}
+
+	private String decodeText(byte[] record, int start, int length, Charset charset, byte space)
+	{
+		int end = start + length;
+		if(trimFields)
+		{
+			// the spaces are removed before the bytes are decoded
+			while(start<end && (record[start]==space || record[start]==0))
+			{
+				start++;
+			}
+			while(end>start && (record[end - 1]==space || record[end - 1]==0))
+			{
+				end--;
+			}
+		}
+		return new String(record, start, end - start, charset);
+	}
+
+	/**
+	 * decodes a packed decimal number. each byte contains two digits, the last half byte contains the sign.
+	 * the values C, A, E and F are positive, B and D are negative.
+	 *
+	 * @param record		the bytes of the record
+	 * @param start			the start of the field
+	 * @param length		the length of the field
+	 * @param decimals		the number of decimals
+	 * @return				a Long or - if the field has decimals or too many digits - a BigDecimal. null if the value is invalid
+	 */
+	static Object decodePackedDecimal(byte[] record, int start, int length, int decimals)
+	{
+		int end = start + length - 1;
+		int sign = record[end] & 0x0f;
+		if(sign<0x0a)
+		{
+			return null;
+		}
+		boolean negative = sign==0x0b || sign==0x0d;
+
+		// up to 17 digits fit into a long
+		if(length<=9)
+		{
+			long value = 0;
+			for(int i=start;i<=end;i++)
+			{
+				int high = (record[i] & 0xf0) >>> 4;
+				int low = record[i] & 0x0f;
+				if(high>9 || (i<end && low>9))
+				{
+					return null;
+				}
+				value = i<end ? value * 100 + high * 10 + low : value * 10 + high;
+			}
+			if(negative)
+			{
+				value = -value;
+			}
+			if(decimals>0)
+			{
+				return BigDecimal.valueOf(value, decimals);
+			}
+			return Long.valueOf(value);
+		}
+
+		char[] digits = new char[length * 2];
+		int position = 0;
+		if(negative)
+		{
+			digits[position++] = '-';
+		}
+		for(int i=start;i<=end;i++)
+		{
+			int high = (record[i] & 0xf0) >>> 4;
+			int low = record[i] & 0x0f;
+			if(high>9 || (i<end && low>9))
+			{
+				return null;
+			}
+			digits[position++] = (char)('0' + high);
+			if(i<end)
+			{
+				digits[position++] = (char)('0' + low);
+			}
+		}
+		return new BigDecimal(new BigInteger(new String(digits, 0, position)), decimals);
+	}
+
+	/**
+	 * decodes a signed binary number in big-endian byte order
+	 *
+	 * @param record		the bytes of the record
+	 * @param start			the start of the field
+	 * @param length		the length of the field - 1 to 8 bytes
+	 * @param decimals		the number of decimals
+	 * @return				a Long or - if the field has decimals - a BigDecimal. null if the length is invalid
+	 */
+	static Object decodeBinary(byte[] record, int start, int length, int decimals)
+	{
+		if(length<1 || length>8)
+		{
+			return null;
+		}
+		// the first byte is taken with its sign
+		long value = record[start];
+		for(int i=start + 1;i<start + length;i++)
+		{
+			value = (value << 8) | (record[i] & 0xff);
+		}
+		if(decimals>0)
+		{
+			return BigDecimal.valueOf(value, decimals);
+		}
+		return Long.valueOf(value);
+	}
+
+	/**
+	 * reads from the input until the buffer contains at least the given number of bytes or the end
+	 * of the input is reached
+	 *
+	 * @param length		the number of bytes
+	 * @return				the number of bytes available, at most the given length
+	 * @throws IOException	when the input can not be read
+	 */
+	private int fillBuffer(int length) throws IOException
+	{
+		if(buffer==null)
+		{
+			int recordsPerBuffer = Math.max(1, DEFAULT_BUFFER_SIZE / (recordLength + recordSeparatorLength));
+			buffer = ByteBuffer.allocate(recordsPerBuffer * (recordLength + recordSeparatorLength));
+			buffer.flip();
+		}
+		if(buffer.remaining()<length && !endOfInput)
+		{
+			buffer.compact();
+			while(buffer.position()<length && !endOfInput)
+			{
+				if(channel.read(buffer)<0)
+				{
+					endOfInput = true;
+				}
+			}
+			buffer.flip();
+		}
+		return Math.min(length, buffer.remaining());
+	}
+
+	/**
+	 * closes the underlying input
+	 *
+	 * @throws IOException	when the input can not be closed
+	 */
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * returns the header row, which is shared by all records
+	 *
+	 * @return		the header row
+	 */
+	public HeaderRow getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * returns the number of records read
+	 *
+	 * @return		the number of records
+	 */
+	public long getNumberOfRecords()
+	{
+		return numberOfRecords;
+	}
+
+	/**
+	 * returns the length of a record in bytes, without the separator
+	 *
+	 * @return		the length of a record
+	 */
+	public int getRecordLength()
+	{
+		return recordLength;
+	}
+
+	/**
+	 * sets the length of a record in bytes, without the separator. the default is the end of the last field.
+	 * must be set before the first record is read.
+	 *
+	 * @param recordLength		the length of a record
+	 */
+	public void setRecordLength(int recordLength)
+	{
+		this.recordLength = recordLength;
+	}
+
+	/**
+	 * returns the number of bytes that separate the records from each other
+	 *
+	 * @return		the length of the separator
+	 */
+	public int getRecordSeparatorLength()
+	{
+		return recordSeparatorLength;
+	}
+
+	/**
+	 * sets the number of bytes that separate the records from each other - e.g. 1 for a line feed or 2 for a
+	 * carriage return and a line feed. the default is 0. must be set before the first record is read.
+	 *
+	 * @param recordSeparatorLength		the length of the separator
+	 */
+	public void setRecordSeparatorLength(int recordSeparatorLength)
+	{
+		this.recordSeparatorLength = recordSeparatorLength;
+	}
+
+	/**
+	 * sets the character set of the fields of type string. the default is ISO-8859-1.
+	 *
+	 * @param charsetName		the name of the character set
+	 */
+	public void setCharset(String charsetName)
+	{
+		this.charset = Charset.forName(charsetName);
+	}
+
+	/**
+	 * sets the character set of the fields of type ebcdic. the default is IBM037.
+	 *
+	 * @param charsetName		the name of the character set
+	 */
+	public void setEbcdicCharset(String charsetName)
+	{
+		this.ebcdicCharset = Charset.forName(charsetName);
+	}
+
+	/**
+	 * indicates if leading and trailing spaces are removed from text fields
+	 *
+	 * @return		indicator if the fields are trimmed
+	 */
+	public boolean getTrimFields()
+	{
+		return trimFields;
+	}
+
+	/**
+	 * sets if leading and trailing spaces are removed from text fields. the default is true.
+	 *
+	 * @param trimFields		indicator if the fields are trimmed
+	 */
+	public void setTrimFields(boolean trimFields)
+	{
+		this.trimFields = trimFields;
+	}
+
+	/**
+	 * indicates if the same RowFieldCollection object is used for all records
+	 *
+	 * @return		indicator if rows are recycled
+	 */
+	public boolean getRecycleRows()
+	{
+		return recycleRows;
+	}
+
+	/**
+	 * sets if the same RowFieldCollection object is used for all records. the row is then only valid until
+	 * the next record is read. call the setRetained() method of the row to keep it.
+	 *
+	 * @param recycleRows		indicator if rows are recycled
+	 */
+	public void setRecycleRows(boolean recycleRows)
+	{
+		this.recycleRows = recycleRows;
+		this.recycledRow = null;
+	}
+}
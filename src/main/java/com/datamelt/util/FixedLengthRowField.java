@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+/**
+ * a field of a record read by the FixedLengthReader class. the value of the field is decoded
+ * from the bytes of the record, when it is accessed for the first time.
+ *
+ * when the field is serialized, it is replaced by a RowField with the decoded value.
+ *
+ * @author uwe geercken
+ */
+class FixedLengthRowField extends RowField
+{
+	private final transient FixedLengthReader reader;
+	private final int index;
+	private final transient byte[] record;
+	private boolean decoded = false;
+
+	public static final long serialVersionUID = 1964070316;
+
+	FixedLengthRowField(FixedLengthReader reader, int index, byte[] record)
+	{
+		super(reader.getFieldName(index));
+		this.reader = reader;
+		this.index = index;
+		this.record = record;
+	}
+
+	/**
+	 * marks the value as not decoded, after the bytes of the record have been replaced
+	 */
+	void reset()
+	{
+		decoded = false;
+		setUpdated(false);
+		super.setValue(null);
+	}
+
+	@Override
+	public Object getValue()
+	{
+		if(!decoded)
+		{
+			super.setValue(reader.decodeField(index, record));
+			decoded = true;
+		}
+		return super.getValue();
+	}
+
+	@Override
+	public void setValue(Object object)
+	{
+		decoded = true;
+		super.setValue(object);
+	}
+
+	private Object writeReplace()
+	{
+		RowField field = new RowField(getName(), getValue());
+		field.setUpdated(isUpdated());
+		return field;
+	}
+}
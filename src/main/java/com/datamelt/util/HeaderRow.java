@@ -22,6 +22,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * the HeaderRow class represents a header row of field/column names in an ASCII file.
@@ -30,6 +32,11 @@ import java.util.HashMap;
  * 
  * it then contains an array of fields according to the fields of the header row.
  * 
+ * a header row may be immutable. immutable header rows are created using the intern() and getDefaultHeader()
+ * methods and are shared by reference by all rows of an input source, so that the names and the index of the fields are
+ * not created again for each row. an immutable header row can not be modified - a RowFieldCollection creates a
+ * copy of it, if fields are added or removed.
+ * 
  * @author uwe geercken
  */
 public class HeaderRow implements Serializable
@@ -44,8 +51,19 @@ public class HeaderRow implements Serializable
     //private String[] fieldNames;
     private ArrayList<String> fieldNames = new ArrayList<String>();
     
+    // immutable header rows can not be modified and are shared by multiple rows
+    private boolean immutable = false;
+    
     public static final long serialVersionUID 		= 1964070327;
     
+    // maximum number of different header rows that are kept by the intern() method
+    private static final int MAXIMUM_INTERNED_HEADERS	= 1024;
+    // maximum number of fields for which the header row with the default field names is kept
+    private static final int MAXIMUM_DEFAULT_HEADER_FIELDS	= 1024;
+    
+    private static final ConcurrentHashMap<List<String>,HeaderRow> internedHeaders = new ConcurrentHashMap<List<String>,HeaderRow>();
+    private static volatile HeaderRow[] defaultHeaders = new HeaderRow[0];
+    
     /**
      * default constructor
      * 
@@ -104,6 +122,128 @@ public class HeaderRow implements Serializable
     	addToFieldNamesHashMap(fieldNames);
     }
     
+    /**
+     * returns an immutable header row with the given names of fields.
+     * 
+     * header rows with the same names of fields are created only once and the same
+     * object is returned for all of them, so that it can be shared by all rows of an input source.
+     * the names of the fields are interned.
+     * 
+     * @param fieldNames	array of names of fields
+     * @return				the immutable header row
+     */
+    public static HeaderRow intern(String[] fieldNames)
+    {
+    	HeaderRow header = internedHeaders.get(Arrays.asList(fieldNames));
+    	if(header==null)
+    	{
+    		header = createImmutable(fieldNames);
+    		// if there are too many different header rows, the header row is not kept
+    		if(internedHeaders.size() < MAXIMUM_INTERNED_HEADERS)
+    		{
+    			HeaderRow existingHeader = internedHeaders.putIfAbsent(Arrays.asList(header.getFieldNames()), header);
+    			if(existingHeader!=null)
+    			{
+    				header = existingHeader;
+    			}
+    		}
+    	}
+    	return header;
+    }
+    
+    /**
+     * returns a new immutable header row with the given names of fields.
+     * 
+     * unlike the intern() method, the header row is not kept and the names of the fields are not interned. use it for
+     * names of fields chosen by clients - e.g. the keys of JSON objects - and keep the header rows in a cache of
+     * limited size, so that a client can not fill the table of the interned header rows.
+     * 
+     * @param fieldNames	array of names of fields
+     * @return				the immutable header row
+     */
+    public static HeaderRow createImmutableHeader(String[] fieldNames)
+    {
+    	HeaderRow header = new HeaderRow(fieldNames.clone());
+    	header.immutable = true;
+    	return header;
+    }
+    
+    /**
+     * returns an immutable header row with the given number of fields, where the fields
+     * have the default name: DEFAULT_FIELDNAME plus an underbar character plus a running number (e.g. field_3).
+     * 
+     * the header row is created only once for a given number of fields.
+     * 
+     * @param numberOfFields	the number of fields
+     * @return					the immutable header row
+     */
+    public static HeaderRow getDefaultHeader(int numberOfFields)
+    {
+    	HeaderRow[] headers = defaultHeaders;
+    	if(numberOfFields < headers.length && headers[numberOfFields]!=null)
+    	{
+    		return headers[numberOfFields];
+    	}
+    	String[] fieldNames = new String[numberOfFields];
+    	for(int i=0;i<numberOfFields;i++)
+    	{
+    		fieldNames[i] = RowField.DEFAULT_FIELDNAME + "_" + i;
+    	}
+    	HeaderRow header = createImmutable(fieldNames);
+    	if(numberOfFields < MAXIMUM_DEFAULT_HEADER_FIELDS)
+    	{
+    		synchronized(HeaderRow.class)
+    		{
+    			headers = defaultHeaders;
+    			if(numberOfFields >= headers.length)
+    			{
+    				headers = Arrays.copyOf(headers, numberOfFields + 1);
+    			}
+    			else
+    			{
+    				headers = headers.clone();
+    			}
+    			headers[numberOfFields] = header;
+    			defaultHeaders = headers;
+    		}
+    	}
+    	return header;
+    }
+    
+    private static HeaderRow createImmutable(String[] fieldNames)
+    {
+    	String[] internedNames = new String[fieldNames.length];
+    	for(int i=0;i<fieldNames.length;i++)
+    	{
+    		internedNames[i] = fieldNames[i].intern();
+    	}
+    	HeaderRow header = new HeaderRow(internedNames);
+    	header.immutable = true;
+    	return header;
+    }
+    
+    /**
+     * an immutable header row is replaced by the interned header row with the same names of fields when it is
+     * deserialized - e.g. when rows are received by the server - so that all rows share the same header row again.
+     * 
+     * the header row is not interned, if there is none yet, because the names of the fields are chosen by the
+     * sender of the rows. the rows of a stream share the deserialized header row anyway.
+     * 
+     * @return	the header row to use
+     */
+    protected Object readResolve()
+    {
+    	if(immutable && DEFAULT_SEPARATOR.equals(separator))
+    	{
+    		HeaderRow internedHeader = internedHeaders.get(fieldNames);
+    		if(internedHeader!=null)
+    		{
+    			return internedHeader;
+    		}
+    	}
+    	return this;
+    }
+    
     /**
      * add fields to the list of fields 
      * 
@@ -143,17 +283,60 @@ public class HeaderRow implements Serializable
      */
     public void addField(String fieldName)
     {
-    	int hashMapLargestIndex = fields.size()-1;
-    	int newFieldIndex = hashMapLargestIndex +1;
-    	fields.put(fieldName, newFieldIndex);
-
+    	checkModifiable();
+    	// the index is taken from the list of names, as the hashmap contains duplicate names only once
+    	fields.put(fieldName, fieldNames.size());
     	fieldNames.add(fieldName);
     }
     
+    /**
+     * remove a field from the list of fields. the index of the fields
+     * following the removed field is adjusted.
+     * 
+     * @param fieldName		name of the field to remove
+     */
+    public void removeField(String fieldName)
+    {
+    	checkModifiable();
+    	Integer index = fields.remove(fieldName);
+    	if(index!=null)
+    	{
+    		fieldNames.remove(index.intValue());
+    		for(int i=index;i<fieldNames.size();i++)
+    		{
+    			fields.put(fieldNames.get(i).trim(), i);
+    		}
+    	}
+    }
+    
+    /**
+     * returns the names of the fields and their index. the map of an immutable header
+     * row must not be modified.
+     *  
+     * @return	map of field names and their index
+     */
     public HashMap<String, Integer> getFields()
 	{
 		return fields;
 	}
+    
+    /**
+     * indicates if the header row is immutable and may be shared by multiple rows
+     *  
+     * @return	indicator if the header row is immutable
+     */
+    public boolean isImmutable()
+    {
+    	return immutable;
+    }
+    
+    private void checkModifiable()
+    {
+    	if(immutable)
+    	{
+    		throw new UnsupportedOperationException("the header row is immutable and can not be modified");
+    	}
+    }
 
 	/**
      * returns the number of fields that belong to the given row object
@@ -219,6 +402,16 @@ public class HeaderRow implements Serializable
 		return fieldNames.toArray(new String[fieldNames.size()]);
 	}
 
+    /**
+     * returns the list of the names of the fields. the list must not be modified.
+     *  
+     * @return				the list of field names
+     */
+    ArrayList<String> getFieldNameList()
+    {
+    	return fieldNames;
+    }
+
     /**
      * returns the header row as a string.
      * the fields are separated by each other using the defined separator
@@ -259,6 +452,7 @@ public class HeaderRow implements Serializable
      */
 	public void setSeparator(String separator)
 	{
+		checkModifiable();
 		this.separator = separator;
 	}
 }
@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * utility class for parsing and writing JSON.
+ *
+ * objects are parsed into a LinkedHashMap - keeping the order of the keys -, arrays into an ArrayList. numbers without
+ * fraction or exponent are parsed into an Integer or - if they are too large - into a Long or BigInteger. other
+ * numbers are parsed into a Double.
+ *
+ * objects and arrays may be nested up to MAXIMUM_DEPTH levels, so that a text with deeply nested values can not
+ * exhaust the stack of the thread.
+ *
+ * maps, collections, arrays, strings, numbers, booleans and null are written as the corresponding JSON values. dates
+ * are written as strings in the format yyyy-MM-dd HH:mm:ss, other objects as strings using their toString() method.
+ *
+ * @author uwe geercken
+ */
+public class JsonUtility
+{
+	public static final String DATETIME_FORMAT		= "yyyy-MM-dd HH:mm:ss";
+	public static final int MAXIMUM_DEPTH			= 64;
+
+	private final String json;
+	private int position = 0;
+	private int depth = 0;
+
+	private JsonUtility(String json)
+	{
+		this.json = json;
+	}
+
+	/**
+	 * parses the given JSON text
+	 *
+	 * @param json			the JSON text
+	 * @return				the parsed value
+	 * @throws Exception	exception when the text is not valid JSON
+	 */
+	public static Object parse(String json) throws Exception
+	{
+		JsonUtility parser = new JsonUtility(json);
+		Object value = parser.parseValue();
+		parser.skipWhitespace();
+		if(parser.position<json.length())
+		{
+			throw parser.error("unexpected text after the value");
+		}
+		return value;
+	}
+
+	/**
+	 * parses the given JSON text, which must be an object
+	 *
+	 * @param json			the JSON text
+	 * @return				the parsed object
+	 * @throws Exception	exception when the text is not a valid JSON object
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String,Object> parseObject(String json) throws Exception
+	{
+		Object value = parse(json);
+		if(!(value instanceof Map))
+		{
+			throw new Exception("invalid json: the value is not an object");
+		}
+		return (Map<String,Object>)value;
+	}
+
+	private Object parseValue() throws Exception
+	{
+		skipWhitespace();
+		if(position>=json.length())
+		{
+			throw error("unexpected end of text");
+		}
+		char character = json.charAt(position);
+		if(character=='{' || character=='[')
+		{
+			if(depth==MAXIMUM_DEPTH)
+			{
+				throw error("the values are nested deeper than " + MAXIMUM_DEPTH + " levels");
+			}
+			depth++;
+			Object value = character=='{' ? parseObject() : parseArray();
+			depth--;
+			return value;
+		}
+		else if(character=='"')
+		{
+			return parseString();
+		}
+		else if(character=='-' || (character>='0' && character<='9'))
+		{
+			return parseNumber();
+		}
+		else if(json.startsWith("true", position))
+		{
+			position += 4;
+			return Boolean.TRUE;
+		}
+		else if(json.startsWith("false", position))
+		{
+			position += 5;
+			return Boolean.FALSE;
+		}
+		else if(json.startsWith("null", position))
+		{
+			position += 4;
+			return null;
+		}
+		throw error("unexpected character: [" + character + "]");
+	}
+
+	private Map<String,Object> parseObject() throws Exception
+	{
+		LinkedHashMap<String,Object> object = new LinkedHashMap<String,Object>();
+		position++;
+		skipWhitespace();
+		if(consume('}'))
+		{
+			return object;
+		}
+		do
+		{
+			skipWhitespace();
+			if(position>=json.length() || json.charAt(position)!='"')
+			{
+				throw error("expected the name of a field");
+			}
+			String name = parseString();
+			skipWhitespace();
+			if(!consume(':'))
+			{
+				throw error("expected ':'");
+			}
+			object.put(name, parseValue());
+			skipWhitespace();
+		}
+		while(consume(','));
+		if(!consume('}'))
+		{
+			throw error("expected ',' or '}'");
+		}
+		return object;
+	}
+
+	private ArrayList<Object> parseArray() throws Exception
+	{
+		ArrayList<Object> array = new ArrayList<Object>();
+		position++;
+		skipWhitespace();
+		if(consume(']'))
+		{
+			return array;
+		}
+		do
+		{
+			array.add(parseValue());
+			skipWhitespace();
+		}
+		while(consume(','));
+		if(!consume(']'))
+		{
+			throw error("expected ',' or ']'");
+		}
+		return array;
+	}
+
+	private String parseString() throws Exception
+	{
+		position++;
+		StringBuilder builder = null;
+		int start = position;
+		while(position<json.length())
+		{
+			char character = json.charAt(position);
+			if(character=='"')
+			{
+				String value = builder==null ? json.substring(start, position) : builder.append(json, start, position).toString();
+				position++;
+				return value;
+			}
+			else if(character=='\\')
+			{
+				if(builder==null)
+				{
+					builder = new StringBuilder();
+				}
+				builder.append(json, start, position);
+				position++;
+				if(position>=json.length())
+				{
+					break;
+				}
+				char escaped = json.charAt(position++);
+				switch(escaped)
+				{
+					case 'b': builder.append('\b'); break;
+					case 'f': builder.append('\f'); break;
+					case 'n': builder.append('\n'); break;
+					case 'r': builder.append('\r'); break;
+					case 't': builder.append('\t'); break;
+					case 'u':
+						if(position + 4>json.length())
+						{
+							throw error("invalid unicode escape");
+						}
+						builder.append((char)Integer.parseInt(json.substring(position, position + 4), 16));
+						position += 4;
+						break;
+					default: builder.append(escaped);
+				}
+				start = position;
+			}
+			else
+			{
+				position++;
+			}
+		}
+		throw error("unterminated string");
+	}
+
+	private Object parseNumber() throws Exception
+	{
+		int start = position;
+		boolean integer = true;
+		while(position<json.length())
+		{
+			char character = json.charAt(position);
+			if(character=='.' || character=='e' || character=='E')
+			{
+				integer = false;
+			}
+			else if(!(character=='-' || character=='+' || (character>='0' && character<='9')))
+			{
+				break;
+			}
+			position++;
+		}
+		String number = json.substring(start, position);
+		try
+		{
+			if(!integer)
+			{
+				return Double.valueOf(number);
+			}
+			BigInteger value = new BigInteger(number);
+			if(value.bitLength()<32)
+			{
+				return value.intValue();
+			}
+			else if(value.bitLength()<64)
+			{
+				return value.longValue();
+			}
+			return value;
+		}
+		catch(NumberFormatException ex)
+		{
+			throw error("invalid number: [" + number + "]");
+		}
+	}
+
+	private void skipWhitespace()
+	{
+		while(position<json.length() && Character.isWhitespace(json.charAt(position)))
+		{
+			position++;
+		}
+	}
+
+	private boolean consume(char character)
+	{
+		if(position<json.length() && json.charAt(position)==character)
+		{
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private Exception error(String message)
+	{
+		return new Exception("invalid json at position: [" + position + "] - " + message);
+	}
+
+	/**
+	 * returns the given value as JSON text
+	 *
+	 * @param value		the value
+	 * @return			the JSON text
+	 */
+	public static String toJson(Object value)
+	{
+		StringBuilder builder = new StringBuilder();
+		append(builder, value);
+		return builder.toString();
+	}
+
+	/**
+	 * appends the given value as JSON text to the builder
+	 *
+	 * @param builder	the builder
+	 * @param value		the value
+	 */
+	public static void append(StringBuilder builder, Object value)
+	{
+		if(value==null)
+		{
+			builder.append("null");
+		}
+		else if(value instanceof String)
+		{
+			appendString(builder, (String)value);
+		}
+		else if(value instanceof Double || value instanceof Float)
+		{
+			double number = ((Number)value).doubleValue();
+			if(Double.isNaN(number) || Double.isInfinite(number))
+			{
+				builder.append("null");
+			}
+			else
+			{
+				builder.append(value);
+			}
+		}
+		else if(value instanceof BigDecimal)
+		{
+			builder.append(((BigDecimal)value).toPlainString());
+		}
+		else if(value instanceof Number || value instanceof Boolean)
+		{
+			builder.append(value);
+		}
+		else if(value instanceof Date)
+		{
+			appendString(builder, DateUtility.getFormatter(DATETIME_FORMAT).format(((Date)value).toInstant().atZone(ZoneId.systemDefault())));
+		}
+		else if(value instanceof Map)
+		{
+			builder.append('{');
+			boolean first = true;
+			for(Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet())
+			{
+				if(!first)
+				{
+					builder.append(',');
+				}
+				first = false;
+				appendString(builder, String.valueOf(entry.getKey()));
+				builder.append(':');
+				append(builder, entry.getValue());
+			}
+			builder.append('}');
+		}
+		else if(value instanceof Collection)
+		{
+			builder.append('[');
+			boolean first = true;
+			for(Object element : (Collection<?>)value)
+			{
+				if(!first)
+				{
+					builder.append(',');
+				}
+				first = false;
+				append(builder, element);
+			}
+			builder.append(']');
+		}
+		else if(value instanceof Object[])
+		{
+			Object[] array = (Object[])value;
+			builder.append('[');
+			for(int i=0;i<array.length;i++)
+			{
+				if(i>0)
+				{
+					builder.append(',');
+				}
+				append(builder, array[i]);
+			}
+			builder.append(']');
+		}
+		else
+		{
+			appendString(builder, value.toString());
+		}
+	}
+
+	private static void appendString(StringBuilder builder, String value)
+	{
+		builder.append('"');
+		for(int i=0;i<value.length();i++)
+		{
+			char character = value.charAt(i);
+			switch(character)
+			{
+				case '"': builder.append("\\\""); break;
+				case '\\': builder.append("\\\\"); break;
+				case '\n': builder.append("\\n"); break;
+				case '\r': builder.append("\\r"); break;
+				case '\t': builder.append("\\t"); break;
+				case '\b': builder.append("\\b"); break;
+				case '\f': builder.append("\\f"); break;
+				default:
+					if(character<0x20)
+					{
+						builder.append(String.format("\\u%04x", (int)character));
+					}
+					else
+					{
+						builder.append(character);
+					}
+			}
+		}
+		builder.append('"');
+	}
+}
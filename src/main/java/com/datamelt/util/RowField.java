@@ -26,6 +26,8 @@ import java.util.Date;
 /**
  * the RowField class represents a field defined by a name and its value (in form of an object).
  * 
+ * values of primitive types are boxed when they are assigned to the field. use the
+ * TypedRowField class to store them without boxing.
  * 
  * @author uwe geercken
  */
@@ -34,6 +36,8 @@ public class RowField implements Serializable
 	private String name;
 	private Object object;
 	private boolean updated=false;
+	// the text the value was converted from, when the row was read
+	private transient String text;
 	
 	public static final long serialVersionUID = 1964070313;
 	
@@ -221,6 +225,100 @@ public class RowField implements Serializable
 	public void setValue(Object object)
 	{
 		this.object=object;
+		this.text=null;
+	}
+	
+	/**
+     * sets the value of the field
+     * 
+     * @param value		the value of the field
+     */
+	public void setValue(int value)
+	{
+		setValue((Object)value);
+	}
+	
+	/**
+     * sets the value of the field
+     * 
+     * @param value		the value of the field
+     */
+	public void setValue(long value)
+	{
+		setValue((Object)value);
+	}
+	
+	/**
+     * sets the value of the field
+     * 
+     * @param value		the value of the field
+     */
+	public void setValue(float value)
+	{
+		setValue((Object)value);
+	}
+	
+	/**
+     * sets the value of the field
+     * 
+     * @param value		the value of the field
+     */
+	public void setValue(double value)
+	{
+		setValue((Object)value);
+	}
+	
+	/**
+     * sets the value of the field
+     * 
+     * @param value		the value of the field
+     */
+	public void setValue(boolean value)
+	{
+		setValue((Object)value);
+	}
+	
+	/**
+     * returns the value of the field as a long value
+     * 
+     * @return 		the value of the field
+     * @throws ClassCastException	when the value of the field is not a number
+     */
+	public long getLongValue()
+	{
+		return ((Number)getValue()).longValue();
+	}
+	
+	/**
+     * returns the value of the field as a double value
+     * 
+     * @return 		the value of the field
+     * @throws ClassCastException	when the value of the field is not a number
+     */
+	public double getDoubleValue()
+	{
+		return ((Number)getValue()).doubleValue();
+	}
+	
+	/**
+     * returns the text the value of the field was converted from, when the row was read. the text is null, if the
+     * value was not converted or if the value was set afterwards.
+     * 
+     * @return 		the text of the field or null
+     */
+	public String getText()
+	{
+		return text;
+	}
+	
+	/**
+     * sets the text the value of the field was converted from. the text is reset, when the value is set.
+     * 
+     * @param text		the text of the field
+     */
+	public void setText(String text)
+	{
+		this.text = text;
 	}
 	
 	/**
@@ -249,6 +347,6 @@ public class RowField implements Serializable
 	 */
 	public String toString()
 	{
-		return name + "=[" + object + "]";
+		return name + "=[" + getValue() + "]";
 	}
 }
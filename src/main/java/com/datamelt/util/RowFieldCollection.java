@@ -44,10 +44,19 @@ public class RowFieldCollection implements Serializable
     private boolean collectionUpdated;
     private boolean rowFailed=false;
     private ArrayList<RowField> fields = new ArrayList<RowField>();
-    private HeaderRow header = new HeaderRow();
+    private HeaderRow header = HeaderRow.getDefaultHeader(0);
+    // indicates if the header was created by this collection. a header that was passed to the collection
+    // or an immutable header might be shared with other collections and is copied before it is modified
+    private boolean headerOwned = false;
+    // indicates that a reference to the collection is kept after it was evaluated, so that it must not be recycled
+    private transient boolean retained = false;
     
     public static final long serialVersionUID = 1964070314;
     
+    // names of the methods to get and set the value of a field
+    public static final String METHOD_GET_FIELD_VALUE = "getFieldValue";
+    public static final String METHOD_SET_FIELD_VALUE = "setFieldValue";
+    
     /**
      * empty default constructor
      * 
@@ -67,7 +76,7 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(String[] fieldNames)
     {
-    	header = new HeaderRow(fieldNames);
+    	header = HeaderRow.intern(fieldNames);
     }
     
     /**
@@ -91,7 +100,7 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(String[] fieldNames,String[] fields)
     {
-    	header = new HeaderRow(fieldNames);
+    	header = HeaderRow.intern(fieldNames);
     	setFields(fields);
     }
     
@@ -105,6 +114,7 @@ public class RowFieldCollection implements Serializable
     public RowFieldCollection(HeaderRow header,String[] fields)
     {
     	this.header = header;
+    	this.headerOwned = false;
     	setFields(fields);
     }
     
@@ -118,9 +128,42 @@ public class RowFieldCollection implements Serializable
     public RowFieldCollection(HeaderRow header,Object[] fields)
     {
     	this.header = header;
+    	this.headerOwned = false;
         setFields(fields);
     }
     
+    /**
+     * constructor that takes a header row and the types of the fields as parameter. a field is created for each
+     * field of the header row and its value is set to null.
+     * 
+     * fields of a primitive type (integer, long, float, double or boolean) are created as TypedRowField objects, which
+     * store their values without boxing. the types are the java type ids of the ReferenceField class. use
+     * TypedRowField.getFieldTypes() to get them from the reference fields of a project.
+     * 
+     * assign the values using the setValue() methods of the fields, e.g. getField(index).setValue(value).
+     *  
+     * @param header		the header row object
+     * @param fieldTypes	the types of the fields
+     */
+    public RowFieldCollection(HeaderRow header,int[] fieldTypes)
+    {
+    	this.header = header;
+    	this.headerOwned = false;
+    	String[] fieldNames = header.getFieldNames();
+    	this.fields.ensureCapacity(fieldNames.length);
+    	for(int i=0;i<fieldNames.length;i++)
+    	{
+    		if(i<fieldTypes.length && TypedRowField.isPrimitiveType(fieldTypes[i]))
+    		{
+    			this.fields.add(new TypedRowField(fieldNames[i], fieldTypes[i]));
+    		}
+    		else
+    		{
+    			this.fields.add(new RowField(fieldNames[i]));
+    		}
+    	}
+    }
+    
     /**
      * constructor that takes an array of field names and an array of objects/values as parameter.
      * RowField objects will be created and added the the list of fields.
@@ -130,7 +173,7 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(String[] fieldNames,Object[] fields)
     {
-    	this.header = new HeaderRow(fieldNames);
+    	this.header = HeaderRow.intern(fieldNames);
         setFields(fields);
     }
     
@@ -142,12 +185,6 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(Map <String,Object> fields)
     {
-    	this.header = new HeaderRow();
-    	for(String key : fields.keySet())
-    	{
-    		header.addField(key);
-    	
-    	}
         setFields(fields);
     }
     
@@ -160,7 +197,7 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(ArrayList<String> fieldNames,Object[] fields)
     {
-    	this.header = new HeaderRow(fieldNames);
+    	this.header = HeaderRow.intern(fieldNames.toArray(new String[fieldNames.size()]));
         setFields(fields);
     }
     
@@ -177,10 +214,9 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(GenericRecord record, Schema schema) throws Exception
     {
-    	AvroSchemaUtility schemaUtility = new AvroSchemaUtility(schema);
-    	String[] fieldNames = schemaUtility.getFieldNames();
+    	AvroSchemaUtility schemaUtility = AvroSchemaUtility.getSchemaUtility(schema);
     	Object[] objects = schemaUtility.getGenericRecordData(record);
-    	this.header = new HeaderRow(fieldNames);
+    	this.header = schemaUtility.getHeaderRow();
         setFields(objects);
     }
     
@@ -195,10 +231,9 @@ public class RowFieldCollection implements Serializable
      */
     public RowFieldCollection(GenericRecord record) throws Exception
     {
-    	AvroSchemaUtility schemaUtility = new AvroSchemaUtility(record.getSchema());
-    	String[] fieldNames = schemaUtility.getFieldNames();
+    	AvroSchemaUtility schemaUtility = AvroSchemaUtility.getSchemaUtility(record.getSchema());
     	Object[] objects = schemaUtility.getGenericRecordData(record);
-    	this.header = new HeaderRow(fieldNames);
+    	this.header = schemaUtility.getHeaderRow();
         setFields(objects);
     }
 
@@ -230,6 +265,15 @@ public class RowFieldCollection implements Serializable
     public void setFields(ArrayList<RowField> fields)
     {
         this.fields = fields;
+        
+        // the header is created from the names of the fields, so that the fields can be found by their name
+        ArrayList<String> fieldNames = new ArrayList<String>(fields.size());
+        for(int i=0;i<fields.size();i++)
+        {
+        	fieldNames.add(fields.get(i).getName());
+        }
+        this.header = new HeaderRow(fieldNames);
+        this.headerOwned = true;
     }
     
     /**
@@ -241,8 +285,7 @@ public class RowFieldCollection implements Serializable
     {
     	for(String key : fields.keySet())
     	{
-    		Object value = fields.get(key);
-    		this.fields.add(new RowField(key, value));
+    		addField(key, fields.get(key));
     	}
     }
     
@@ -259,31 +302,89 @@ public class RowFieldCollection implements Serializable
     	// clear the existing list of fields
     	this.fields.clear();
     	
-    	String[] headerFields = header.getFieldNames();
+    	// otherwise give each field a default name and a running number. the header row with the
+    	// default names is shared by all rows with the same number of fields
+    	if(header.getFieldNameList().size()==0)
+    	{
+    		this.header = HeaderRow.getDefaultHeader(fieldValues.length);
+    		this.headerOwned = false;
+    	}
     	
-    	// if the static fieldNames array is defined
-    	if(headerFields!=null)
+    	ArrayList<String> headerFields = header.getFieldNameList();
+    	this.fields.ensureCapacity(headerFields.size());
+    	for(int i=0;i<headerFields.size();i++)
+        {
+    		// only add field if there is one. this could happen if the array of field names
+    		// specified more fields than the actual row has
+    		if(i<fieldValues.length)
+        	{
+    			this.fields.add(new RowField(headerFields.get(i), fieldValues[i]));
+        	}
+        }
+    }
+    
+    /**
+     * assigns the values of a new record to the collection, so that the collection can be
+     * recycled for the next record of an input source instead of creating a new one.
+     * 
+     * if the header row is the same as the one of the collection and the number of values corresponds to the
+     * number of fields, the existing fields are reused and only their values are replaced. otherwise the fields are
+     * created again. the updated and failed indicators are reset.
+     * 
+     * @param header			the header row of the record
+     * @param fieldValues		an array of field values
+     */
+    public void reset(HeaderRow header, Object[] fieldValues)
+    {
+    	resetIndicators();
+    	if(header==this.header && fieldValues.length==fields.size() && fields.size()==header.getFieldNameList().size())
     	{
-	    	for(int i=0;i<headerFields.length;i++)
-	        {
-	    		// only add field if there is one. this could happen if the array of field names
-	    		// specified more fields than the actual row has
-	    		if(i<fieldValues.length)
-	        	{
-	    			this.fields.add(new RowField(headerFields[i], fieldValues[i]));
-	        	}
-	        }
-    	} 
-    	// otherwise give each field a default name and a running number
+    		for(int i=0;i<fieldValues.length;i++)
+    		{
+    			RowField field = fields.get(i);
+    			field.setValue(fieldValues[i]);
+    			field.setUpdated(false);
+    		}
+    	}
     	else
     	{
-    		for(int i=0;i<fieldValues.length;i++)
-            {
-    			this.fields.add(new RowField(RowField.DEFAULT_FIELDNAME +"_" + i, fieldValues[i]));
-            }
+    		this.header = header;
+    		this.headerOwned = false;
+    		this.fields = new ArrayList<RowField>(fieldValues.length);
+    		setFields(fieldValues);
     	}
     }
     
+    /**
+     * resets the indicators that the collection was updated or failed, when the collection is recycled
+     */
+    void resetIndicators()
+    {
+    	collectionUpdated = false;
+    	rowFailed = false;
+    }
+    
+    /**
+     * indicates that a reference to the collection is kept after it was evaluated - e.g. by an output or
+     * a list of rows. a reader that recycles its rows will then create a new collection for the next record.
+     * 
+     * @param retained		indicator if the collection is retained
+     */
+    public void setRetained(boolean retained)
+    {
+    	this.retained = retained;
+    }
+    
+    /**
+     * indicates if a reference to the collection is kept after it was evaluated, so that it must not be recycled.
+     * 
+     * @return		indicator if the collection is retained
+     */
+    public boolean isRetained()
+    {
+    	return retained;
+    }
+    
     /**
      * Add a field to the array of fields.
      * 
@@ -294,7 +395,7 @@ public class RowFieldCollection implements Serializable
     	// field needs to be added to the list of header fields
     	if(header!=null)
     	{
-    		header.addField(field.getName());
+    		getModifiableHeader().addField(field.getName());
     	}
     	
     	// add the field to the list of fields
@@ -313,7 +414,7 @@ public class RowFieldCollection implements Serializable
     	// field needs to be added to the list of header fields    	
     	if(header!=null)
     	{
-    		header.addField(fieldName);
+    		getModifiableHeader().addField(fieldName);
     	}
     	
     	// add the field to the list of fields
@@ -364,19 +465,11 @@ public class RowFieldCollection implements Serializable
      */
     public void removeField(String fieldName) throws FieldNotFoundException
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(fieldName))
-    		{
-    			found = i;
-    			break;
-    		}
-    	}
+    	int found = getFieldIndex(fieldName);
     	if(found> -1)
     	{
     		fields.remove(found);
+    		removeHeaderField(fieldName);
     	}
     	else
     	{
@@ -392,7 +485,8 @@ public class RowFieldCollection implements Serializable
      */
     public void removeField(int index)
     {
-   		fields.remove(index);
+   		RowField field = fields.remove(index);
+   		removeHeaderField(field.getName());
     }
     
     /**
@@ -402,6 +496,9 @@ public class RowFieldCollection implements Serializable
     public void removeFields()
     {
    		fields.clear();
+   		// the header does not describe the fields anymore
+   		header = HeaderRow.getDefaultHeader(0);
+   		headerOwned = false;
     }
 
     /**
@@ -449,7 +546,7 @@ public class RowFieldCollection implements Serializable
      */
     public RowField getField(String name) throws Exception
     {
-    	int fieldIndex = header.getFieldIndex(name);
+    	int fieldIndex = getFieldIndex(name);
     	if(fieldIndex>=0)
     	{
     		return fields.get(fieldIndex);
@@ -470,16 +567,7 @@ public class RowFieldCollection implements Serializable
      */
     public boolean existField(String name)
     {
-    	int fieldIndex = -1;
-    	try
-    	{
-    		fieldIndex = header.getFieldIndex(name);
-    		return fieldIndex>-1;
-    	}
-    	catch(Exception ex)
-    	{
-    		return false;
-    	}
+    	return getFieldIndex(name)>-1;
     }
     
     /**
@@ -491,7 +579,7 @@ public class RowFieldCollection implements Serializable
      */
     public Object getFieldValue(String name) throws Exception
     {
-    	Integer fieldIndex = header.getFieldIndex(name);
+    	int fieldIndex = getFieldIndex(name);
     	if(fieldIndex>=0)
     	{
     		return fields.get(fieldIndex).getValue();
@@ -516,6 +604,58 @@ public class RowFieldCollection implements Serializable
     	return obj;
     }
     
+    /**
+     * returns the field value as a long value by specifying its index. the value
+     * of a field of type TypedRowField is returned without boxing.
+     *  
+     * @param index			the index of the field in the array
+     * @return				the field value
+     * @throws Exception	exception when the field was not found or the value is not a number
+     */
+    public long getFieldLongValue(int index) throws Exception
+    {
+    	return getField(index).getLongValue();
+    }
+    
+    /**
+     * returns the field value as a long value by specifying its name. the value
+     * of a field of type TypedRowField is returned without boxing.
+     *  
+     * @param name			the name of the field
+     * @return				the field value
+     * @throws Exception	exception when the field was not found or the value is not a number
+     */
+    public long getFieldLongValue(String name) throws Exception
+    {
+    	return getFieldForUpdate(name).getLongValue();
+    }
+    
+    /**
+     * returns the field value as a double value by specifying its index. the value
+     * of a field of type TypedRowField is returned without boxing.
+     *  
+     * @param index			the index of the field in the array
+     * @return				the field value
+     * @throws Exception	exception when the field was not found or the value is not a number
+     */
+    public double getFieldDoubleValue(int index) throws Exception
+    {
+    	return getField(index).getDoubleValue();
+    }
+    
+    /**
+     * returns the field value as a double value by specifying its name. the value
+     * of a field of type TypedRowField is returned without boxing.
+     *  
+     * @param name			the name of the field
+     * @return				the field value
+     * @throws Exception	exception when the field was not found or the value is not a number
+     */
+    public double getFieldDoubleValue(String name) throws Exception
+    {
+    	return getFieldForUpdate(name).getDoubleValue();
+    }
+    
     /**
      * sets the field value of the field by specifying its name and value
      *  
@@ -525,23 +665,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,Object object) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(object);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(object);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -553,23 +680,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,double value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -581,23 +695,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,float value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -609,23 +710,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,int value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -637,23 +725,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,String value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -665,23 +740,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,boolean value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -693,23 +755,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,long value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -721,23 +770,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,BigDecimal value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -749,23 +785,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,Date value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
     
     /**
@@ -777,23 +800,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldValue(String name,BigInteger value) throws Exception
     {
-    	int found=-1;
-    	for(int i=0;i<fields.size();i++)
-    	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			found = i;
-    			field.setValue(value);
-    			field.setUpdated(true);
-    			collectionUpdated=true;
-    			break;
-    		}
-    	}
-    	if(found== -1)
-    	{
-    		throw new FieldNotFoundException("field: [" + name + "] not found");
-    	}
+    	RowField field = getFieldForUpdate(name);
+    	field.setValue(value);
+    	field.setUpdated(true);
+    	collectionUpdated=true;
     }
 
     /**
@@ -1025,14 +1035,10 @@ public class RowFieldCollection implements Serializable
      */
     public void setFieldUpdated(String name, boolean value) throws Exception
     {
-    	for(int i=0;i<fields.size();i++)
+    	int index = getFieldIndex(name);
+    	if(index>-1)
     	{
-    		RowField field = fields.get(i);
-    		if(field.getName().equals(name))
-    		{
-    			field.setUpdated(value);
-    			break;
-    		}
+    		fields.get(index).setUpdated(value);
     	}
     }
     
@@ -1134,7 +1140,8 @@ public class RowFieldCollection implements Serializable
 	 */
 	public void setFieldNames(String[] fieldNames)
 	{
-		header = new HeaderRow(fieldNames);
+		header = HeaderRow.intern(fieldNames);
+		headerOwned = false;
 	}
 
 	/**
@@ -1157,6 +1164,100 @@ public class RowFieldCollection implements Serializable
 	public void setHeader(HeaderRow header)
 	{
 		this.header = header;
+		this.headerOwned = false;
+	}
+	
+	/**
+	 * returns the index of the field with the given name.
+	 * 
+	 * the index is looked up in the header row. if the header row does not correspond to
+	 * the fields - e.g. because fields have been added without a header - the fields are searched
+	 * by their name.
+	 * 
+	 * if the index is found using an immutable header row, it is the same for all rows that share the header
+	 * row object, so it can be resolved once and then be used with the methods that access a field by its
+	 * index. see the FieldSlotResolver class.
+	 * 
+	 * @param name		the name of the field
+	 * @return			the index of the field or -1 if the field does not exist
+	 */
+	public int getFieldIndex(String name)
+	{
+		Integer index = header.getFields().get(name);
+		if(index!=null && index < fields.size() && hasName(fields.get(index), name))
+		{
+			return index;
+		}
+		for(int i=0;i<fields.size();i++)
+		{
+			if(hasName(fields.get(i), name))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * indicates if the field has the given name. the header row indexes the names of the fields without leading
+	 * and trailing spaces, so the name of the field is compared the same way.
+	 */
+	static boolean hasName(RowField field, String name)
+	{
+		return field.getName().equals(name) || field.getName().trim().equals(name);
+	}
+	
+	/**
+	 * returns the field with the given name so that its value can be updated
+	 * 
+	 * @param name						the name of the field
+	 * @return							the field
+	 * @throws FieldNotFoundException	when the field was not found
+	 */
+	private RowField getFieldForUpdate(String name) throws FieldNotFoundException
+	{
+		int index = getFieldIndex(name);
+		if(index== -1)
+		{
+			throw new FieldNotFoundException("field: [" + name + "] not found");
+		}
+		return fields.get(index);
+	}
+	
+	/**
+	 * returns the header so that it can be modified. if the header was passed to this collection,
+	 * it is copied first, because it might be used by other collections as well.
+	 * 
+	 * @return		the header row
+	 */
+	private HeaderRow getModifiableHeader()
+	{
+		if(!headerOwned || header.isImmutable())
+		{
+			HeaderRow copy = new HeaderRow(new ArrayList<String>(Arrays.asList(header.getFieldNames())));
+			copy.setSeparator(header.getSeparator());
+			header = copy;
+			headerOwned = true;
+		}
+		return header;
+	}
+	
+	/**
+	 * removes the field with the given name from the header, so that the index of the
+	 * header corresponds to the fields again.
+	 * 
+	 * a new header row is created, because the index of the fields following the removed
+	 * field changes - and an index that has been resolved for the old header row object must not become invalid.
+	 * 
+	 * @param name		the name of the field
+	 */
+	private void removeHeaderField(String name)
+	{
+		if(header!=null && header.getFields().containsKey(name))
+		{
+			headerOwned = false;
+			getModifiableHeader().removeField(name);
+		}
 	}
 	
 	/**
@@ -18,9 +18,12 @@
  */
 package com.datamelt.util;
 
+import java.util.ArrayList;
+
 import com.datamelt.util.Field;
 import com.datamelt.util.Row;
 
+import com.datamelt.rules.core.ReferenceField;
 import com.datamelt.rules.parser.xml.RowDefinitionParser;
 
 /**
@@ -44,6 +47,16 @@ import com.datamelt.rules.parser.xml.RowDefinitionParser;
  * representing a given row of data (passed as argument) after it has
  * been split.
  * 
+ * all RowFieldCollection objects created by a splitter share the same immutable
+ * header row. if no header row is set, the fields get default names (e.g. field_3).
+ * 
+ * if rows are recycled, the getRowFieldCollection() method returns the same RowFieldCollection
+ * object for each line and only replaces the values of its fields - unless the row has been marked
+ * as retained. a splitter that recycles rows must only be used by a single thread - use one splitter per thread.
+ * 
+ * if reference fields are set, the values of the fields are converted once to the type of the corresponding reference
+ * field - so that the rules do not need to convert them again. values that can not be converted remain strings.
+ * 
  * @author uwe geercken
  *
  */
@@ -76,6 +89,19 @@ public class Splitter
     //default field separator
     private String fieldSeperator 					= SEPERATOR_SEMICOLON;
 	private RowDefinitionParser parser = null;
+	// the header row that is shared by all rows of the input source
+	private HeaderRow headerRow = null;
+	private boolean headerRowDefined = false;
+	
+	// indicates if the same row object is used for all lines
+	private boolean recycleRows = false;
+	private RowFieldCollection recycledRow = null;
+	
+	// the reference fields which define the types of the fields
+	private ArrayList<ReferenceField> referenceFields = null;
+	private HeaderRow typedHeaderRow = null;
+	private int[] fieldTypes = null;
+	private ValueParser valueParser = null;
 	
 	/** 
 	 * default constructor using the default type
@@ -161,8 +187,186 @@ public class Splitter
 		{
 			throw new Exception("no row definition xml file specified for fixed length ascii file");
 		}
-		return new RowFieldCollection(splitRow(line));
-		
+		return getRowFieldCollection(splitRow(line));
+	}
+	
+	/**
+	 * Gets a RowFieldCollection object, containing the given fields - e.g. the fields of a record
+	 * returned by the CsvTokenizer class. the header row and the recycling of rows are the same as for
+	 * the rows created from a line.
+	 * 
+	 * @param objects		the values of the fields
+	 * @return				a row field collection object
+	 */
+	public RowFieldCollection getRowFieldCollection(Object[] objects)
+	{
+		HeaderRow header = getHeaderRow(objects.length);
+		if(referenceFields!=null && header.getNumberOfFields()==objects.length)
+		{
+			return getTypedRowFieldCollection(header, objects);
+		}
+		if(recycleRows)
+		{
+			if(recycledRow==null || recycledRow.isRetained())
+			{
+				recycledRow = new RowFieldCollection(header, objects);
+			}
+			else
+			{
+				recycledRow.reset(header, objects);
+			}
+			return recycledRow;
+		}
+		return new RowFieldCollection(header, objects);
+	}
+	
+	/**
+	 * creates a row with fields of the types of the reference fields - or recycles it - and converts the
+	 * values to the types of the fields.
+	 * 
+	 * @param header		the header row
+	 * @param objects		the values of the fields
+	 * @return				a row field collection object
+	 */
+	private RowFieldCollection getTypedRowFieldCollection(HeaderRow header, Object[] objects)
+	{
+		if(header!=typedHeaderRow)
+		{
+			fieldTypes = TypedRowField.getFieldTypes(header, referenceFields);
+			typedHeaderRow = header;
+		}
+		RowFieldCollection row;
+		if(recycleRows && recycledRow!=null && !recycledRow.isRetained() && recycledRow.getHeader()==header && recycledRow.getNumberOfFields()==objects.length)
+		{
+			row = recycledRow;
+			row.resetIndicators();
+		}
+		else
+		{
+			row = new RowFieldCollection(header, fieldTypes);
+			if(recycleRows)
+			{
+				recycledRow = row;
+			}
+		}
+		ArrayList<RowField> fields = row.getFields();
+		for(int i=0;i<objects.length;i++)
+		{
+			RowField field = fields.get(i);
+			valueParser.setFieldValue(field, fieldTypes[i], objects[i]);
+			field.setUpdated(false);
+		}
+		return row;
+	}
+	
+	/**
+	 * returns the header row that is used for the rows with the given number of fields.
+	 * 
+	 * this is the header row that has been set or - if it is undefined - the
+	 * immutable header row with default field names.
+	 * 
+	 * @param numberOfFields	the number of fields of the row
+	 * @return					the header row
+	 */
+	private HeaderRow getHeaderRow(int numberOfFields)
+	{
+		HeaderRow header = headerRow;
+		if(header==null || (!headerRowDefined && header.getNumberOfFields()!=numberOfFields))
+		{
+			header = HeaderRow.getDefaultHeader(numberOfFields);
+			headerRow = header;
+		}
+		return header;
+	}
+	
+	/**
+	 * indicates if the same RowFieldCollection object is used for all lines.
+	 * 
+	 * @return		indicator if rows are recycled
+	 */
+	public boolean getRecycleRows()
+	{
+		return recycleRows;
+	}
+	
+	/**
+	 * sets if the same RowFieldCollection object is used for all lines. the row returned by the getRowFieldCollection()
+	 * method is then only valid until the next line is processed. call the setRetained() method of the row to keep it.
+	 * 
+	 * @param recycleRows		indicator if rows are recycled
+	 */
+	public void setRecycleRows(boolean recycleRows)
+	{
+		this.recycleRows = recycleRows;
+		this.recycledRow = null;
+	}
+	
+	/**
+	 * returns the reference fields which define the types of the fields
+	 * 
+	 * @return		the reference fields
+	 */
+	public ArrayList<ReferenceField> getReferenceFields()
+	{
+		return referenceFields;
+	}
+	
+	/**
+	 * sets the reference fields of a project. the values of the fields that have the same name as a reference field
+	 * are converted to the type of the reference field, when the row is created. values that can not be
+	 * converted - e.g. an empty value for a number - remain strings, so that the rules handle them as before.
+	 * 
+	 * set the reference fields to null to keep all values as strings.
+	 * 
+	 * @param referenceFields		the reference fields
+	 */
+	public void setReferenceFields(ArrayList<ReferenceField> referenceFields)
+	{
+		this.referenceFields = referenceFields;
+		this.typedHeaderRow = null;
+		this.fieldTypes = null;
+		this.recycledRow = null;
+		if(referenceFields!=null && valueParser==null)
+		{
+			valueParser = new ValueParser();
+		}
+	}
+	
+	/**
+	 * returns the header row that is shared by the rows created by this splitter. this is
+	 * null, if no row has been created yet and no header row has been set.
+	 * 
+	 * @return		the header row
+	 */
+	public HeaderRow getHeaderRow()
+	{
+		return headerRow;
+	}
+	
+	/**
+	 * sets the names of the fields of the input source - e.g. from the first line of a CSV file.
+	 * all rows created by this splitter will share the same immutable header row.
+	 * 
+	 * @param fieldNames		the names of the fields
+	 */
+	public void setFieldNames(String[] fieldNames)
+	{
+		this.headerRow = HeaderRow.intern(fieldNames);
+		this.headerRowDefined = true;
+	}
+	
+	/**
+	 * sets the header row of the input source. all rows created by this splitter will share the
+	 * header row, so it should be an immutable header row.
+	 * 
+	 * @see HeaderRow#intern(String[])
+	 * 
+	 * @param headerRow		the header row
+	 */
+	public void setHeaderRow(HeaderRow headerRow)
+	{
+		this.headerRow = headerRow;
+		this.headerRowDefined = headerRow!=null;
 	}
 	
 	/**
@@ -231,16 +435,25 @@ public class Splitter
 		Object[] objects;
 		if(type==TYPE_COMMA_SEPERATED)
 		{
+			if(removeQuotes && fieldSeperator.length()==1)
+			{
+				// quoted fields may contain the separator, so the line is tokenized instead of split
+				return CsvTokenizer.split(line, fieldSeperator.charAt(0));
+			}
 			fields = line.split(fieldSeperator,-1);
 			objects = new Object[fields.length];	 
 			if(removeQuotes)
 			{
 				for(int i=0;i<fields.length;i++)
 				{
-					if(fields[i].startsWith("\"") && fields[i].endsWith("\""));
+					if(fields[i].length()>1 && fields[i].startsWith("\"") && fields[i].endsWith("\""))
 					{
 						objects[i] = fields[i].substring(1,fields[i].length()-1);
 					}
+					else
+					{
+						objects[i] = fields[i];
+					}
 				}
 			}
 			else
@@ -336,7 +549,8 @@ public class Splitter
 
 	/**
 	 * indicates if a leading and trailing quote character (") should be removed.
-	 * only used for csv files.
+	 * only used for csv files. if the field separator is a single character, the line is
+	 * split according to RFC 4180, so that quoted fields may contain the separator and escaped quotes ("").
 	 * 
 	 * @return		indicator if all quote characters should be removed
 	 * 
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.util.ArrayList;
+
+import com.datamelt.rules.core.ReferenceField;
+
+/**
+ * the TypedRowField class represents a field with a primitive type - integer, long, float,
+ * double or boolean. the type is one of the java type ids of the ReferenceField class.
+ *
+ * values of the type of the field are stored as a primitive value and are not boxed. the value
+ * is only boxed, when it is retrieved using the getValue() method. use the getLongValue() and
+ * getDoubleValue() methods to retrieve the value without boxing.
+ *
+ * a value of a different type may be assigned to the field as well. it is then stored as an object.
+ *
+ * @author uwe geercken
+ */
+public class TypedRowField extends RowField
+{
+	private static final int STATE_NULL			= 0;
+	private static final int STATE_PRIMITIVE	= 1;
+	private static final int STATE_OBJECT		= 2;
+
+	private final int type;
+	private int state = STATE_NULL;
+	// integer, long and boolean values. float and double values are stored as their bits
+	private long value;
+
+	public static final long serialVersionUID = 1964070315;
+
+	/**
+	 * constructor that takes the name and the type of the field as arguments. the value of the field is null.
+	 *
+	 * @param name		the name of the field
+	 * @param type		the type of the field, one of the java type ids of the ReferenceField class
+	 */
+	public TypedRowField(String name, int type)
+	{
+		super(name);
+		if(!isPrimitiveType(type))
+		{
+			throw new IllegalArgumentException("the type: [" + type + "] is not a primitive type");
+		}
+		this.type = type;
+	}
+
+	/**
+	 * indicates if the given java type id of the ReferenceField class is a primitive type,
+	 * which can be stored in a TypedRowField.
+	 *
+	 * @param type		the java type id
+	 * @return			indicator if the type is a primitive type
+	 */
+	public static boolean isPrimitiveType(int type)
+	{
+		return type==ReferenceField.FIELD_TYPE_ID_INTEGER
+				|| type==ReferenceField.FIELD_TYPE_ID_LONG
+				|| type==ReferenceField.FIELD_TYPE_ID_FLOAT
+				|| type==ReferenceField.FIELD_TYPE_ID_DOUBLE
+				|| type==ReferenceField.FIELD_TYPE_ID_BOOLEAN;
+	}
+
+	/**
+	 * returns the types of the fields of the given header row, as they are defined by the reference fields
+	 * of a project. fields that have no reference field get the type string.
+	 *
+	 * @param header			the header row
+	 * @param referenceFields	the reference fields
+	 * @return					array of java type ids, one for each field of the header row
+	 */
+	public static int[] getFieldTypes(HeaderRow header, ArrayList<ReferenceField> referenceFields)
+	{
+		String[] fieldNames = header.getFieldNames();
+		int[] types = new int[fieldNames.length];
+		for(int i=0;i<fieldNames.length;i++)
+		{
+			types[i] = ReferenceField.FIELD_TYPE_ID_STRING;
+			if(referenceFields!=null)
+			{
+				for(ReferenceField referenceField : referenceFields)
+				{
+					if(fieldNames[i].equals(referenceField.getName()))
+					{
+						types[i] = (int)referenceField.getJavaTypeId();
+						break;
+					}
+				}
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * returns the type of the field
+	 *
+	 * @return		the java type id of the field
+	 */
+	public int getType()
+	{
+		return type;
+	}
+
+	@Override
+	public Object getValue()
+	{
+		if(state==STATE_PRIMITIVE)
+		{
+			switch(type)
+			{
+				case ReferenceField.FIELD_TYPE_ID_INTEGER:
+					return Integer.valueOf((int)value);
+				case ReferenceField.FIELD_TYPE_ID_LONG:
+					return Long.valueOf(value);
+				case ReferenceField.FIELD_TYPE_ID_FLOAT:
+					return Float.valueOf(Float.intBitsToFloat((int)value));
+				case ReferenceField.FIELD_TYPE_ID_DOUBLE:
+					return Double.valueOf(Double.longBitsToDouble(value));
+				default:
+					return Boolean.valueOf(value!=0);
+			}
+		}
+		return super.getValue();
+	}
+
+	@Override
+	public void setValue(Object object)
+	{
+		if(object==null)
+		{
+			state = STATE_NULL;
+			super.setValue(null);
+		}
+		else if(type==ReferenceField.FIELD_TYPE_ID_INTEGER && object instanceof Integer)
+		{
+			setValue(((Integer)object).intValue());
+		}
+		else if(type==ReferenceField.FIELD_TYPE_ID_LONG && object instanceof Long)
+		{
+			setValue(((Long)object).longValue());
+		}
+		else if(type==ReferenceField.FIELD_TYPE_ID_FLOAT && object instanceof Float)
+		{
+			setValue(((Float)object).floatValue());
+		}
+		else if(type==ReferenceField.FIELD_TYPE_ID_DOUBLE && object instanceof Double)
+		{
+			setValue(((Double)object).doubleValue());
+		}
+		else if(type==ReferenceField.FIELD_TYPE_ID_BOOLEAN && object instanceof Boolean)
+		{
+			setValue(((Boolean)object).booleanValue());
+		}
+		else
+		{
+			// a value of a different type is kept as an object
+			state = STATE_OBJECT;
+			super.setValue(object);
+		}
+	}
+
+	@Override
+	public void setValue(int value)
+	{
+		if(type==ReferenceField.FIELD_TYPE_ID_INTEGER)
+		{
+			setPrimitive(value);
+		}
+		else
+		{
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public void setValue(long value)
+	{
+		if(type==ReferenceField.FIELD_TYPE_ID_LONG)
+		{
+			setPrimitive(value);
+		}
+		else
+		{
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public void setValue(float value)
+	{
+		if(type==ReferenceField.FIELD_TYPE_ID_FLOAT)
+		{
+			setPrimitive(Float.floatToRawIntBits(value));
+		}
+		else
+		{
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public void setValue(double value)
+	{
+		if(type==ReferenceField.FIELD_TYPE_ID_DOUBLE)
+		{
+			setPrimitive(Double.doubleToRawLongBits(value));
+		}
+		else
+		{
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public void setValue(boolean value)
+	{
+		if(type==ReferenceField.FIELD_TYPE_ID_BOOLEAN)
+		{
+			setPrimitive(value ? 1 : 0);
+		}
+		else
+		{
+			super.setValue(value);
+		}
+	}
+
+	@Override
+	public long getLongValue()
+	{
+		if(state==STATE_PRIMITIVE)
+		{
+			switch(type)
+			{
+				case ReferenceField.FIELD_TYPE_ID_FLOAT:
+					return (long)Float.intBitsToFloat((int)value);
+				case ReferenceField.FIELD_TYPE_ID_DOUBLE:
+					return (long)Double.longBitsToDouble(value);
+				case ReferenceField.FIELD_TYPE_ID_BOOLEAN:
+					throw new ClassCastException("the value of the field: [" + getName() + "] is not a number");
+				default:
+					return value;
+			}
+		}
+		return super.getLongValue();
+	}
+
+	@Override
+	public double getDoubleValue()
+	{
+		if(state==STATE_PRIMITIVE)
+		{
+			switch(type)
+			{
+				case ReferenceField.FIELD_TYPE_ID_FLOAT:
+					return Float.intBitsToFloat((int)value);
+				case ReferenceField.FIELD_TYPE_ID_DOUBLE:
+					return Double.longBitsToDouble(value);
+				case ReferenceField.FIELD_TYPE_ID_BOOLEAN:
+					throw new ClassCastException("the value of the field: [" + getName() + "] is not a number");
+				default:
+					return value;
+			}
+		}
+		return super.getDoubleValue();
+	}
+
+	private void setPrimitive(long value)
+	{
+		this.value = value;
+		if(state==STATE_OBJECT)
+		{
+			super.setValue(null);
+		}
+		state = STATE_PRIMITIVE;
+		setText(null);
+	}
+}
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datamelt.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import com.datamelt.rules.core.ReferenceField;
+
+/**
+ * parser that converts text values to numbers, booleans and dates without throwing exceptions on invalid input.
+ *
+ * the parse methods return an indicator if the value is valid. the parsed value is then available using the
+ * corresponding getter method - so no object is created for numbers. an instance is not thread safe - use one instance per reader.
+ *
+ * the setFieldValue() method converts a value to the type of a column, as it is defined by the reference fields of
+ * a project, so that the value is converted only once when it is read and not by every rule that uses it.
+ *
+ * @author uwe geercken
+ */
+public class ValueParser
+{
+	// powers of ten that can be represented exactly as a double
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	// the largest integer that can be represented exactly as a double
+	private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+
+	private long longValue;
+	private double doubleValue;
+	private boolean booleanValue;
+	private Date dateValue;
+
+	/**
+	 * converts the given value to the given type and assigns it to the field. values of a primitive type are assigned
+	 * without boxing, if the field is a TypedRowField.
+	 *
+	 * if the value can not be converted, the value is assigned unchanged - so that a rule will handle it the same way as
+	 * if it had not been converted. if it is converted, the field keeps the text it was converted from, so that a rule
+	 * using the value as a string gets the text unchanged.
+	 *
+	 * @param field		the field
+	 * @param type		the type of the field, one of the java type ids of the ReferenceField class
+	 * @param value		the value of the field
+	 */
+	public void setFieldValue(RowField field, int type, Object value)
+	{
+		if(!(value instanceof String))
+		{
+			field.setValue(value);
+			return;
+		}
+		String text = (String)value;
+		switch(type)
+		{
+			case ReferenceField.FIELD_TYPE_ID_INTEGER:
+				if(parseLong(text) && longValue>=Integer.MIN_VALUE && longValue<=Integer.MAX_VALUE)
+				{
+					field.setValue((int)longValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_LONG:
+				if(parseLong(text))
+				{
+					field.setValue(longValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_DOUBLE:
+				if(parseDouble(text))
+				{
+					field.setValue(doubleValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_FLOAT:
+				if(parseDouble(text))
+				{
+					field.setValue((float)doubleValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_BOOLEAN:
+				if(parseBoolean(text))
+				{
+					field.setValue(booleanValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_BIGDECIMAL:
+				if(isDecimal(text, 0, text.length()))
+				{
+					field.setValue(new BigDecimal(text));
+					field.setText(text);
+					return;
+				}
+				break;
+			case ReferenceField.FIELD_TYPE_ID_DATE:
+				if(parseDate(text))
+				{
+					field.setValue(dateValue);
+					field.setText(text);
+					return;
+				}
+				break;
+			default:
+				break;
+		}
+		field.setValue(value);
+	}
+
+	/**
+	 * parses a whole number with an optional sign
+	 *
+	 * @param value		the value to parse
+	 * @return			true if the value is a valid long value. the value is returned by getLongValue()
+	 */
+	public boolean parseLong(String value)
+	{
+		if(value==null)
+		{
+			return false;
+		}
+		int length = value.length();
+		int position = 0;
+		boolean negative = false;
+		if(length>0 && (value.charAt(0)=='-' || value.charAt(0)=='+'))
+		{
+			negative = value.charAt(0)=='-';
+			position++;
+		}
+		if(position==length)
+		{
+			return false;
+		}
+		// the value is accumulated as a negative number, so that the minimum value can be parsed as well
+		long result = 0;
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplicationLimit = limit / 10;
+		for(;position<length;position++)
+		{
+			int digit = value.charAt(position) - '0';
+			if(digit<0 || digit>9 || result<multiplicationLimit)
+			{
+				return false;
+			}
+			result *= 10;
+			if(result<limit + digit)
+			{
+				return false;
+			}
+			result -= digit;
+		}
+		longValue = negative ? result : -result;
+		return true;
+	}
+
+	/**
+	 * parses a decimal number with an optional sign, decimals and exponent
+	 *
+	 * @param value		the value to parse
+	 * @return			true if the value is a valid double value. the value is returned by getDoubleValue()
+	 */
+	public boolean parseDouble(String value)
+	{
+		if(value==null || !isDecimal(value, 0, value.length()))
+		{
+			return false;
+		}
+		int length = value.length();
+		int position = 0;
+		boolean negative = false;
+		if(value.charAt(0)=='-' || value.charAt(0)=='+')
+		{
+			negative = value.charAt(0)=='-';
+			position++;
+		}
+		// fast path: up to 15 digits without exponent are converted exactly using a power of ten
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = -1;
+		for(;position<length;position++)
+		{
+			char c = value.charAt(position);
+			if(c=='.')
+			{
+				decimals = 0;
+			}
+			else if(c>='0' && c<='9' && digits<15)
+			{
+				mantissa = mantissa * 10 + (c - '0');
+				if(mantissa>0)
+				{
+					digits++;
+				}
+				if(decimals>=0)
+				{
+					decimals++;
+				}
+			}
+			else
+			{
+				// exponent or too many digits
+				break;
+			}
+		}
+		if(position==length && mantissa<MAXIMUM_EXACT_MANTISSA && decimals<POWERS_OF_TEN.length)
+		{
+			double result = decimals>0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+			doubleValue = negative ? -result : result;
+			return true;
+		}
+		// the syntax has been checked, so no exception is thrown
+		doubleValue = Double.parseDouble(value);
+		return true;
+	}
+
+	/**
+	 * parses a boolean value - true or false, not case sensitive
+	 *
+	 * @param value		the value to parse
+	 * @return			true if the value is a valid boolean value. the value is returned by getBooleanValue()
+	 */
+	public boolean parseBoolean(String value)
+	{
+		if("true".equalsIgnoreCase(value))
+		{
+			booleanValue = true;
+			return true;
+		}
+		else if("false".equalsIgnoreCase(value))
+		{
+			booleanValue = false;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * parses a date in the default date time format (yyyy-MM-dd HH:mm:ss) or the default date format (yyyy-MM-dd)
+	 * of the ClassUtility class. the default time zone of the system is used.
+	 *
+	 * @param value		the value to parse
+	 * @return			true if the value is a valid date. the value is returned by getDateValue()
+	 */
+	public boolean parseDate(String value)
+	{
+		if(value==null || (value.length()!=10 && value.length()!=19))
+		{
+			return false;
+		}
+		int year = parseDigits(value, 0, 4);
+		int month = parseDigits(value, 5, 2);
+		int day = parseDigits(value, 8, 2);
+		if(year<0 || month<1 || month>12 || day<1 || day>31 || value.charAt(4)!='-' || value.charAt(7)!='-')
+		{
+			return false;
+		}
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		if(value.length()==19)
+		{
+			hour = parseDigits(value, 11, 2);
+			minute = parseDigits(value, 14, 2);
+			second = parseDigits(value, 17, 2);
+			if(value.charAt(10)!=' ' || value.charAt(13)!=':' || value.charAt(16)!=':' || hour<0 || hour>23 || minute<0 || minute>59 || second<0 || second>59)
+			{
+				return false;
+			}
+		}
+		// invalid days roll over into the next month - the same as the DateUtility class does
+		LocalDateTime dateTime = LocalDateTime.of(year, month, 1, hour, minute, second).plusDays(day - 1);
+		dateValue = Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+		return true;
+	}
+
+	/**
+	 * checks if the given part of the value is a decimal number with an optional sign, decimals and exponent
+	 *
+	 * @param value		the value
+	 * @param start		the start of the number
+	 * @param end		the end of the number
+	 * @return			indicator if the value is a decimal number
+	 */
+	static boolean isDecimal(String value, int start, int end)
+	{
+		int position = start;
+		if(position<end && (value.charAt(position)=='-' || value.charAt(position)=='+'))
+		{
+			position++;
+		}
+		int digits = 0;
+		boolean point = false;
+		for(;position<end;position++)
+		{
+			char c = value.charAt(position);
+			if(c>='0' && c<='9')
+			{
+				digits++;
+			}
+			else if(c=='.' && !point)
+			{
+				point = true;
+			}
+			else
+			{
+				break;
+			}
+		}
+		if(digits==0)
+		{
+			return false;
+		}
+		if(position<end && (value.charAt(position)=='e' || value.charAt(position)=='E'))
+		{
+			position++;
+			if(position<end && (value.charAt(position)=='-' || value.charAt(position)=='+'))
+			{
+				position++;
+			}
+			int exponentDigits = 0;
+			for(;position<end && value.charAt(position)>='0' && value.charAt(position)<='9';position++)
+			{
+				exponentDigits++;
+			}
+			if(exponentDigits==0)
+			{
+				return false;
+			}
+		}
+		return position==end;
+	}
+
+	private static int parseDigits(String value, int start, int length)
+	{
+		int result = 0;
+		for(int i=start;i<start + length;i++)
+		{
+			int digit = value.charAt(i) - '0';
+			if(digit<0 || digit>9)
+			{
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	/**
+	 * returns the value of the last successful call of the parseLong() method
+	 *
+	 * @return		the long value
+	 */
+	public long getLongValue()
+	{
+		return longValue;
+	}
+
+	/**
+	 * returns the value of the last successful call of the parseDouble() method
+	 *
+	 * @return		the double value
+	 */
+	public double getDoubleValue()
+	{
+		return doubleValue;
+	}
+
+	/**
+	 * returns the value of the last successful call of the parseBoolean() method
+	 *
+	 * @return		the boolean value
+	 */
+	public boolean getBooleanValue()
+	{
+		return booleanValue;
+	}
+
+	/**
+	 * returns the value of the last successful call of the parseDate() method
+	 *
+	 * @return		the date
+	 */
+	public Date getDateValue()
+	{
+		return dateValue;
+	}
+}
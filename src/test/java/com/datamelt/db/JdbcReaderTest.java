@@ -0,0 +1,135 @@
+package com.datamelt.db;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+
+class JdbcReaderTest
+{
+	private static final String URL = "jdbc:h2:mem:jdbcreadertest;DB_CLOSE_DELAY=-1";
+
+	private Connection connection;
+
+	@BeforeEach
+	void createTable() throws Exception
+	{
+		connection = DriverManager.getConnection(URL, "sa", "");
+		Statement statement = connection.createStatement();
+		statement.execute("create table person (id int primary key, name varchar(20), status varchar(10))");
+		for(int i=1;i<=5;i++)
+		{
+			statement.execute("insert into person values (" + i + ", 'name" + i + "', 'new')");
+		}
+		statement.close();
+	}
+
+	@AfterEach
+	void dropTable() throws Exception
+	{
+		connection.createStatement().execute("drop table person");
+		connection.close();
+	}
+
+	@Test
+	void testReadRecords() throws Exception
+	{
+		JdbcReader reader = new JdbcReader(URL, "sa", "", "select id, name as person_name from person order by id");
+		reader.setRecycleRows(true);
+
+		RowFieldCollection row = reader.getRowFieldCollection();
+		assertEquals(1, row.getFieldValue("ID"));
+		assertEquals("name1", row.getFieldValue("PERSON_NAME"));
+		assertSame(reader.getHeader(), row.getHeader());
+
+		int records = 1;
+		while(reader.getRowFieldCollection()!=null)
+		{
+			records++;
+		}
+		assertEquals(5, records);
+		assertEquals(5, reader.getNumberOfRecords());
+		reader.close();
+	}
+
+	@Test
+	void testInvalidQuery() throws Exception
+	{
+		int sessions = getNumberOfSessions();
+		// the connection opened by the reader is closed, when the query fails
+		assertThrows(SQLException.class, () -> new JdbcReader(URL, "sa", "", "select unknown from person"));
+		assertEquals(sessions, getNumberOfSessions());
+
+		// a connection passed to the reader is not closed
+		assertThrows(SQLException.class, () -> new JdbcReader(connection, "select unknown from person"));
+		assertFalse(connection.isClosed());
+	}
+
+	private int getNumberOfSessions() throws Exception
+	{
+		Statement statement = connection.createStatement();
+		ResultSet resultSet = statement.executeQuery("select count(*) from information_schema.sessions");
+		resultSet.next();
+		int sessions = resultSet.getInt(1);
+		statement.close();
+		return sessions;
+	}
+
+	@Test
+	void testWriteUpdatedRows() throws Exception
+	{
+		Connection writeConnection = DriverManager.getConnection(URL, "sa", "");
+		JdbcReader reader = new JdbcReader(connection, "select id, status from person order by id", 2);
+		reader.setRecycleRows(true);
+		JdbcWriter writer = new JdbcWriter(writeConnection, "person", new String[] {"ID"}, new String[] {"STATUS"});
+		writer.setCommitInterval(2);
+
+		RowFieldCollection row;
+		while((row=reader.getRowFieldCollection())!=null)
+		{
+			// update every second row - like an action would do
+			if((Integer)row.getFieldValue("ID") % 2==1)
+			{
+				row.setFieldValue("STATUS", "checked");
+			}
+			writer.write(row);
+		}
+		writer.close();
+		reader.close();
+		writeConnection.close();
+
+		assertEquals(3, writer.getNumberOfRowsWritten());
+		ResultSet resultSet = connection.createStatement().executeQuery("select count(*) from person where status='checked'");
+		resultSet.next();
+		assertEquals(3, resultSet.getInt(1));
+	}
+
+	@Test
+	void testEngineRun() throws Exception
+	{
+		Connection writeConnection = DriverManager.getConnection(URL, "sa", "");
+		JdbcReader reader = new JdbcReader(connection, "select id, status from person");
+		JdbcWriter writer = new JdbcWriter(writeConnection, "person", new String[] {"ID"}, new String[] {"STATUS"});
+
+		BusinessRulesEngine engine = new BusinessRulesEngine(new File[0]);
+		engine.run(reader, writer);
+		writer.close();
+		reader.close();
+		writeConnection.close();
+
+		assertEquals(5, reader.getNumberOfRecords());
+		// no actions, so no rows have been updated
+		assertEquals(0, writer.getNumberOfRowsWritten());
+	}
+}
@@ -0,0 +1,83 @@
+package com.datamelt.rules.core.action;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.ActionObject;
+import com.datamelt.rules.core.Parameter;
+import com.datamelt.rules.core.XmlAction;
+import com.datamelt.util.HeaderRow;
+import com.datamelt.util.RowFieldCollection;
+
+class ActionTest
+{
+	HeaderRow header;
+	ArrayList<XmlAction> actions;
+
+	@BeforeEach
+	void init()
+	{
+		header = new HeaderRow(new String[] {"name", "city"});
+
+		ActionObject getter = new ActionObject(RowFieldCollection.class.getName(), RowFieldCollection.METHOD_GET_FIELD_VALUE);
+		getter.addParameter(new Parameter("string", "city", false));
+		getter.setReturnType("string");
+
+		ActionObject setter = new ActionObject(RowFieldCollection.class.getName(), RowFieldCollection.METHOD_SET_FIELD_VALUE);
+		setter.addParameter(new Parameter("string", "name", false));
+		setter.addParameter(new Parameter("string", null, true));
+
+		XmlAction action = new XmlAction("action1", "copy the city to the name");
+		action.setClassName(StringAction.class.getName());
+		action.setMethodName("setValue");
+		action.setExecuteIf(XmlAction.TYPE_ALWAYS);
+		action.addActionGetterObject(getter);
+		action.setActionSetterObject(setter);
+
+		actions = new ArrayList<XmlAction>();
+		actions.add(action);
+	}
+
+	@Test
+	void testExecuteActions() throws Exception
+	{
+		for(String city : new String[] {"paris", "rome"})
+		{
+			RowFieldCollection row = new RowFieldCollection(header, new Object[] {"peter", city});
+
+			int executed = new Action(0, row, false).executeActions(actions);
+
+			assertEquals(1, executed);
+			assertEquals(city, row.getFieldValue("name"));
+			assertTrue(row.isCollectionUpdated());
+		}
+	}
+	
+	@Test
+	void testExecuteActionsWithTypedField() throws Exception
+	{
+		// the action method expects a string, the field contains a number
+		RowFieldCollection row = new RowFieldCollection(header, new Object[] {"peter", 42});
+
+		int executed = new Action(0, row, false).executeActions(actions);
+
+		assertEquals(1, executed);
+		assertEquals("42", row.getFieldValue("name"));
+	}
+	
+	@Test
+	void testExecuteActionsWithTypedSetter() throws Exception
+	{
+		// the result of the action method is converted to the type of the setter parameter
+		actions.get(0).getActionSetterObject().getParameters().get(1).setType("integer");
+		RowFieldCollection row = new RowFieldCollection(header, new Object[] {"peter", "42"});
+
+		new Action(0, row, false).executeActions(actions);
+
+		assertEquals(Integer.valueOf(42), row.getFieldValue("name"));
+	}
+}
@@ -0,0 +1,86 @@
+package com.datamelt.rules.core.action;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DateActionTest
+{
+	DateAction action;
+	Calendar calendar;
+
+	@BeforeEach
+	void init()
+	{
+		action = new DateAction();
+		calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2018, Calendar.FEBRUARY, 14, 10, 30, 15);
+	}
+
+	@Test
+	void testSetValueFormat()
+	{
+		assertEquals("14.02.2018 10:30:15", action.setValue(null, "2018-02-14 10:30:15", "yyyy-MM-dd HH:mm:ss", "dd.MM.yyyy HH:mm:ss"));
+		assertEquals("2018-02-14", action.setValue(null, "14.2.2018", "dd.MM.yyyy", DateAction.DEFAULT_DATE_FORMAT));
+	}
+
+	@Test
+	void testSetValueParse()
+	{
+		Date date = action.setValue(null, "20180214103015", "yyyyMMddHHmmss");
+
+		assertEquals(calendar.getTime(), date);
+	}
+
+	@Test
+	void testSetValueInvalid()
+	{
+		assertNull(action.setValue(null, "christmas", "yyyy-MM-dd"));
+	}
+
+	@Test
+	void testDayOfMonth()
+	{
+		assertEquals("2018-02-28", action.setLastDayOfMonth(null, 2018, 2));
+		assertEquals("2016-02-29", action.setLastDayOfMonth(null, 2016, 2));
+		assertEquals("2018-02-01", action.setFirstDayOfMonth(null, 2018, 2));
+		assertEquals("2018-02-15", action.setMidDayOfMonth(null, 2018, 2));
+		assertEquals("2019-01-01", action.setFirstDayOfMonth(null, 2018, 13));
+
+		Calendar expected = (Calendar)calendar.clone();
+		expected.set(Calendar.DAY_OF_MONTH, 28);
+		assertEquals(expected.getTime(), action.setLastDayOfMonth(null, calendar.getTime()));
+	}
+
+	@Test
+	void testDateParts()
+	{
+		assertEquals(2018, action.setYear(null, calendar.getTime()));
+		assertEquals(Calendar.FEBRUARY, action.setMonth(null, calendar.getTime()));
+		assertEquals(Calendar.WEDNESDAY, action.setDayOfWeek(null, calendar.getTime()));
+		assertEquals(calendar.get(Calendar.WEEK_OF_YEAR), action.setWeek(null, calendar.getTime()));
+		assertEquals(1, action.setQuarter(null, calendar.getTime()));
+
+		calendar.set(Calendar.MONTH, Calendar.APRIL);
+		assertEquals(2, action.setQuarter(null, calendar.getTime()));
+
+		calendar.set(Calendar.MONTH, Calendar.DECEMBER);
+		assertEquals(4, action.setQuarter(null, calendar.getTime()));
+	}
+
+	@Test
+	void testAddSubtract()
+	{
+		Date date = calendar.getTime();
+
+		assertEquals(date.getTime() + 90 * 1000L, action.addSeconds(null, date, 90).getTime());
+		assertEquals(date.getTime() - 90 * 60000L, action.subtractMinutes(null, date, 90).getTime());
+		assertEquals(date.getTime() + 3 * 3600000L, action.addHours(null, date, 3).getTime());
+		assertEquals(date.getTime() - 2 * 86400000L, action.subtractDays(null, date, 2).getTime());
+	}
+}
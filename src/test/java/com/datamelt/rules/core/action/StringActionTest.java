@@ -0,0 +1,65 @@
+package com.datamelt.rules.core.action;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StringActionTest
+{
+	StringAction action;
+
+	private static String key = "secret";
+
+	@BeforeEach
+	void init()
+	{
+		action = new StringAction();
+	}
+
+	@Test
+	void testEncryptValue()
+	{
+		// same result as produced by previous versions
+		assertEquals("B463C741BE4F38991DF9F1C8CDA0E313", action.encryptValue(null, "Hello World", key));
+		assertEquals("B463C741BE4F38991DF9F1C8CDA0E313", action.encryptValue(null, "Hello World", key));
+	}
+
+	@Test
+	void testDecryptValue()
+	{
+		assertEquals("Hello World", action.decryptValue(null, "B463C741BE4F38991DF9F1C8CDA0E313", key));
+		assertEquals("Hello World", action.decryptValue(null, "b463c741be4f38991df9f1c8cda0e313", key));
+	}
+
+	@Test
+	void testDecryptValueInvalid()
+	{
+		assertEquals("B463C741", action.decryptValue(null, "B463C741", key));
+		assertEquals("christmas", action.decryptValue(null, "christmas", key));
+		assertEquals("Hello World", action.decryptValue(null, "B463C741BE4F38991DF9F1C8CDA0E313", key));
+	}
+
+	@Test
+	void testEncryptValueBase64()
+	{
+		String value = "Hello World äö";
+
+		String encrypted = action.encryptValueBase64(null, value, key);
+
+		assertNotEquals(value, encrypted);
+		assertEquals(value, action.decryptValueBase64(null, encrypted, key));
+	}
+
+	@Test
+	void testEncryptValueManyKeys()
+	{
+		// the ciphers of the keys used least recently are removed and initialized again when needed
+		for(int i=0;i<100;i++)
+		{
+			String encrypted = action.encryptValue(null, "Hello World", key + i);
+			assertEquals("Hello World", action.decryptValue(null, encrypted, key + i));
+		}
+		assertEquals("B463C741BE4F38991DF9F1C8CDA0E313", action.encryptValue(null, "Hello World", key));
+	}
+}
@@ -0,0 +1,98 @@
+package com.datamelt.rules.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MappingCollectionTest 
+{
+	File file;
+	
+	@BeforeEach
+	void init() throws IOException
+	{
+		file = File.createTempFile("mapping", ".properties");
+		write("# comment\nDE=Germany\nFR = France\nIT:Italy\nUK=United \\\n  Kingdom\n");
+	}
+	
+	@Test
+	void testGetValue() throws Exception
+	{
+		MappingCollection collection = new MappingCollection();
+		
+		assertEquals("Germany", collection.getValue(file.getPath(), "DE"));
+		assertEquals("France", collection.getValue(file.getPath(), "FR"));
+		assertEquals("Italy", collection.getValue(file.getPath(), "IT"));
+		assertEquals("United Kingdom", collection.getValue(file.getPath(), "UK"));
+		assertNull(collection.getValue(file.getPath(), "ES"));
+		assertNull(collection.getValue(file.getPath(), null));
+	}
+	
+	@Test
+	void testReload() throws Exception
+	{
+		MappingCollection collection = new MappingCollection();
+		collection.setReloadCheckInterval(0);
+		
+		assertEquals("Germany", collection.getValue(file.getPath(), "DE"));
+		
+		write("DE=Deutschland\nES=Spain\n");
+		
+		assertEquals("Deutschland", collection.getValue(file.getPath(), "DE"));
+		assertEquals("Spain", collection.getValue(file.getPath(), "ES"));
+		assertNull(collection.getValue(file.getPath(), "FR"));
+	}
+	
+	@Test
+	void testReloadDisabled() throws Exception
+	{
+		MappingCollection collection = new MappingCollection();
+		collection.setReloadCheckInterval(-1);
+		
+		assertEquals("Germany", collection.getValue(file.getPath(), "DE"));
+		
+		write("DE=Deutschland\n");
+		
+		assertEquals("Germany", collection.getValue(file.getPath(), "DE"));
+	}
+	
+	@Test
+	void testStringTable()
+	{
+		StringTable table = new StringTable();
+		for(int i=0;i<100000;i++)
+		{
+			table.put("key" + i, "value" + (i % 10));
+		}
+		table.put("key5", "replaced");
+		table.trim();
+		
+		assertEquals(100000, table.size());
+		assertEquals("value7", table.get("key99997"));
+		assertEquals("replaced", table.get("key5"));
+		assertNull(table.get("key100000"));
+	}
+	
+	@AfterEach
+	void tearDown()
+	{
+		file.delete();
+	}
+	
+	private void write(String content) throws IOException
+	{
+		long lastModified = file.lastModified();
+		try(FileWriter writer = new FileWriter(file))
+		{
+			writer.write(content);
+		}
+		// make sure the change is detected on file systems with a coarse timestamp
+		file.setLastModified(lastModified + 2000);
+	}
+}
@@ -2,6 +2,7 @@ package com.datamelt.rules.implementation;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDateTime;
 import java.util.Calendar;
 
 import org.junit.jupiter.api.AfterAll;
@@ -65,6 +66,42 @@ class CheckDateTimeIsBetweenTest
 		assertFalse(result);
 	}
 	
+	@Test
+	void testIsDateTimeIsBetweenMinutesOfUpperLimit() 
+	{
+		calendar.set(Calendar.HOUR_OF_DAY,14);
+		calendar.set(Calendar.MINUTE,20);
+		calendar.set(Calendar.SECOND,0);
+		
+		String dateRange = startTime + ",14:30:00";
+		
+		boolean result = CheckDateTimeIsBetween.evaluate(calendar.getTime(), dateRange);
+		
+		assertTrue(result);
+	}
+	
+	@Test
+	void testIsDateTimeIsBetweenEpochMillis() 
+	{
+		calendar.set(Calendar.HOUR_OF_DAY,14);
+		calendar.set(Calendar.MINUTE,0);
+		calendar.set(Calendar.SECOND,0);
+		
+		String dateRange = startTime + "," + endTime;
+		
+		assertTrue(CheckDateTimeIsBetween.evaluate(calendar.getTimeInMillis(), dateRange));
+		assertFalse(CheckDateTimeIsBetween.evaluate(calendar.getTimeInMillis() + 1000, dateRange));
+	}
+	
+	@Test
+	void testIsDateTimeIsBetweenLocalDateTime() 
+	{
+		String dateRange = startTime + "," + endTime;
+		
+		assertTrue(CheckDateTimeIsBetween.evaluate(LocalDateTime.of(2018, 3, 25, 8, 0, 0), dateRange));
+		assertFalse(CheckDateTimeIsBetween.evaluate(LocalDateTime.of(2018, 3, 25, 7, 59, 59), dateRange));
+	}
+	
 	@AfterEach
 	void tearDown() 
 	{
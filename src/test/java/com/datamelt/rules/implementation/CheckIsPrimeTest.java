@@ -0,0 +1,73 @@
+package com.datamelt.rules.implementation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.util.PrimeSieve;
+
+class CheckIsPrimeTest
+{
+
+	@Test
+	void testIsPrimeValid()
+	{
+		int[] values = {2, 3, 5, 7, 11, 13, 97, 7919, 104729};
+
+		for(int value : values)
+		{
+			assertTrue(CheckIsPrime.evaluate(value), "value: " + value);
+			assertFalse(CheckIsNotPrime.evaluate(value), "value: " + value);
+		}
+	}
+
+	@Test
+	void testIsPrimeInvalid()
+	{
+		int[] values = {-7, -1, 0, 1, 4, 9, 15, 561, 7917, 104727};
+
+		for(int value : values)
+		{
+			assertFalse(CheckIsPrime.evaluate(value), "value: " + value);
+			assertTrue(CheckIsNotPrime.evaluate(value), "value: " + value);
+		}
+	}
+
+	@Test
+	void testIsPrimeMatchesTrialDivision()
+	{
+		for(int value=0;value<20000;value++)
+		{
+			boolean expected = value>=2;
+			for(int i=2;i*i<=value && expected;i++)
+			{
+				if(value % i==0)
+				{
+					expected = false;
+				}
+			}
+			assertEquals(expected, CheckIsPrime.evaluate(value), "value: " + value);
+		}
+	}
+
+	@Test
+	void testIsPrimeAboveSieveLimit()
+	{
+		assertTrue(CheckIsPrime.evaluate(Integer.MAX_VALUE));
+		assertFalse(CheckIsPrime.evaluate(Integer.MAX_VALUE - 2));
+		assertTrue(CheckIsPrime.evaluate(PrimeSieve.getSieveLimit() + 35L));
+		assertFalse(CheckIsPrime.evaluate(PrimeSieve.getSieveLimit() + 33L));
+	}
+
+	@Test
+	void testIsPrimeLong()
+	{
+		// 2^61 - 1 is a mersenne prime
+		assertTrue(CheckIsPrime.evaluate(2305843009213693951L));
+		// largest prime below 2^63
+		assertTrue(CheckIsPrime.evaluate(9223372036854775783L));
+		// product of two primes close to the square root of the largest long
+		assertFalse(CheckIsPrime.evaluate(3037000493L * 3037000453L));
+		assertTrue(CheckIsNotPrime.evaluate(9223372036854775807L));
+	}
+}
@@ -0,0 +1,113 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.RowFieldCollection;
+
+class AsyncRuleEngineClientTest
+{
+	private RuleEngineServer startServer() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+		return server;
+	}
+
+	@Test
+	void testConcurrentRows() throws Exception
+	{
+		RuleEngineServer server = startServer();
+		AsyncRuleEngineClient client = new AsyncRuleEngineClient(new String[] {"127.0.0.1:" + server.getLocalPort()}, 2, 50);
+		assertEquals(2, client.getNumberOfConnections());
+
+		// several threads share the client, the number of pending rows is limited
+		final List<CompletableFuture<RuleEngineServerObject>> futures = new ArrayList<CompletableFuture<RuleEngineServerObject>>();
+		Thread[] threads = new Thread[4];
+		for(int i=0;i<threads.length;i++)
+		{
+			threads[i] = new Thread(() ->
+			{
+				try
+				{
+					for(int j=0;j<500;j++)
+					{
+						CompletableFuture<RuleEngineServerObject> future = client.evaluate(new RowFieldCollection(new String[] {"name"}, new Object[] {j % 5==0 ? "" : "peter"}));
+						assertTrue(client.getNumberOfPendingRows()<=50);
+						synchronized(futures)
+						{
+							futures.add(future);
+						}
+					}
+				}
+				catch(InterruptedException ex)
+				{
+					fail(ex);
+				}
+			});
+			threads[i].start();
+		}
+		for(Thread thread : threads)
+		{
+			thread.join();
+		}
+		int groupsFailed = 0;
+		for(CompletableFuture<RuleEngineServerObject> future : futures)
+		{
+			groupsFailed += future.get().getGroupsFailed();
+		}
+		assertEquals(400, groupsFailed);
+		assertEquals(0, client.getNumberOfPendingRows());
+
+		// rows with different fields are sent in separate batches
+		ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>();
+		rows.add(new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		rows.add(new RowFieldCollection(new String[] {"age", "name"}, new Object[] {42, "paul"}));
+		rows.add(new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		List<RuleEngineServerObject> results = client.evaluate(rows).get();
+		assertEquals(3, results.size());
+		for(int i=0;i<3;i++)
+		{
+			assertSame(rows.get(i), results.get(i).getFields());
+			assertEquals(i==1 ? 0 : 1, results.get(i).getGroupsFailed());
+		}
+
+		assertEquals("hello client", client.sendMessage("hello").get());
+		assertEquals(1, client.getServerObject(new RowFieldCollection(new String[] {"name"}, new Object[] {""})).getGroupsFailed());
+		client.close();
+		assertThrows(IllegalStateException.class, () -> client.sendMessage("hello"));
+		server.shutdown();
+	}
+
+	@Test
+	void testReconnect() throws Exception
+	{
+		RuleEngineServer server = startServer();
+		AsyncRuleEngineClient client = new AsyncRuleEngineClient("127.0.0.1", server.getLocalPort(), 1);
+
+		// the server closes the connection after the exit message
+		assertEquals("exit", client.sendMessage("exit").get());
+		Thread.sleep(500);
+
+		// the connection is established again for the next row
+		assertEquals(0, client.getServerObject(new RowFieldCollection(new String[] {"name"}, new Object[] {"peter"})).getGroupsFailed());
+		client.close();
+		server.shutdown();
+
+		assertThrows(IOException.class, () -> new AsyncRuleEngineClient("127.0.0.1", server.getLocalPort(), 1));
+	}
+}
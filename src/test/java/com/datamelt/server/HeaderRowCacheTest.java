@@ -0,0 +1,29 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.HeaderRow;
+
+class HeaderRowCacheTest
+{
+	@Test
+	void testGetHeader() throws Exception
+	{
+		HeaderRowCache cache = new HeaderRowCache(2);
+		String[] fieldNames = new String[] {"name", "city"};
+		HeaderRow header = cache.getHeader(fieldNames);
+		assertEquals(1, header.getFieldIndex("city"));
+		assertSame(header, cache.getHeader(new String[] {"name", "city"}));
+		// the header row is not interned
+		assertNotSame(HeaderRow.intern(fieldNames), header);
+
+		// when the cache is full, a new header row is created each time
+		cache.getHeader(new String[] {"name"});
+		HeaderRow other = cache.getHeader(new String[] {"age"});
+		assertEquals(2, cache.size());
+		assertNotSame(other, cache.getHeader(new String[] {"age"}));
+		assertSame(header, cache.getHeader(fieldNames));
+	}
+}
@@ -0,0 +1,69 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LoadLimiterTest
+{
+	@Test
+	void testRates() throws Exception
+	{
+		LoadLimiter limiter = new LoadLimiter(0, 0);
+		limiter.setClientRate(10, 5);
+		for(int i=0;i<5;i++)
+		{
+			assertEquals(0, limiter.acquire("client", "rules.zip", 1));
+			limiter.release();
+		}
+		// the bucket is refilled with one row every 100 milliseconds
+		long retryAfter = limiter.acquire("client", "rules.zip", 1);
+		assertTrue(retryAfter>0 && retryAfter<=100, "retry after: " + retryAfter);
+		assertEquals(0, limiter.acquire("other", "rules.zip", 1));
+		limiter.release();
+		assertEquals(1, limiter.getNumberOfRejectedRows());
+
+		// the tokens of the client are given back, when the project rejects the rows
+		limiter.setProjectRate(10, 5);
+		assertEquals(0, limiter.acquire("third", "rules.zip", 3));
+		limiter.release();
+		assertTrue(limiter.acquire("third", "rules.zip", 3)>0);
+		assertEquals(0, limiter.acquire("third", "other.zip", 2));
+		limiter.release();
+
+		// a batch larger than the burst is accepted, when the bucket is full
+		assertEquals(0, limiter.acquire("fourth", "large.zip", 20));
+		limiter.release();
+		assertTrue(limiter.acquire("fourth", "other.zip", 1)>1000);
+	}
+
+	@Test
+	void testConcurrentAndQueueTime() throws Exception
+	{
+		LoadLimiter limiter = new LoadLimiter(1, 50);
+		assertEquals(0, limiter.acquire("client", "rules.zip", 1));
+		assertEquals(1, limiter.getNumberOfConcurrent());
+
+		// the request waits for the maximum queue time and is then rejected
+		long start = System.currentTimeMillis();
+		assertEquals(50, limiter.acquire("other", "rules.zip", 10));
+		assertTrue(System.currentTimeMillis() - start>=45);
+		assertEquals(10, limiter.getNumberOfRejectedRows());
+
+		// a request waiting for less than the queue time gets the slot
+		new Thread(() ->
+		{
+			try
+			{
+				Thread.sleep(10);
+			}
+			catch(InterruptedException ex)
+			{
+			}
+			limiter.release();
+		}).start();
+		assertEquals(0, limiter.acquire("other", "rules.zip", 1));
+		limiter.release();
+		assertEquals(0, limiter.getNumberOfConcurrent());
+	}
+}
@@ -0,0 +1,236 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.JsonUtility;
+
+class RuleEngineHttpServerTest
+{
+	private HttpURLConnection post(RuleEngineHttpServer server, String path, String contentType, String body) throws Exception
+	{
+		HttpURLConnection connection = (HttpURLConnection)new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", contentType);
+		OutputStream output = connection.getOutputStream();
+		output.write(body.getBytes(StandardCharsets.UTF_8));
+		output.close();
+		return connection;
+	}
+
+	private String read(InputStream input) throws Exception
+	{
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		String line;
+		while((line = reader.readLine())!=null)
+		{
+			builder.append(line).append('\n');
+		}
+		reader.close();
+		return builder.toString();
+	}
+
+	@Test
+	void testEvaluate() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		TestRuleProjects.createProject(folder, "other.zip", TestRuleProjects.RULES.replace("group_name", "group_other"));
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, 2);
+		server.start();
+
+		// a single row
+		HttpURLConnection connection = post(server, "/evaluate", "application/json", "{\"name\": \"\", \"age\": 42}");
+		assertEquals(200, connection.getResponseCode());
+		Map<String,Object> result = JsonUtility.parseObject(read(connection.getInputStream()));
+		assertEquals(1, result.get("projectversion"));
+		assertEquals(1, result.get("groups"));
+		assertEquals(1, result.get("groupsfailed"));
+		assertEquals(Arrays.asList("group_name"), result.get("failedgroups"));
+		assertFalse(result.containsKey("row"));
+
+		// an array of rows using another project
+		connection = post(server, "/evaluate?project=other", "application/json", "[{\"name\": \"peter\"}, {\"name\": \"\"}]");
+		List<?> results = (List<?>)JsonUtility.parse(read(connection.getInputStream()));
+		assertEquals(0, ((Map<?,?>)results.get(0)).get("groupsfailed"));
+		assertEquals(Arrays.asList("group_other"), ((Map<?,?>)results.get(1)).get("failedgroups"));
+
+		// NDJSON: one result per line, an invalid line does not stop the others
+		StringBuilder lines = new StringBuilder();
+		for(int i=0;i<1000;i++)
+		{
+			lines.append(i==500 ? "{invalid" : "{\"name\": \"" + (i % 2==0 ? "" : "paul") + "\"}").append('\n');
+		}
+		connection = post(server, "/evaluate", "application/x-ndjson", lines.toString());
+		assertEquals("application/x-ndjson", connection.getContentType());
+		String[] resultLines = read(connection.getInputStream()).split("\n");
+		assertEquals(1000, resultLines.length);
+		int groupsFailed = 0;
+		for(int i=0;i<resultLines.length;i++)
+		{
+			Map<String,Object> lineResult = JsonUtility.parseObject(resultLines[i]);
+			assertEquals(i + 1, lineResult.get("row"));
+			if(i==500)
+			{
+				assertTrue(lineResult.containsKey("error"));
+			}
+			else
+			{
+				groupsFailed += (Integer)lineResult.get("groupsfailed");
+			}
+		}
+		assertEquals(499, groupsFailed);
+
+		// errors
+		assertEquals(400, post(server, "/evaluate", "application/json", "{\"name\": ").getResponseCode());
+		assertEquals(404, post(server, "/evaluate?project=missing", "application/json", "{}").getResponseCode());
+		HttpURLConnection get = (HttpURLConnection)new URL("http://127.0.0.1:" + server.getPort() + "/evaluate").openConnection();
+		assertEquals(405, get.getResponseCode());
+
+		HttpURLConnection status = (HttpURLConnection)new URL("http://127.0.0.1:" + server.getPort() + "/status").openConnection();
+		Map<String,Object> statusResult = JsonUtility.parseObject(read(status.getInputStream()));
+		assertEquals("rules.zip", statusResult.get("rulefile"));
+		assertEquals(1002, statusResult.get("rowsprocessed"));
+		assertEquals(Arrays.asList("other.zip"), statusResult.get("loadedprojects"));
+
+		server.close();
+		projectCache.close();
+	}
+
+	@Test
+	void testSkippedGroups() throws Exception
+	{
+		// the second group is only run, when the first one failed
+		String dependentGroup = TestRuleProjects.RULES.substring(TestRuleProjects.RULES.indexOf("<group"), TestRuleProjects.RULES.indexOf("</ruleengine>"))
+				.replace("id=\"group_name\"", "id=\"group_dependent\" dependentgroupid=\"group_name\" dependentgroupexecuteif=\"failed\"");
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES.replace("</ruleengine>", dependentGroup + "</ruleengine>"));
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, 1);
+		server.start();
+
+		HttpURLConnection connection = post(server, "/evaluate", "application/json", "[{\"name\": \"\"}, {\"name\": \"peter\"}]");
+		List<?> results = (List<?>)JsonUtility.parse(read(connection.getInputStream()));
+		assertEquals(Arrays.asList("group_name", "group_dependent"), ((Map<?,?>)results.get(0)).get("failedgroups"));
+		// the skipped group is not reported as failed
+		assertEquals(0, ((Map<?,?>)results.get(1)).get("groupsfailed"));
+		assertEquals(Arrays.asList(), ((Map<?,?>)results.get(1)).get("failedgroups"));
+
+		server.close();
+		projectCache.close();
+	}
+
+	@Test
+	void testBusy() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, 2);
+		LoadLimiter limiter = new LoadLimiter(0, 0);
+		limiter.setClientRate(1, 2);
+		server.setLoadLimiter(limiter);
+		server.start();
+
+		assertEquals(200, post(server, "/evaluate", "application/json", "[{\"name\": \"\"}, {\"name\": \"paul\"}]").getResponseCode());
+		HttpURLConnection connection = post(server, "/evaluate", "application/json", "{\"name\": \"\"}");
+		assertEquals(503, connection.getResponseCode());
+		assertEquals("1", connection.getHeaderField("Retry-After"));
+		assertEquals("busy", JsonUtility.parseObject(read(connection.getErrorStream())).get("error"));
+
+		// each row of NDJSON is rejected separately
+		connection = post(server, "/evaluate", "application/x-ndjson", "{\"name\": \"\"}\n{\"name\": \"\"}\n");
+		assertEquals(200, connection.getResponseCode());
+		for(String line : read(connection.getInputStream()).split("\n"))
+		{
+			Map<String,Object> result = JsonUtility.parseObject(line);
+			assertEquals("busy", result.get("error"));
+			assertTrue((Integer)result.get("retryafter")>0);
+		}
+		assertEquals(2, server.getRowsProcessed());
+		server.close();
+		projectCache.close();
+	}
+
+	@Test
+	void testLimits() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, 2);
+		server.setMaximumBodySize(100);
+		server.start();
+
+		StringBuilder name = new StringBuilder();
+		for(int i=0;i<100;i++)
+		{
+			name.append('x');
+		}
+		assertEquals(200, post(server, "/evaluate", "application/json", "{\"name\": \"peter\"}").getResponseCode());
+		HttpURLConnection connection = post(server, "/evaluate", "application/json", "{\"name\": \"" + name + "\"}");
+		assertEquals(413, connection.getResponseCode());
+		assertTrue(JsonUtility.parseObject(read(connection.getErrorStream())).containsKey("error"));
+
+		// a line of NDJSON, which is too large, does not stop the others
+		connection = post(server, "/evaluate", "application/x-ndjson", "{\"name\": \"" + name + "\"}\r\n{\"name\": \"paul\"}\r\n");
+		String[] resultLines = read(connection.getInputStream()).split("\n");
+		assertEquals(2, resultLines.length);
+		assertTrue(JsonUtility.parseObject(resultLines[0]).containsKey("error"));
+		assertEquals(0, JsonUtility.parseObject(resultLines[1]).get("groupsfailed"));
+
+		// values which are nested too deeply
+		StringBuilder nested = new StringBuilder("{\"name\": ");
+		for(int i=0;i<JsonUtility.MAXIMUM_DEPTH;i++)
+		{
+			nested.append('[');
+		}
+		for(int i=0;i<JsonUtility.MAXIMUM_DEPTH;i++)
+		{
+			nested.append(']');
+		}
+		nested.append('}');
+		server.setMaximumBodySize(RuleEngineHttpServer.DEFAULT_MAXIMUM_BODY_SIZE);
+		assertEquals(400, post(server, "/evaluate", "application/json", nested.toString()).getResponseCode());
+		server.close();
+		projectCache.close();
+	}
+
+	@Test
+	void testLoadGenerator() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		RuleProjectCache projectCache = new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+		RuleEngineHttpServer server = new RuleEngineHttpServer(projectCache, 0, 2);
+		server.start();
+
+		ArrayList<String> rows = new ArrayList<String>();
+		rows.add("{\"name\": \"peter\"}");
+		rows.add("{\"name\": \"\"}");
+		RuleEngineHttpLoadGenerator generator = new RuleEngineHttpLoadGenerator(new URL("http://127.0.0.1:" + server.getPort() + "/evaluate"), rows, 10);
+		long now = System.currentTimeMillis();
+		long[] latencies = generator.run(now, now + 300, 0);
+		assertTrue(latencies.length>0);
+		assertEquals(latencies.length * 10, server.getRowsProcessed());
+		server.close();
+		projectCache.close();
+	}
+}
@@ -0,0 +1,257 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.util.RowFieldCollection;
+
+class RuleEngineServerTest
+{
+	@Test
+	void testConnectionLimitAndIdleTimeout() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		properties.setProperty("rulefile.folder", TestRuleProjects.getFolderName(folder));
+		properties.setProperty("server.threads.maximum", "1");
+		properties.setProperty("server.connections.queue", "0");
+		properties.setProperty("server.connections.idletimeout", "500");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		RuleEngineServerObject result = client.getServerObject(new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		assertEquals(1, result.getGroupsFailed());
+		assertEquals(1, result.getProjectVersion());
+
+		// the only thread is busy, so the second connection is closed by the server
+		assertThrows(IOException.class, () -> new RuleEngineClient("127.0.0.1", server.getLocalPort()));
+
+		// the first connection is closed after the idle timeout, then the thread is available again
+		Thread.sleep(1000);
+		RuleEngineClient secondClient = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		result = secondClient.getServerObject(new RowFieldCollection(new String[] {"name"}, new Object[] {"peter"}));
+		assertEquals(0, result.getGroupsFailed());
+		secondClient.closeSocket();
+		client.closeSocket();
+		server.shutdown();
+	}
+
+	@Test
+	void testProtocols() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		properties.setProperty("server.serialization.enabled", "true");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		for(int i=0;i<3;i++)
+		{
+			RowFieldCollection row = new RowFieldCollection(new String[] {"name", "age"}, new Object[] {i==1 ? "" : "peter", 42 + i});
+			RuleEngineServerObject result = client.getServerObject(row);
+			assertSame(row, result.getFields());
+			assertEquals(1, result.getTotalGroups());
+			assertEquals(i==1 ? 1 : 0, result.getGroupsFailed());
+			assertArrayEquals(i==1 ? new String[] {"group_name"} : new String[0], result.getFailedGroupIds());
+			assertNotNull(result.getProcessId());
+		}
+		assertEquals("3", client.getServerObject("rowsprocessed"));
+		assertEquals("1", client.getServerObject("projectversion"));
+		assertEquals("exit", client.getServerObject("exit"));
+		client.closeSocket();
+
+		// older clients use java object serialization
+		RuleEngineClient objectClient = new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_SERIALIZATION);
+		RuleEngineServerObject result = objectClient.getServerObject(new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		assertEquals(1, result.getGroupsFailed());
+		assertEquals("hello client", objectClient.getServerObject("hello"));
+		objectClient.closeSocket();
+		server.shutdown();
+	}
+
+	@Test
+	void testPipeliningAndBatches() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		client.setMaximumPendingRows(100);
+		String[] fieldNames = new String[] {"name"};
+		for(int i=0;i<2500;i++)
+		{
+			client.sendRow(new RowFieldCollection(fieldNames, new Object[] {i % 10==0 ? "" : "peter"}));
+		}
+		// the results of the rows sent before a message are kept
+		assertEquals("hello client", client.getServerObject("hello"));
+		assertEquals(2500, client.getNumberOfPendingRows());
+		int groupsFailed = 0;
+		for(int i=0;i<2500;i++)
+		{
+			groupsFailed += client.receiveResult().getGroupsFailed();
+		}
+		assertEquals(250, groupsFailed);
+		assertEquals(0, client.getNumberOfPendingRows());
+
+		// rows with different fields are sent in separate batches
+		ArrayList<RowFieldCollection> rows = new ArrayList<RowFieldCollection>();
+		rows.add(new RowFieldCollection(fieldNames, new Object[] {""}));
+		rows.add(new RowFieldCollection(fieldNames, new Object[] {"paul"}));
+		rows.add(new RowFieldCollection(new String[] {"age", "name"}, new Object[] {42, ""}));
+		rows.add(new RowFieldCollection(fieldNames, new Object[] {"mary"}));
+		List<RuleEngineServerObject> results = client.getServerObjects(rows);
+		assertEquals(4, results.size());
+		for(int i=0;i<4;i++)
+		{
+			assertSame(rows.get(i), results.get(i).getFields());
+			assertEquals(i % 2==0 ? 1 : 0, results.get(i).getGroupsFailed());
+		}
+		assertEquals("2504", client.getServerObject("rowsprocessed"));
+		client.closeSocket();
+		server.shutdown();
+	}
+
+	@Test
+	void testProjects() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		TestRuleProjects.createProject(folder, "other.zip", TestRuleProjects.RULES.replace("group_name", "group_other"));
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		properties.setProperty("server.serialization.enabled", "true");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		RowFieldCollection row = new RowFieldCollection(new String[] {"name"}, new Object[] {""});
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_BINARY, "other");
+		assertArrayEquals(new String[] {"group_other"}, client.getServerObject(row).getFailedGroupIds());
+		assertEquals("other.zip", client.getServerObject("project"));
+
+		// the project can be changed on the connection
+		assertEquals("rules.zip", client.getServerObject("project rules"));
+		assertArrayEquals(new String[] {"group_name"}, client.getServerObject(row).getFailedGroupIds());
+		assertEquals("unknown rule project: [missing]", client.getServerObject("project missing"));
+		assertEquals("rules.zip", client.getServerObject("project"));
+		client.closeSocket();
+
+		assertThrows(IOException.class, () -> new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_BINARY, "missing"));
+
+		RuleEngineClient objectClient = new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_SERIALIZATION, "other");
+		assertEquals("other.zip", objectClient.getServerObject("project"));
+		assertEquals(1, objectClient.getServerObject(row).getGroupsFailed());
+		objectClient.closeSocket();
+		server.shutdown();
+	}
+
+	@Test
+	void testLoadLimits() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		properties.setProperty("server.limit.client.rate", "500");
+		properties.setProperty("server.limit.client.burst", "20");
+		properties.setProperty("server.serialization.enabled", "true");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		// the rows exceeding the limit are rejected and sent again by the client, the results keep their order
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		String[] fieldNames = new String[] {"name"};
+		for(int i=0;i<200;i++)
+		{
+			client.sendRow(new RowFieldCollection(fieldNames, new Object[] {i % 10==0 ? "" : "peter"}));
+		}
+		for(int i=0;i<200;i++)
+		{
+			assertEquals(i % 10==0 ? 1 : 0, client.receiveResult().getGroupsFailed());
+		}
+		assertTrue(server.getLoadLimiter().getNumberOfRejectedRows()>0);
+		assertEquals("200", client.getServerObject("rowsprocessed"));
+
+		// the rows held back by the asynchronous client are sent together with the rejected ones
+		AsyncRuleEngineClient asyncClient = new AsyncRuleEngineClient("127.0.0.1", server.getLocalPort(), 2);
+		ArrayList<CompletableFuture<RuleEngineServerObject>> futures = new ArrayList<CompletableFuture<RuleEngineServerObject>>();
+		for(int i=0;i<200;i++)
+		{
+			futures.add(asyncClient.evaluate(new RowFieldCollection(fieldNames, new Object[] {i % 10==0 ? "" : "peter"})));
+		}
+		for(int i=0;i<200;i++)
+		{
+			assertEquals(i % 10==0 ? 1 : 0, futures.get(i).get().getGroupsFailed());
+		}
+		asyncClient.close();
+
+		RuleEngineClient objectClient = new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_SERIALIZATION);
+		for(int i=0;i<50;i++)
+		{
+			assertEquals(1, objectClient.getServerObject(new RowFieldCollection(fieldNames, new Object[] {""})).getGroupsFailed());
+		}
+		objectClient.closeSocket();
+
+		// without retries the client fails
+		client.setMaximumRetries(0);
+		for(int i=0;i<100;i++)
+		{
+			client.sendRow(new RowFieldCollection(fieldNames, new Object[] {"paul"}));
+		}
+		assertThrows(IOException.class, () ->
+		{
+			for(int i=0;i<100;i++)
+			{
+				client.receiveResult();
+			}
+		});
+		server.shutdown();
+	}
+
+	@Test
+	void testSerializationDisabled() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		Properties properties = new Properties();
+		properties.setProperty("server.port", "0");
+		properties.setProperty("server.serialization.enabled", "false");
+		RuleEngineServer server = new RuleEngineServer(properties);
+		server.setRuleProjectManager(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false));
+		server.start();
+
+		assertThrows(IOException.class, () -> new RuleEngineClient("127.0.0.1", server.getLocalPort(), RuleEngineClient.PROTOCOL_SERIALIZATION));
+		RuleEngineClient client = new RuleEngineClient("127.0.0.1", server.getLocalPort());
+		assertEquals("hello client", client.getServerObject("hello"));
+		client.closeSocket();
+		server.shutdown();
+	}
+}
@@ -0,0 +1,142 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RuleProjectCacheTest
+{
+	private RuleProjectCache createCache(File folder) throws Exception
+	{
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		for(String name : new String[] {"first", "second", "third"})
+		{
+			TestRuleProjects.createProject(folder, name + ".zip", TestRuleProjects.RULES.replace("group_name", "group_" + name));
+		}
+		return new RuleProjectCache(new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false), false);
+	}
+
+	@Test
+	void testLeastRecentlyUsed() throws Exception
+	{
+		RuleProjectCache cache = createCache(TestRuleProjects.createFolder());
+		cache.setMaximumProjects(2);
+		assertSame(cache.getDefaultProjectManager(), cache.getProjectManager(null));
+		assertSame(cache.getDefaultProjectManager(), cache.getProjectManager("rules"));
+		assertTrue(cache.getLoadedProjects().isEmpty());
+
+		// the projects are loaded when they are requested for the first time
+		RuleProjectManager first = cache.getProjectManager("first");
+		assertSame(first, cache.getProjectManager("first.zip"));
+		Thread.sleep(10);
+		RuleProjectManager second = cache.getProjectManager("second");
+		Thread.sleep(10);
+		first.getRuleProject();
+		Thread.sleep(10);
+
+		// the second project has been used least recently
+		RuleProjectManager third = cache.getProjectManager("third");
+		assertTrue(second.isClosed());
+		assertFalse(first.isClosed());
+		List<String> loadedProjects = cache.getLoadedProjects();
+		Collections.sort(loadedProjects);
+		assertEquals(Arrays.asList("first.zip", "third.zip"), loadedProjects);
+		assertEquals("third.zip", third.getRuleProject().getRuleFile());
+
+		// a project that has been unloaded is loaded again
+		RuleProjectManager secondAgain = cache.getProjectManager("second");
+		assertNotSame(second, secondAgain);
+		assertFalse(secondAgain.isClosed());
+		assertEquals(2, cache.getLoadedProjects().size());
+		cache.close();
+		assertTrue(cache.getDefaultProjectManager().isClosed());
+	}
+
+	@Test
+	void testConcurrentRequests() throws Exception
+	{
+		RuleProjectCache cache = createCache(TestRuleProjects.createFolder());
+		RuleProjectManager first = cache.getProjectManager("first");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		// a loaded project is returned without the lock of the cache
+		synchronized(cache)
+		{
+			assertSame(first, executor.submit(() -> cache.getProjectManager("first")).get(5, TimeUnit.SECONDS));
+		}
+
+		// clients requesting the same project at the same time get the same manager
+		List<Future<RuleProjectManager>> results = new ArrayList<Future<RuleProjectManager>>();
+		for(int i=0;i<8;i++)
+		{
+			results.add(executor.submit(() -> cache.getProjectManager("second")));
+		}
+		for(Future<RuleProjectManager> result : results)
+		{
+			assertSame(results.get(0).get(), result.get());
+		}
+		assertEquals(2, cache.getLoadedProjects().size());
+		executor.shutdown();
+		cache.close();
+	}
+
+	@Test
+	void testMaximumSizeAndIdleTimeout() throws Exception
+	{
+		RuleProjectCache cache = createCache(TestRuleProjects.createFolder());
+		RuleProjectManager first = cache.getProjectManager("first");
+		long size = first.getRuleProject().getEstimatedSize();
+		assertTrue(size>0);
+		assertEquals(size, cache.getEstimatedSize());
+
+		// only one project fits
+		cache.setMaximumSize(size + size / 2);
+		Thread.sleep(10);
+		cache.getProjectManager("second");
+		assertTrue(first.isClosed());
+		assertEquals(1, cache.getLoadedProjects().size());
+
+		cache.setIdleTimeout(100);
+		Thread.sleep(500);
+		assertTrue(cache.getLoadedProjects().isEmpty());
+		assertFalse(cache.getDefaultProjectManager().isClosed());
+		cache.close();
+	}
+
+	@Test
+	void testMaximumIdleEngines() throws Exception
+	{
+		RuleProjectCache cache = createCache(TestRuleProjects.createFolder());
+		RuleProjectManager first = cache.getProjectManager("first");
+		cache.setMaximumIdleEngines(200);
+		assertEquals(200, cache.getDefaultProjectManager().getRuleProject().getMaximumIdleEngines());
+		assertEquals(200, first.getRuleProject().getMaximumIdleEngines());
+
+		// the limit is kept for the projects loaded or reloaded afterwards
+		assertEquals(200, cache.getProjectManager("second").getRuleProject().getMaximumIdleEngines());
+		assertEquals(200, first.reload().get().getMaximumIdleEngines());
+		cache.close();
+	}
+
+	@Test
+	void testInvalidNames() throws Exception
+	{
+		RuleProjectCache cache = createCache(TestRuleProjects.createFolder());
+		assertThrows(Exception.class, () -> cache.getProjectManager("unknown"));
+		assertThrows(Exception.class, () -> cache.getProjectManager("../first"));
+		assertThrows(Exception.class, () -> cache.getProjectManager(".first"));
+		assertThrows(Exception.class, () -> cache.getProjectManager("folder" + File.separator + "first"));
+		assertTrue(cache.getLoadedProjects().isEmpty());
+		cache.close();
+	}
+}
@@ -0,0 +1,58 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleProjectManagerTest
+{
+	@Test
+	void testReload() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		RuleProjectManager manager = new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false);
+		RuleProject project = manager.getRuleProject();
+		assertEquals(1, project.getVersion());
+
+		// a row in flight keeps the engine of the old version
+		BusinessRulesEngine engine = project.acquireEngine();
+		RuleProject reloadedProject = manager.reload().get();
+		assertEquals(2, reloadedProject.getVersion());
+		assertSame(reloadedProject, manager.getRuleProject());
+		engine.run("row", new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		assertEquals(1, engine.getNumberOfGroupsFailed());
+		project.releaseEngine(engine);
+
+		// an invalid project does not replace the current version
+		TestRuleProjects.createProject(folder, "rules.zip", "<ruleengine><group");
+		assertThrows(ExecutionException.class, () -> manager.reload().get());
+		assertSame(reloadedProject, manager.getRuleProject());
+		manager.close();
+	}
+
+	@Test
+	void testWatchRuleFile() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		RuleProjectManager manager = new RuleProjectManager(TestRuleProjects.getFolderName(folder), "rules.zip", false);
+		manager.setWatchDelay(100);
+		manager.startWatching();
+
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+		long end = System.currentTimeMillis() + 10000;
+		while(manager.getRuleProject().getVersion()==1 && System.currentTimeMillis()<end)
+		{
+			Thread.sleep(50);
+		}
+		assertEquals(2, manager.getRuleProject().getVersion());
+		manager.close();
+	}
+}
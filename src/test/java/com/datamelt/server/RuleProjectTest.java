@@ -0,0 +1,44 @@
+package com.datamelt.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.util.RowFieldCollection;
+
+class RuleProjectTest
+{
+	@Test
+	void testSharedEngines() throws Exception
+	{
+		File folder = TestRuleProjects.createFolder();
+		TestRuleProjects.createProject(folder, "rules.zip", TestRuleProjects.RULES);
+
+		RuleProject project = new RuleProject(TestRuleProjects.getFolderName(folder), "rules.zip", false);
+		assertEquals(1, project.getNumberOfGroups());
+		assertEquals(1, project.getNumberOfRules());
+		assertEquals(1, project.getNumberOfEnginesCreated());
+
+		BusinessRulesEngine engine = project.acquireEngine();
+		engine.run("row", new RowFieldCollection(new String[] {"name"}, new Object[] {""}));
+		assertEquals(1, engine.getNumberOfGroupsFailed());
+		project.releaseEngine(engine);
+
+		// the released engine is reused and its results have been cleared
+		BusinessRulesEngine sameEngine = project.acquireEngine();
+		assertSame(engine, sameEngine);
+		assertEquals(0, sameEngine.getNumberOfGroupsFailed());
+
+		// a second engine is created while the first one is in use
+		BusinessRulesEngine secondEngine = project.acquireEngine();
+		assertNotSame(engine, secondEngine);
+		secondEngine.run("row", new RowFieldCollection(new String[] {"name"}, new Object[] {"peter"}));
+		assertEquals(0, secondEngine.getNumberOfGroupsFailed());
+		assertEquals(2, project.getNumberOfEnginesCreated());
+		project.releaseEngine(sameEngine);
+		project.releaseEngine(secondEngine);
+	}
+}
@@ -0,0 +1,50 @@
+package com.datamelt.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * creates rule project zip files for the tests of the server classes
+ */
+class TestRuleProjects
+{
+	// one group with one rule: the field "name" must not be empty
+	static final String RULES = "<ruleengine>"
+			+ "<group id=\"group_name\" description=\"check the name\" validfrom=\"2000-01-01\" validuntil=\"2999-12-31\">"
+			+ "<subgroup id=\"subgroup_name\" intergroupoperator=\"and\" ruleoperator=\"and\">"
+			+ "<rule id=\"rule_name\" description=\"name is not empty\">"
+			+ "<object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"name\" parametertype=\"string\" type=\"string\"/>"
+			+ "<execute value=\"com.datamelt.rules.implementation.CheckIsNotEmpty\"/>"
+			+ "</rule>"
+			+ "</subgroup>"
+			+ "</group>"
+			+ "</ruleengine>";
+
+	static File createFolder() throws Exception
+	{
+		File folder = Files.createTempDirectory("jare").toFile();
+		folder.deleteOnExit();
+		return folder;
+	}
+
+	static File createProject(File folder, String fileName, String rules) throws Exception
+	{
+		File file = new File(folder, fileName);
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+		output.putNextEntry(new ZipEntry("rules.xml"));
+		output.write(rules.getBytes(StandardCharsets.UTF_8));
+		output.closeEntry();
+		output.close();
+		file.deleteOnExit();
+		return file;
+	}
+
+	static String getFolderName(File folder)
+	{
+		return folder.getAbsolutePath() + File.separator;
+	}
+}
@@ -0,0 +1,110 @@
+package com.datamelt.server.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+class FrameStreamTest
+{
+	@Test
+	void testValues() throws Exception
+	{
+		Object[] values = {null, "", "grüße", 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, Long.MIN_VALUE, Long.MAX_VALUE,
+				-1.5d, Double.NaN, 2.25f, true, false, new BigDecimal("-12.3400"), new BigInteger("123456789012345678901234567890"),
+				new Date(-1000L), new Date(1500000000000L)};
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		FrameOutputStream output = new FrameOutputStream(bytes);
+		output.writeMagic();
+		output.begin(Protocol.FRAME_ROW);
+		for(Object value : values)
+		{
+			output.writeValue(value);
+		}
+		output.writeBits(new boolean[] {true, false, false, true, false, false, false, false, true});
+		output.end();
+		output.begin(Protocol.FRAME_MESSAGE);
+		output.writeString("uptime");
+		output.end();
+		// the frames are buffered until they are flushed
+		assertEquals(0, bytes.size());
+		output.flush();
+
+		FrameInputStream input = new FrameInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		input.readMagic();
+		assertEquals(Protocol.FRAME_ROW, input.readFrame());
+		for(Object value : values)
+		{
+			assertEquals(value, input.readValue());
+		}
+		assertArrayEquals(new boolean[] {true, false, false, true, false, false, false, false, true}, input.readBits());
+		assertFalse(input.hasRemaining());
+		assertEquals(Protocol.FRAME_MESSAGE, input.readFrame());
+		assertEquals("uptime", input.readString());
+		assertEquals(-1, input.readFrame());
+	}
+
+	@Test
+	void testShortValuesAreCompact() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		FrameOutputStream output = new FrameOutputStream(bytes);
+		output.begin(Protocol.FRAME_ROW);
+		output.writeValue(42);
+		output.writeValue(-3L);
+		output.writeValue(true);
+		output.end();
+		output.flush();
+		// length, type and three values with their type
+		assertEquals(4 + 1 + 2 + 2 + 1, bytes.size());
+	}
+
+	@Test
+	void testInvalidInput() throws Exception
+	{
+		FrameInputStream input = new FrameInputStream(new ByteArrayInputStream(new byte[] {(byte)0xAC, (byte)0xED, 0, 5}));
+		assertThrows(IOException.class, () -> input.readMagic());
+
+		FrameInputStream tooLarge = new FrameInputStream(new ByteArrayInputStream(new byte[] {0x7F, 0, 0, 0, 1}));
+		assertThrows(IOException.class, () -> tooLarge.readFrame());
+
+		assertThrows(IOException.class, () -> new FrameOutputStream(new ByteArrayOutputStream()).writeValue(new Object()));
+	}
+
+	@Test
+	void testInvalidLengths() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		FrameOutputStream output = new FrameOutputStream(bytes);
+		// a count larger than the remaining bytes of the frame
+		output.begin(Protocol.FRAME_HEADER);
+		output.writeVarInt(1000000);
+		output.writeString("name");
+		output.end();
+		// a negative length of a string
+		output.begin(Protocol.FRAME_MESSAGE);
+		output.writeVarInt(-1);
+		output.writeByte(0);
+		output.end();
+		// a negative number of bits
+		output.begin(Protocol.FRAME_ROW);
+		output.writeVarInt(-1);
+		output.end();
+		output.flush();
+
+		FrameInputStream input = new FrameInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(Protocol.FRAME_HEADER, input.readFrame());
+		assertThrows(IOException.class, () -> input.readCount());
+		assertEquals(Protocol.FRAME_MESSAGE, input.readFrame());
+		assertThrows(IOException.class, () -> input.readString());
+		assertEquals(Protocol.FRAME_ROW, input.readFrame());
+		assertThrows(IOException.class, () -> input.readBits());
+	}
+}
@@ -0,0 +1,239 @@
+package com.datamelt.server.transform;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.RuleGroup;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+import com.datamelt.server.RuleEngineServerObject;
+import com.datamelt.util.RowFieldCollection;
+
+class AsyncTransformerTest
+{
+	/**
+	 * keeps the names of the rows written. writing waits until the latch is released
+	 */
+	private static class TestTransformer extends Transformer
+	{
+		private final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+		private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+		private final CountDownLatch latch;
+		private volatile int flushes = 0;
+		private volatile boolean closed = false;
+
+		private TestTransformer(CountDownLatch latch) throws Exception
+		{
+			this.latch = latch;
+		}
+
+		public void init() throws Exception
+		{
+		}
+
+		public void write(RuleEngineServerObject serverObject, ArrayList<RuleGroup> groups) throws Exception
+		{
+			latch.await();
+			assertEquals(1, groups.size());
+			names.add((String)serverObject.getFields().getFieldValue("name") + "/" + groups.get(0).getId());
+			if(groups.get(0).getResults().size()>0)
+			{
+				results.add(groups.get(0).getFailed() + "/" + groups.get(0).getResults().get(0).getFailed() + "/" + serverObject.getRuleExecutionCollection().getFailedGroupsCount());
+			}
+		}
+
+		public void flush() throws Exception
+		{
+			flushes++;
+		}
+
+		public void close() throws Exception
+		{
+			closed = true;
+		}
+	}
+
+	private AsyncTransformer createTransformer(TestTransformer transformer, String policy, int queueSize) throws Exception
+	{
+		Properties properties = new Properties();
+		properties.setProperty("transformer.queue.policy", policy);
+		properties.setProperty("transformer.queue.size", "" + queueSize);
+		AsyncTransformer asyncTransformer = new AsyncTransformer(transformer);
+		asyncTransformer.setProperties(properties);
+		asyncTransformer.init();
+		return asyncTransformer;
+	}
+
+	private void writeRows(AsyncTransformer asyncTransformer, int numberOfRows) throws Exception
+	{
+		RowFieldCollection fields = new RowFieldCollection(new String[] {"name"}, new Object[] {""});
+		ArrayList<RuleGroup> groups = new ArrayList<RuleGroup>();
+		groups.add(new RuleGroup("", ""));
+		for(int i=0;i<numberOfRows;i++)
+		{
+			// the row and the groups are reused like by the rule engine
+			fields.setFieldValue("name", "row" + i);
+			groups.set(0, new RuleGroup("group" + i, ""));
+			asyncTransformer.write(new RuleEngineServerObject(fields, 0), groups);
+		}
+	}
+
+	@Test
+	void testBlock() throws Exception
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		TestTransformer transformer = new TestTransformer(latch);
+		AsyncTransformer asyncTransformer = createTransformer(transformer, AsyncTransformer.POLICY_BLOCK, 100);
+
+		Thread writer = new Thread(() ->
+		{
+			try
+			{
+				writeRows(asyncTransformer, 500);
+			}
+			catch(Exception ex)
+			{
+				fail(ex);
+			}
+		});
+		writer.start();
+		// the rows are not written yet, so the client waits when the queue is full
+		Thread.sleep(200);
+		assertTrue(writer.isAlive());
+		assertEquals(100, asyncTransformer.getNumberOfQueuedRows());
+
+		latch.countDown();
+		writer.join();
+		asyncTransformer.close();
+		assertTrue(transformer.closed);
+		assertEquals(500, transformer.names.size());
+		// the rows are copied, before they are queued
+		for(int i=0;i<500;i++)
+		{
+			assertEquals("row" + i + "/group" + i, transformer.names.get(i));
+		}
+		// the output is flushed once for the rows taken from the queue at once
+		assertTrue(transformer.flushes<500);
+	}
+
+	@Test
+	void testDrop() throws Exception
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		TestTransformer transformer = new TestTransformer(latch);
+		AsyncTransformer asyncTransformer = createTransformer(transformer, AsyncTransformer.POLICY_DROP, 10);
+
+		writeRows(asyncTransformer, 100);
+		latch.countDown();
+		asyncTransformer.close();
+		assertTrue(asyncTransformer.getNumberOfDroppedRows()>0);
+		assertEquals(100, transformer.names.size() + asyncTransformer.getNumberOfDroppedRows());
+	}
+
+	@Test
+	void testSpill() throws Exception
+	{
+		CountDownLatch latch = new CountDownLatch(1);
+		TestTransformer transformer = new TestTransformer(latch);
+		AsyncTransformer asyncTransformer = createTransformer(transformer, AsyncTransformer.POLICY_SPILL, 10);
+
+		writeRows(asyncTransformer, 100);
+		assertTrue(asyncTransformer.getNumberOfSpilledRows()>0);
+		latch.countDown();
+		asyncTransformer.close();
+		assertEquals(0, asyncTransformer.getNumberOfDroppedRows());
+		assertEquals(100, transformer.names.size());
+		assertTrue(transformer.names.contains("row99/group99"));
+		assertThrows(Exception.class, () -> writeRows(asyncTransformer, 1));
+	}
+
+	@Test
+	void testCloseWhileWriting() throws Exception
+	{
+		TestTransformer transformer = new TestTransformer(new CountDownLatch(0));
+		AsyncTransformer asyncTransformer = createTransformer(transformer, AsyncTransformer.POLICY_BLOCK, 10);
+
+		// the clients write rows until the transformer is closed
+		AtomicInteger acceptedRows = new AtomicInteger();
+		Thread[] clients = new Thread[4];
+		for(int i=0;i<clients.length;i++)
+		{
+			clients[i] = new Thread(() ->
+			{
+				try
+				{
+					while(true)
+					{
+						writeRows(asyncTransformer, 1);
+						acceptedRows.incrementAndGet();
+					}
+				}
+				catch(Exception ex)
+				{
+					// the transformer has been closed
+				}
+			});
+			clients[i].start();
+		}
+		Thread.sleep(100);
+		asyncTransformer.close();
+		for(Thread client : clients)
+		{
+			client.join();
+		}
+		// all rows accepted before the transformer has been closed are written
+		assertTrue(acceptedRows.get()>0);
+		assertEquals(acceptedRows.get(), transformer.names.size());
+	}
+
+	@Test
+	void testResultsAreCopied() throws Exception
+	{
+		String rules = "<ruleengine>"
+				+ "<group id=\"group_name\" description=\"check the name\" validfrom=\"2000-01-01\" validuntil=\"2999-12-31\">"
+				+ "<subgroup id=\"subgroup_name\" intergroupoperator=\"and\" ruleoperator=\"and\">"
+				+ "<rule id=\"rule_name\" description=\"name is not empty\">"
+				+ "<object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"name\" parametertype=\"string\" type=\"string\"/>"
+				+ "<execute value=\"com.datamelt.rules.implementation.CheckIsNotEmpty\"/>"
+				+ "</rule>"
+				+ "</subgroup>"
+				+ "</group>"
+				+ "</ruleengine>";
+		BusinessRulesEngine engine = new BusinessRulesEngine(new InputStream[] {new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8))});
+		CountDownLatch latch = new CountDownLatch(1);
+		TestTransformer transformer = new TestTransformer(latch);
+		AsyncTransformer asyncTransformer = createTransformer(transformer, AsyncTransformer.POLICY_BLOCK, 10);
+
+		// the rule fails for the first row and passes for the second one, before the rows are written
+		for(String name : new String[] {"", "peter"})
+		{
+			RowFieldCollection fields = new RowFieldCollection(new String[] {"name"}, new Object[] {name});
+			engine.run("row", fields);
+			RuleEngineServerObject serverObject = new RuleEngineServerObject(fields, 0);
+			serverObject.setRuleExecutionCollection(engine.getRuleExecutionCollection());
+			asyncTransformer.write(serverObject, engine.getGroups());
+			engine.getRuleExecutionCollection().clear();
+		}
+		latch.countDown();
+		asyncTransformer.close();
+		assertEquals(2, transformer.results.size());
+		assertEquals("1/1/1", transformer.results.get(0));
+		assertEquals("0/0/0", transformer.results.get(1));
+	}
+
+	@Test
+	void testInvalidPolicy() throws Exception
+	{
+		assertThrows(Exception.class, () -> createTransformer(new TestTransformer(new CountDownLatch(0)), "wait", 10));
+	}
+}
@@ -0,0 +1,109 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+class AvroFileReaderTest
+{
+	private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"person\",\"fields\":["
+			+ "{\"name\":\"name\",\"type\":\"string\"},"
+			+ "{\"name\":\"age\",\"type\":\"int\"},"
+			+ "{\"name\":\"amount\",\"type\":[\"null\",\"long\"]}]}";
+
+	@Test
+	void testReadRecords() throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		AvroFileReader reader = new AvroFileReader(new ByteArrayInputStream(getAvroData(schema)));
+		reader.setRecycleRows(true);
+
+		RowFieldCollection row = reader.getRowFieldCollection();
+		assertEquals("peter", row.getFieldValue("name"));
+		assertEquals(42, row.getFieldValue("age"));
+		assertEquals(1000L, row.getFieldValue("amount"));
+		assertSame(reader.getHeader(), row.getHeader());
+
+		RowFieldCollection next = reader.getRowFieldCollection();
+		assertSame(row, next);
+		assertEquals("paul", next.getFieldValue("name"));
+		assertNull(next.getFieldValue("amount"));
+
+		assertNull(reader.getRowFieldCollection());
+		assertEquals(2, reader.getNumberOfRecords());
+		reader.close();
+	}
+
+	@Test
+	void testWriteResults() throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		AvroFileReader reader = new AvroFileReader(new ByteArrayInputStream(getAvroData(schema)));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		AvroFileWriter writer = new AvroFileWriter(output, reader.getSchema());
+
+		BusinessRulesEngine engine = new BusinessRulesEngine(new File[0]);
+		engine.run(reader, writer);
+		writer.close();
+		reader.close();
+
+		assertEquals(2, writer.getNumberOfRecords());
+		DataFileStream<GenericRecord> stream = new DataFileStream<GenericRecord>(new ByteArrayInputStream(output.toByteArray()), new GenericDatumReader<GenericRecord>());
+		GenericRecord record = stream.next();
+		assertEquals("peter", record.get("name").toString());
+		assertEquals(42, record.get("age"));
+		assertEquals(0L, record.get(AvroFileWriter.FIELD_NUMBER_OF_GROUPS_FAILED));
+		assertEquals(0L, record.get(AvroFileWriter.FIELD_NUMBER_OF_RULES_FAILED));
+		assertEquals("paul", stream.next().get("name").toString());
+		assertFalse(stream.hasNext());
+		stream.close();
+	}
+
+	@Test
+	void testRowFieldCollectionFromRecord() throws Exception
+	{
+		Schema schema = new Schema.Parser().parse(SCHEMA);
+		GenericRecord record = new GenericData.Record(schema);
+		record.put("name", "mary");
+		record.put("age", 7);
+
+		RowFieldCollection row = new RowFieldCollection(record);
+		RowFieldCollection other = new RowFieldCollection(record);
+		assertEquals("mary", row.getFieldValue("name"));
+		assertEquals(7, row.getFieldValue(1));
+		assertSame(row.getHeader(), other.getHeader());
+	}
+
+	private static byte[] getAvroData(Schema schema) throws Exception
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DataFileWriter<GenericRecord> writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema));
+		writer.create(schema, output);
+
+		GenericRecord record = new GenericData.Record(schema);
+		record.put("name", "peter");
+		record.put("age", 42);
+		record.put("amount", 1000L);
+		writer.append(record);
+
+		record = new GenericData.Record(schema);
+		record.put("name", "paul");
+		record.put("age", 38);
+		writer.append(record);
+		writer.close();
+		return output.toByteArray();
+	}
+}
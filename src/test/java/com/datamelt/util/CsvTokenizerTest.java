@@ -0,0 +1,89 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTokenizerTest
+{
+	@Test
+	void testQuotedFields() throws Exception
+	{
+		String data = "a;\"b;c\";\"say \"\"hello\"\"\"\r\n"
+				+ "\"multi\nline\";;end\n";
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(data));
+
+		assertArrayEquals(new String[] {"a", "b;c", "say \"hello\""}, tokenizer.nextRecord());
+		assertArrayEquals(new String[] {"multi\nline", "", "end"}, tokenizer.nextRecord());
+		assertNull(tokenizer.nextRecord());
+		assertEquals(2, tokenizer.getRecordNumber());
+		assertEquals(3, tokenizer.getLineNumber());
+	}
+
+	@Test
+	void testEmptyAndCommentLines() throws Exception
+	{
+		String data = "# comment;x\n\n   \nx,y\r\"\"\n";
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(data), ',');
+		tokenizer.setCommentCharacter(CsvTokenizer.DEFAULT_COMMENT_CHARACTER);
+
+		assertArrayEquals(new String[] {"x", "y"}, tokenizer.nextRecord());
+		// a quoted empty field is not an empty line
+		assertArrayEquals(new String[] {""}, tokenizer.nextRecord());
+		assertNull(tokenizer.nextRecord());
+	}
+
+	@Test
+	void testLongRecords() throws Exception
+	{
+		StringBuilder value = new StringBuilder();
+		for(int i=0;i<40000;i++)
+		{
+			value.append((char)('a' + i % 26));
+		}
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("\"" + value + "\";" + value + "\nlast"));
+
+		assertArrayEquals(new String[] {value.toString(), value.toString()}, tokenizer.nextRecord());
+		assertArrayEquals(new String[] {"last"}, tokenizer.nextRecord());
+		assertNull(tokenizer.nextRecord());
+	}
+
+	@Test
+	void testUnterminatedQuote()
+	{
+		CsvTokenizer tokenizer = new CsvTokenizer(new StringReader("a;\"b\nc"));
+
+		assertThrows(IOException.class, () -> tokenizer.nextRecord());
+		assertThrows(IllegalArgumentException.class, () -> CsvTokenizer.split("a;\"b\nc", ';'));
+	}
+
+	@Test
+	void testSplit() throws Exception
+	{
+		String[] lines = {"", ";", "a", "a;b;", "a;\"b;c\";\"say \"\"hello\"\"\"", "\"\"", "\"\"\"\"", "\"a\"b;c\"d", "\"multi\nline\";x",
+				"a\"b;\"c\"\"\"", "a;b\r\nc", "\"\";\"\""};
+		for(String line : lines)
+		{
+			CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(line));
+			tokenizer.setSkipEmptyLines(false);
+			String[] record = tokenizer.nextRecord();
+			// the line is split the same way as a record is read
+			assertArrayEquals(record!=null ? record : new String[] {""}, CsvTokenizer.split(line, ';'), line);
+		}
+	}
+
+	@Test
+	void testSplitterRemoveQuotes() throws Exception
+	{
+		Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+		splitter.setRemoveQuotes(true);
+
+		assertArrayEquals(new Object[] {"a", "b;c", "d"}, splitter.getFields("a;\"b;c\";d"));
+
+		splitter.setFieldSeperator("\\|\\|");
+		assertArrayEquals(new Object[] {"a", "b", "\""}, splitter.getFields("a||\"b\"||\""));
+	}
+}
@@ -0,0 +1,106 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FixedLengthReaderTest
+{
+	ArrayList<Field> fields;
+
+	@BeforeEach
+	void init()
+	{
+		fields = new ArrayList<Field>();
+		fields.add(new Field("name", 0, 6));
+		Field city = new Field("city", 6, 5);
+		city.setType(Field.TYPE_EBCDIC);
+		fields.add(city);
+		Field amount = new Field("amount", 11, 3);
+		amount.setType(Field.TYPE_PACKED_DECIMAL);
+		amount.setDecimals(2);
+		fields.add(amount);
+		Field count = new Field("count", 14, 2);
+		count.setType(Field.TYPE_BINARY);
+		fields.add(count);
+	}
+
+	@Test
+	void testReadRecords() throws Exception
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeRecord(stream, "peter ", "paris", new byte[] {0x12, 0x34, 0x5c}, new byte[] {0x01, 0x02});
+		writeRecord(stream, "  mary", "rome ", new byte[] {0x00, 0x00, 0x1d}, new byte[] {(byte)0xff, (byte)0xfe});
+
+		try(FixedLengthReader reader = new FixedLengthReader(new ByteArrayInputStream(stream.toByteArray()), fields))
+		{
+			reader.setRecordSeparatorLength(1);
+
+			RowFieldCollection first = reader.getRowFieldCollection();
+			assertEquals("peter", first.getFieldValue("name"));
+			assertEquals("paris", first.getFieldValue("city"));
+			assertEquals(new BigDecimal("123.45"), first.getFieldValue("amount"));
+			assertEquals(258L, first.getFieldValue("count"));
+
+			RowFieldCollection second = reader.getRowFieldCollection();
+			assertSame(first.getHeader(), second.getHeader());
+			assertEquals("mary", second.getFieldValue(0));
+			assertEquals("rome", second.getFieldValue(1));
+			assertEquals(new BigDecimal("-0.01"), second.getFieldValue(2));
+			assertEquals(-2L, second.getFieldValue(3));
+
+			assertNull(reader.getRowFieldCollection());
+			assertEquals(2, reader.getNumberOfRecords());
+		}
+	}
+
+	@Test
+	void testRecycleRows() throws Exception
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeRecord(stream, "peter ", "paris", new byte[] {0x00, 0x00, 0x1c}, new byte[] {0x00, 0x01});
+		writeRecord(stream, "mary  ", "rome ", new byte[] {0x00, 0x00, 0x2c}, new byte[] {0x00, 0x02});
+
+		FixedLengthReader reader = new FixedLengthReader(new ByteArrayInputStream(stream.toByteArray()), fields);
+		reader.setRecordSeparatorLength(1);
+		reader.setRecycleRows(true);
+
+		RowFieldCollection first = reader.getRowFieldCollection();
+		assertEquals("peter", first.getFieldValue("name"));
+		first.setFieldValue("name", "paul");
+
+		RowFieldCollection second = reader.getRowFieldCollection();
+		assertSame(first, second);
+		assertEquals("mary", second.getFieldValue("name"));
+		assertFalse(second.getField(0).isUpdated());
+		reader.close();
+	}
+
+	@Test
+	void testInvalidValues() throws Exception
+	{
+		assertNull(FixedLengthReader.decodePackedDecimal(new byte[] {0x1a, 0x2c}, 0, 2, 0));
+		assertNull(FixedLengthReader.decodePackedDecimal(new byte[] {0x12, 0x34}, 0, 2, 0));
+		assertEquals(new BigDecimal("-12345678901234567890"), FixedLengthReader.decodePackedDecimal(new byte[] {0x01, 0x23, 0x45, 0x67, (byte)0x89, 0x01, 0x23, 0x45, 0x67, (byte)0x89, 0x0d}, 0, 11, 0));
+
+		ByteArrayInputStream incomplete = new ByteArrayInputStream(new byte[10]);
+		assertThrows(IOException.class, () -> new FixedLengthReader(incomplete, fields).getRowFieldCollection());
+	}
+
+	private static void writeRecord(ByteArrayOutputStream stream, String name, String city, byte[] amount, byte[] count) throws IOException
+	{
+		stream.write(name.getBytes("ISO-8859-1"));
+		stream.write(city.getBytes(Charset.forName(FixedLengthReader.DEFAULT_EBCDIC_CHARSET)));
+		stream.write(amount);
+		stream.write(count);
+		stream.write('\n');
+	}
+}
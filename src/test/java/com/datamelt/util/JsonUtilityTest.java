@@ -0,0 +1,87 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonUtilityTest
+{
+	@Test
+	void testParse() throws Exception
+	{
+		Map<String,Object> object = JsonUtility.parseObject(" {\"name\": \"pe\\\"ter\\u00e9\", \"age\": 42, \"large\": 12345678901, \"huge\": 123456789012345678901234,"
+				+ " \"price\": -1.5e2, \"active\": true, \"deleted\": false, \"comment\": null, \"tags\": [1, \"a\", []], \"nested\": {}} ");
+		assertEquals(Arrays.asList("name", "age", "large", "huge", "price", "active", "deleted", "comment", "tags", "nested"), new ArrayList<String>(object.keySet()));
+		assertEquals("pe\"teré", object.get("name"));
+		assertEquals(42, object.get("age"));
+		assertEquals(12345678901L, object.get("large"));
+		assertEquals(new BigInteger("123456789012345678901234"), object.get("huge"));
+		assertEquals(-150d, object.get("price"));
+		assertEquals(Boolean.TRUE, object.get("active"));
+		assertEquals(Boolean.FALSE, object.get("deleted"));
+		assertNull(object.get("comment"));
+		assertEquals(Arrays.asList(1, "a", new ArrayList<Object>()), object.get("tags"));
+		assertTrue(((Map<?,?>)object.get("nested")).isEmpty());
+	}
+
+	@Test
+	void testInvalid()
+	{
+		for(String json : new String[] {"", "{", "{\"a\" 1}", "{\"a\":1,}", "[1 2]", "\"open", "{} x", "{a:1}", "-"})
+		{
+			assertThrows(Exception.class, () -> JsonUtility.parse(json), json);
+		}
+		assertThrows(Exception.class, () -> JsonUtility.parseObject("[]"));
+	}
+
+	@Test
+	void testMaximumDepth() throws Exception
+	{
+		assertNotNull(JsonUtility.parse(getNestedArrays(JsonUtility.MAXIMUM_DEPTH)));
+		assertThrows(Exception.class, () -> JsonUtility.parse(getNestedArrays(JsonUtility.MAXIMUM_DEPTH + 1)));
+		// the text is rejected before the stack of the thread is exhausted
+		assertThrows(Exception.class, () -> JsonUtility.parse(getNestedArrays(1000000)));
+	}
+
+	private static String getNestedArrays(int depth)
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0;i<depth;i++)
+		{
+			builder.append('[');
+		}
+		for(int i=0;i<depth;i++)
+		{
+			builder.append(']');
+		}
+		return builder.toString();
+	}
+
+	@Test
+	void testToJson() throws Exception
+	{
+		LinkedHashMap<String,Object> object = new LinkedHashMap<String,Object>();
+		object.put("text", "a\"b\\c\nd\u0001");
+		object.put("number", 42L);
+		object.put("decimal", new BigDecimal("1.50"));
+		object.put("nan", Double.NaN);
+		object.put("list", Arrays.asList(true, null));
+		object.put("array", new String[] {"x"});
+		String json = JsonUtility.toJson(object);
+		assertEquals("{\"text\":\"a\\\"b\\\\c\\nd\\u0001\",\"number\":42,\"decimal\":1.50,\"nan\":null,\"list\":[true,null],\"array\":[\"x\"]}", json);
+
+		// the written text is parsed into the same values
+		Map<String,Object> parsed = JsonUtility.parseObject(json);
+		assertEquals("a\"b\\c\nd\u0001", parsed.get("text"));
+		List<?> list = (List<?>)parsed.get("list");
+		assertEquals(Boolean.TRUE, list.get(0));
+	}
+}
@@ -0,0 +1,253 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.ReferenceField;
+
+class RowFieldCollectionTest 
+{
+	HeaderRow header;
+	RowFieldCollection collection;
+	
+	@BeforeEach
+	void init() 
+	{
+		header = new HeaderRow(new String[] {"name", "city", "age"});
+		collection = new RowFieldCollection(header, new Object[] {"peter", "paris", 42});
+	}
+	
+	@Test
+	void testSetFieldValue() throws Exception
+	{
+		collection.setFieldValue("city", "berlin");
+		collection.setFieldValue("age", 43);
+		
+		assertEquals("berlin", collection.getFieldValue("city"));
+		assertEquals(43, collection.getFieldValue("age"));
+		assertTrue(collection.getField("city").isUpdated());
+		assertTrue(collection.isCollectionUpdated());
+		assertThrows(FieldNotFoundException.class, () -> collection.setFieldValue("country", "france"));
+	}
+	
+	@Test
+	void testRemoveField() throws Exception
+	{
+		collection.removeField("city");
+		
+		assertEquals(2, collection.getNumberOfFields());
+		assertEquals(42, collection.getFieldValue("age"));
+		assertFalse(collection.existField("city"));
+		
+		// the shared header is not modified
+		assertEquals(3, header.getNumberOfFields());
+		assertEquals(1, header.getFieldIndex("city"));
+	}
+	
+	@Test
+	void testAddField() throws Exception
+	{
+		collection.addField("country", "france");
+		collection.setFieldValue("country", "germany");
+		
+		assertEquals("germany", collection.getFieldValue("country"));
+		assertEquals(3, collection.getHeader().getFieldIndex("country"));
+		
+		// the shared header is not modified
+		assertFalse(header.getFields().containsKey("country"));
+	}
+	
+	@Test
+	void testFieldsWithoutHeader() throws Exception
+	{
+		ArrayList<RowField> fields = new ArrayList<RowField>();
+		fields.add(new RowField("name", "peter"));
+		fields.add(new RowField("city", "paris"));
+		
+		RowFieldCollection collection = new RowFieldCollection(fields);
+		collection.setFieldValue("city", "rome");
+		
+		assertEquals("rome", collection.getFieldValue("city"));
+		
+		RowFieldCollection values = new RowFieldCollection(new Object[] {"a", "b"});
+		assertEquals(2, values.getNumberOfFields());
+		assertEquals("b", values.getFieldValue(RowField.DEFAULT_FIELDNAME + "_1"));
+	}
+	
+	@Test
+	void testFieldSlotResolver() throws Exception
+	{
+		FieldSlotResolver resolver = new FieldSlotResolver("age");
+		RowFieldCollection other = new RowFieldCollection(header, new Object[] {"mary", "rome", 37});
+		
+		assertEquals(2, resolver.getSlot(collection));
+		assertEquals(42, resolver.getFieldValue(collection));
+		assertEquals(37, resolver.getFieldValue(other));
+		
+		resolver.setFieldValue(other, 38);
+		assertEquals(38, other.getFieldValue("age"));
+		assertTrue(other.getField("age").isUpdated());
+		
+		// a row with a different header
+		RowFieldCollection reordered = new RowFieldCollection(new String[] {"age", "name"}, new Object[] {21, "john"});
+		assertEquals(21, resolver.getFieldValue(reordered));
+		
+		// removing a field creates a new header for the row
+		collection.removeField("city");
+		assertEquals(42, resolver.getFieldValue(collection));
+		
+		assertThrows(FieldNotFoundException.class, () -> new FieldSlotResolver("country").getSlot(collection));
+	}
+	
+	@Test
+	void testFieldSlotResolverWithoutHeader() throws Exception
+	{
+		// both rows share the default header, which does not describe their fields
+		ArrayList<ReferenceField> firstFields = new ArrayList<ReferenceField>();
+		firstFields.add(createReferenceField("b", ReferenceField.FIELD_TYPE_ID_STRING));
+		RowFieldCollection first = new RowFieldCollection();
+		first.addFields(firstFields, new Object[] {"B1"});
+		
+		ArrayList<ReferenceField> secondFields = new ArrayList<ReferenceField>();
+		secondFields.add(createReferenceField("a", ReferenceField.FIELD_TYPE_ID_STRING));
+		secondFields.add(createReferenceField("b", ReferenceField.FIELD_TYPE_ID_STRING));
+		RowFieldCollection second = new RowFieldCollection();
+		second.addFields(secondFields, new Object[] {"A2", "B2"});
+		assertSame(first.getHeader(), second.getHeader());
+		
+		FieldSlotResolver resolver = new FieldSlotResolver("b");
+		assertEquals("B1", resolver.getFieldValue(first));
+		assertEquals("B2", resolver.getFieldValue(second));
+		resolver.setFieldValue(second, "B3");
+		assertEquals("A2", second.getFieldValue("a"));
+		assertEquals("B3", second.getFieldValue("b"));
+		assertEquals("B1", resolver.getFieldValue(first));
+	}
+	
+	@Test
+	void testHeaderWithSpaces() throws Exception
+	{
+		// the header row indexes the names of the fields without the spaces after the separator
+		HeaderRow spacedHeader = new HeaderRow("id; name", ";");
+		RowFieldCollection row = new RowFieldCollection(spacedHeader, new Object[] {"1", "peter"});
+		assertEquals("peter", row.getFieldValue("name"));
+		assertEquals(1, row.getFieldIndex("name"));
+		assertEquals("peter", new FieldSlotResolver("name").getFieldValue(row));
+	}
+	
+	@Test
+	void testRemoveFields() throws Exception
+	{
+		collection.removeFields();
+		assertEquals(0, collection.getNumberOfFields());
+		assertEquals(-1, collection.getFieldIndex("name"));
+		
+		// the fields added afterwards are not looked up using the old header
+		collection.addField("city", "rome");
+		assertEquals(0, collection.getFieldIndex("city"));
+		assertEquals("rome", collection.getFieldValue("city"));
+		assertEquals(-1, collection.getFieldIndex("name"));
+	}
+	
+	@Test
+	void testSharedHeader() throws Exception
+	{
+		RowFieldCollection first = new RowFieldCollection(new String[] {"name", "city"}, new Object[] {"peter", "paris"});
+		RowFieldCollection second = new RowFieldCollection(new String[] {"name", "city"}, new Object[] {"mary", "rome"});
+		
+		assertSame(first.getHeader(), second.getHeader());
+		assertTrue(first.getHeader().isImmutable());
+		assertThrows(UnsupportedOperationException.class, () -> first.getHeader().addField("age"));
+		
+		// modifying a row copies the shared header
+		second.addField("age", 37);
+		assertNotSame(first.getHeader(), second.getHeader());
+		assertEquals(2, first.getHeader().getNumberOfFields());
+		assertEquals(37, second.getFieldValue("age"));
+	}
+	
+	@Test
+	void testSplitterSharesHeader() throws Exception
+	{
+		Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+		RowFieldCollection first = splitter.getRowFieldCollection("peter;paris");
+		RowFieldCollection second = splitter.getRowFieldCollection("mary;rome");
+		
+		assertSame(first.getHeader(), second.getHeader());
+		assertSame(HeaderRow.getDefaultHeader(2), first.getHeader());
+		assertEquals("rome", second.getFieldValue(RowField.DEFAULT_FIELDNAME + "_1"));
+		
+		splitter.setFieldNames(new String[] {"name", "city"});
+		RowFieldCollection named = splitter.getRowFieldCollection("john;london");
+		assertSame(splitter.getHeaderRow(), named.getHeader());
+		assertEquals("london", named.getFieldValue("city"));
+	}
+	
+	@Test
+	void testTypedFields() throws Exception
+	{
+		ArrayList<ReferenceField> referenceFields = new ArrayList<ReferenceField>();
+		referenceFields.add(createReferenceField("age", ReferenceField.FIELD_TYPE_ID_INTEGER));
+		referenceFields.add(createReferenceField("score", ReferenceField.FIELD_TYPE_ID_DOUBLE));
+		
+		HeaderRow typedHeader = HeaderRow.intern(new String[] {"name", "age", "score"});
+		int[] types = TypedRowField.getFieldTypes(typedHeader, referenceFields);
+		RowFieldCollection row = new RowFieldCollection(typedHeader, types);
+		
+		assertFalse(row.getField(0) instanceof TypedRowField);
+		assertTrue(row.getField(1) instanceof TypedRowField);
+		assertNull(row.getFieldValue("age"));
+		
+		row.getField(0).setValue("peter");
+		row.setFieldValue(1, 42);
+		row.setFieldValue("score", 1.5);
+		
+		assertEquals(42, row.getFieldValue("age"));
+		assertEquals(42L, row.getFieldLongValue(1));
+		assertEquals(1.5, row.getFieldDoubleValue("score"));
+		assertEquals(Double.valueOf(1.5), row.getFieldValue(2));
+		assertEquals(42L, new FieldSlotResolver("age").getLongValue(row));
+		
+		// a value of a different type is kept as it is
+		row.setFieldValue("age", "unknown");
+		assertEquals("unknown", row.getFieldValue("age"));
+		assertThrows(ClassCastException.class, () -> row.getFieldLongValue(1));
+	}
+	
+	@Test
+	void testSplitterRecyclesRows() throws Exception
+	{
+		Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+		splitter.setRecycleRows(true);
+		
+		RowFieldCollection first = splitter.getRowFieldCollection("peter;paris");
+		RowField field = first.getField(1);
+		first.setFieldValue(1, "rome");
+		
+		RowFieldCollection second = splitter.getRowFieldCollection("mary;london");
+		assertSame(first, second);
+		assertSame(field, second.getField(1));
+		assertEquals("london", second.getFieldValue(1));
+		assertFalse(second.isCollectionUpdated());
+		assertFalse(field.isUpdated());
+		
+		// a retained row is not recycled
+		second.setRetained(true);
+		RowFieldCollection third = splitter.getRowFieldCollection("john;berlin;germany");
+		assertNotSame(second, third);
+		assertEquals("london", second.getFieldValue(1));
+		assertEquals(3, third.getNumberOfFields());
+	}
+	
+	private static ReferenceField createReferenceField(String name, int type)
+	{
+		ReferenceField field = new ReferenceField();
+		field.setName(name);
+		field.setJavaTypeId(type);
+		return field;
+	}
+}
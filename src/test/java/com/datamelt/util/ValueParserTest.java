@@ -0,0 +1,157 @@
+package com.datamelt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.datamelt.rules.core.ReferenceField;
+import com.datamelt.rules.engine.BusinessRulesEngine;
+
+class ValueParserTest
+{
+	@Test
+	void testParseLong()
+	{
+		ValueParser parser = new ValueParser();
+
+		assertTrue(parser.parseLong("-1234"));
+		assertEquals(-1234, parser.getLongValue());
+		assertTrue(parser.parseLong("+7"));
+		assertEquals(7, parser.getLongValue());
+		assertTrue(parser.parseLong(String.valueOf(Long.MIN_VALUE)));
+		assertEquals(Long.MIN_VALUE, parser.getLongValue());
+		assertTrue(parser.parseLong(String.valueOf(Long.MAX_VALUE)));
+		assertEquals(Long.MAX_VALUE, parser.getLongValue());
+
+		assertFalse(parser.parseLong("9223372036854775808"));
+		assertFalse(parser.parseLong(""));
+		assertFalse(parser.parseLong("-"));
+		assertFalse(parser.parseLong("12a"));
+		assertFalse(parser.parseLong(" 12"));
+		assertFalse(parser.parseLong(null));
+	}
+
+	@Test
+	void testParseDouble()
+	{
+		ValueParser parser = new ValueParser();
+		String[] values = {"0", "-0.5", "3.14159", "1.", ".25", "123456789.123456", "1234567890123456789.5", "1e10", "-2.5E-3", "0.1", "0.000000000000000000000000001"};
+		for(String value : values)
+		{
+			assertTrue(parser.parseDouble(value), value);
+			assertEquals(Double.parseDouble(value), parser.getDoubleValue(), value);
+		}
+
+		assertFalse(parser.parseDouble("abc"));
+		assertFalse(parser.parseDouble("1e"));
+		assertFalse(parser.parseDouble("1.2.3"));
+		assertFalse(parser.parseDouble("."));
+		assertFalse(parser.parseDouble("NaN"));
+		assertFalse(parser.parseDouble(""));
+	}
+
+	@Test
+	void testParseBooleanAndDate()
+	{
+		ValueParser parser = new ValueParser();
+
+		assertTrue(parser.parseBoolean("TRUE"));
+		assertTrue(parser.getBooleanValue());
+		assertTrue(parser.parseBoolean("false"));
+		assertFalse(parser.getBooleanValue());
+		assertFalse(parser.parseBoolean("yes"));
+
+		assertTrue(parser.parseDate("2018-03-14 12:30:45"));
+		assertEquals(parser.getDateValue(), ClassUtility.getObject(ClassUtility.TYPE_DATE, "2018-03-14 12:30:45"));
+		assertTrue(parser.parseDate("2018-03-14"));
+		assertEquals(parser.getDateValue(), ClassUtility.getObject(ClassUtility.TYPE_DATE, "2018-03-14"));
+		assertFalse(parser.parseDate("2018-13-14"));
+		assertFalse(parser.parseDate("14.03.2018"));
+		assertFalse(parser.parseDate("2018-03-14 25:00:00"));
+	}
+
+	@Test
+	void testSplitterConvertsReferenceFields() throws Exception
+	{
+		ArrayList<ReferenceField> referenceFields = new ArrayList<ReferenceField>();
+		referenceFields.add(getReferenceField("amount", ReferenceField.FIELD_TYPE_ID_LONG));
+		referenceFields.add(getReferenceField("price", ReferenceField.FIELD_TYPE_ID_BIGDECIMAL));
+		referenceFields.add(getReferenceField("active", ReferenceField.FIELD_TYPE_ID_BOOLEAN));
+
+		Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+		splitter.setFieldNames(new String[] {"name", "amount", "price", "active"});
+		splitter.setReferenceFields(referenceFields);
+		splitter.setRecycleRows(true);
+
+		RowFieldCollection row = splitter.getRowFieldCollection("peter;42;12.50;true");
+		assertEquals("peter", row.getFieldValue("name"));
+		assertEquals(42L, row.getFieldValue("amount"));
+		assertEquals(42, row.getFieldLongValue("amount"));
+		assertEquals(new BigDecimal("12.50"), row.getFieldValue("price"));
+		assertEquals(Boolean.TRUE, row.getFieldValue("active"));
+
+		// invalid values remain strings
+		RowFieldCollection next = splitter.getRowFieldCollection("paul;;x;maybe");
+		assertSame(row, next);
+		assertEquals("", next.getFieldValue("amount"));
+		assertEquals("x", next.getFieldValue("price"));
+		assertEquals("maybe", next.getFieldValue("active"));
+		assertFalse(next.isCollectionUpdated());
+	}
+
+	@Test
+	void testStringRuleOverConvertedColumn() throws Exception
+	{
+		String rules = "<ruleengine>"
+				+ "<group id=\"group_text\" description=\"check the text\" validfrom=\"2000-01-01\" validuntil=\"2999-12-31\">"
+				+ "<subgroup id=\"subgroup_text\" intergroupoperator=\"and\" ruleoperator=\"and\">"
+				+ getEqualsRule("zip", "00123")
+				+ getEqualsRule("day", "2018-01-15")
+				+ "</subgroup>"
+				+ "</group>"
+				+ "</ruleengine>";
+		BusinessRulesEngine engine = new BusinessRulesEngine(new InputStream[] {new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8))});
+
+		ArrayList<ReferenceField> referenceFields = new ArrayList<ReferenceField>();
+		referenceFields.add(getReferenceField("zip", ReferenceField.FIELD_TYPE_ID_INTEGER));
+		referenceFields.add(getReferenceField("day", ReferenceField.FIELD_TYPE_ID_DATE));
+		Splitter splitter = new Splitter(Splitter.TYPE_COMMA_SEPERATED);
+		splitter.setFieldNames(new String[] {"zip", "day"});
+		splitter.setReferenceFields(referenceFields);
+
+		RowFieldCollection row = splitter.getRowFieldCollection("00123;2018-01-15");
+		assertEquals(123, row.getFieldValue("zip"));
+		assertEquals("00123", row.getField(0).getText());
+
+		// a rule on a string gets the text as it was read
+		engine.run("row", row);
+		assertEquals(0, engine.getNumberOfGroupsFailed());
+
+		// the text is reset, when the value is set
+		row.setFieldValue("zip", 124);
+		assertNull(row.getField(0).getText());
+	}
+
+	private static String getEqualsRule(String fieldName, String expectedValue)
+	{
+		return "<rule id=\"rule_" + fieldName + "\" description=\"" + fieldName + " is equal\">"
+				+ "<object classname=\"com.datamelt.util.RowFieldCollection\" method=\"getFieldValue\" parameter=\"" + fieldName + "\" parametertype=\"string\" type=\"string\"/>"
+				+ "<expected value=\"" + expectedValue + "\" type=\"string\"/>"
+				+ "<execute value=\"com.datamelt.rules.implementation.CheckIsEqual\"/>"
+				+ "</rule>";
+	}
+
+	private static ReferenceField getReferenceField(String name, int javaTypeId)
+	{
+		ReferenceField field = new ReferenceField();
+		field.setName(name);
+		field.setJavaTypeId(javaTypeId);
+		return field;
+	}
+}